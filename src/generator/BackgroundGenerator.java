@@ -21,6 +21,8 @@ package generator;
 
 import java.awt.EventQueue;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import solver.SudokuSolver;
 import solver.SudokuSolverFactory;
 import sudoku.ClipboardMode;
@@ -39,15 +41,28 @@ import sudoku.Sudoku2;
  * default solver and reports the progress to the dialog. If a puzzle has been
  * found, the dialog is closed. The creation process can be aborted at any time.<br>
  * If it is called from a {@link BackgroundGeneratorThread}, it simply delivers
- * the generated puzzle or <code>null</code>, if no puzzle could be found.
+ * the generated puzzle or <code>null</code>, if no puzzle could be found.<br><br>
+ * 
+ * Generating and rating are pipelined: a producer thread creates new puzzles
+ * (several from every full grid, see {@link SudokuGenerator#generateNextSudoku(boolean, int)})
+ * while the calling thread rates them. Callers, that run several generators
+ * in parallel, can switch the pipeline off (see {@link #setPipelined(boolean) }).
  * 
  * @author hobiwan
  */
 public class BackgroundGenerator {
     /** Maximal number of tries, when called from a {@link BackgroundGeneratorThread}. */
     private static final int MAX_TRIES = 20000;
+    /** Number of puzzles the producer may create in advance. */
+    private static final int PIPELINE_SIZE = 4;
+    /** Marker put into the pipeline, if no puzzle can be created (invalid pattern). */
+    private static final Sudoku2 NO_PUZZLE = new Sudoku2();
     /** Current number of tries when called from {@link GenerateSudokuProgressDialog}. */
     private int anz = 0;
+    /** Number of threads used for puzzles with a pattern (see {@link PatternGenerator}). */
+    private int patternThreads = Runtime.getRuntime().availableProcessors();
+    /** If set, the puzzles are created by a producer thread while the calling thread rates them. */
+    private boolean pipelined = true;
     /** Progress dialog when called from GUI. */
     private GenerateSudokuProgressDialog progressDialog = null;
 
@@ -94,6 +109,7 @@ public class BackgroundGenerator {
         SudokuGenerator creator = null; 
         SudokuSolver solver = null;
         setAnz(0);
+        BlockingQueue<Sudoku2> queue = new ArrayBlockingQueue<Sudoku2>(PIPELINE_SIZE);
         if (dlg == null) {
             // get any instance
             solver = SudokuSolverFactory.getInstance();
@@ -103,14 +119,25 @@ public class BackgroundGenerator {
             solver = SudokuSolverFactory.getDefaultSolverInstance();
             creator = SudokuGeneratorFactory.getDefaultGeneratorInstance();
         }
+        Thread producer = pipelined ? startProducer(creator, queue) : null;
         while (dlg == null || ! Thread.currentThread().isInterrupted()) {
-            sudoku = creator.generateSudoku(true);
-            if (sudoku == null) {
+            try {
+                sudoku = producer != null ? queue.take() : creator.generateNextSudoku(true, patternThreads);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                sudoku = null;
+                break;
+            }
+            if (sudoku == null || sudoku == NO_PUZZLE) {
                 // impossible to create sudoku due to an invalid pattern
-                return null;
+                sudoku = null;
+                break;
             }
             Sudoku2 solvedSudoku = sudoku.clone();
-            boolean ok = solver.solve(level, solvedSudoku, true, null, false, 
+            // puzzles with the wrong level are rejected anyway: stop as soon as
+            // a puzzle is certainly too easy (not in LEARNING mode, any level is
+            // accepted there)
+            boolean ok = solver.solve(level, mode == GameMode.LEARNING ? null : level, solvedSudoku, true, null, false, 
                     Options.getInstance().solverSteps, mode);
             boolean containsTrainingStep = true;
             if (mode != GameMode.PLAYING) {
@@ -151,6 +178,14 @@ public class BackgroundGenerator {
                 }
             }
         }
+        if (producer != null) {
+            producer.interrupt();
+            try {
+                producer.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
         if (dlg == null) {
             // give everything back
             SudokuGeneratorFactory.giveBack(creator);
@@ -159,6 +194,59 @@ public class BackgroundGenerator {
         return sudoku;
     }
 
+    /**
+     * Starts a thread, that creates new puzzles and puts them into
+     * <code>queue</code>, until it is interrupted.
+     * 
+     * @param creator
+     * @param queue
+     * @return
+     */
+    private Thread startProducer(final SudokuGenerator creator, final BlockingQueue<Sudoku2> queue) {
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (! Thread.currentThread().isInterrupted()) {
+                        Sudoku2 sudoku = creator.generateNextSudoku(true, patternThreads);
+                        if (sudoku == null) {
+                            queue.put(NO_PUZZLE);
+                            break;
+                        }
+                        queue.put(sudoku);
+                    }
+                } catch (InterruptedException ex) {
+                    // done
+                }
+            }
+        }, "BackgroundGenerator producer");
+        producer.setDaemon(true);
+        producer.start();
+        return producer;
+    }
+
+    /**
+     * Sets the number of threads used for puzzles with a pattern. Callers, that
+     * run several generators in parallel, should use 1.
+     * 
+     * @param patternThreads
+     */
+    public void setPatternThreads(int patternThreads) {
+        this.patternThreads = Math.max(1, patternThreads);
+    }
+
+    /**
+     * If <code>pipelined</code> is not set, the puzzles are created in the
+     * calling thread between the ratings, no producer thread is started.
+     * Callers, that run several generators in parallel, should not use the
+     * pipeline.
+     * 
+     * @param pipelined
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
     /**
      * @return the anz
      */
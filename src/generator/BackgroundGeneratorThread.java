@@ -16,15 +16,21 @@
  * You should have received a copy of the GNU General Public License
  * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package generator;
 
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import sudoku.DifficultyLevel;
 import sudoku.DifficultyType;
 import sudoku.GameMode;
 import sudoku.Options;
+import sudoku.PuzzleStore;
 import sudoku.StepConfig;
 
 /**
@@ -44,38 +50,116 @@ import sudoku.StepConfig;
  *  <li>When the {@link DifficultyLevel} is changed in the GUI: <code>PRACTISING</code> puzzles are redone</li>
  *  <li>When a configuration is loaded from a file, all puzzles are redone</li>
  * </ul>
+ * Every combination of {@link DifficultyLevel} and {@link GameMode} has its own
+ * slot with a concurrent queue of puzzles and a fill target (at most
+ * {@link Options#CACHE_SIZE}, default {@link Options#getGeneratorCacheTarget()}).
+ * The puzzles are created by a pool of low priority worker threads (one less
+ * than the number of cores, if not set otherwise in {@link Options}). Every
+ * worker creates and rates its puzzles itself, no other threads are started
+ * (see {@link BackgroundGenerator#setPipelined(boolean) }). A worker
+ * reserves a puzzle in the first slot, whose puzzles plus the puzzles already
+ * in progress are below the target, so slots are never overfilled. If
+ * nothing is left to do, the workers sleep until the next request.<br>
+ * {@link #getSudoku(sudoku.DifficultyLevel, sudoku.GameMode)} only takes
+ * a puzzle out of a queue, it never waits for the workers. The contents of
+ * the queues are written back into the arrays in {@link Options}, so they
+ * are stored with the configuration as before.<br>
+ * If a puzzle store is set in {@link Options#getPuzzleStoreDir() }, the
+ * workers take puzzles from the store first (puzzles, that were rated with
+ * the current step configuration and that have not been used yet, see
+ * {@link PuzzleStore#takePuzzle(sudoku.DifficultyLevel, sudoku.GameMode) });
+ * only if the store has no suitable puzzle, a new one is created. If a slot
+ * is empty, <code>getSudoku()</code> takes the puzzle directly from the store,
+ * so a store filled in advance (console option <code>/dbg</code>) makes
+ * new games available immediately for every level. <code>getSudoku()</code>
+ * doesnt wait for the store: if a worker is using it or if it has not been
+ * opened yet, no puzzle is returned. The store is not used, if a generator
+ * pattern is active.<br>
+ * The fill rate and the latency of <code>getSudoku()</code> are recorded
+ * per slot, see {@link #getStatistics()}.<br>
  * This class is a singleton.
- * 
+ *
  * @author hobiwan
  */
-public class BackgroundGeneratorThread implements Runnable {
+public class BackgroundGeneratorThread {
     /** Debug flag */
     private static final boolean DEBUG = false;
+    /** Index of the LEARNING slot in {@link #slots} (PLAYING uses the level ordinal - 1). */
+    private static final int LEARNING_SLOT = 5;
+    /** Index of the PRACTISING slot in {@link #slots}. */
+    private static final int PRACTISING_SLOT = 6;
     /** The singleton instance */
     private static BackgroundGeneratorThread instance = null;
-    /** the actual creator */
-    private BackgroundGenerator generator;
-    /** The creation thread */
-    private final Thread thread;
-    /** a flag that indicates, that a new sudoku has been passed in */
-    private boolean newRequest = false;
-    /** a flag that indicates, if the thread has been started yet */
-    private boolean threadStarted = false;
-    
+    /** One slot for every level (PLAYING), one for LEARNING and one for PRACTISING. */
+    private final Slot[] slots = new Slot[7];
+    /** The worker threads. */
+    private Thread[] threads = null;
+    /** The workers sleep on this monitor, if nothing is to do. */
+    private final Object lock = new Object();
+    /** Incremented by every call to {@link #startCreation()}. */
+    private int requestCount = 0;
+    /** The {@link Options} instance, from which the slots were filled. */
+    private Options loadedFrom = null;
+    /** The value of {@link Options#getGeneratorCacheTarget()}, that was last applied to the slots. */
+    private int loadedTarget = -1;
+    /** Time of the first creation run (for the fill rate). */
+    private volatile long startTime = 0;
+    /** The puzzle store (<code>null</code>, if none is set or if it couldnt be opened). */
+    private PuzzleStore store = null;
+    /** The directory of {@link #store}. */
+    private String storeDir = null;
+    /** Lock for {@link #store} (opening a large store takes a while). */
+    private final ReentrantLock storeLock = new ReentrantLock();
+
+    /**
+     * The puzzles and statistics for one combination of {@link DifficultyLevel}
+     * and {@link GameMode}.
+     */
+    private static class Slot {
+        /** The puzzles in this slot. */
+        final ConcurrentLinkedQueue<String> puzzles = new ConcurrentLinkedQueue<String>();
+        /** Number of puzzles currently created for this slot. */
+        final AtomicInteger inProgress = new AtomicInteger();
+        /** Changed, when the slot is reset; puzzles created before are discarded. */
+        volatile int epoch = 0;
+        /** The number of puzzles the workers try to keep in this slot. */
+        volatile int target = Options.CACHE_SIZE;
+        /** Set, if no puzzle could be created; reset by the next request. */
+        volatile boolean failed = false;
+        /** Number of puzzles created. */
+        final AtomicLong created = new AtomicLong();
+        /** Number of puzzles taken from the puzzle store (included in {@link #created}). */
+        final AtomicLong fromStore = new AtomicLong();
+        /** Time spent creating puzzles. */
+        final AtomicLong creationMillis = new AtomicLong();
+        /** Number of calls to {@link BackgroundGeneratorThread#getSudoku(sudoku.DifficultyLevel, sudoku.GameMode)}. */
+        final AtomicLong requests = new AtomicLong();
+        /** Number of requests, that found the slot empty. */
+        final AtomicLong misses = new AtomicLong();
+        /** Number of requests, that found the slot empty and were served from the puzzle store. */
+        final AtomicLong storeHits = new AtomicLong();
+        /** Time spent in <code>getSudoku()</code>. */
+        final AtomicLong latencyNanos = new AtomicLong();
+        /** Longest call to <code>getSudoku()</code>. */
+        volatile long maxLatencyNanos = 0;
+    }
+
     /**
      * Creates an instance.
      */
     private BackgroundGeneratorThread() {
-        thread = new Thread(this);
-        generator = new BackgroundGenerator();
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        checkOptions();
     }
-    
+
     /**
      * Retrieves the singleton instance, generates it if necessary.
-     * 
-     * @return 
+     *
+     * @return
      */
-    public static BackgroundGeneratorThread getInstance() {
+    public static synchronized BackgroundGeneratorThread getInstance() {
         if (instance == null) {
             instance = new BackgroundGeneratorThread();
         }
@@ -83,23 +167,32 @@ public class BackgroundGeneratorThread implements Runnable {
     }
 
     /**
-     * Checks, if a puzzle matching the requirements is available.
-     * 
+     * Checks, if a puzzle matching the requirements is available. The
+     * method never waits for the creation of a puzzle.
+     *
      * @param level
      * @param mode
-     * @return 
+     * @return
      */
-    public synchronized String getSudoku(DifficultyLevel level, GameMode mode) {
-        // get the correct puzzles from Options
-        String[] puzzles = getPuzzleArray(level, mode);
-        // check if a puzzle is available
-        String newPuzzle = null;
-        if (puzzles[0] != null) {
-            newPuzzle = puzzles[0];
-            for (int i = 1; i < puzzles.length; i++) {
-                puzzles[i - 1] = puzzles[i];
+    public String getSudoku(DifficultyLevel level, GameMode mode) {
+        long nanos = System.nanoTime();
+        checkOptions();
+        Slot slot = getSlot(level, mode);
+        String newPuzzle = slot.puzzles.poll();
+        if (newPuzzle != null) {
+            storePuzzles(slot);
+        } else {
+            slot.misses.incrementAndGet();
+            newPuzzle = takeStoredPuzzle(level, mode, false);
+            if (newPuzzle != null) {
+                slot.storeHits.incrementAndGet();
             }
-            puzzles[puzzles.length - 1] = null;
+        }
+        slot.requests.incrementAndGet();
+        nanos = System.nanoTime() - nanos;
+        slot.latencyNanos.addAndGet(nanos);
+        if (nanos > slot.maxLatencyNanos) {
+            slot.maxLatencyNanos = nanos;
         }
         if (DEBUG) {
             System.out.println("Got puzzle from cache: " + level.getName() + "/" + mode.name() + "/" + newPuzzle);
@@ -109,60 +202,35 @@ public class BackgroundGeneratorThread implements Runnable {
         // and give it back
         return newPuzzle;
     }
-    
-    /**
-     * Writes a new sudoku into the cache.
-     * 
-     * @param level
-     * @param mode
-     * @param sudoku 
-     */
-    private synchronized void setSudoku(DifficultyLevel level, GameMode mode, String sudoku) {
-        // get the correct puzzles from Options
-        String[] puzzles = getPuzzleArray(level, mode);
-        for (int i = 0; i < puzzles.length; i++) {
-            if (puzzles[i] == null) {
-                puzzles[i] = sudoku;
-                break;
-            }
-        }
-    }
-    
+
     /**
      * The step configuration has been changed:
      * reset everything and start over.
      */
-    public synchronized void resetAll() {
-        String[][] puzzles = Options.getInstance().getNormalPuzzles();
-        for (int i = 0; i < puzzles.length; i++) {
-            for (int j = 0; j < puzzles[i].length; j++) {
-                puzzles[i][j] = null;
-            }
+    public void resetAll() {
+        checkOptions();
+        for (int i = 0; i < LEARNING_SLOT; i++) {
+            resetSlot(slots[i]);
         }
         resetTrainingPractising();
     }
-    
+
     /**
      * The training configuration has changed: recreate the
      * LEARNING and PRACTISING puzzles and start over.
      */
-    public synchronized void resetTrainingPractising() {
-        String[] puzzles1 = Options.getInstance().getLearningPuzzles();
-        for (int i = 0; i < puzzles1.length; i++) {
-            puzzles1[i] = null;
-        }
-        puzzles1 = Options.getInstance().getPractisingPuzzles();
-        for (int i = 0; i < puzzles1.length; i++) {
-            puzzles1[i] = null;
-        }
+    public void resetTrainingPractising() {
+        checkOptions();
+        resetSlot(slots[LEARNING_SLOT]);
+        resetSlot(slots[PRACTISING_SLOT]);
         startCreation();
     }
-    
+
     /**
      * The level has been changed, check if the PRACTISING puzzles
      * have to be recreated.
-     * 
-     * @param newLevel 
+     *
+     * @param newLevel
      */
     public synchronized void setNewLevel(int newLevel) {
         int maxTrainingLevel = getTrainingLevel();
@@ -174,193 +242,482 @@ public class BackgroundGeneratorThread implements Runnable {
             // nothing to do!
             return;
         }
-        String[] puzzles = Options.getInstance().getPractisingPuzzles();
-        for (int i = 0; i < puzzles.length; i++) {
-            puzzles[i] = null;
-        }
+        resetSlot(slots[PRACTISING_SLOT]);
         Options.getInstance().setPractisingPuzzlesLevel(newLevel);
         startCreation();
     }
-    
+
     /**
-     * Schedules a new creation run. If the thread is not yet running,
-     * it is started. The thread is signalled.
-     * Since it is possible, that the thread is still busy with another
-     * run, a flag is set as well.
+     * Sets the number of puzzles, that should be kept for <code>level</code>
+     * and <code>mode</code> (at most {@link Options#CACHE_SIZE}).
+     *
+     * @param level
+     * @param mode
+     * @param target
      */
-    public void startCreation() {
-        if (thread == null) {
-            return;
+    public void setFillTarget(DifficultyLevel level, GameMode mode, int target) {
+        getSlot(level, mode).target = Math.max(0, Math.min(target, Options.CACHE_SIZE));
+        startCreation();
+    }
+
+    /**
+     * Gets the number of puzzles currently available for <code>level</code>
+     * and <code>mode</code>.
+     *
+     * @param level
+     * @param mode
+     * @return
+     */
+    public int getQueueSize(DifficultyLevel level, GameMode mode) {
+        return getSlot(level, mode).puzzles.size();
+    }
+
+    /**
+     * Gets the fill rate of all slots together.
+     *
+     * @return Puzzles created per minute since the first creation run
+     */
+    public double getFillRate() {
+        if (startTime == 0) {
+            return 0;
         }
-        if (! threadStarted) {
-            thread.start();
-            threadStarted = true;
-            if (DEBUG) {
-                System.out.println("BackgroundCreationThread started!");
+        long created = 0;
+        for (Slot slot : slots) {
+            created += slot.created.get();
+        }
+        long millis = Math.max(1, System.currentTimeMillis() - startTime);
+        return created * 60000.0 / millis;
+    }
+
+    /**
+     * Gets the statistics for all slots in printable form: puzzles available,
+     * puzzles created and average creation time, requests and misses,
+     * average and maximum latency of <code>getSudoku()</code>.
+     *
+     * @return
+     */
+    public String getStatistics() {
+        StringBuilder tmp = new StringBuilder();
+        tmp.append("Fill rate: ").append(String.format("%.1f", getFillRate())).append(" puzzles/min, ");
+        tmp.append(threads == null ? 0 : threads.length).append(" threads\n");
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            long created = slot.created.get();
+            long requests = slot.requests.get();
+            tmp.append(getSlotName(i)).append(": ");
+            tmp.append(slot.puzzles.size()).append("/").append(slot.target);
+            tmp.append(" (").append(slot.inProgress.get()).append(" in progress), created ").append(created);
+            if (slot.fromStore.get() > 0) {
+                tmp.append(" (").append(slot.fromStore.get()).append(" from store)");
             }
+            if (created > 0) {
+                tmp.append(" (avg ").append(slot.creationMillis.get() / created).append(" ms)");
+            }
+            tmp.append(", requests ").append(requests).append(" (").append(slot.misses.get()).append(" misses, ");
+            tmp.append(slot.storeHits.get()).append(" from store)");
+            if (requests > 0) {
+                tmp.append(", latency avg ").append(slot.latencyNanos.get() / requests / 1000);
+                tmp.append(" us, max ").append(slot.maxLatencyNanos / 1000).append(" us");
+            }
+            tmp.append("\n");
         }
-        synchronized(thread) {
-            // set a flag indicating a newly scheduled check
-            newRequest = true;
+        return tmp.toString();
+    }
+
+    /**
+     * Schedules a new creation run. If the workers are not yet running,
+     * they are started. All sleeping workers are woken up.
+     */
+    public void startCreation() {
+        synchronized (lock) {
+            if (threads == null) {
+                startWorkers();
+            }
+            for (Slot slot : slots) {
+                slot.failed = false;
+            }
+            // count the request, so that a worker, that is busy right now, doesnt fall asleep
+            requestCount++;
             if (DEBUG) {
                 System.out.println("new creation request scheduled!");
             }
-            // wake up the thread, if it is sleeping
-            thread.notify();
+            // wake up the workers, if they are sleeping
+            lock.notifyAll();
         }
     }
-    
+
     /**
-     * The main thread: If it is signalled it checks, which type of puzzle
-     * is missing. As long as a missing puzzle type is found, the creation is
-     * continued.
+     * Creates and starts the worker threads. Has to be called with
+     * {@link #lock} held.
      */
-    @Override
-    public void run() {
-        while (!thread.isInterrupted()) {
-            try {
-                synchronized (thread) {
-                    if (newRequest == false) {
-                        thread.wait();
+    private void startWorkers() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int anz = Options.getInstance().getGeneratorThreads();
+        if (anz <= 0) {
+            anz = cores - 1;
+        }
+        anz = Math.max(1, Math.min(anz, cores));
+        threads = new Thread[anz];
+        for (int i = 0; i < anz; i++) {
+            threads[i] = new Thread(new Worker(), "BackgroundGenerator " + i);
+            threads[i].setPriority(Thread.MIN_PRIORITY);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        startTime = System.currentTimeMillis();
+        if (DEBUG) {
+            System.out.println("BackgroundCreationThreads started: " + anz);
+        }
+    }
+
+    /**
+     * One worker thread: As long as a slot with missing puzzles is found,
+     * a puzzle is created for it. If nothing is left to do, the worker waits
+     * for the next request.
+     */
+    private class Worker implements Runnable {
+        /** The actual creator */
+        private BackgroundGenerator generator = new BackgroundGenerator();
+
+        Worker() {
+            // the workers already run in parallel: no producer thread and
+            // one thread per pattern search
+            generator.setPipelined(false);
+            generator.setPatternThreads(1);
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    int seen;
+                    synchronized (lock) {
+                        seen = requestCount;
                     }
-                    if (newRequest) {
-                        newRequest = false;
-                    } else {
+                    int index = reserveSlot();
+                    if (index == -1) {
+                        synchronized (lock) {
+                            if (seen == requestCount) {
+                                lock.wait();
+                            }
+                        }
                         continue;
                     }
+                    createPuzzle(index);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error creating puzzle", ex);
                 }
+            }
+        }
+
+        /**
+         * Creates a puzzle for the slot with index <code>index</code>, that
+         * has been reserved by {@link #reserveSlot()}.
+         *
+         * @param index
+         */
+        private void createPuzzle(int index) {
+            Slot slot = slots[index];
+            int epoch = slot.epoch;
+            String puzzle = null;
+            try {
+                DifficultyLevel level = getSlotLevel(index);
+                GameMode mode = getSlotMode(index);
                 if (DEBUG) {
-                    System.out.println("Creation starting...");
+                    System.out.println("  creating " + level.getName() + "/" + mode.name());
                 }
-                DifficultyLevel level = null;
-                GameMode mode = null;
-                while (level == null && !thread.isInterrupted()) {
-                    // get the next puzzle
-                    synchronized (this) {
-                        // find out, what to do
-                        String[][] puzzles = Options.getInstance().getNormalPuzzles();
-                        for (int i = 0; i < puzzles.length; i++) {
-                            for (int j = 0; j < puzzles[i].length; j++) {
-                                if (puzzles[i][j] == null) {
-                                    if (DEBUG) {
-                                        System.out.println("found level: "+ (i + 1));
-                                    }
-                                    level = Options.getInstance().getDifficultyLevel(i + 1);
-                                    mode = GameMode.PLAYING;
-                                    if (DEBUG) {
-                                        System.out.println("   " + level.getName()+ "/" + mode.name());
-                                    }
-                                    break;
-                                }
-                            }
-                            if (level != null) {
-                                break;
-                            }
-                        }
-                        int trLevel = getTrainingLevel();
-                        String[] puzzles1 = Options.getInstance().getLearningPuzzles();
-                        if (level == null && trLevel != -1) {
-                            for (int i = 0; i < puzzles1.length; i++) {
-                                if (puzzles1[i] == null) {
-                                    if (DEBUG) {
-                                        System.out.println("found level: "+ (i + 1));
-                                    }
-                                    level = Options.getInstance().getDifficultyLevel(DifficultyType.EXTREME.ordinal());
-                                    mode = GameMode.LEARNING;
-                                    if (DEBUG) {
-                                        System.out.println("   " + level.getName()+ "/" + mode.name());
-                                    }
-                                    break;
-                                }
-                            }
-                        }
-                        if (trLevel != -1 && Options.getInstance().getPractisingPuzzlesLevel() == -1) {
-                            setNewLevel(Options.getInstance().getActLevel());
-                        }
-                        puzzles1 = Options.getInstance().getPractisingPuzzles();
-                        if (DEBUG) {
-                            System.out.println("looking for pract: " + level + "/" + trLevel + "/" + Options.getInstance().getActLevel() + "/" + Options.getInstance().getPractisingPuzzlesLevel());
-                        }
-                        if (level == null && trLevel != -1 && Options.getInstance().getActLevel() >= trLevel) {
-                            for (int i = 0; i < puzzles1.length; i++) {
-                                if (puzzles1[i] == null) {
-                                    if (DEBUG) {
-                                        System.out.println("found level: " + (i + 1));
-                                    }
-                                    level = Options.getInstance().getDifficultyLevel(Options.getInstance().getPractisingPuzzlesLevel());
-                                    mode = GameMode.PRACTISING;
-                                    if (DEBUG) {
-                                        System.out.println("   " + level.getName()+ "/" + mode.name());
-                                    }
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    //new puzzle type found?
-                    if (level == null) {
-                        // we are done for now
-                        if (DEBUG) {
-                            System.out.println("creation: nothing to do!");
-                        }
-                        break;
-                    }
+                long millis = System.currentTimeMillis();
+                puzzle = takeStoredPuzzle(level, mode, true);
+                if (puzzle != null) {
+                    slot.fromStore.incrementAndGet();
+                }
+                if (puzzle == null) {
+                    puzzle = generator.generate(level, mode);
+                }
+                millis = System.currentTimeMillis() - millis;
+                if (puzzle == null) {
+                    // couldnt create one -> stop for now
                     if (DEBUG) {
-                        System.out.println("  creating " + level.getName() + "/" + mode.name());
+                        System.out.println("couldnt find suitable puzzles, retrying!");
                     }
-                    // ok, create the puzzle
-                    String puzzle = generator.generate(level, mode);
-                    if (puzzle == null) {
-                        //couldnt create one -> stop for now
-                        // BUG: dont give up just now!
-                        if (DEBUG) {
-                            System.out.println("couldnt find suitable puzzles, retrying!");
-                        }
-                        break;
+                    slot.failed = true;
+                    return;
+                }
+                synchronized (slot) {
+                    if (epoch != slot.epoch) {
+                        // slot has been reset in the meantime
+                        puzzle = null;
+                    } else {
+                        slot.puzzles.add(puzzle);
                     }
-                    // store it
-                    setSudoku(level, mode, puzzle);
+                }
+                if (puzzle != null) {
+                    slot.created.incrementAndGet();
+                    slot.creationMillis.addAndGet(millis);
+                    storePuzzles(slot);
                     if (DEBUG) {
                         System.out.println("  created in background: " + level.getName() + "/" + mode.name() + "/" + puzzle);
                     }
-                    // and try again
-                    level = null;
-                    mode = null;
                 }
-                if (DEBUG) {
-                    System.out.println("Done (level = " + level + ", isInterrupted() = " + thread.isInterrupted() + ")!");
+            } finally {
+                slot.inProgress.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Takes a puzzle for <code>level</code> and <code>mode</code> from the
+     * puzzle store. If the store directory has been changed, the old store
+     * is closed and the new one is opened (only if <code>wait</code> is set).
+     *
+     * @param level
+     * @param mode
+     * @param wait If not set, <code>null</code> is returned instead of waiting
+     *          for another thread, that uses the store, or of opening the store
+     * @return The puzzle or <code>null</code>, if no suitable puzzle is available
+     */
+    private String takeStoredPuzzle(DifficultyLevel level, GameMode mode, boolean wait) {
+        String dir = Options.getInstance().getPuzzleStoreDir();
+        if (dir != null && dir.isEmpty()) {
+            dir = null;
+        }
+        if (wait) {
+            storeLock.lock();
+        } else if (!storeLock.tryLock()) {
+            return null;
+        }
+        try {
+            if (dir == null ? storeDir != null : !dir.equals(storeDir)) {
+                if (!wait) {
+                    // opening the store is left to the workers
+                    return null;
+                }
+                if (store != null) {
+                    store.close();
+                    store = null;
+                }
+                storeDir = dir;
+                if (dir != null) {
+                    store = new PuzzleStore(dir);
                 }
-            } catch (InterruptedException ex) {
-                thread.interrupt();
-            } catch (Exception ex) {
-                Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error checking progress", ex);
             }
+            if (store == null || Options.getInstance().getGeneratorPatternIndex() != -1) {
+                return null;
+            }
+            return store.takePuzzle(level, mode);
+        } catch (IOException ex) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error reading puzzle store " + dir, ex);
+            store = null;
+            return null;
+        } finally {
+            storeLock.unlock();
         }
     }
-    
+
     /**
-     * Gets the correct cache array from Options.
-     * 
+     * Finds the first slot, that needs more puzzles, and reserves one puzzle
+     * in it. The order is: all levels for PLAYING, then LEARNING, then
+     * PRACTISING.
+     *
+     * @return The index of the slot or -1, if nothing is to do
+     */
+    private int reserveSlot() {
+        checkOptions();
+        int trLevel = getTrainingLevel();
+        if (trLevel != -1 && Options.getInstance().getPractisingPuzzlesLevel() == -1) {
+            setNewLevel(Options.getInstance().getActLevel());
+        }
+        for (int i = 0; i < slots.length; i++) {
+            if (i == LEARNING_SLOT && trLevel == -1) {
+                continue;
+            }
+            if (i == PRACTISING_SLOT && (trLevel == -1 || Options.getInstance().getActLevel() < trLevel)) {
+                continue;
+            }
+            Slot slot = slots[i];
+            if (slot.failed) {
+                continue;
+            }
+            int target = Math.min(slot.target, getPuzzleArray(i).length);
+            while (true) {
+                int inProgress = slot.inProgress.get();
+                if (slot.puzzles.size() + inProgress >= target) {
+                    break;
+                }
+                if (slot.inProgress.compareAndSet(inProgress, inProgress + 1)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Deletes all puzzles of a slot. Puzzles currently in creation
+     * for that slot are discarded.
+     *
+     * @param slot
+     */
+    private void resetSlot(Slot slot) {
+        synchronized (slot) {
+            slot.epoch++;
+            slot.puzzles.clear();
+            slot.failed = false;
+        }
+        storePuzzles(slot);
+    }
+
+    /**
+     * Writes the contents of a slot back into the array in {@link Options}.
+     *
+     * @param slot
+     */
+    private void storePuzzles(Slot slot) {
+        synchronized (slot) {
+            String[] puzzles = getPuzzleArray(getSlotIndex(slot));
+            Iterator<String> iterator = slot.puzzles.iterator();
+            for (int i = 0; i < puzzles.length; i++) {
+                puzzles[i] = iterator.hasNext() ? iterator.next() : null;
+            }
+        }
+    }
+
+    /**
+     * If a new {@link Options} instance has been loaded, the slots
+     * are filled from its puzzle arrays. If the options have been reloaded
+     * or the cache target has been changed, the targets of all slots
+     * are reset to {@link Options#getGeneratorCacheTarget()}.
+     */
+    private synchronized void checkOptions() {
+        Options options = Options.getInstance();
+        int target = options.getGeneratorCacheTarget();
+        if (options != loadedFrom || target != loadedTarget) {
+            loadedTarget = target;
+            for (Slot slot : slots) {
+                slot.target = Math.max(0, Math.min(target, Options.CACHE_SIZE));
+            }
+        }
+        if (options == loadedFrom) {
+            return;
+        }
+        loadedFrom = options;
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            synchronized (slot) {
+                slot.epoch++;
+                slot.puzzles.clear();
+                for (String puzzle : getPuzzleArray(i)) {
+                    if (puzzle != null) {
+                        slot.puzzles.add(puzzle);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the slot for <code>level</code> and <code>mode</code>.
+     *
      * @param level
      * @param mode
-     * @return 
+     * @return
      */
-    private String[] getPuzzleArray(DifficultyLevel level, GameMode mode) {
-        String[] puzzles = null;
+    private Slot getSlot(DifficultyLevel level, GameMode mode) {
         switch (mode) {
-            case PLAYING:
-                puzzles = Options.getInstance().getNormalPuzzles()[level.getOrdinal() - 1];
-                break;
             case LEARNING:
-                puzzles = Options.getInstance().getLearningPuzzles();
-                break;
+                return slots[LEARNING_SLOT];
             case PRACTISING:
-                puzzles = Options.getInstance().getPractisingPuzzles();
-                break;
+                return slots[PRACTISING_SLOT];
+            default:
+                return slots[level.getOrdinal() - 1];
         }
-        return puzzles;
     }
-    
+
+    /**
+     * Gets the index of <code>slot</code> in {@link #slots}.
+     *
+     * @param slot
+     * @return
+     */
+    private int getSlotIndex(Slot slot) {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the {@link DifficultyLevel}, for which the puzzles of a slot are created.
+     *
+     * @param index
+     * @return
+     */
+    private DifficultyLevel getSlotLevel(int index) {
+        switch (index) {
+            case LEARNING_SLOT:
+                return Options.getInstance().getDifficultyLevel(DifficultyType.EXTREME.ordinal());
+            case PRACTISING_SLOT:
+                return Options.getInstance().getDifficultyLevel(Options.getInstance().getPractisingPuzzlesLevel());
+            default:
+                return Options.getInstance().getDifficultyLevel(index + 1);
+        }
+    }
+
+    /**
+     * Gets the {@link GameMode}, for which the puzzles of a slot are created.
+     *
+     * @param index
+     * @return
+     */
+    private GameMode getSlotMode(int index) {
+        switch (index) {
+            case LEARNING_SLOT:
+                return GameMode.LEARNING;
+            case PRACTISING_SLOT:
+                return GameMode.PRACTISING;
+            default:
+                return GameMode.PLAYING;
+        }
+    }
+
+    /**
+     * Gets a printable name for a slot.
+     *
+     * @param index
+     * @return
+     */
+    private String getSlotName(int index) {
+        switch (index) {
+            case LEARNING_SLOT:
+                return GameMode.LEARNING.name();
+            case PRACTISING_SLOT:
+                return GameMode.PRACTISING.name();
+            default:
+                return getSlotLevel(index).getName() + "/" + GameMode.PLAYING.name();
+        }
+    }
+
+    /**
+     * Gets the correct cache array from Options.
+     *
+     * @param index The index of the slot
+     * @return
+     */
+    private String[] getPuzzleArray(int index) {
+        switch (index) {
+            case LEARNING_SLOT:
+                return Options.getInstance().getLearningPuzzles();
+            case PRACTISING_SLOT:
+                return Options.getInstance().getPractisingPuzzles();
+            default:
+                return Options.getInstance().getNormalPuzzles()[index];
+        }
+    }
+
     /**
      * Utility method: gets the {@link DifficultyLevel} of the most difficult
      * training step. If no training step is set, -1 is returned.<br>
@@ -370,8 +727,8 @@ public class BackgroundGeneratorThread implements Runnable {
      * redone after a change of the games current DifficultyLevel (if the
      * current level is lower than the level of the hardest training step,
      * no new PRACTISING puzzles have to be created).
-     * 
-     * @return 
+     *
+     * @return
      */
     private int getTrainingLevel() {
         StepConfig[] conf = Options.getInstance().getOrgSolverSteps();
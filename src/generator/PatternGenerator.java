@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+package generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import sudoku.Sudoku2;
+
+/**
+ * Generates puzzles, whose givens are exactly the cells of a
+ * {@link GeneratorPattern}.<br>
+ * Only the pattern cells are filled: they are set one after another
+ * (cell with the fewest candidates first) by a randomized backtracking
+ * search. Every value is propagated (Singles), so contradictions are
+ * detected immediately. As soon as 17 pattern cells are set, every
+ * new state is checked with the backtracking solver: if it has no
+ * solution the search backtracks, if it has exactly one solution the
+ * remaining pattern cells are taken from that solution and the puzzle
+ * is finished. Values are tried in the order of the last solution found
+ * (initially a fresh random full grid), so the search always stays
+ * close to a solvable grid.<br>
+ * After {@link #MAX_TRIES_PER_GRID} checks the search is restarted with
+ * a new grid. Several searches run in parallel, the first puzzle found
+ * wins.<br><br>
+ *
+ * A "try" is one check of a candidate puzzle with the backtracking
+ * solver.
+ *
+ * @author hobiwan
+ */
+public class PatternGenerator {
+    /** The default time limit for {@link #generate(long)} in milliseconds. */
+    public static final long DEFAULT_MAX_MILLIS = 10000;
+    /** Number of checks, before the search is restarted with a fresh grid. */
+    private static final int MAX_TRIES_PER_GRID = 200;
+    /** A puzzle with less givens cannot be unique, no need to check it. */
+    private static final int MIN_GIVENS = 17;
+    /** Empty sudoku for initialization */
+    private static final Sudoku2 EMPTY_GRID = new Sudoku2();
+    /** The pattern cells. */
+    private int[] patternCells;
+    /** The number of worker threads. */
+    private int threadAnz;
+    /** The number of checks done so far. */
+    private final AtomicLong tries = new AtomicLong();
+    /** The number of restarts with a fresh grid. */
+    private final AtomicLong grids = new AtomicLong();
+    /** Duration of the last call to {@link #generate(long)}. */
+    private long millis = 0;
+    /** The givens of the puzzle found or <code>null</code>. */
+    private volatile int[] result = null;
+    /** Time, after which all workers stop. */
+    private volatile long endTime = 0;
+
+    /**
+     * Creates a new generator for <code>pattern</code>.<br>
+     * <code>threadAnz</code> should be 1, if the caller runs several
+     * generators in parallel itself (e.g. the {@link BackgroundGeneratorThread}).
+     * @param pattern <code>true</code> for every cell, that should be a given
+     * @param threadAnz The number of worker threads per search
+     */
+    public PatternGenerator(boolean[] pattern, int threadAnz) {
+        setThreadAnz(threadAnz);
+        int anz = 0;
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i]) {
+                anz++;
+            }
+        }
+        patternCells = new int[anz];
+        anz = 0;
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i]) {
+                patternCells[anz++] = i;
+            }
+        }
+    }
+
+    /**
+     * Searches for a puzzle. The search ends as soon as a puzzle has been
+     * found or when <code>maxMillis</code> have passed.
+     * @param maxMillis
+     * @return The values of all cells of the new puzzle (0 for the cells
+     *         not in the pattern) or <code>null</code>, if nothing was found
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public int[] generate(long maxMillis) throws InterruptedException {
+        result = null;
+        tries.set(0);
+        grids.set(0);
+        long start = System.currentTimeMillis();
+        endTime = start + maxMillis;
+        if (patternCells.length >= MIN_GIVENS) {
+            ExecutorService executor = Executors.newFixedThreadPool(threadAnz);
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            try {
+                for (int i = 0; i < threadAnz; i++) {
+                    futures.add(executor.submit(new Worker()));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException ex) {
+                endTime = 0;
+                throw ex;
+            } catch (ExecutionException ex) {
+                throw new RuntimeException(ex.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        millis = System.currentTimeMillis() - start;
+        Logger.getLogger(getClass().getName()).log(Level.FINE, "pattern search: {0} ({1} tries, {2} grids, {3} tries/s)",
+                new Object[]{result != null ? "found" : "nothing found", tries.get(), grids.get(), getTriesPerSecond()});
+        return result;
+    }
+
+    /**
+     * @return The number of tries of the last search
+     */
+    public long getTries() {
+        return tries.get();
+    }
+
+    /**
+     * @return The number of grids used by the last search
+     */
+    public long getGrids() {
+        return grids.get();
+    }
+
+    /**
+     * @return The speed of the last search
+     */
+    public long getTriesPerSecond() {
+        return millis == 0 ? tries.get() : tries.get() * 1000 / millis;
+    }
+
+    /**
+     * @return the threadAnz
+     */
+    public int getThreadAnz() {
+        return threadAnz;
+    }
+
+    /**
+     * @param threadAnz the threadAnz to set
+     */
+    public void setThreadAnz(int threadAnz) {
+        this.threadAnz = Math.max(1, threadAnz);
+    }
+
+    /**
+     * Checks, if the search has to end.
+     * @return
+     */
+    private boolean isDone() {
+        return result != null || System.currentTimeMillis() > endTime || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * One worker thread: searches with fresh grids until a puzzle is
+     * found or the time is up.
+     */
+    private class Worker implements Runnable {
+        /** Used for propagation, for the checks and for the fresh grids. */
+        private SudokuGenerator generator;
+        /** The state of the sudoku after setting the pattern cell of every level. */
+        private Sudoku2[] stack = new Sudoku2[patternCells.length + 1];
+        /** The pattern cell set in every level. */
+        private int[] cells = new int[patternCells.length + 1];
+        /** The values to try for the cell of every level. */
+        private int[][] values = new int[patternCells.length + 1][9];
+        /** The number of values in {@link #values}. */
+        private int[] valueAnz = new int[patternCells.length + 1];
+        /** The index of the next value in {@link #values}. */
+        private int[] valueIndex = new int[patternCells.length + 1];
+        /** The solution, whose values are tried first. */
+        private int[] preferred = new int[Sudoku2.LENGTH];
+        /** Another solution of the current state, if known. */
+        private int[] other = new int[Sudoku2.LENGTH];
+        /** The givens of the current state. */
+        private int[] givens = new int[Sudoku2.LENGTH];
+        /** The pattern cells in random order (tie breaker). */
+        private int[] order;
+        /** Random generator for this worker. */
+        private Random rand = new Random();
+
+        /**
+         * Creates a new worker.
+         */
+        private Worker() {
+            for (int i = 0; i < stack.length; i++) {
+                stack[i] = new Sudoku2();
+            }
+            order = patternCells.clone();
+        }
+
+        @Override
+        public void run() {
+            generator = SudokuGeneratorFactory.getInstance();
+            try {
+                while (!isDone()) {
+                    grids.incrementAndGet();
+                    generator.generateFullGrid();
+                    System.arraycopy(generator.getFullGrid(), 0, preferred, 0, Sudoku2.LENGTH);
+                    System.arraycopy(preferred, 0, other, 0, Sudoku2.LENGTH);
+                    for (int i = order.length - 1; i > 0; i--) {
+                        int j = rand.nextInt(i + 1);
+                        int dummy = order[i];
+                        order[i] = order[j];
+                        order[j] = dummy;
+                    }
+                    if (search()) {
+                        synchronized (PatternGenerator.this) {
+                            if (result == null) {
+                                result = givens.clone();
+                            }
+                        }
+                    }
+                }
+            } finally {
+                SudokuGeneratorFactory.giveBack(generator);
+            }
+        }
+
+        /**
+         * Searches with the current grid.
+         * @return <code>true</code>, if a puzzle has been found (in {@link #givens})
+         */
+        private boolean search() {
+            int triesLeft = MAX_TRIES_PER_GRID;
+            stack[0].set(EMPTY_GRID);
+            int level = 0;
+            boolean check = true;
+            while (true) {
+                if (check) {
+                    // check the state of the current level
+                    check = false;
+                    int anzGivens = getGivens(stack[level]);
+                    if (anzGivens >= MIN_GIVENS) {
+                        if (isDone() || triesLeft-- <= 0) {
+                            return false;
+                        }
+                        tries.incrementAndGet();
+                        generator.solve(givens);
+                        int count = generator.getSolutionCount();
+                        if (count == 1) {
+                            // unique: the rest of the pattern comes from the solution
+                            int[] solution = generator.getSolution();
+                            for (int i = 0; i < patternCells.length; i++) {
+                                givens[patternCells[i]] = solution[patternCells[i]];
+                            }
+                            return true;
+                        }
+                        if (count == 0 || anzGivens == patternCells.length) {
+                            // contradiction or nothing left to set
+                            level = backtrack(level);
+                            if (level < 0) {
+                                return false;
+                            }
+                            continue;
+                        }
+                        System.arraycopy(generator.getSolution(), 0, preferred, 0, Sudoku2.LENGTH);
+                        System.arraycopy(generator.getSecondSolution(), 0, other, 0, Sudoku2.LENGTH);
+                    }
+                    level = nextLevel(level);
+                    continue;
+                }
+                // try the next value in the current level
+                if (valueIndex[level] >= valueAnz[level]) {
+                    level = backtrack(level);
+                    if (level < 0) {
+                        return false;
+                    }
+                    continue;
+                }
+                int value = values[level][valueIndex[level]++];
+                stack[level].setBS(stack[level - 1]);
+                if (stack[level].setCell(cells[level], value, false, false) &&
+                        generator.setAllExposedSingles(stack[level])) {
+                    check = true;
+                }
+            }
+        }
+
+        /**
+         * Goes one level back.
+         * @param level
+         * @return The new level or -1, if all possibilities have been tried
+         */
+        private int backtrack(int level) {
+            while (level > 0 && valueIndex[level] >= valueAnz[level]) {
+                level--;
+            }
+            return level > 0 ? level : -1;
+        }
+
+        /**
+         * Sets up the next level: the unsolved pattern cell with the fewest
+         * candidates is set next, the values are tried in the order of
+         * {@link #preferred} first. If the current state has more than one
+         * solution, cells in which the two known solutions differ are
+         * preferred: setting them to the value of {@link #preferred}
+         * keeps the puzzle solvable and eliminates the other solution.
+         * @param level
+         * @return
+         */
+        private int nextLevel(int level) {
+            Sudoku2 sudoku = stack[level];
+            int index = -1;
+            int anzCand = 10;
+            boolean differs = false;
+            for (int i = 0; i < order.length; i++) {
+                int cell = sudoku.getCell(order[i]);
+                if (cell == 0) {
+                    continue;
+                }
+                boolean actDiffers = preferred[order[i]] != other[order[i]];
+                if ((actDiffers && !differs) || (actDiffers == differs && Sudoku2.ANZ_VALUES[cell] < anzCand)) {
+                    index = order[i];
+                    anzCand = Sudoku2.ANZ_VALUES[cell];
+                    differs = actDiffers;
+                }
+            }
+            level++;
+            cells[level] = index;
+            valueIndex[level] = 0;
+            valueAnz[level] = 0;
+            int[] cands = Sudoku2.POSSIBLE_VALUES[sudoku.getCell(index)];
+            int first = preferred[index];
+            if ((sudoku.getCell(index) & Sudoku2.MASKS[first]) != 0) {
+                values[level][valueAnz[level]++] = first;
+            }
+            int start = valueAnz[level];
+            for (int i = 0; i < cands.length; i++) {
+                if (cands[i] != first) {
+                    values[level][valueAnz[level]++] = cands[i];
+                }
+            }
+            for (int i = valueAnz[level] - 1; i > start; i--) {
+                int j = start + rand.nextInt(i - start + 1);
+                int dummy = values[level][i];
+                values[level][i] = values[level][j];
+                values[level][j] = dummy;
+            }
+            return level;
+        }
+
+        /**
+         * Collects the values of all solved pattern cells in
+         * {@link #givens}. Pattern cells, that were solved by
+         * propagation, are givens too.
+         * @param sudoku
+         * @return The number of givens
+         */
+        private int getGivens(Sudoku2 sudoku) {
+            int anz = 0;
+            for (int i = 0; i < patternCells.length; i++) {
+                int value = sudoku.getValue(patternCells[i]);
+                givens[patternCells[i]] = value;
+                if (value != 0) {
+                    anz++;
+                }
+            }
+            return anz;
+        }
+    }
+}
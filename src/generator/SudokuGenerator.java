@@ -41,11 +41,10 @@ public class SudokuGenerator {
     /** Debug flag */
     private static final boolean DEBUG = false;
     
-    /** Maximum number of tries when generating a puzzle using a pattern */
-    private static final int MAX_TRIES = 1000000;
-
     /** Empty sudoku for initialization */
     private static Sudoku2 EMPTY_GRID = new Sudoku2();
+    /** Number of puzzles created from one full grid by {@link #generateNextSudoku(boolean)}. */
+    private static final int PUZZLES_PER_GRID = 16;
 
     /**
      * One entry in recursion stack
@@ -63,6 +62,8 @@ public class SudokuGenerator {
     }
     /** The cells values of the first solution */
     private int[] solution = new int[81];
+    /** The cells values of the second solution (if there is one) */
+    private int[] solution2 = new int[81];
     /** Number of solutions already found */
     private int solutionCount = 0;
     /** The recursion stack */
@@ -75,6 +76,14 @@ public class SudokuGenerator {
     private int[] newValidSudoku = new int[81];
     /** A random generator for creating new puzzles. */
     private Random rand = new Random();
+    /** The full grid, that is reused by {@link #generateNextSudoku(boolean)}. */
+    private int[] baseGrid = new int[81];
+    /** Number of puzzles already created from {@link #baseGrid}. */
+    private int baseGridUses = PUZZLES_PER_GRID;
+    /** The digit permutation for {@link #transformBaseGrid()}. */
+    private int[] digits = new int[10];
+    /** The cells already tried by {@link #generateInitPos(boolean)}. */
+    private boolean[] used = new boolean[81];
 
     private int anzTries = 0;
     private int anzNS = 0;
@@ -173,8 +182,6 @@ public class SudokuGenerator {
     public void solve(int[] cellValues) {
 //        System.out.println("start solving " + getSolutionAsString(cellValues));
 //        actSetNanos = System.nanoTime();
-        // start with an empty sudoku
-        stack[0].sudoku.set(EMPTY_GRID);
         stack[0].candidates = null;
         stack[0].candIndex = 0;
 
@@ -186,15 +193,10 @@ public class SudokuGenerator {
 //                setAllExposedSingles(stack[0].sudoku);
 //            }
 //        }
-        // set up the sudoku
+        // set up the sudoku: all candidates in one pass (an invalid
+        // puzzle is detected by setAllExposedSingles())
 //        System.out.println("setting up sudoku...");
-        for (int i = 0; i < cellValues.length; i++) {
-            int value = cellValues[i];
-            if (value >= 1 && value <= 9) {
-                stack[0].sudoku.setCellBS(i, value);
-            }
-        }
-        stack[0].sudoku.rebuildInternalData();
+        stack[0].sudoku.initFromValues(cellValues);
         setAllExposedSingles(stack[0].sudoku);
 //        System.out.println("and solve...");
 
@@ -247,6 +249,7 @@ public class SudokuGenerator {
                     solution = Arrays.copyOf(stack[level].sudoku.getValues(), Sudoku2.LENGTH);
                 } else if (solutionCount > 1) {
                     // but not more than 1000
+                    System.arraycopy(stack[level].sudoku.getValues(), 0, solution2, 0, Sudoku2.LENGTH);
                     if (DEBUG) {
                         System.out.println("  puzzle has more than one solution (" + solutionCount + ")!");
                     }
@@ -328,13 +331,99 @@ public class SudokuGenerator {
      * @return
      */
     public Sudoku2 generateSudoku(boolean symmetric) {
+        return generateSudoku(symmetric, getActivePattern());
+    }
+
+    /**
+     * Generates a new valid sudoku like {@link #generateSudoku(boolean)}, but
+     * reuses the full grid for up to {@link #PUZZLES_PER_GRID} puzzles. Every
+     * puzzle is created from a transformed copy of the grid (digits relabeled,
+     * optionally transposed and mirrored; central symmetry is kept) with a new
+     * random removal order, so the results are different minimal puzzles.<br>
+     * This is meant for callers, that create puzzles until one has the
+     * required rating: most of them are thrown away, so the full grids
+     * dont have to be created anew every time.<br><br>
+     * 
+     * If a pattern is active, the call is delegated to {@link #generateSudoku(boolean, boolean[])}.
+     * 
+     * @param symmetric
+     * @return
+     */
+    public Sudoku2 generateNextSudoku(boolean symmetric) {
+        return generateNextSudoku(symmetric, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #generateNextSudoku(boolean)}, but puzzles with a pattern
+     * are searched with <code>patternThreads</code> threads.
+     * 
+     * @param symmetric
+     * @param patternThreads Number of threads for the {@link PatternGenerator}
+     * @return
+     */
+    public Sudoku2 generateNextSudoku(boolean symmetric, int patternThreads) {
+        boolean[] pattern = getActivePattern();
+        if (pattern != null) {
+            return generateSudoku(symmetric, pattern, patternThreads);
+        }
+        if (baseGridUses >= PUZZLES_PER_GRID) {
+            generateFullGrid();
+            System.arraycopy(newFullSudoku, 0, baseGrid, 0, baseGrid.length);
+            baseGridUses = 0;
+        } else {
+            transformBaseGrid();
+        }
+        baseGridUses++;
+        generateInitPos(symmetric);
+        return createSudoku();
+    }
+
+    /**
+     * Gets the pattern from {@link Options}, if one is set and has already
+     * been checked for validity.
+     * 
+     * @return The pattern or <code>null</code>
+     */
+    private boolean[] getActivePattern() {
         int index = Options.getInstance().getGeneratorPatternIndex();
-        boolean[] pattern = null;
         ArrayList<GeneratorPattern> patterns = Options.getInstance().getGeneratorPatterns();
         if (index != -1 && index < patterns.size() && patterns.get(index).isValid()) {
-            pattern = patterns.get(index).getPattern();
+            return patterns.get(index).getPattern();
+        }
+        return null;
+    }
+
+    /**
+     * Writes a randomly transformed copy of {@link #baseGrid} into
+     * {@link #newFullSudoku}: the digits are permuted, the grid is
+     * optionally transposed and/or mirrored. All transformations keep
+     * the grid valid and map symmetric cell pairs onto symmetric pairs.
+     */
+    private void transformBaseGrid() {
+        for (int i = 1; i <= 9; i++) {
+            digits[i] = i;
+        }
+        for (int i = 9; i > 1; i--) {
+            int j = 1 + rand.nextInt(i);
+            int dummy = digits[i];
+            digits[i] = digits[j];
+            digits[j] = dummy;
+        }
+        boolean transpose = rand.nextBoolean();
+        boolean mirror = rand.nextBoolean();
+        for (int i = 0; i < Sudoku2.LENGTH; i++) {
+            int row = i / 9;
+            int col = i % 9;
+            if (transpose) {
+                int dummy = row;
+                row = col;
+                col = dummy;
+            }
+            if (mirror) {
+                col = 8 - col;
+            }
+            newFullSudoku[i] = digits[baseGrid[row * 9 + col]];
         }
-        return generateSudoku(symmetric, pattern);
     }
     
     /**
@@ -343,34 +432,55 @@ public class SudokuGenerator {
      * (only possible if a <code>pattern</code> is applied), the method returns 
      * <code>null</code>.<br><br>
      * 
-     * This method is used by the validity checker in the {@link ConfigGeneratorPanel}.
+     * This method is used by the validity checker in the {@link ConfigGeneratorPanel}.<br><br>
+     * 
+     * Puzzles with a pattern are created by a {@link PatternGenerator}, that
+     * uses all available processors.
      * 
      * @param symmetric
      * @param pattern
      * @return 
      */
     public Sudoku2 generateSudoku(boolean symmetric, boolean[] pattern) {
-        generateFullGrid();
+        return generateSudoku(symmetric, pattern, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #generateSudoku(boolean, boolean[])}, but the
+     * {@link PatternGenerator} runs <code>patternThreads</code> threads.
+     * 
+     * @param symmetric
+     * @param pattern
+     * @param patternThreads
+     * @return 
+     */
+    public Sudoku2 generateSudoku(boolean symmetric, boolean[] pattern, int patternThreads) {
         if (pattern == null) {
+            generateFullGrid();
             generateInitPos(symmetric);
         } else {
-            boolean ok = false;
-            System.out.println("Trying with pattern!");
-            for (int i = 0; i < MAX_TRIES; i++) {
-                if ((ok = generateInitPos(pattern)) == true) {
-                    break;
-                }
-                if ((i % 1000) == 0) {
-                    System.out.println("  try: " + i);
-                }
+            PatternGenerator patternGenerator = new PatternGenerator(pattern, patternThreads);
+            int[] givens = null;
+            try {
+                givens = patternGenerator.generate(PatternGenerator.DEFAULT_MAX_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
             }
-            if (! ok) {
-                // no puzzle found in MAX_TRIES iterations
-                System.out.println("nothing found!");
+            if (givens == null) {
+                // no puzzle found in time
                 return null;
             }
-            System.out.println("puzzle found!");
+            System.arraycopy(givens, 0, newValidSudoku, 0, newValidSudoku.length);
         }
+        return createSudoku();
+    }
+
+    /**
+     * Creates a new sudoku from {@link #newValidSudoku}.
+     * 
+     * @return
+     */
+    private Sudoku2 createSudoku() {
         // construct the new sudoku
         Sudoku2 sudoku = new Sudoku2();
         for (int i = 0; i < newValidSudoku.length; i++) {
@@ -392,10 +502,17 @@ public class SudokuGenerator {
      * method can fail, we have to check for errors.
      */
     @SuppressWarnings("empty-statement")
-    private void generateFullGrid() {
+    void generateFullGrid() {
         while (doGenerateFullGrid() == false);
     }
 
+    /**
+     * @return The grid created by the last call to {@link #generateFullGrid()}
+     */
+    int[] getFullGrid() {
+        return newFullSudoku;
+    }
+
     /**
      * Generates a new valid full sudoku grid. Works exactly like the
      * backtracking solver ({@link #solve()}), the cells are set in
@@ -498,37 +615,6 @@ public class SudokuGenerator {
         return false;
     }
 
-    /**
-     * Takes a full sudoku from {@link #newFullSudoku} and generates a valid
-     * puzzle by deleting the cells indicated by <code>pattern</code>. If the
-     * resulting puzzle is invalid, <code>false</code> is returned and the caller
-     * is responsible for continuing the search.
-     * 
-     * @param pattern
-     * @return 
-     */
-    private boolean generateInitPos(boolean[] pattern) {
-        // we start with the full board
-        System.arraycopy(newFullSudoku, 0, newValidSudoku, 0, newFullSudoku.length);
-        // delete all cells indicated by pattern
-//        System.out.println("Full:  " + Arrays.toString(newFullSudoku));
-        for (int i = 0; i < pattern.length; i++) {
-            if (pattern[i] == false) {
-                newValidSudoku[i] = 0;
-            }
-        }
-//        System.out.println("Valid: " + Arrays.toString(newValidSudoku));
-//        long actNanos = System.nanoTime();
-        solve(newValidSudoku);
-//        nanos += System.nanoTime() - actNanos;
-        if (solutionCount > 1) {
-            return false;
-        } else {
-            System.out.println("!!!! FOUND ONE !!!!");
-            return true;
-        }
-    }
-    
     /**
      * Takes a full sudoku from {@link #newFullSudoku} and generates a valid
      * puzzle by deleting cells. If a deletion produces a grid with more
@@ -539,7 +625,7 @@ public class SudokuGenerator {
      */
     private void generateInitPos(boolean isSymmetric) {
         int maxPosToFill = 17; // no less than 17 givens
-        boolean[] used = new boolean[81]; // try every cell only once
+        // try every cell only once
         int usedCount = used.length;
         Arrays.fill(used, false);
 
@@ -601,7 +687,7 @@ public class SudokuGenerator {
      * @param sudoku
      * @return <code>false</code>, if the puzzle has become invalid.
      */
-    private boolean setAllExposedSingles(Sudoku2 sudoku) {
+    boolean setAllExposedSingles(Sudoku2 sudoku) {
         boolean valid = true;
         SudokuSinglesQueue nsQueue = sudoku.getNsQueue();
         SudokuSinglesQueue hsQueue = sudoku.getHsQueue();
@@ -645,6 +731,14 @@ public class SudokuGenerator {
         return solution;
     }
 
+    /**
+     * @return The second solution found by the last call to a solve method
+     *         (only valid, if {@link #getSolutionCount()} is greater than 1)
+     */
+    int[] getSecondSolution() {
+        return solution2;
+    }
+
     public String getSolutionAsString() {
         return getSolutionAsString(solution);
     }
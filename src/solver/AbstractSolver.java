@@ -39,6 +39,8 @@
 
 package solver;
 
+import sudoku.Candidate;
+import sudoku.PackedIntSet;
 import sudoku.SolutionStep;
 import sudoku.SolutionType;
 import sudoku.Sudoku2;
@@ -62,6 +64,26 @@ public abstract class AbstractSolver {
         this.finder = finder;
     }
 
+    /**
+     * Returns all types of steps, that can be found by {@link #getStep(sudoku.SolutionType) }.
+     * The array is used by {@link SudokuStepFinder} to build its dispatch table.
+     * @return
+     */
+    protected abstract SolutionType[] getSolutionTypes();
+
+    /**
+     * Quick check before a search: returns <code>false</code>, if a step of type
+     * <code>type</code> cannot possibly exist in the current sudoku (e.g. an XY-Wing
+     * without at least three bivalue cells). The check must never return <code>false</code>
+     * if {@link #getStep(sudoku.SolutionType) } could find a step.<br>
+     * Solvers, that can provide such a check, have to override this method.
+     * @param type
+     * @return
+     */
+    protected boolean isApplicable(SolutionType type) {
+        return true;
+    }
+
     /**
      * Method for finding a new instance of a specific technique.
      * @param type
@@ -75,6 +97,19 @@ public abstract class AbstractSolver {
      * @return
      */
     protected abstract boolean doStep(SolutionStep step);
+
+    /**
+     * Deletes all candidates in {@link SolutionStep#getPackedCandidatesToDelete() }
+     * from the sudoku (default implementation for {@link #doStep(sudoku.SolutionStep) }).
+     * @param step
+     */
+    protected void deleteCandidates(SolutionStep step) {
+        PackedIntSet candidatesToDelete = step.getPackedCandidatesToDelete();
+        for (int i = 0; i < candidatesToDelete.size(); i++) {
+            int cand = candidatesToDelete.get(i);
+            sudoku.delCandidate(Candidate.getPackedIndex(cand), Candidate.getPackedValue(cand));
+        }
+    }
     
     /**
      * Method is called in regular intervals to clean up
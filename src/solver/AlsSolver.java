@@ -33,7 +33,6 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import sudoku.Candidate;
 import sudoku.Chain;
 import sudoku.Options;
 import sudoku.SolutionStep;
@@ -91,6 +90,8 @@ public class AlsSolver extends AbstractSolver {
     private SudokuSet restrictedCommonIndexSet = new SudokuSet();
     /** One instance of {@link RCForDeathBlossom} for every cell that is not yet set. */
     private RCForDeathBlossom[] rcdb = new RCForDeathBlossom[81];
+    /** One instance of {@link RCForDeathBlossom} per cell, reused for every search. */
+    private RCForDeathBlossom[] rcdbCache = new RCForDeathBlossom[81];
     /** ALS for stem cell that is currently checked. */
     private RCForDeathBlossom aktRcdb = null;
     /** All indices of all ALS for a given stem cell (for recursive search). */
@@ -130,6 +131,14 @@ public class AlsSolver extends AbstractSolver {
         }
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.ALS_XZ, SolutionType.ALS_XY_WING, SolutionType.ALS_XY_CHAIN,
+            SolutionType.DEATH_BLOSSOM
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -165,9 +174,7 @@ public class AlsSolver extends AbstractSolver {
             case ALS_XY_WING:
             case ALS_XY_CHAIN:
             case DEATH_BLOSSOM:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                }
+                deleteCandidates(step);
                 break;
             default:
                 handled = false;
@@ -372,10 +379,10 @@ public class AlsSolver extends AbstractSolver {
                 boolean d2 = checkDoublyLinkedAls(als2, als1, rc.getCand1(), rc.getCand2());
                 if (d1 || d2) {
                     // no common candidates for doublylinked als-xz
-                    globalStep.getFins().clear();
+                    globalStep.getPackedFins().clear();
                 }
             }
-            if (globalStep.getCandidatesToDelete().size() > 0) {
+            if (globalStep.getPackedCandidatesToDelete().size() > 0) {
                 // Step zusammenbauen
                 globalStep.setType(SolutionType.ALS_XZ);
                 globalStep.addAls(als1.indices, als1.candidates);
@@ -384,7 +391,7 @@ public class AlsSolver extends AbstractSolver {
                 if (rc.getCand2() != 0) {
                     addRestrictedCommonToStep(als1, als2, rc.getCand2(), false);
                 }
-                SolutionStep step = (SolutionStep) globalStep.clone();
+                SolutionStep step = finder.copyStep(globalStep);
                 if (onlyOne) {
                     return step;
                 }
@@ -471,7 +478,7 @@ public class AlsSolver extends AbstractSolver {
                 }
                 // now check candidates of A and B
                 checkCandidatesToDelete(a, b, rc1.getCand1(), rc1.getCand2(), rc2.getCand1(), rc2.getCand2());
-                if (globalStep.getCandidatesToDelete().size() > 0) {
+                if (globalStep.getPackedCandidatesToDelete().size() > 0) {
                     // Step zusammenbauen
                     globalStep.setType(SolutionType.ALS_XY_WING);
                     globalStep.addAls(a.indices, a.candidates);
@@ -485,7 +492,7 @@ public class AlsSolver extends AbstractSolver {
                     if (rc2.getCand2() != 0) {
                         addRestrictedCommonToStep(b, c, rc2.getCand2(), false);
                     }
-                    SolutionStep step = (SolutionStep) globalStep.clone();
+                    SolutionStep step = finder.copyStep(globalStep);
                     if (onlyOne) {
                         return step;
                     }
@@ -614,7 +621,7 @@ public class AlsSolver extends AbstractSolver {
             }
             // if the chain length has reached at least 4 RCs check for candidates to eliminate
             if (chainIndex >= 3) {
-                globalStep.getCandidatesToDelete().clear();
+                globalStep.getPackedCandidatesToDelete().clear();
                 int c1 = 0, c2 = 0, c3 = 0, c4 = 0;
                 c1 = firstRC.getCand1();
                 c2 = firstRC.getCand2();
@@ -632,7 +639,7 @@ public class AlsSolver extends AbstractSolver {
                     c4 = rc.getCand2();
                 }
                 checkCandidatesToDelete(startAls, aktAls, c1, c2, c3, c4, null);
-                if (globalStep.getCandidatesToDelete().size() > 0) {
+                if (globalStep.getPackedCandidatesToDelete().size() > 0) {
                     // chain found: build it and write it
                     globalStep.setType(SolutionType.ALS_XY_CHAIN);
                     globalStep.addAls(startAls.indices, startAls.candidates);
@@ -1194,24 +1201,23 @@ public class AlsSolver extends AbstractSolver {
             ticks = System.nanoTime();
         }
         // initialize rcdb
-        for (int i = 0; i < rcdb.length; i++) {
-            Arrays.fill(rcdb, null);
-        }
-        // go over all ALS
-        for (int i = 0; i < alses.size(); i++) {
-            Als act = alses.get(i);
-            // check all candidate in the current ALS
-            for (int j = 1; j <= 9; j++) {
-                if ((act.candidates & Sudoku2.MASKS[j]) == 0) {
-                    // candidate not in als -> nothing to do
-                    continue;
-                }
+        Arrays.fill(rcdb, null);
+        // go over all candidates and all ALS containing that candidate
+        int[][] alsesPerCandidate = finder.getAlsesPerCandidate(alses);
+        for (int j = 1; j <= 9; j++) {
+            int[] alsIndices = alsesPerCandidate[j];
+            for (int i = 0; i < alsIndices.length; i++) {
+                Als act = alses.get(alsIndices[i]);
                 for (int k = 0; k < act.buddiesPerCandidat[j].size(); k++) {
                     int index = act.buddiesPerCandidat[j].get(k);
                     if (rcdb[index] == null) {
-                        rcdb[index] = new RCForDeathBlossom();
+                        if (rcdbCache[index] == null) {
+                            rcdbCache[index] = new RCForDeathBlossom();
+                        }
+                        rcdb[index] = rcdbCache[index];
+                        rcdb[index].clear();
                     }
-                    rcdb[index].addAlsForCandidate(i, j);
+                    rcdb[index].addAlsForCandidate(alsIndices[i], j);
                 }
             }
         }
@@ -1259,6 +1265,14 @@ public class AlsSolver extends AbstractSolver {
         RCForDeathBlossom() {
         }
 
+        /**
+         * Resets the instance for a new search.
+         */
+        void clear() {
+            candMask = 0;
+            Arrays.fill(indices, 0);
+        }
+
         /**
          * Adds an ALS for candidate <code>candidate</code>. {@link #candMask}
          * is updated accordingly.
@@ -1428,7 +1442,7 @@ class AlsComparator implements Comparator<SolutionStep> {
         int sum1 = 0, sum2 = 0;
 
         // zuerst nach Anzahl zu löschende Kandidaten (absteigend!)
-        int result = o2.getCandidatesToDelete().size() - o1.getCandidatesToDelete().size();
+        int result = o2.getPackedCandidatesToDelete().size() - o1.getPackedCandidatesToDelete().size();
         if (DEBUG) {
             System.out.println("      1: " + result);
         }
@@ -1437,8 +1451,8 @@ class AlsComparator implements Comparator<SolutionStep> {
         }
         if (!o1.isEquivalent(o2)) {
             // nicht äquivalent: nach Indexsumme der zu löschenden Kandidaten
-            sum1 = o1.getIndexSumme(o1.getCandidatesToDelete());
-            sum2 = o2.getIndexSumme(o2.getCandidatesToDelete());
+            sum1 = o1.getIndexSumme(o1.getPackedCandidatesToDelete());
+            sum2 = o2.getIndexSumme(o2.getPackedCandidatesToDelete());
             if (DEBUG) {
                 System.out.println("      2: " + (sum1 - sum2) + " (" + sum1 + "/" + sum2 + ")");
             }
@@ -0,0 +1,412 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+package solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import sudoku.SolutionStep;
+import sudoku.StepConfig;
+import sudoku.Sudoku2;
+import sudoku.SudokuUtil;
+
+/**
+ * Searches a sudoku for backdoors: combinations of up to three cells
+ * (set to their solution values) or candidates (eliminated), after which
+ * the sudoku can be solved with singles only or with the techniques
+ * given in <code>stepConfigs</code>.<br>
+ * The search is done depth by depth. The combinations of one depth are
+ * split by their first cell/candidate and handed out to a number of worker
+ * threads; every worker uses its own {@link SudokuSolver} and its own copy
+ * of the sudoku. Combinations, that contain a backdoor of a lower depth,
+ * are not checked.<br>
+ * The sudoku must have its solution set.
+ *
+ * @author hobiwan
+ */
+public class BackdoorSearch {
+    /** The search stops after that many backdoors have been found. */
+    public static final int MAX_FOUND = 100;
+    /** The maximum number of cells/candidates in one combination. */
+    public static final int MAX_DEPTH = 3;
+    /** The sudoku to check (never changed). */
+    private Sudoku2 orgSudoku;
+    /** <code>true</code> for cells, <code>false</code> for candidates. */
+    private boolean searchCells;
+    /** The techniques allowed for solving, <code>null</code> for singles only. */
+    private StepConfig[] stepConfigs;
+    /** The maximum depth of the search. */
+    private int maxDepth;
+    /** If <code>true</code>, the search ends with the first depth, that contains backdoors. */
+    private boolean stopAtFirstDepth = true;
+    /** The number of worker threads. */
+    private int threadAnz = Runtime.getRuntime().availableProcessors();
+    /** The indices of all cells/candidates, that are part of the search. */
+    private int[] itemIndices;
+    /** The candidates to eliminate (0 for cells). */
+    private int[] itemValues;
+    /** Optional listener. */
+    private BackdoorSearchListener listener;
+    /** All backdoors found so far (positions in {@link #itemIndices}). */
+    private final List<int[]> found = new ArrayList<int[]>();
+    /** Backdoors of depth 1, for pruning. */
+    private boolean[] foundSingles;
+    /** Backdoors of depth 2 (<code>i * n + j</code>), for pruning. */
+    private boolean[] foundPairs;
+    /** The number of backdoors found. */
+    private final AtomicInteger anzFound = new AtomicInteger();
+    /** The next first cell/candidate to be handed out to a worker. */
+    private final AtomicInteger nextItem = new AtomicInteger();
+    /** The number of combinations checked in the current depth. */
+    private final AtomicInteger counter = new AtomicInteger();
+    /** Set, if {@link #MAX_FOUND} has been reached. */
+    private volatile boolean stop = false;
+
+    /**
+     * Creates a new search.
+     * @param sudoku The sudoku (with solution)
+     * @param searchCells <code>true</code> for cells, <code>false</code> for candidates
+     * @param stepConfigs The techniques allowed, <code>null</code> for singles only
+     * @param maxDepth Maximum number of cells/candidates in one backdoor (1 to {@link #MAX_DEPTH})
+     */
+    public BackdoorSearch(Sudoku2 sudoku, boolean searchCells, StepConfig[] stepConfigs, int maxDepth) {
+        this.orgSudoku = sudoku.clone();
+        this.searchCells = searchCells;
+        this.stepConfigs = stepConfigs;
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_DEPTH));
+    }
+
+    /**
+     * Does the search. Backdoors are handed to the listener (if any) as soon
+     * as they are found, the return value contains all of them in the
+     * order of the combinations.
+     * @param listener A listener or <code>null</code>
+     * @return
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public List<String> search(BackdoorSearchListener listener) throws InterruptedException {
+        this.listener = listener;
+        collectItems();
+        int n = itemIndices.length;
+        found.clear();
+        foundSingles = new boolean[n];
+        foundPairs = new boolean[n * n];
+        anzFound.set(0);
+        stop = false;
+        ExecutorService executor = Executors.newFixedThreadPool(threadAnz);
+        try {
+            for (int depth = 1; depth <= maxDepth && depth <= n && !stop; depth++) {
+                int anzBefore = anzFound.get();
+                searchDepth(executor, depth);
+                if (stopAtFirstDepth && anzFound.get() > anzBefore) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // the workers dont find the backdoors in order
+        List<int[]> sorted = new ArrayList<int[]>(found);
+        Collections.sort(sorted, new Comparator<int[]>() {
+
+            @Override
+            public int compare(int[] c1, int[] c2) {
+                if (c1.length != c2.length) {
+                    return c1.length - c2.length;
+                }
+                for (int i = 0; i < c1.length; i++) {
+                    if (c1[i] != c2[i]) {
+                        return c1[i] - c2[i];
+                    }
+                }
+                return 0;
+            }
+        });
+        List<String> result = new ArrayList<String>(sorted.size());
+        for (int[] combination : sorted) {
+            result.add(getBackdoorString(combination));
+        }
+        return result;
+    }
+
+    /**
+     * Collects all cells or candidates, that are part of the search:
+     * all unsolved cells or all candidates, that are not the solution
+     * of their cell.
+     */
+    private void collectItems() {
+        List<Integer> indices = new ArrayList<Integer>();
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < Sudoku2.LENGTH; i++) {
+            if (orgSudoku.getValue(i) != 0) {
+                continue;
+            }
+            if (searchCells) {
+                indices.add(i);
+                values.add(0);
+            } else {
+                int[] cands = orgSudoku.getAllCandidates(i);
+                for (int j = 0; j < cands.length; j++) {
+                    if (cands[j] != orgSudoku.getSolution(i)) {
+                        indices.add(i);
+                        values.add(cands[j]);
+                    }
+                }
+            }
+        }
+        itemIndices = new int[indices.size()];
+        itemValues = new int[values.size()];
+        for (int i = 0; i < itemIndices.length; i++) {
+            itemIndices[i] = indices.get(i);
+            itemValues[i] = values.get(i);
+        }
+    }
+
+    /**
+     * Checks all combinations of <code>depth</code> cells/candidates.
+     * @param executor
+     * @param depth
+     * @throws InterruptedException
+     */
+    private void searchDepth(ExecutorService executor, int depth) throws InterruptedException {
+        int n = itemIndices.length;
+        int max = SudokuUtil.combinations(n, depth);
+        nextItem.set(0);
+        counter.set(0);
+        if (listener != null) {
+            listener.progress(depth, max, 0);
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < threadAnz; i++) {
+            futures.add(executor.submit(new Worker(depth, max)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            throw ex;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+        // remember the backdoors of this depth for pruning
+        synchronized (found) {
+            for (int[] combination : found) {
+                if (combination.length == 1) {
+                    foundSingles[combination[0]] = true;
+                } else if (combination.length == 2) {
+                    foundPairs[combination[0] * n + combination[1]] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks, if <code>combination</code> contains a backdoor
+     * of a lower depth.
+     * @param combination
+     * @return
+     */
+    private boolean isPruned(int[] combination) {
+        int n = itemIndices.length;
+        for (int i = 0; i < combination.length; i++) {
+            if (foundSingles[combination[i]]) {
+                return true;
+            }
+            if (combination.length > 2) {
+                for (int j = i + 1; j < combination.length; j++) {
+                    if (foundPairs[combination[i] * n + combination[j]]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the cells or eliminates the candidates in <code>combination</code>
+     * and tries to solve the sudoku.
+     * @param solver
+     * @param sudoku
+     * @param combination
+     * @return
+     */
+    private boolean checkCombination(SudokuSolver solver, Sudoku2 sudoku, int[] combination) {
+        sudoku.set(orgSudoku);
+        for (int i = 0; i < combination.length; i++) {
+            int index = itemIndices[combination[i]];
+            if (itemValues[combination[i]] == 0) {
+                sudoku.setCell(index, sudoku.getSolution(index));
+            } else {
+                sudoku.setCandidate(index, itemValues[combination[i]], false);
+            }
+        }
+        if (stepConfigs == null) {
+            return solver.solveSinglesOnly(sudoku);
+        } else {
+            return solver.solveWithSteps(sudoku, stepConfigs);
+        }
+    }
+
+    /**
+     * Stores a new backdoor and hands it to the listener.
+     * @param combination
+     */
+    private void addBackdoor(int[] combination) {
+        synchronized (found) {
+            found.add(combination);
+        }
+        if (anzFound.incrementAndGet() > MAX_FOUND) {
+            stop = true;
+        }
+        if (listener != null) {
+            listener.backdoorFound(getBackdoorString(combination));
+        }
+    }
+
+    /**
+     * Builds the printable form of a backdoor.
+     * @param combination
+     * @return
+     */
+    private String getBackdoorString(int[] combination) {
+        StringBuilder tmp = new StringBuilder();
+        for (int i = 0; i < combination.length; i++) {
+            if (i > 0) {
+                tmp.append(", ");
+            }
+            tmp.append(SolutionStep.getCellPrint(itemIndices[combination[i]], false));
+            if (itemValues[combination[i]] != 0) {
+                tmp.append("<>");
+                tmp.append(itemValues[combination[i]]);
+            }
+        }
+        return tmp.toString();
+    }
+
+    /**
+     * @return the stopAtFirstDepth
+     */
+    public boolean isStopAtFirstDepth() {
+        return stopAtFirstDepth;
+    }
+
+    /**
+     * If set to <code>false</code>, all depths up to <code>maxDepth</code>
+     * are searched; since supersets of backdoors are skipped, only minimal
+     * backdoors are reported.
+     * @param stopAtFirstDepth the stopAtFirstDepth to set
+     */
+    public void setStopAtFirstDepth(boolean stopAtFirstDepth) {
+        this.stopAtFirstDepth = stopAtFirstDepth;
+    }
+
+    /**
+     * @return the threadAnz
+     */
+    public int getThreadAnz() {
+        return threadAnz;
+    }
+
+    /**
+     * @param threadAnz the threadAnz to set
+     */
+    public void setThreadAnz(int threadAnz) {
+        this.threadAnz = Math.max(1, threadAnz);
+    }
+
+    /**
+     * One worker thread: gets the next first cell/candidate and checks
+     * all combinations starting with it, until all cells/candidates
+     * have been handed out.
+     */
+    private class Worker implements Runnable {
+        /** Number of cells/candidates in each combination. */
+        private int depth;
+        /** Number of combinations of this depth (for progress). */
+        private int max;
+
+        Worker(int depth, int max) {
+            this.depth = depth;
+            this.max = max;
+        }
+
+        @Override
+        public void run() {
+            SudokuSolver solver = SudokuSolverFactory.getInstance();
+            Sudoku2 sudoku = orgSudoku.clone();
+            int[] combination = new int[depth];
+            int n = itemIndices.length;
+            try {
+                int first = 0;
+                while (!stop && (first = nextItem.getAndIncrement()) < n) {
+                    combination[0] = first;
+                    if (!checkCombinations(solver, sudoku, combination, 1)) {
+                        return;
+                    }
+                    if (listener != null) {
+                        listener.progress(depth, max, counter.get());
+                    }
+                }
+            } finally {
+                SudokuSolverFactory.giveBack(solver);
+            }
+        }
+
+        /**
+         * Recursively builds all combinations, that start with the
+         * first <code>level</code> entries of <code>combination</code>,
+         * and checks them.
+         * @param solver
+         * @param sudoku
+         * @param combination
+         * @param level
+         * @return <code>false</code>, if the search was interrupted
+         */
+        private boolean checkCombinations(SudokuSolver solver, Sudoku2 sudoku, int[] combination, int level) {
+            if (level == combination.length) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                counter.incrementAndGet();
+                if (!isPruned(combination) && checkCombination(solver, sudoku, combination)) {
+                    addBackdoor(combination.clone());
+                }
+                return true;
+            }
+            for (int i = combination[level - 1] + 1; i < itemIndices.length && !stop; i++) {
+                combination[level] = i;
+                if (!checkCombinations(solver, sudoku, combination, level + 1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
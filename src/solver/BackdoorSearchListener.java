@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+package solver;
+
+/**
+ * Receives the results of a {@link BackdoorSearch} while the search
+ * is still running. The methods are called from the worker threads
+ * of the search, so implementations have to be thread safe.
+ *
+ * @author hobiwan
+ */
+public interface BackdoorSearchListener {
+    /**
+     * A backdoor has been found.
+     * @param backdoor The backdoor in printable form (e.g. "r1c2, r4c5")
+     */
+    public void backdoorFound(String backdoor);
+
+    /**
+     * Progress of the search.
+     * @param depth The number of cells/candidates in each combination (1 to 3)
+     * @param max Number of combinations of the current depth
+     * @param act Number of combinations already checked
+     */
+    public void progress(int depth, int max, int act);
+}
@@ -38,6 +38,13 @@ public class BruteForceSolver extends AbstractSolver {
         super(finder);
     }
     
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.BRUTE_FORCE
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -99,7 +106,7 @@ public class BruteForceSolver extends AbstractSolver {
         index = unsolved.get(index);
         
         // Step zusammenbauen
-        SolutionStep step = new SolutionStep(SolutionType.BRUTE_FORCE);
+        SolutionStep step = finder.createStep(SolutionType.BRUTE_FORCE);
         step.addIndex(index);
         step.addValue(sudoku.getSolution(index));
         
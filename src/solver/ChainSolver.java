@@ -27,7 +27,6 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import sudoku.Candidate;
 import sudoku.Chain;
 import sudoku.Options;
 import sudoku.SolutionStep;
@@ -87,12 +86,20 @@ public class ChainSolver extends AbstractSolver {
     private long startCellSet2M2;
 
     /** Array containing all links for all cells an candidates. the links for one specific candidate
-     * start at links[{@link #startIndices}] and end at links[{@link #endIndices} - 1]. */
-    private int[] links = new int[20000];
+     * start at links[{@link #startIndices}] and end at links[{@link #endIndices} - 1].
+     * For Nice Loops the arrays of the {@link LinkGraph} are used directly, for all other
+     * types of chains the links are filtered into {@link #typeLinks}. */
+    private int[] links = null;
     /** The start indices in {@link #links} for all cell/candidate combinations (index cellIndex * 10 + candidate). */
-    private int[] startIndices = new int[810];
+    private int[] startIndices = null;
     /** The end indices + 1 in {@link #links} for all cell/candidate combinations (index cellIndex * 10 + candidate). */
-    private int[] endIndices = new int[810];
+    private int[] endIndices = null;
+    /** The links for all types of chains except Nice Loops. */
+    private int[] typeLinks = new int[20000];
+    /** The start indices in {@link #typeLinks}. */
+    private int[] typeStartIndices = new int[810];
+    /** The end indices + 1 in {@link #typeLinks}. */
+    private int[] typeEndIndices = new int[810];
     /** One global chain, is copied if a chain is actually found */
     private int[] chain = new int[MAX_CHAIN_LENGTH];
     /** A set containing all cells from {@link #chain} (for loop/lasso check).
@@ -120,6 +127,30 @@ public class ChainSolver extends AbstractSolver {
     private SolutionStep globalStep = new SolutionStep(SolutionType.FULL_HOUSE);
     /** A list for all chain steps */
     private List<SolutionStep> steps;
+    // breadth first search (see getChainsBfs())
+    /** Number of states in the breadth first search: every node with both polarities. */
+    private static final int BFS_STATES = 810 * 2;
+    /** The current frontier of the breadth first search. A state is <code>node * 2 + 1</code>,
+     *  if the next link has to be strong, and <code>node * 2</code> otherwise (node is
+     *  <code>cellIndex * 10 + candidate</code>). */
+    private int[] bfsFrontier = new int[BFS_STATES];
+    /** The frontier for the next level. */
+    private int[] bfsNextFrontier = new int[BFS_STATES];
+    /** A state has already been reached, if it holds the current {@link #bfsGeneration}. */
+    private int[] bfsVisited = new int[BFS_STATES];
+    /** The state from which a state has been reached (-1 for the start). */
+    private int[] bfsParent = new int[BFS_STATES];
+    /** The link with which a state has been reached. */
+    private int[] bfsLink = new int[BFS_STATES];
+    /** Current generation of {@link #bfsVisited} (avoids clearing the array for every start). */
+    private int bfsGeneration = 0;
+    /** For every elimination (index <code>cellIndex * 10 + candidate</code>) the length of the
+     *  shortest chain found so far; only valid, if {@link #bestLengthGeneration} is current. */
+    private int[] bestLength = new int[810];
+    /** Generation of the entries in {@link #bestLength}. */
+    private int[] bestLengthGeneration = new int[810];
+    /** Current generation of {@link #bestLength} (one per search). */
+    private int bestLengthStamp = 0;
     /** The last {@link SudokuStepFinder#stepNumber} for caching links */
     private int lastStepNumber = -1;
     /** Will be set at the beginning of each search */
@@ -164,6 +195,26 @@ public class ChainSolver extends AbstractSolver {
         }
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.X_CHAIN, SolutionType.XY_CHAIN, SolutionType.REMOTE_PAIR, SolutionType.TURBOT_FISH
+        };
+    }
+
+    @Override
+    protected boolean isApplicable(SolutionType type) {
+        switch (type) {
+            case XY_CHAIN:
+                // at least two bivalue cells
+                return finder.getAnzCellsWithCandidates(2) >= 2;
+            case REMOTE_PAIR:
+                // at least four bivalue cells
+                return finder.getAnzCellsWithCandidates(2) >= 4;
+        }
+        return true;
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -202,9 +253,7 @@ public class ChainSolver extends AbstractSolver {
             case TURBOT_FISH:
 //            case CONTINUOUS_NICE_LOOP:
 //            case DISCONTINUOUS_NICE_LOOP:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                }
+                deleteCandidates(step);
                 break;
             default:
                 handled = false;
@@ -213,12 +262,18 @@ public class ChainSolver extends AbstractSolver {
     }
 
     /**
-     * Get an X-Chain. All chains are found and sorted, one is returned
+     * Get an X-Chain. All chains are found and sorted, one is returned.
+     * If {@link Options#isShortestChainsFirst() } is set, only the shortest
+     * chains are found (see {@link #getChainsBfs(int) }).
      * @return
      */
     private SolutionStep getXChains() {
         steps = new ArrayList<SolutionStep>();
-        getChains(X_CHAIN);
+        if (Options.getInstance().isShortestChainsFirst()) {
+            getChainsBfs(X_CHAIN);
+        } else {
+            getChains(X_CHAIN);
+        }
         if (steps.size() > 0) {
             Collections.sort(steps);
             return steps.get(0);
@@ -241,12 +296,18 @@ public class ChainSolver extends AbstractSolver {
     }
 
     /**
-     * Get an XY-Chain. All chains are found and sorted, one is returned
+     * Get an XY-Chain. All chains are found and sorted, one is returned.
+     * If {@link Options#isShortestChainsFirst() } is set, only the shortest
+     * chains are found (see {@link #getChainsBfs(int) }).
      * @return
      */
     private SolutionStep getXYChains() {
         steps = new ArrayList<SolutionStep>();
-        getChains(XY_CHAIN);
+        if (Options.getInstance().isShortestChainsFirst()) {
+            getChainsBfs(XY_CHAIN);
+        } else {
+            getChains(XY_CHAIN);
+        }
         if (steps.size() > 0) {
             Collections.sort(steps);
             return steps.get(0);
@@ -584,6 +645,221 @@ public class ChainSolver extends AbstractSolver {
         }
     }
 
+    /**
+     * Searches for X-Chains or XY-Chains with a breadth first search: For every
+     * start candidate the chains are built level by level, so the shortest chain
+     * to every end point is found first. Every node is reached only once
+     * for each polarity, so the search is bounded by the number of candidates
+     * instead of the number of possible chains.<br><br>
+     *
+     * A chain is only recorded, if at least one of its eliminations has not
+     * been found by a chain of the same or a shorter length yet ({@link #bestLength}).
+     * The search for the next start candidate is stopped at the length of the
+     * shortest chain found so far.<br><br>
+     *
+     * Since only the first path to every node is followed, the search can miss
+     * chains that a full search ({@link #getChains(int) }) would find; it is
+     * meant for hints, not for "Find all steps".
+     *
+     * @param type {@link #X_CHAIN} or {@link #XY_CHAIN}
+     */
+    private void getChainsBfs(int type) {
+        long nanos = System.nanoTime();
+        getAllLinks(type);
+
+        // calculate maximum length of chain
+        chainMaxLength = MAX_CHAIN_LENGTH - 1;
+        if (Options.getInstance().isRestrictChainSize()) {
+            chainMaxLength = Options.getInstance().getRestrictChainLength();
+        }
+        deletesMap.clear();
+        bestLengthStamp++;
+        int maxLength = chainMaxLength;
+        for (startIndex = 0; startIndex < sudoku.getCells().length; startIndex++) {
+            if (sudoku.getValue(startIndex) != 0) {
+                // cell already set -> no chain possible
+                continue;
+            }
+            int[] startCandidates = sudoku.getAllCandidates(startIndex);
+            for (int i = 0; i < startCandidates.length; i++) {
+                startCandidate = startCandidates[i];
+                // all instances of startCandidate that can see the cell at startIndex
+                startCellSetM1 = Sudoku2.buddiesM1[startIndex] & finder.getCandidates()[startCandidate].getMask1();
+                startCellSetM2 = Sudoku2.buddiesM2[startIndex] & finder.getCandidates()[startCandidate].getMask2();
+                if (startCellSetM1 == 0 && startCellSetM2 == 0) {
+                    // nothing can be eliminated from this start
+                    continue;
+                }
+                int length = getChainBfs(type, maxLength);
+                if (length < maxLength) {
+                    maxLength = length;
+                }
+            }
+        }
+        switch (type) {
+            case X_CHAIN: chainXNanos += System.nanoTime() - nanos; anzX++; break;
+            case XY_CHAIN: chainYNanos += System.nanoTime() - nanos; anzY++; break;
+        }
+    }
+
+    /**
+     * Breadth first search from {@link #startIndex}/{@link #startCandidate}.
+     * The links are used according to the same rules as in
+     * {@link #getChain(solver.ChainSolver.StackEntry, int) }: a chain must not
+     * link back to its middle, a link back to the start cell ends the chain.
+     *
+     * @param type
+     * @param maxLength
+     * @return The length of the shortest chain recorded or <code>Integer.MAX_VALUE</code>
+     */
+    private int getChainBfs(int type, int maxLength) {
+        int result = Integer.MAX_VALUE;
+        bfsGeneration++;
+        int startState = (startIndex * 10 + startCandidate) * 2 + 1;
+        bfsVisited[startState] = bfsGeneration;
+        bfsParent[startState] = -1;
+        bfsFrontier[0] = startState;
+        int frontierSize = 1;
+        for (int level = 1; level <= maxLength && frontierSize > 0; level++) {
+            int nextSize = 0;
+            for (int f = 0; f < frontierSize; f++) {
+                int state = bfsFrontier[f];
+                int node = state >> 1;
+                boolean strongOnly = (state & 1) != 0;
+                int cellIndex = node / 10;
+                int candidate = node % 10;
+                for (int linkIndex = startIndices[node]; linkIndex < endIndices[node]; linkIndex++) {
+                    int newLink = links[linkIndex];
+                    boolean newLinkIsStrong = Chain.isSStrong(newLink);
+                    if (strongOnly && !newLinkIsStrong) {
+                        // link must be strong but isnt -> forbidden
+                        continue;
+                    }
+                    int newLinkIndex = Chain.getSCellIndex(newLink);
+                    int newLinkCandidate = Chain.getSCandidate(newLink);
+                    if (newLinkIndex == cellIndex && newLinkCandidate == candidate) {
+                        // cell links to itself -> forbidden
+                        continue;
+                    }
+                    if (type == X_CHAIN && newLinkCandidate != startCandidate) {
+                        // all links must be for the same candidate
+                        continue;
+                    }
+                    if (type == XY_CHAIN && sudoku.getAnzCandidates(newLinkIndex) != 2) {
+                        // cell is not bivalue -> no XY-Chain possible
+                        continue;
+                    }
+                    if (type == XY_CHAIN && strongOnly && newLinkIndex != cellIndex) {
+                        // all strong links must be within a cell
+                        continue;
+                    }
+                    // a link back to the start cell ends the chain (as in getChain())
+                    boolean isLoop = newLinkIndex == startIndex && cellIndex != startIndex;
+                    int newState = (newLinkIndex * 10 + newLinkCandidate) * 2 + (strongOnly ? 0 : 1);
+                    if (!isLoop && (bfsVisited[newState] == bfsGeneration ||
+                            !isBfsLinkAllowed(state, cellIndex, newLinkIndex))) {
+                        continue;
+                    }
+                    if (!strongOnly && newLinkIsStrong) {
+                        // might be strong link, but only weak is needed -> change it
+                        newLink = Chain.setSStrong(newLink, false);
+                    }
+                    if (strongOnly && level > 1 && newLinkCandidate == startCandidate) {
+                        // check if the first and last cells can delete anything
+                        long m1 = startCellSetM1 & Sudoku2.buddiesM1[newLinkIndex];
+                        long m2 = startCellSetM2 & Sudoku2.buddiesM2[newLinkIndex];
+                        if ((m1 != 0 || m2 != 0) && addBfsChain(type, state, newLink, level, m1, m2)) {
+                            result = Math.min(result, level);
+                        }
+                    }
+                    if (isLoop) {
+                        continue;
+                    }
+                    bfsVisited[newState] = bfsGeneration;
+                    bfsParent[newState] = state;
+                    bfsLink[newState] = newLink;
+                    if (level < maxLength) {
+                        bfsNextFrontier[nextSize++] = newState;
+                    }
+                }
+            }
+            int[] tmp = bfsFrontier;
+            bfsFrontier = bfsNextFrontier;
+            bfsNextFrontier = tmp;
+            frontierSize = nextSize;
+        }
+        return result;
+    }
+
+    /**
+     * Checks, if a link from <code>state</code> to a cell is allowed:
+     * A cell can only be in the chain twice, if the two nodes follow each
+     * other directly.
+     *
+     * @param state
+     * @param cellIndex The cell of <code>state</code>
+     * @param newLinkIndex
+     * @return
+     */
+    private boolean isBfsLinkAllowed(int state, int cellIndex, int newLinkIndex) {
+        int parent = bfsParent[state];
+        if (newLinkIndex == cellIndex) {
+            // stays in the cell: only allowed, if the cell was entered with the last link
+            return parent == -1 || (parent >> 1) / 10 != cellIndex;
+        }
+        // the new cell must not be part of the chain
+        while (state != -1) {
+            if ((state >> 1) / 10 == newLinkIndex) {
+                return false;
+            }
+            state = bfsParent[state];
+        }
+        return true;
+    }
+
+    /**
+     * A chain has been found by the breadth first search: if it provides at least
+     * one elimination, for which no chain with the same or a smaller length exists,
+     * it is copied into {@link #chain} and recorded.
+     *
+     * @param type
+     * @param state The state before the last link
+     * @param lastLink
+     * @param length
+     * @param m1
+     * @param m2
+     * @return <code>true</code>, if the chain was recorded
+     */
+    private boolean addBfsChain(int type, int state, int lastLink, int length, long m1, long m2) {
+        checkBuddies.set(m1, m2);
+        boolean isNew = false;
+        for (int i = 0; i < checkBuddies.size(); i++) {
+            int index = checkBuddies.get(i) * 10 + startCandidate;
+            if (bestLengthGeneration[index] != bestLengthStamp || bestLength[index] > length) {
+                bestLengthGeneration[index] = bestLengthStamp;
+                bestLength[index] = length;
+                isNew = true;
+            }
+        }
+        if (!isNew) {
+            return false;
+        }
+        // build the chain
+        stackLevel = length;
+        chain[length] = lastLink;
+        for (int i = length - 1; i > 0; i--) {
+            chain[i] = bfsLink[state];
+            state = bfsParent[state];
+        }
+        chain[0] = Chain.makeSEntry(startIndex, startCandidate, false);
+        if (type == X_CHAIN) {
+            checkXChain(m1, m2, false);
+        } else {
+            checkXYChain(m1, m2);
+        }
+        return true;
+    }
+
     /**
      * An X-Chain exists between strong links of the same candidate. Any candidate that
      * sees both ends of the chain can be eliminated.<br>
@@ -854,7 +1130,7 @@ public class ChainSolver extends AbstractSolver {
             }
         }
 
-        if (globalStep.getCandidatesToDelete().size() > 0) {
+        if (globalStep.getPackedCandidatesToDelete().size() > 0) {
             // ok, Loop ist nicht redundant -> einschreiben, wenn es die Kombination nicht schon gibt
             String del = globalStep.getCandidateString();
             Integer oldLength = deletesMap.get(del);
@@ -882,6 +1158,11 @@ public class ChainSolver extends AbstractSolver {
      * <li>{@link #XY_CHAIN}: Only bivalue cells</li>
      * <li>{@link #NICE_LOOP}: All types of links</li>
      * </ul>
+     * All links are taken from the {@link LinkGraph} of the {@link SudokuStepFinder}.
+     * Nice Loops use all links, so the arrays of the graph are used directly.
+     * For all other types the links are filtered (the order of the links is
+     * not changed). Links between cells are only strong for X-Chains and Turbot Fish.<br><br>
+     *
      * Turbot Fish and X-Chain share exactly the same links and X-CHain is after Turbot
      * in the default configuration. If a search for one type is done after
      * a search for the other has found nothing and the sudoku has not changed since,
@@ -901,85 +1182,63 @@ public class ChainSolver extends AbstractSolver {
             turbotOrXSeen = false;
         }
         lastStepNumber = finder.getStepNumber();
-        // recalculate the links
         long nanos = System.nanoTime();
+        LinkGraph graph = finder.getLinkGraph();
+        if (type == NICE_LOOP) {
+            links = graph.getLinks();
+            startIndices = graph.getStartIndices();
+            endIndices = graph.getEndIndices();
+            return;
+        }
+        // filter the links
+        links = typeLinks;
+        startIndices = typeStartIndices;
+        endIndices = typeEndIndices;
+        int[] graphLinks = graph.getLinks();
+        int[] graphStartIndices = graph.getStartIndices();
+        int[] graphEndIndices = graph.getEndIndices();
         int index = 0;
         int startEndIndex = 0;
-        byte[][] free = sudoku.getFree();
         for (int cellIndex = 0; cellIndex < sudoku.getCells().length; cellIndex++) {
             short cell = sudoku.getCell(cellIndex);
             if (cell == 0 || ((type == REMOTE_PAIR || type == XY_CHAIN) && Sudoku2.ANZ_VALUES[cell] != 2)) {
                 // ignore filled cells
+                for (int cellCandidate = 1; cellCandidate <= 9; cellCandidate++) {
+                    startIndices[cellIndex * 10 + cellCandidate] = index;
+                    endIndices[cellIndex * 10 + cellCandidate] = index;
+                }
                 continue;
             }
             for (int cellCandidate = 1; cellCandidate <= 9; cellCandidate++) {
-//                System.out.println(cellIndex + "/" + cellCandidate);
                 startEndIndex = cellIndex * 10 + cellCandidate;
-//                if (sudoku.getValue(cellIndex) != 0 || !sudoku.isCandidate(cellIndex, cellCandidate)) {
-                if (! sudoku.isCandidate(cellIndex, cellCandidate)) {
-                    startIndices[startEndIndex] = index;
-                    endIndices[startEndIndex] = index;
-                    continue;
-                }
                 startIndices[startEndIndex] = index;
-                // within a cell: if the cell has only two candidates left, there is a
-                // strong link between them (not X-Chain and Turbot), else there are weak
-                // links to all other candidates (only Nice Loop)
-                int[] cands = Sudoku2.POSSIBLE_VALUES[cell];
-                if (Sudoku2.ANZ_VALUES[cell] == 2) {
-                    // bivalue cell
-                    if (type != X_CHAIN && type != TURBOT_FISH) {
-                        int cand = cands[0];
-                        if (cand == cellCandidate) {
-                            cand = cands[1];
+                for (int i = graphStartIndices[startEndIndex]; i < graphEndIndices[startEndIndex]; i++) {
+                    int link = graphLinks[i];
+                    int index2 = Chain.getSCellIndex(link);
+                    if (index2 == cellIndex) {
+                        // within a cell: only the strong link in a bivalue
+                        // cell (not X-Chain and Turbot)
+                        if (Chain.isSStrong(link) && type != X_CHAIN && type != TURBOT_FISH) {
+                            links[index++] = link;
                         }
-                        // strong link
-//                        System.out.println("  " + index + ": " + cellIndex + "/" + cand + "/" + true);
-                        links[index++] = Chain.makeSEntry(cellIndex, cand, true);
+                        continue;
                     }
-                } else if (type == NICE_LOOP) {
-                    for (int k = 0; k < cands.length; k++) {
-                        if (cands[k] == cellCandidate) {
-                            continue;
-                        }
-//                        System.out.println("  " + index + ": " + cellIndex + "/" + cands[k] + "/" + false);
-                        links[index++] = Chain.makeSEntry(cellIndex, cands[k], false);
+                    // now within the houses: if XY-Chain only to a bivalue cell,
+                    // if RP only to bivalue cell with same two candidates
+                    if (type == X_CHAIN || type == TURBOT_FISH) {
+                        links[index++] = link;
+                        continue;
                     }
-                }
-                // now within the houses: if the candidates exists only two times, its a strong
-                // link, else weak links
-                // if XY-Chain only to a bivalue cell, if RP only to bivalue cell with same two candidates
-                // else: only for X-Chain, Turbot and Nice Loop
-                for (int constr = 0; constr < Sudoku2.CONSTRAINTS[cellIndex].length; constr++) {
-                    boolean strong = false;
-                    if (free[Sudoku2.CONSTRAINTS[cellIndex][constr]][cellCandidate] == 2) {
-                        // strong link!
-                        if (type == X_CHAIN || type == TURBOT_FISH || type == NICE_LOOP) {
-                            strong = true;
-                        }
+                    short cell2 = sudoku.getCell(index2);
+                    if (type == REMOTE_PAIR && cell2 != cell) {
+                        // must be the same two values
+                        continue;
                     }
-                    int[] indices = Sudoku2.ALL_UNITS[Sudoku2.CONSTRAINTS[cellIndex][constr]];
-                    for (int k = 0; k < indices.length; k++) {
-                        if (indices[k] != cellIndex && sudoku.isCandidate(indices[k], cellCandidate)) {
-                            // link found
-                            short cell2 = sudoku.getCell(indices[k]);
-                            if (type == REMOTE_PAIR && cell2 != cell) {
-                                // must be the same two values
-                                continue;
-                            }
-                            if (type == XY_CHAIN && Sudoku2.ANZ_VALUES[cell2] != 2) {
-                                // must be bivalue
-                                continue;
-                            }
-                            if (constr == 2 && (Sudoku2.getLine(cellIndex) == Sudoku2.getLine(indices[k]) ||
-                                    Sudoku2.getCol(cellIndex) == Sudoku2.getCol(indices[k]))) {
-                                // link was already recorded in line/col
-                                continue;
-                            }
-//                            System.out.println("  " + index + ": " + indices[k] + "/" + cellCandidate + "/" + strong);
-                            links[index++] = Chain.makeSEntry(indices[k], cellCandidate, strong);
-                        }
+                    if (type == XY_CHAIN && Sudoku2.ANZ_VALUES[cell2] != 2) {
+                        // must be bivalue
+                        continue;
                     }
+                    links[index++] = Chain.makeSEntry(index2, cellCandidate, false);
                 }
                 endIndices[startEndIndex] = index;
             }
@@ -51,6 +51,8 @@ public class ColoringSolver extends AbstractSolver {
     private SudokuSet startSet = new SudokuSet();
     /** Set for temporary calculations. */
     private SudokuSet tmpSet1 = new SudokuSet();
+    /** The links of the sudoku (only valid during {@link #doColoring(int) }). */
+    private LinkGraph graph = null;
     /** Contains cells where a candidate can be eliminated. */
     private SudokuSet deleteSet = new SudokuSet();
     /** All steps found. */
@@ -73,6 +75,14 @@ public class ColoringSolver extends AbstractSolver {
         }
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.SIMPLE_COLORS, SolutionType.SIMPLE_COLORS_TRAP, SolutionType.SIMPLE_COLORS_WRAP,
+            SolutionType.MULTI_COLORS, SolutionType.MULTI_COLORS_1, SolutionType.MULTI_COLORS_2
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -103,9 +113,7 @@ public class ColoringSolver extends AbstractSolver {
             case MULTI_COLORS:
             case MULTI_COLORS_1:
             case MULTI_COLORS_2:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                }
+                deleteCandidates(step);
                 break;
             default:
                 handled = false;
@@ -201,14 +209,14 @@ public class ColoringSolver extends AbstractSolver {
                     globalStep.addCandidateToDelete(set2.get(j), cand);
                 }
             }
-            if (!globalStep.getCandidatesToDelete().isEmpty()) {
+            if (!globalStep.getPackedCandidatesToDelete().isEmpty()) {
                 globalStep.setType(SolutionType.SIMPLE_COLORS_WRAP);
                 globalStep.addValue(cand);
                 globalStep.addColorCandidates(set1, 0);
                 globalStep.addColorCandidates(set2, 1);
                 //System.out.println("onSet: " + onSet);
                 //System.out.println("offSet: " + offSet);
-                SolutionStep step = (SolutionStep) globalStep.clone();
+                SolutionStep step = finder.copyStep(globalStep);
                 if (onlyOne) {
                     return step;
                 } else {
@@ -220,12 +228,12 @@ public class ColoringSolver extends AbstractSolver {
             // opposite colors, can be removed
             globalStep.reset();
             checkCandidateToDelete(set1, set2, cand);
-            if (!globalStep.getCandidatesToDelete().isEmpty()) {
+            if (!globalStep.getPackedCandidatesToDelete().isEmpty()) {
                 globalStep.setType(SolutionType.SIMPLE_COLORS_TRAP);
                 globalStep.addValue(cand);
                 globalStep.addColorCandidates(set1, 0);
                 globalStep.addColorCandidates(set2, 1);
-                SolutionStep step = (SolutionStep) globalStep.clone();
+                SolutionStep step = finder.copyStep(globalStep);
                 if (onlyOne) {
                     return step;
                 } else {
@@ -347,14 +355,14 @@ public class ColoringSolver extends AbstractSolver {
                         globalStep.addCandidateToDelete(set12.get(k), cand);
                     }
                 }
-                if (!globalStep.getCandidatesToDelete().isEmpty()) {
+                if (!globalStep.getPackedCandidatesToDelete().isEmpty()) {
                     globalStep.setType(SolutionType.MULTI_COLORS_2);
                     globalStep.addValue(cand);
                     globalStep.addColorCandidates(set11, 0);
                     globalStep.addColorCandidates(set12, 1);
                     globalStep.addColorCandidates(set21, 2);
                     globalStep.addColorCandidates(set22, 3);
-                    SolutionStep step = (SolutionStep) globalStep.clone();
+                    SolutionStep step = finder.copyStep(globalStep);
                     if (onlyOne) {
                         return step;
                     } else {
@@ -377,14 +385,14 @@ public class ColoringSolver extends AbstractSolver {
                 if (checkMultiColor2(set12, set22)) {
                     checkCandidateToDelete(set11, set21, cand);
                 }
-                if (!globalStep.getCandidatesToDelete().isEmpty()) {
+                if (!globalStep.getPackedCandidatesToDelete().isEmpty()) {
                     globalStep.setType(SolutionType.MULTI_COLORS_1);
                     globalStep.addValue(cand);
                     globalStep.addColorCandidates(set11, 0);
                     globalStep.addColorCandidates(set12, 1);
                     globalStep.addColorCandidates(set21, 2);
                     globalStep.addColorCandidates(set22, 3);
-                    SolutionStep step = (SolutionStep) globalStep.clone();
+                    SolutionStep step = finder.copyStep(globalStep);
                     if (onlyOne) {
                         return step;
                     } else {
@@ -464,15 +472,13 @@ public class ColoringSolver extends AbstractSolver {
         anzColorPairs[cand] = 0;
         stepNumbers[cand] = finder.getStepNumber();
         // first: remove all candidates, that are not part of at least one conjugate pair
+        graph = finder.getLinkGraph();
         startSet.set(finder.getCandidates()[cand]);
         int[] values = startSet.getValues();
         int size = startSet.size();
-        byte[][] free = sudoku.getFree();
         for (int i = 0; i < size; i++) {
             int index = values[i];
-            if (free[Sudoku2.CONSTRAINTS[index][0]][cand] != 2 &&
-                    free[Sudoku2.CONSTRAINTS[index][1]][cand] != 2 &&
-                    free[Sudoku2.CONSTRAINTS[index][2]][cand] != 2) {
+            if (!graph.hasConjugate(index, cand)) {
                 // cannot be part of a conjugate pair
                 startSet.remove(values[i]);
                 continue;
@@ -517,33 +523,8 @@ public class ColoringSolver extends AbstractSolver {
         }
         startSet.remove(index);
         // recursion
-        doColoringForColorRecursive(getConjugateIndex(index, cand, Sudoku2.CONSTRAINTS[index][0]), cand, !on);
-        doColoringForColorRecursive(getConjugateIndex(index, cand, Sudoku2.CONSTRAINTS[index][1]), cand, !on);
-        doColoringForColorRecursive(getConjugateIndex(index, cand, Sudoku2.CONSTRAINTS[index][2]), cand, !on);
-    }
-
-    /**
-     * Checks whether cell <code>index</code> belongs to a conjugate
-     * pair for candidate <code>cand</code> in constraint
-     * <code>constraint</code>. Returns the other cell or -1, if there
-     * is no conjugate pair.
-     * @param index Index of cell for which a conjugate link is tried to find
-     * @param cand The candidate for which the search is performed
-     * @param constraint The constraint to check against
-     * @return An index, if the house has only one cell left, or -1
-     */
-    private int getConjugateIndex(int index, int cand, int constraint) {
-        if (sudoku.getFree()[constraint][cand] != 2) {
-            // no conjugate pair!
-            return -1;
-        }
-        // must be a conjugate pair, find the other index
-        tmpSet1.set(finder.getCandidates()[cand]);
-        tmpSet1.and(Sudoku2.ALL_CONSTRAINTS_TEMPLATES[constraint]);
-        int result = tmpSet1.get(0);
-        if (result == index) {
-            result = tmpSet1.get(1);
-        }
-        return result;
+        doColoringForColorRecursive(graph.getConjugate(index, cand, 0), cand, !on);
+        doColoringForColorRecursive(graph.getConjugate(index, cand, 1), cand, !on);
+        doColoringForColorRecursive(graph.getConjugate(index, cand, 2), cand, !on);
     }
 }
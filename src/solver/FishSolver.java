@@ -297,6 +297,29 @@ public class FishSolver extends AbstractSolver {
         }
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.LEVIATHAN, SolutionType.WHALE, SolutionType.SQUIRMBAG, SolutionType.JELLYFISH,
+            SolutionType.SWORDFISH, SolutionType.X_WING, SolutionType.FINNED_LEVIATHAN,
+            SolutionType.FINNED_WHALE, SolutionType.FINNED_SQUIRMBAG, SolutionType.FINNED_JELLYFISH,
+            SolutionType.FINNED_SWORDFISH, SolutionType.FINNED_X_WING, SolutionType.SASHIMI_LEVIATHAN,
+            SolutionType.SASHIMI_WHALE, SolutionType.SASHIMI_SQUIRMBAG, SolutionType.SASHIMI_JELLYFISH,
+            SolutionType.SASHIMI_SWORDFISH, SolutionType.SASHIMI_X_WING, SolutionType.FRANKEN_LEVIATHAN,
+            SolutionType.FRANKEN_WHALE, SolutionType.FRANKEN_SQUIRMBAG, SolutionType.FRANKEN_JELLYFISH,
+            SolutionType.FRANKEN_SWORDFISH, SolutionType.FRANKEN_X_WING,
+            SolutionType.FINNED_FRANKEN_LEVIATHAN, SolutionType.FINNED_FRANKEN_WHALE,
+            SolutionType.FINNED_FRANKEN_SQUIRMBAG, SolutionType.FINNED_FRANKEN_JELLYFISH,
+            SolutionType.FINNED_FRANKEN_SWORDFISH, SolutionType.FINNED_FRANKEN_X_WING,
+            SolutionType.MUTANT_LEVIATHAN, SolutionType.MUTANT_WHALE, SolutionType.MUTANT_SQUIRMBAG,
+            SolutionType.MUTANT_JELLYFISH, SolutionType.MUTANT_SWORDFISH, SolutionType.MUTANT_X_WING,
+            SolutionType.FINNED_MUTANT_LEVIATHAN, SolutionType.FINNED_MUTANT_WHALE,
+            SolutionType.FINNED_MUTANT_SQUIRMBAG, SolutionType.FINNED_MUTANT_JELLYFISH,
+            SolutionType.FINNED_MUTANT_SWORDFISH, SolutionType.FINNED_MUTANT_X_WING, SolutionType.KRAKEN_FISH,
+            SolutionType.KRAKEN_FISH_TYPE_1, SolutionType.KRAKEN_FISH_TYPE_2
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -462,9 +485,7 @@ public class FishSolver extends AbstractSolver {
             case KRAKEN_FISH:
             case KRAKEN_FISH_TYPE_1:
             case KRAKEN_FISH_TYPE_2:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                }
+                deleteCandidates(step);
                 break;
             default:
                 handled = false;
@@ -560,7 +581,7 @@ public class FishSolver extends AbstractSolver {
                         && (fishType == BASIC && type.isBasicFish()
                         || fishType == FRANKEN && type.isFrankenFish()
                         || fishType == MUTANT && type.isMutantFish())
-                        && (withFins && (step.getFins().size() > 0 || step.getEndoFins().size() > 0))
+                        && (withFins && (step.getPackedFins().size() > 0 || step.getPackedEndoFins().size() > 0))
                         && sashimi == type.isSashimiFish()) {
                     cachedSteps.clear();
                     return step;
@@ -1239,7 +1260,7 @@ public class FishSolver extends AbstractSolver {
      */
     private SolutionStep addFishStep() {
         if (!searchAll && !siamese) {
-            return (SolutionStep) globalStep.clone();
+            return finder.copyStep(globalStep);
         }
         if (fishType != UNDEFINED && !searchAll) {
             SolutionType type = globalStep.getType();
@@ -1328,7 +1349,7 @@ public class FishSolver extends AbstractSolver {
                     // different candidate
                     continue;
                 }
-                if (step1.getBaseEntities().size() != step2.getBaseEntities().size()) {
+                if (step1.getPackedBaseEntities().size() != step2.getPackedBaseEntities().size()) {
                     // different fish size -> no dual
                     continue;
                 }
@@ -1338,8 +1359,8 @@ public class FishSolver extends AbstractSolver {
                     continue;
                 }
                 boolean baseSetEqual = true;
-                for (int k = 0; k < step1.getBaseEntities().size(); k++) {
-                    if (!step1.getBaseEntities().get(k).equals(step2.getBaseEntities().get(k))) {
+                for (int k = 0; k < step1.getPackedBaseEntities().size(); k++) {
+                    if (step1.getPackedBaseEntities().get(k) != step2.getPackedBaseEntities().get(k)) {
                         baseSetEqual = false;
                         break;
                     }
@@ -1349,21 +1370,21 @@ public class FishSolver extends AbstractSolver {
                     continue;
                 }
                 // possible siamese fish; different eliminations?
-                if (step1.getCandidatesToDelete().get(0).equals(step2.getCandidatesToDelete().get(0))) {
+                if (step1.getPackedCandidatesToDelete().get(0) == step2.getPackedCandidatesToDelete().get(0)) {
                     // same step twice -> no siamese fish
                     continue;
                 }
                 // ok: siamese fish!
                 SolutionStep siameseStep = (SolutionStep) step1.clone();
                 siameseStep.setIsSiamese(true);
-                for (int k = 0; k < step2.getCoverEntities().size(); k++) {
-                    siameseStep.addCoverEntity(step2.getCoverEntities().get(k));
+                for (int k = 0; k < step2.getPackedCoverEntities().size(); k++) {
+                    siameseStep.getPackedCoverEntities().add(step2.getPackedCoverEntities().get(k));
                 }
-                for (int k = 0; k < step2.getFins().size(); k++) {
-                    siameseStep.addFin(step2.getFins().get(k));
+                for (int k = 0; k < step2.getPackedFins().size(); k++) {
+                    siameseStep.getPackedFins().add(step2.getPackedFins().get(k));
                 }
-                for (int k = 0; k < step2.getCandidatesToDelete().size(); k++) {
-                    siameseStep.addCandidateToDelete(step2.getCandidatesToDelete().get(k));
+                for (int k = 0; k < step2.getPackedCandidatesToDelete().size(); k++) {
+                    siameseStep.getPackedCandidatesToDelete().add(step2.getPackedCandidatesToDelete().get(k));
                 }
                 siameseStep.getPotentialEliminations().or(step2.getPotentialEliminations());
                 siameseStep.getPotentialCannibalisticEliminations().or(step2.getPotentialCannibalisticEliminations());
@@ -1501,7 +1522,7 @@ public class FishSolver extends AbstractSolver {
 
         // add it to steps or return it
         if (kraken) {
-            return (SolutionStep) globalStep.clone();
+            return finder.copyStep(globalStep);
         } else {
             return addFishStep();
         }
@@ -35,10 +35,17 @@ public class GiveUpSolver extends AbstractSolver {
         super(finder);
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.GIVE_UP
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         if (type == SolutionType.GIVE_UP) {
-            return new SolutionStep(SolutionType.GIVE_UP);
+            return finder.createStep(SolutionType.GIVE_UP);
         }
         return null;
     }
@@ -80,14 +80,6 @@ public class GroupNode {
      * consists only of two cells (which is a valid case)
      */
     public int index3;
-    /**
-     * All positions for a given candidate in a given house
-     */
-    private static SudokuSet candInHouse = new SudokuSet();
-    /**
-     * For checks with blocks.
-     */
-    private static SudokuSet tmpSet = new SudokuSet();
 
     /**
      * Creates a new instance of GroupNode. Group nodes are only
@@ -146,9 +138,13 @@ public class GroupNode {
      */
     public static List<GroupNode> getGroupNodes(SudokuStepFinder finder) {
         List<GroupNode> groupNodes = new ArrayList<GroupNode>();
+        // the temporary sets must not be static: more than one
+        // SudokuStepFinder can search for group nodes at the same time
+        SudokuSet candInHouse = new SudokuSet();
+        SudokuSet tmpSet = new SudokuSet();
 
-        getGroupNodesForHouseType(groupNodes, finder, Sudoku2.LINE_TEMPLATES, true);
-        getGroupNodesForHouseType(groupNodes, finder, Sudoku2.COL_TEMPLATES, false);
+        getGroupNodesForHouseType(groupNodes, finder, Sudoku2.LINE_TEMPLATES, true, candInHouse, tmpSet);
+        getGroupNodesForHouseType(groupNodes, finder, Sudoku2.COL_TEMPLATES, false, candInHouse, tmpSet);
 
         return groupNodes;
     }
@@ -163,9 +159,12 @@ public class GroupNode {
      * @param houses Templates for all lines/cols
      * @param isLines <code>true</code> if <code>houses</code> holds
      *          lines, <code>false</code> for cols.
+     * @param candInHouse Temporary set: all positions for a given candidate in a given house
+     * @param tmpSet Temporary set for checks with blocks
      */
     private static void getGroupNodesForHouseType(List<GroupNode> groupNodes,
-            SudokuStepFinder finder, SudokuSet[] houses, boolean isLines) {
+            SudokuStepFinder finder, SudokuSet[] houses, boolean isLines,
+            SudokuSet candInHouse, SudokuSet tmpSet) {
         for (int i = 0; i < houses.length; i++) {
             int[] blocks = isLines ? Sudoku2.BLOCKS_FROM_LINES[i] : Sudoku2.BLOCKS_FROM_COLS[i];
             for (int cand = 1; cand <= 9; cand++) {
@@ -35,6 +35,11 @@ public class IncompleteSolver extends AbstractSolver {
         super(finder);
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[0];
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         if (type == SolutionType.INCOMPLETE) {
@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+package solver;
+
+import java.util.List;
+import sudoku.Chain;
+import sudoku.Sudoku2;
+import sudoku.SudokuSet;
+
+/**
+ * All links between the candidates of a sudoku. The graph is shared by
+ * {@link ChainSolver}, {@link ColoringSolver} and {@link TablingSolver} and
+ * is held by {@link SudokuStepFinder} (see {@link SudokuStepFinder#getLinkGraph() }).<br><br>
+ *
+ * Every candidate is a node with the index <code>cellIndex * 10 + candidate</code>.
+ * The links of a node are stored in {@link #links} from
+ * {@link #startIndices}<code>[node]</code> to {@link #endIndices}<code>[node] - 1</code>
+ * as entries created by {@link Chain#makeSEntry(int, int, boolean) }. Every
+ * node has a fixed slot of {@link #MAX_LINKS} entries, so a node can be
+ * recalculated without touching the others. The links of a node are
+ * stored in the following order:
+ * <ul>
+ * <li>all other candidates in the same cell (one strong link, if the
+ *      cell is bivalue, weak links otherwise)</li>
+ * <li>the same candidate in the line, the column and the block of the cell;
+ *      a link is strong, if the candidate occurs only twice in the house. Cells
+ *      in the block, that have already been recorded for the line or the column,
+ *      are skipped.</li>
+ * </ul>
+ * This is exactly the order, in which the links were collected for Nice Loops
+ * in {@link ChainSolver}. Since cells in the block can be skipped,
+ * the conjugate pairs (strong links) are stored seperately for every
+ * house of a node in {@link #conjugates}.<br><br>
+ *
+ * If only a few cells have changed since the last update, only the nodes
+ * of the changed cells and the nodes of the changed candidates in all
+ * buddies are recalculated (see {@link #update(sudoku.Sudoku2) }).<br><br>
+ *
+ * Group nodes: The links of all group nodes (see {@link GroupNode}) are
+ * calculated on demand ({@link #updateGroupNodes(java.util.List, sudoku.SudokuSet[]) }).
+ *
+ * @author hobiwan
+ */
+public class LinkGraph {
+
+    /** Maximum number of links for one node: 8 candidates in the cell, 8 in line and col, 4 in the block. */
+    public static final int MAX_LINKS = 28;
+    /** Number of nodes (index <code>cellIndex * 10 + candidate</code>). */
+    public static final int NODE_ANZ = Sudoku2.LENGTH * 10;
+    /**
+     * If more cells than this have changed since the last update, the graph
+     * is recalculated completely.
+     */
+    private static final int MAX_CHANGED_CELLS = 27;
+    /** All links for all nodes. */
+    private int[] links = new int[NODE_ANZ * MAX_LINKS];
+    /** The start indices in {@link #links} for all nodes. */
+    private int[] startIndices = new int[NODE_ANZ];
+    /** The end indices + 1 in {@link #links} for all nodes. */
+    private int[] endIndices = new int[NODE_ANZ];
+    /**
+     * For every node and every house of the cell (index <code>node * 3 + constraint</code>,
+     * constraints in the order of {@link Sudoku2#CONSTRAINTS}) the other cell of the
+     * conjugate pair or -1.
+     */
+    private int[] conjugates = new int[NODE_ANZ * 3];
+    /** Step number for which the graph was calculated. */
+    private int stepNumber = -1;
+    /** <code>false</code>, until the graph has been calculated for the first time. */
+    private boolean initialized = false;
+    /** The cells of the sudoku at the last update. */
+    private short[] cells = new short[Sudoku2.LENGTH];
+    /** For every candidate the cells, whose nodes have to be recalculated. */
+    private SudokuSet[] dirtyNodes = new SudokuSet[10];
+    /** The group nodes for which the group node links were calculated. */
+    private List<GroupNode> groupNodes = null;
+    /**
+     * Links of all group nodes, that are turned off, if the group node is turned
+     * on (weak links). The links for the group node with index <code>i</code>
+     * in {@link #groupNodes} start at <code>groupNodeStartIndices[i * 2]</code>
+     * and end at <code>groupNodeEndIndices[i * 2] - 1</code>.<br>
+     * The links, that are turned on if the group node is turned off (strong links),
+     * are stored at index <code>i * 2 + 1</code>.<br>
+     * Normal nodes come first (in the order of the cells), group nodes later.
+     */
+    private int[] groupNodeLinks = new int[2000];
+    /** Start indices into {@link #groupNodeLinks}. */
+    private int[] groupNodeStartIndices = new int[200];
+    /** End indices + 1 into {@link #groupNodeLinks}. */
+    private int[] groupNodeEndIndices = new int[200];
+    /** The strong links of one group node (collected before the weak links are complete). */
+    private int[] offLinks = new int[5];
+    /** Temporary set for group node calculations. */
+    private SudokuSet tmpSet = new SudokuSet();
+    /** Temporary set for group node calculations. */
+    private SudokuSet tmpSet1 = new SudokuSet();
+    /** statistics: number of full calculations */
+    private int anzFull;
+    /** statistics: number of updates */
+    private int anzUpdates;
+    /** statistics: number of nodes recalculated by updates */
+    private int anzUpdatedNodes;
+    /** statistics: total time */
+    private long nanos;
+
+    /**
+     * Creates a new, empty graph.
+     */
+    public LinkGraph() {
+        for (int i = 0; i < dirtyNodes.length; i++) {
+            dirtyNodes[i] = new SudokuSet();
+        }
+        for (int i = 0; i < NODE_ANZ; i++) {
+            startIndices[i] = i * MAX_LINKS;
+            endIndices[i] = i * MAX_LINKS;
+        }
+    }
+
+    /**
+     * Brings the graph up to date, if the step number has changed since
+     * the last call.
+     *
+     * @param sudoku
+     * @param stepNumber
+     */
+    void update(Sudoku2 sudoku, int stepNumber) {
+        if (this.stepNumber == stepNumber && initialized) {
+            return;
+        }
+        this.stepNumber = stepNumber;
+        update(sudoku);
+    }
+
+    /**
+     * Compares the sudoku with the state of the last update and recalculates
+     * all nodes, whose links could have changed:
+     * <ul>
+     * <li>all candidates (old and new) of every changed cell</li>
+     * <li>every candidate, that was added to or removed from a changed cell,
+     *      in all buddies of that cell (the links of the candidate and the
+     *      number of candidates in the houses have changed)</li>
+     * </ul>
+     * If too many cells have changed, the whole graph is recalculated.
+     *
+     * @param sudoku
+     */
+    private void update(Sudoku2 sudoku) {
+        long ticks = System.nanoTime();
+        short[] newCells = sudoku.getCells();
+        int changed = 0;
+        if (initialized) {
+            for (int i = 1; i < dirtyNodes.length; i++) {
+                dirtyNodes[i].clear();
+            }
+            for (int i = 0; i < Sudoku2.LENGTH && changed <= MAX_CHANGED_CELLS; i++) {
+                if (newCells[i] == cells[i]) {
+                    continue;
+                }
+                changed++;
+                int[] cands = Sudoku2.POSSIBLE_VALUES[newCells[i] | cells[i]];
+                for (int j = 0; j < cands.length; j++) {
+                    dirtyNodes[cands[j]].add(i);
+                }
+                cands = Sudoku2.POSSIBLE_VALUES[newCells[i] ^ cells[i]];
+                for (int j = 0; j < cands.length; j++) {
+                    dirtyNodes[cands[j]].or(Sudoku2.buddies[i]);
+                }
+            }
+        }
+        if (!initialized || changed > MAX_CHANGED_CELLS) {
+            for (int cellIndex = 0; cellIndex < Sudoku2.LENGTH; cellIndex++) {
+                for (int cand = 1; cand <= 9; cand++) {
+                    calculateNode(sudoku, cellIndex, cand);
+                }
+            }
+            initialized = true;
+            anzFull++;
+        } else if (changed > 0) {
+            for (int cand = 1; cand <= 9; cand++) {
+                SudokuSet dirty = dirtyNodes[cand];
+                for (int i = 0; i < dirty.size(); i++) {
+                    calculateNode(sudoku, dirty.get(i), cand);
+                }
+                anzUpdatedNodes += dirty.size();
+            }
+            anzUpdates++;
+        }
+        System.arraycopy(newCells, 0, cells, 0, Sudoku2.LENGTH);
+        nanos += System.nanoTime() - ticks;
+    }
+
+    /**
+     * Calculates all links of one node (see class description for the
+     * order of the links).
+     *
+     * @param sudoku
+     * @param cellIndex
+     * @param cand
+     */
+    private void calculateNode(Sudoku2 sudoku, int cellIndex, int cand) {
+        int node = cellIndex * 10 + cand;
+        int index = startIndices[node];
+        conjugates[node * 3] = -1;
+        conjugates[node * 3 + 1] = -1;
+        conjugates[node * 3 + 2] = -1;
+        if (!sudoku.isCandidate(cellIndex, cand)) {
+            endIndices[node] = index;
+            return;
+        }
+        // within the cell
+        short cell = sudoku.getCell(cellIndex);
+        int[] cands = Sudoku2.POSSIBLE_VALUES[cell];
+        boolean bivalue = Sudoku2.ANZ_VALUES[cell] == 2;
+        for (int k = 0; k < cands.length; k++) {
+            if (cands[k] != cand) {
+                links[index++] = Chain.makeSEntry(cellIndex, cands[k], bivalue);
+            }
+        }
+        // within the houses
+        byte[][] free = sudoku.getFree();
+        for (int constr = 0; constr < Sudoku2.CONSTRAINTS[cellIndex].length; constr++) {
+            int house = Sudoku2.CONSTRAINTS[cellIndex][constr];
+            boolean strong = free[house][cand] == 2;
+            int[] indices = Sudoku2.ALL_UNITS[house];
+            for (int k = 0; k < indices.length; k++) {
+                int index2 = indices[k];
+                if (index2 == cellIndex || !sudoku.isCandidate(index2, cand)) {
+                    continue;
+                }
+                if (strong) {
+                    conjugates[node * 3 + constr] = index2;
+                }
+                if (constr == 2 && (Sudoku2.getLine(cellIndex) == Sudoku2.getLine(index2)
+                        || Sudoku2.getCol(cellIndex) == Sudoku2.getCol(index2))) {
+                    // link was already recorded in line/col
+                    continue;
+                }
+                links[index++] = Chain.makeSEntry(index2, cand, strong);
+            }
+        }
+        endIndices[node] = index;
+    }
+
+    /**
+     * Calculates the links of all group nodes, if <code>newGroupNodes</code>
+     * is not the list, for which the links were calculated last.<br><br>
+     *
+     * ON (weak links, turned off by the group node): every candidate, that can see
+     * the group node; every other group node with the same candidate, that doesn't
+     * overlap and shares the line, the column or the block (once per house).<br>
+     * OFF (strong links, turned on by the group node): a single candidate in
+     * the block and in the line/col of the group node; a group node, that is
+     * the only other group node in a house, if no other candidates exist in that
+     * house.
+     *
+     * @param newGroupNodes
+     * @param candidates The cells of every candidate (see {@link SudokuStepFinder#getCandidates() })
+     */
+    void updateGroupNodes(List<GroupNode> newGroupNodes, SudokuSet[] candidates) {
+        if (newGroupNodes == groupNodes) {
+            return;
+        }
+        long ticks = System.nanoTime();
+        groupNodes = newGroupNodes;
+        if (groupNodeStartIndices.length < groupNodes.size() * 2) {
+            groupNodeStartIndices = new int[groupNodes.size() * 2];
+            groupNodeEndIndices = new int[groupNodes.size() * 2];
+        }
+        int index = 0;
+        for (int i = 0; i < groupNodes.size(); i++) {
+            GroupNode gn = groupNodes.get(i);
+            // at most 12 cells and a few group nodes for on, 2 cells and
+            // 3 group nodes for off
+            if (index + 64 > groupNodeLinks.length) {
+                int[] tmp = new int[groupNodeLinks.length * 2];
+                System.arraycopy(groupNodeLinks, 0, tmp, 0, index);
+                groupNodeLinks = tmp;
+            }
+            int onIndex = index;
+            tmpSet.setAnd(candidates[gn.cand], gn.buddies);
+            for (int j = 0; j < tmpSet.size(); j++) {
+                groupNodeLinks[index++] = Chain.makeSEntry(tmpSet.get(j), gn.cand, false);
+            }
+            // the strong links have to be collected first (they are stored
+            // after the weak links)
+            int offAnz = 0;
+            if (!tmpSet.isEmpty()) {
+                // if in a given house only one additional candidate exists, it is turned on
+                tmpSet1.setAnd(tmpSet, Sudoku2.BLOCK_TEMPLATES[gn.block]);
+                if (tmpSet1.size() == 1) {
+                    offLinks[offAnz++] = Chain.makeSEntry(tmpSet1.get(0), gn.cand, true);
+                }
+                tmpSet1.set(tmpSet);
+                if (gn.line != -1) {
+                    tmpSet1.and(Sudoku2.LINE_TEMPLATES[gn.line]);
+                } else {
+                    tmpSet1.and(Sudoku2.COL_TEMPLATES[gn.col]);
+                }
+                if (tmpSet1.size() == 1) {
+                    offLinks[offAnz++] = Chain.makeSEntry(tmpSet1.get(0), gn.cand, true);
+                }
+            }
+            // other group nodes: if they share one of the houses but don't
+            // overlap, they are connected
+            int lineAnz = 0;
+            GroupNode line1 = null;
+            int colAnz = 0;
+            GroupNode col1 = null;
+            int blockAnz = 0;
+            GroupNode block1 = null;
+            for (int j = 0; j < groupNodes.size(); j++) {
+                GroupNode gn2 = groupNodes.get(j);
+                if (j == i || gn.cand != gn2.cand || !gn.indices.andEmpty(gn2.indices)) {
+                    continue;
+                }
+                if (gn.line != -1 && gn.line == gn2.line) {
+                    if (++lineAnz == 1) {
+                        line1 = gn2;
+                    }
+                    groupNodeLinks[index++] = makeGroupNodeEntry(gn2, false);
+                }
+                if (gn.col != -1 && gn.col == gn2.col) {
+                    if (++colAnz == 1) {
+                        col1 = gn2;
+                    }
+                    groupNodeLinks[index++] = makeGroupNodeEntry(gn2, false);
+                }
+                if (gn.block == gn2.block) {
+                    if (++blockAnz == 1) {
+                        block1 = gn2;
+                    }
+                    groupNodeLinks[index++] = makeGroupNodeEntry(gn2, false);
+                }
+            }
+            groupNodeStartIndices[i * 2] = onIndex;
+            groupNodeEndIndices[i * 2] = index;
+            // if in one house was only one additional group node and if there is no
+            // additional single candidate in that same house -> group node is turned on
+            if (lineAnz == 1 && isOnlyGroupNode(gn, line1, Sudoku2.LINE_TEMPLATES[gn.line], candidates)) {
+                offLinks[offAnz++] = makeGroupNodeEntry(line1, true);
+            }
+            if (colAnz == 1 && isOnlyGroupNode(gn, col1, Sudoku2.COL_TEMPLATES[gn.col], candidates)) {
+                offLinks[offAnz++] = makeGroupNodeEntry(col1, true);
+            }
+            if (blockAnz == 1 && isOnlyGroupNode(gn, block1, Sudoku2.BLOCK_TEMPLATES[gn.block], candidates)) {
+                offLinks[offAnz++] = makeGroupNodeEntry(block1, true);
+            }
+            groupNodeStartIndices[i * 2 + 1] = index;
+            for (int j = 0; j < offAnz; j++) {
+                groupNodeLinks[index++] = offLinks[j];
+            }
+            groupNodeEndIndices[i * 2 + 1] = index;
+        }
+        nanos += System.nanoTime() - ticks;
+    }
+
+    /**
+     * Checks, if <code>gn</code> and <code>gn2</code> hold all candidates
+     * in <code>house</code>.
+     *
+     * @param gn
+     * @param gn2
+     * @param house
+     * @param candidates
+     * @return
+     */
+    private boolean isOnlyGroupNode(GroupNode gn, GroupNode gn2, SudokuSet house, SudokuSet[] candidates) {
+        tmpSet1.set(house);
+        tmpSet1.and(candidates[gn.cand]);
+        tmpSet1.andNot(gn.indices);
+        tmpSet1.andNot(gn2.indices);
+        return tmpSet1.isEmpty();
+    }
+
+    /**
+     * Creates a link to a group node.
+     *
+     * @param gn
+     * @param strong
+     * @return
+     */
+    private static int makeGroupNodeEntry(GroupNode gn, boolean strong) {
+        return Chain.makeSEntry(gn.index1, gn.index2, gn.index3, gn.cand, strong, Chain.GROUP_NODE);
+    }
+
+    /**
+     * @return the links of all nodes
+     */
+    public int[] getLinks() {
+        return links;
+    }
+
+    /**
+     * @return the start indices into {@link #getLinks() } for all nodes
+     */
+    public int[] getStartIndices() {
+        return startIndices;
+    }
+
+    /**
+     * @return the end indices + 1 into {@link #getLinks() } for all nodes
+     */
+    public int[] getEndIndices() {
+        return endIndices;
+    }
+
+    /**
+     * Returns the other cell of the conjugate pair of candidate <code>cand</code>
+     * in cell <code>cellIndex</code>.
+     *
+     * @param cellIndex
+     * @param cand
+     * @param constraint Index into {@link Sudoku2#CONSTRAINTS}<code>[cellIndex]</code>
+     * @return The other cell or -1, if the house doesn't hold exactly two candidates
+     */
+    public int getConjugate(int cellIndex, int cand, int constraint) {
+        return conjugates[(cellIndex * 10 + cand) * 3 + constraint];
+    }
+
+    /**
+     * Checks, if candidate <code>cand</code> in cell <code>cellIndex</code> is
+     * part of at least one conjugate pair.
+     *
+     * @param cellIndex
+     * @param cand
+     * @return
+     */
+    public boolean hasConjugate(int cellIndex, int cand) {
+        int index = (cellIndex * 10 + cand) * 3;
+        return conjugates[index] != -1 || conjugates[index + 1] != -1 || conjugates[index + 2] != -1;
+    }
+
+    /**
+     * @return the links of all group nodes
+     */
+    public int[] getGroupNodeLinks() {
+        return groupNodeLinks;
+    }
+
+    /**
+     * @return the start indices into {@link #getGroupNodeLinks() }
+     */
+    public int[] getGroupNodeStartIndices() {
+        return groupNodeStartIndices;
+    }
+
+    /**
+     * @return the end indices + 1 into {@link #getGroupNodeLinks() }
+     */
+    public int[] getGroupNodeEndIndices() {
+        return groupNodeEndIndices;
+    }
+
+    /**
+     * Do some statistics.
+     *
+     * @return
+     */
+    public String getStatistics() {
+        return "Statistic for LinkGraph: full: " + anzFull + ", updates: " + anzUpdates
+                + " (" + anzUpdatedNodes + " nodes), total time: " + (nanos / 1000) + "us";
+    }
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import sudoku.Candidate;
+import sudoku.PackedIntSet;
 import sudoku.SolutionStep;
 import sudoku.SolutionType;
 import sudoku.Sudoku2;
@@ -115,6 +116,13 @@ public class MiscellaneousSolver extends AbstractSolver {
         }
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.SUE_DE_COQ
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -133,9 +141,7 @@ public class MiscellaneousSolver extends AbstractSolver {
         sudoku = finder.getSudoku();
         switch (step.getType()) {
             case SUE_DE_COQ:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                }
+                deleteCandidates(step);
                 break;
             default:
                 handled = false;
@@ -395,7 +401,7 @@ public class MiscellaneousSolver extends AbstractSolver {
                         // all candidates that can be eliminated in the row/col (including extra candidates contained in both sets)
                         tmpCandSet = (short) (((intersectionActCandSet | nonBlockActCandSet) & ~blockActCandSet) | tmpCandSet1);
                         checkCandidatesToDelete(tmpSet, tmpCandSet);
-                        if (globalStep.getCandidatesToDelete().size() > 0) {
+                        if (globalStep.getPackedCandidatesToDelete().size() > 0) {
                             // FOUND ONE!
                             globalStep.setType(SolutionType.SUE_DE_COQ);
                             // intersection is written into indices and values
@@ -408,14 +414,14 @@ public class MiscellaneousSolver extends AbstractSolver {
                             }
                             // Alle Kandidaten im nonBlockActSet (und die passenden im intersectionActSet) werden fins
                             // all candidates that occur in the intersection and in the row/col become fins (for display)
-                            getSetCandidates(nonBlockActSet, intersectionActSet, nonBlockActCandSet, globalStep.getFins());
+                            getSetCandidates(nonBlockActSet, intersectionActSet, nonBlockActCandSet, globalStep.getPackedFins());
                             // all candidates that occur in the intersection and in the block become endo fins (for display)
-                            getSetCandidates(blockActSet, intersectionActSet, blockActCandSet, globalStep.getEndoFins());
+                            getSetCandidates(blockActSet, intersectionActSet, blockActCandSet, globalStep.getPackedEndoFins());
 
                             globalStep.addAls(intersectionActSet, intersectionActCandSet);
                             globalStep.addAls(blockActSet, blockActCandSet);
                             globalStep.addAls(nonBlockActSet, nonBlockActCandSet);
-                            SolutionStep step = (SolutionStep) globalStep.clone();
+                            SolutionStep step = finder.copyStep(globalStep);
                             if (onlyOne) {
                                 return step;
                             } else {
@@ -444,7 +450,7 @@ public class MiscellaneousSolver extends AbstractSolver {
      * @param candSet
      * @param dest
      */
-    private void getSetCandidates(SudokuSet srcSet1, SudokuSet srcSet2, short candSet, List<Candidate> dest) {
+    private void getSetCandidates(SudokuSet srcSet1, SudokuSet srcSet2, short candSet, PackedIntSet dest) {
         tmpSet.set(srcSet1);
         tmpSet.or(srcSet2);
         for (int i = 0; i < tmpSet.size(); i++) {
@@ -452,7 +458,7 @@ public class MiscellaneousSolver extends AbstractSolver {
             if ((sudoku.getCell(index) & candSet) != 0) {
                 int[] cands = Sudoku2.POSSIBLE_VALUES[sudoku.getCell(index) & candSet];
                 for (int j = 0; j < cands.length; j++) {
-                    dest.add(new Candidate(index, cands[j]));
+                    dest.add(Candidate.pack(index, cands[j]));
                 }
             }
         }
@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import sudoku.Candidate;
 import sudoku.SolutionStep;
 import sudoku.SolutionType;
 import sudoku.Sudoku2;
@@ -53,14 +52,57 @@ public class SimpleSolver extends AbstractSolver {
     private int[] indices3 = new int[3];
     /** Buffer for subset check. */
     private int[] indices4 = new int[4];
-    /** Cache for steps that were found but cannot be used right now */
-    private List<SolutionStep> cachedSteps = new ArrayList<SolutionStep>();
-    /** {@link SudokuStepFinder#stepNumber} that was valid when {@link #cachedSteps} was filled. */
-    private int cachedStepsNumber = -1;
-    /** Temporary array for holding cell indices */
-    private int[] tmpArr1 = new int[9];
-    /** Bitmaps for indices per candidate in one unit. */
-    private short[] ipcMask = new short[10];
+    /** All combinations of the bits in a 9-bit mask: <code>COMBINATIONS[k][mask]</code> holds all
+     *  subsets of <code>mask</code> with <code>k</code> bits (2 &lt;= k &lt;= 4) in lexicographical order. */
+    private static final short[][][] COMBINATIONS = new short[5][0x200][];
+    /** The units in the order in which they are searched for subsets: blocks, lines, cols. */
+    private static final int[] SUBSET_CONSTRAINTS = new int[3 * Sudoku2.UNITS];
+    /** The Naked Subset types per size. */
+    private static final SolutionType[] NAKED_TYPES = {
+        null, null, SolutionType.NAKED_PAIR, SolutionType.NAKED_TRIPLE, SolutionType.NAKED_QUADRUPLE
+    };
+    /** The Hidden Subset types per size. */
+    private static final SolutionType[] HIDDEN_TYPES = {
+        null, null, SolutionType.HIDDEN_PAIR, SolutionType.HIDDEN_TRIPLE, SolutionType.HIDDEN_QUADRUPLE
+    };
+    /** Flag in {@link #nakedSubsets}: the subset is a Locked Subset. */
+    private static final int LOCKED_SUBSET = 1 << 27;
+    /** {@link SudokuStepFinder#stepNumber} that was valid when {@link #nakedSubsets} and {@link #hiddenSubsets} were filled. */
+    private int subsetsStepNumber = -1;
+    /** All Naked Subsets found so far that delete candidates, per size in search order
+     *  (see {@link #addSubset(int[][], int[], int, int, int, int) }). */
+    private int[][] nakedSubsets = new int[5][16];
+    /** Number of entries in {@link #nakedSubsets} per size. */
+    private int[] nakedSubsetsAnz = new int[5];
+    /** Number of units (see {@link #SUBSET_CONSTRAINTS}) already searched for Naked Subsets. */
+    private int nakedUnits;
+    /** All Hidden Subsets found so far that delete candidates, per size in search order. */
+    private int[][] hiddenSubsets = new int[5][16];
+    /** Number of entries in {@link #hiddenSubsets} per size. */
+    private int[] hiddenSubsetsAnz = new int[5];
+    /** Number of units (see {@link #SUBSET_CONSTRAINTS}) already searched for Hidden Subsets. */
+    private int hiddenUnits;
+    /** Candidates of the cells in the current unit. */
+    private short[] unitCells = new short[Sudoku2.UNITS];
+    /** Cells of the candidates in the current unit. */
+    private short[] unitPositions = new short[10];
+    /** Unions of all combinations in the current unit (candidates for cells, cells for candidates). */
+    private short[] unionMasks = new short[0x200];
+
+    static {
+        for (int i = 0; i < Sudoku2.UNITS; i++) {
+            SUBSET_CONSTRAINTS[i] = 2 * Sudoku2.UNITS + i;
+            SUBSET_CONSTRAINTS[Sudoku2.UNITS + i] = i;
+            SUBSET_CONSTRAINTS[2 * Sudoku2.UNITS + i] = Sudoku2.UNITS + i;
+        }
+        short[] buffer = new short[126];
+        for (int mask = 0; mask < 0x200; mask++) {
+            for (int k = 2; k < COMBINATIONS.length; k++) {
+                int anz = addCombinations(buffer, 0, Sudoku2.POSSIBLE_VALUES[mask], 0, k, 0);
+                COMBINATIONS[k][mask] = Arrays.copyOf(buffer, anz);
+            }
+        }
+    }
 
     /** Creates a new instance of SimpleSolver
      * @param finder 
@@ -70,6 +112,17 @@ public class SimpleSolver extends AbstractSolver {
         steps = new ArrayList<SolutionStep>();
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.FULL_HOUSE, SolutionType.HIDDEN_SINGLE, SolutionType.HIDDEN_PAIR,
+            SolutionType.HIDDEN_TRIPLE, SolutionType.HIDDEN_QUADRUPLE, SolutionType.NAKED_SINGLE,
+            SolutionType.LOCKED_PAIR, SolutionType.NAKED_PAIR, SolutionType.LOCKED_TRIPLE,
+            SolutionType.NAKED_TRIPLE, SolutionType.NAKED_QUADRUPLE, SolutionType.LOCKED_CANDIDATES,
+            SolutionType.LOCKED_CANDIDATES_1, SolutionType.LOCKED_CANDIDATES_2
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -114,11 +167,7 @@ public class SimpleSolver extends AbstractSolver {
             case LOCKED_CANDIDATES:
             case LOCKED_CANDIDATES_1:
             case LOCKED_CANDIDATES_2:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-//                    SudokuCell cell = sudoku.getCell(cand.index);
-//                    cell.delCandidate(candType, cand.value);
-                }
+                deleteCandidates(step);
                 break;
             default:
                 handled = false;
@@ -175,7 +224,7 @@ public class SimpleSolver extends AbstractSolver {
                     }
                     if (valid) {
                         // ok, we have a Full House
-                        step = new SolutionStep(SolutionType.FULL_HOUSE);
+                        step = finder.createStep(SolutionType.FULL_HOUSE);
 //                        step.setEntity(Sudoku2.CONSTRAINT_TYPE_FROM_CONSTRAINT[constr]);
 //                        step.setEntityNumber(Sudoku2.CONSTRAINT_NUMBER_FROM_CONSTRAINT[constr]);
                         step.addValue(value);
@@ -208,7 +257,7 @@ public class SimpleSolver extends AbstractSolver {
             int value = nsQueue.getValue(queueIndex);
             if (sudoku.getValue(index) == 0) {
                 // cell is still a valid Naked Single
-                step = new SolutionStep(SolutionType.NAKED_SINGLE);
+                step = finder.createStep(SolutionType.NAKED_SINGLE);
                 step.addValue(value);
                 step.addIndex(index);
                 break;
@@ -235,7 +284,7 @@ public class SimpleSolver extends AbstractSolver {
             int value = nsQueue.getValue(queueIndex);
             if (sudoku.getValue(index) == 0) {
                 // cell is a valid Naked Single
-                SolutionStep step = new SolutionStep(SolutionType.NAKED_SINGLE);
+                SolutionStep step = finder.createStep(SolutionType.NAKED_SINGLE);
                 step.addValue(value);
                 step.addIndex(index);
                 steps.add(step);
@@ -250,53 +299,37 @@ public class SimpleSolver extends AbstractSolver {
 
     /**
      * Find the next Naked Subset of size <code>anz</code>. If <code>lockedOnly</code>
-     * is <code>true</code>, only Locked Subsets are found, Naked Subsets are cached.<br>
-     * If {@link SudokuStepFinder#stepNumber} has not changed since the last call to
-     * this method, {@link #cachedSteps} is searched for a matching step.
+     * is <code>true</code>, only Locked Subsets are found, else only Naked Subsets
+     * that are not locked.<br>
+     * The first matching subset in search order is used: {@link #nakedSubsets} is
+     * checked first, if it doesnt hold a matching subset, the next units are searched
+     * (see {@link #findNakedSubsetsInNextUnit() }). Since the blocks are searched first,
+     * all Locked Subsets are found in the blocks.
      * @param anz
      * @param lockedOnly
      * @return
      */
     private SolutionStep findNakedXle(int anz, boolean lockedOnly) {
         SudokuUtil.clearStepList(steps);
-
-        // check if cached steps can be used
-        if (cachedSteps.size() > 0 && cachedStepsNumber == finder.getStepNumber()) {
-            // steps were cached and are still valid -> try them
-            SolutionType type = SolutionType.NAKED_PAIR;
-            if (anz == 2 && lockedOnly) {
-                type = SolutionType.LOCKED_PAIR;
-            }
-            if (anz == 3 && ! lockedOnly) {
-                type = SolutionType.NAKED_TRIPLE;
-            }
-            if (anz == 3 && lockedOnly) {
-                type = SolutionType.LOCKED_TRIPLE;
-            }
-            if (anz == 4) {
-                type = SolutionType.NAKED_QUADRUPLE;
-            }
-            for (SolutionStep step : cachedSteps) {
-                if (step.getType() == type) {
-                    return step;
+        initSubsets();
+        int i = 0;
+        do {
+            for (; i < nakedSubsetsAnz[anz]; i++) {
+                int subset = nakedSubsets[anz][i];
+                if (lockedOnly && getSubsetConstraint(subset) < 2 * Sudoku2.UNITS) {
+                    // only blocks can hold Locked Subsets
+                    return null;
+                }
+                if (((subset & LOCKED_SUBSET) != 0) == lockedOnly) {
+                    return createSubsetStep(subset, NAKED_TYPES[anz]);
                 }
             }
-        }
-
-        // cache was useless, try to find a step
-        cachedSteps.clear();
-        cachedStepsNumber = finder.getStepNumber();
-        // try blocks first, guarantees to find all Locked Subsets in one method call
-        SolutionStep step = findNakedXleInEntity(Sudoku2.BLOCKS, anz, lockedOnly, ! lockedOnly, true);
-        if (step != null || lockedOnly) {
-            return step;
-        }
-        step = findNakedXleInEntity(Sudoku2.LINES, anz, lockedOnly, ! lockedOnly, true);
-        if (step != null) {
-            return step;
-        }
-        step = findNakedXleInEntity(Sudoku2.COLS, anz, lockedOnly, ! lockedOnly, true);
-        return step;
+            if (lockedOnly && nakedUnits >= Sudoku2.UNITS) {
+                // all blocks done
+                return null;
+            }
+        } while (findNakedSubsetsInNextUnit());
+        return null;
     }
 
     /**
@@ -312,10 +345,14 @@ public class SimpleSolver extends AbstractSolver {
         List<SolutionStep> tmpSteps = findAllNakedSingles();
         steps.addAll(tmpSteps);
         // now everything else
+        initSubsets();
+        while (findNakedSubsetsInNextUnit()) {
+            // search all units
+        }
         for (int i = 2; i <= 4; i++) {
-            findNakedXleInEntity(Sudoku2.BLOCKS, i, false, false, false);
-            findNakedXleInEntity(Sudoku2.LINES, i, false, false, false);
-            findNakedXleInEntity(Sudoku2.COLS, i, false, false, false);
+            for (int j = 0; j < nakedSubsetsAnz[i]; j++) {
+                steps.add(createSubsetStep(nakedSubsets[i][j], NAKED_TYPES[i]));
+            }
         }
         Collections.sort(steps);
         steps = oldList;
@@ -323,104 +360,189 @@ public class SimpleSolver extends AbstractSolver {
     }
 
     /**
-     * Searches for Naked Subsets in the group of units <code>indices</code>. Doesnt use
-     * recursion to squeaze a few more microseconds out of the code.<br>
-     * If the search is for Locked/Naked Subsets only, steps of the other type
-     * are cached but not returned. They can be used as result in a subsequent search
-     * if {@link SudokuStepFinder#stepNumber} has not changed.<br>
-     * The search uses bitmaps for optimization.
-     * @param indices
-     * @param anz Must be between 2 and 4.
-     * @param lockedOnly
-     * @param nakedOnly
-     * @param onlyOne
-     * @return
+     * Resets {@link #nakedSubsets} and {@link #hiddenSubsets}, if
+     * {@link SudokuStepFinder#stepNumber} has changed since the last call.
      */
-    private SolutionStep findNakedXleInEntity(int[][] indices, int anz, 
-            boolean lockedOnly, boolean nakedOnly, boolean onlyOne) {
-        SolutionStep step = null;
-        // check all entities
-        for (int entity = 0; entity < indices.length; entity++) {
-            // get all cells from indices[entity] that hold no more than anz candidates
-            // (since set cells have no candidates they are found automatically)
-            int maxIndex = 0;
-            for (int i = 0; i < indices[entity].length; i++) {
-                int tmpAnz = Sudoku2.ANZ_VALUES[sudoku.getCell(indices[entity][i])];
-                if (tmpAnz != 0 && tmpAnz <= anz) {
-                    tmpArr1[maxIndex++] = indices[entity][i];
+    private void initSubsets() {
+        if (subsetsStepNumber == finder.getStepNumber()) {
+            return;
+        }
+        subsetsStepNumber = finder.getStepNumber();
+        Arrays.fill(nakedSubsetsAnz, 0);
+        Arrays.fill(hiddenSubsetsAnz, 0);
+        nakedUnits = 0;
+        hiddenUnits = 0;
+    }
+
+    /**
+     * Searches the next unit (in the order of {@link #SUBSET_CONSTRAINTS})
+     * for Naked Subsets of all sizes: the candidate masks of all cells with no
+     * more than four candidates are combined by {@link #findSubsetsInUnit(int, int, int, boolean) }.
+     * @return <code>false</code>, if all units have already been searched
+     */
+    private boolean findNakedSubsetsInNextUnit() {
+        if (nakedUnits == SUBSET_CONSTRAINTS.length) {
+            return false;
+        }
+        int constr = SUBSET_CONSTRAINTS[nakedUnits++];
+        int[] cells = Sudoku2.ALL_UNITS[constr];
+        int cellMask = 0;
+        for (int i = 0; i < cells.length; i++) {
+            short cands = sudoku.getCell(cells[i]);
+            int anz = Sudoku2.ANZ_VALUES[cands];
+            if (anz != 0 && anz <= 4) {
+                cellMask |= Sudoku2.MASKS[i + 1];
+                unionMasks[Sudoku2.MASKS[i + 1]] = cands;
+            }
+        }
+        findSubsetsInUnit(constr, cellMask, 4, false);
+        return true;
+    }
+
+    /**
+     * Searches the next unit (in the order of {@link #SUBSET_CONSTRAINTS})
+     * for Hidden Subsets of all sizes: the cell masks of all candidates with no
+     * more than four cells are combined by {@link #findSubsetsInUnit(int, int, int, boolean) }.
+     * A Hidden Subset needs more unsolved cells than its size.
+     * @return <code>false</code>, if all units have already been searched
+     */
+    private boolean findHiddenSubsetsInNextUnit() {
+        if (hiddenUnits == SUBSET_CONSTRAINTS.length) {
+            return false;
+        }
+        int constr = SUBSET_CONSTRAINTS[hiddenUnits++];
+        int[] cells = Sudoku2.ALL_UNITS[constr];
+        int unsolved = 0;
+        Arrays.fill(unitPositions, (short) 0);
+        for (int i = 0; i < cells.length; i++) {
+            short cands = sudoku.getCell(cells[i]);
+            unitCells[i] = cands;
+            if (cands != 0) {
+                unsolved++;
+                int[] candArray = Sudoku2.POSSIBLE_VALUES[cands];
+                for (int j = 0; j < candArray.length; j++) {
+                    unitPositions[candArray[j]] |= Sudoku2.MASKS[i + 1];
                 }
             }
-            if (maxIndex < anz) {
-                // not enough cells with the correct number of candidates -> no Naked Subset possible
-                continue;
+        }
+        if (unsolved <= 2) {
+            return true;
+        }
+        byte[][] free = sudoku.getFree();
+        int candMask = 0;
+        for (int cand = 1; cand <= 9; cand++) {
+            int anz = free[constr][cand];
+            if (anz != 0 && anz <= 4) {
+                candMask |= Sudoku2.MASKS[cand];
+                unionMasks[Sudoku2.MASKS[cand]] = unitPositions[cand];
             }
-            // first level: take all cells with the correct number of indices
-            for (int i1 = 0; i1 < maxIndex - anz + 1; i1++) {
-                short cell1 = sudoku.getCell(tmpArr1[i1]);
-                // second level: always necessary.
-                for (int i2 = i1 + 1; i2 < maxIndex - anz + 2; i2++) {
-                    short cell2 = (short)(cell1 | sudoku.getCell(tmpArr1[i2]));
-                    // take cell only if the combination of candidates
-                    // with the current result doesnt exceed anz
-                    if (Sudoku2.ANZ_VALUES[cell2] > anz) {
-                        continue;
-                    }
-                    if (anz == 2) {
-                        if (Sudoku2.ANZ_VALUES[cell2] == anz) {
-                            // step found!
-                            step = createSubsetStep(tmpArr1[i1], tmpArr1[i2],
-                                    -1, -1, cell2,
-                                    SolutionType.NAKED_PAIR, lockedOnly, nakedOnly);
-                            if (step != null && onlyOne) {
-                                return step;
-                            }
-                        }
-                    } else {
-                        // third level
-                        for (int i3 = i2 + 1; i3 < maxIndex - anz + 3; i3++) {
-                            short cell3 = (short)(cell2 | sudoku.getCell(tmpArr1[i3]));
-                            // take cell only if the combination of candidates
-                            // with the current result doesnt exceed anz
-                            if (Sudoku2.ANZ_VALUES[cell3] > anz) {
-                                continue;
-                            }
-                            if (anz == 3) {
-                                if (Sudoku2.ANZ_VALUES[cell3] == anz) {
-                                    // step found!
-                                    step = createSubsetStep(tmpArr1[i1], tmpArr1[i2],
-                                            tmpArr1[i3], -1, cell3,
-                                            SolutionType.NAKED_TRIPLE, lockedOnly, nakedOnly);
-                                    if (step != null && onlyOne) {
-                                        return step;
-                                    }
-                                }
-                            } else {
-                                // fourth level
-                                for (int i4 = i3 + 1; i4 < maxIndex; i4++) {
-                                    short cell4 = (short)(cell3 | sudoku.getCell(tmpArr1[i4]));
-                                    // take cell only if the combination of candidates
-                                    // with the current result doesnt exceed anz
-                                    if (Sudoku2.ANZ_VALUES[cell4] > anz) {
-                                        continue;
-                                    }
-                                    if (Sudoku2.ANZ_VALUES[cell4] == anz) {
-                                        // step found!
-                                        step = createSubsetStep(tmpArr1[i1], tmpArr1[i2],
-                                                tmpArr1[i3], tmpArr1[i4], cell4,
-                                                SolutionType.NAKED_QUADRUPLE, lockedOnly, nakedOnly);
-                                        if (step != null && onlyOne) {
-                                            return step;
-                                        }
-                                    }
-                                }
-                            }
+        }
+        findSubsetsInUnit(constr, candMask, Math.min(4, unsolved - 1), true);
+        return true;
+    }
+
+    /**
+     * Checks all combinations of the bits in <code>mask</code> with 2 to <code>maxAnz</code>
+     * bits. <code>mask</code> holds cells for Naked Subsets and candidates for Hidden
+     * Subsets, {@link #unionMasks} must hold the candidates of every cell or the cells
+     * of every candidate respectively.<br>
+     * The union of a combination is built from the union of the same combination
+     * without its highest bit, which has already been calculated for the smaller size.
+     * A combination of size <code>anz</code> is a subset, if its union holds exactly
+     * <code>anz</code> bits. The combinations are checked in the same order as
+     * in nested loops over the cells/candidates.
+     * @param constr
+     * @param mask
+     * @param maxAnz
+     * @param hidden
+     */
+    private void findSubsetsInUnit(int constr, int mask, int maxAnz, boolean hidden) {
+        for (int anz = 2; anz <= maxAnz; anz++) {
+            short[] combinations = COMBINATIONS[anz][mask];
+            for (int i = 0; i < combinations.length; i++) {
+                int combination = combinations[i];
+                int highestBit = Integer.highestOneBit(combination);
+                short union = (short) (unionMasks[combination ^ highestBit] | unionMasks[highestBit]);
+                unionMasks[combination] = union;
+                if (Sudoku2.ANZ_VALUES[union] != anz) {
+                    continue;
+                }
+                if (hidden) {
+                    // all other candidates can be deleted from the cells
+                    for (int j = 0; j < Sudoku2.UNITS; j++) {
+                        if ((union & Sudoku2.MASKS[j + 1]) != 0 && (unitCells[j] & ~combination) != 0) {
+                            addSubset(hiddenSubsets, hiddenSubsetsAnz, anz, constr, union, combination);
+                            break;
                         }
                     }
+                } else {
+                    int type = getNakedSubsetType(getSubsetIndices(constr, combination), union);
+                    if (type >= 0) {
+                        addSubset(nakedSubsets, nakedSubsetsAnz, anz, constr, combination, union | type);
+                    }
                 }
             }
         }
+    }
 
-        return null;
+    /**
+     * Checks, if the Naked Subset in <code>indices</code> deletes any candidates and if
+     * it is a Locked Subset (same rules as in {@link #createSubsetStep(int[], short, sudoku.SolutionType) }).
+     * @param indices
+     * @param cands
+     * @return -1 if nothing can be deleted, {@link #LOCKED_SUBSET} for Locked Subsets, else 0
+     */
+    private int getNakedSubsetType(int[] indices, short cands) {
+        sameConstraint[0] = sameConstraint[1] = sameConstraint[2] = true;
+        constraint[0] = Sudoku2.CONSTRAINTS[indices[0]][0];
+        constraint[1] = Sudoku2.CONSTRAINTS[indices[0]][1];
+        constraint[2] = Sudoku2.CONSTRAINTS[indices[0]][2];
+        for (int i = 1; i < indices.length; i++) {
+            for (int j = 0; j < Sudoku2.CONSTRAINTS[0].length; j++) {
+                if (sameConstraint[j] && constraint[j] != Sudoku2.CONSTRAINTS[indices[i]][j]) {
+                    sameConstraint[j] = false;
+                }
+            }
+        }
+        boolean delete = false;
+        int anzFoundConstraints = 0;
+        for (int i = 0; i < sameConstraint.length; i++) {
+            if (! sameConstraint[i]) {
+                continue;
+            }
+            boolean found = false;
+            int[] cells = Sudoku2.ALL_UNITS[constraint[i]];
+            for (int j = 0; j < cells.length; j++) {
+                if ((sudoku.getCell(cells[j]) & cands) == 0) {
+                    // nothing to delete
+                    continue;
+                }
+                boolean skip = false;
+                for (int k = 0; k < indices.length; k++) {
+                    if (cells[j] == indices[k]) {
+                        skip = true;
+                        break;
+                    }
+                }
+                if (skip) {
+                    // skip the cells themselves
+                    continue;
+                }
+                delete = true;
+                if (! found && (i == 2 || Sudoku2.CONSTRAINTS[cells[j]][2] != constraint[2])) {
+                    found = true;
+                    anzFoundConstraints++;
+                }
+            }
+        }
+        if (! delete) {
+            return -1;
+        }
+        if (indices.length < 4 && anzFoundConstraints > 1 &&
+                (sameConstraint[2] && sameConstraint[0] || sameConstraint[2] && sameConstraint[1])) {
+            return LOCKED_SUBSET;
+        }
+        return 0;
     }
 
     /**
@@ -439,7 +561,7 @@ public class SimpleSolver extends AbstractSolver {
                 // cell is still a valid Hidden Single; which constraint?
                 for (int i = 0; i < Sudoku2.CONSTRAINTS[index].length; i++) {
                     if (free[Sudoku2.CONSTRAINTS[index][i]][value] == 1) {
-                        step = new SolutionStep(SolutionType.HIDDEN_SINGLE);
+                        step = finder.createStep(SolutionType.HIDDEN_SINGLE);
                         step.addValue(value);
                         step.addIndex(index);
                         break;
@@ -475,7 +597,7 @@ public class SimpleSolver extends AbstractSolver {
                 // cell is still a valid Hidden Single and was not found already; which constraint?
                 for (int i = 0; i < Sudoku2.CONSTRAINTS[index].length; i++) {
                     if (free[Sudoku2.CONSTRAINTS[index][i]][value] == 1) {
-                        SolutionStep step = new SolutionStep(SolutionType.HIDDEN_SINGLE);
+                        SolutionStep step = finder.createStep(SolutionType.HIDDEN_SINGLE);
                         step.addValue(value);
                         step.addIndex(index);
                         step.setEntity(i);
@@ -504,10 +626,14 @@ public class SimpleSolver extends AbstractSolver {
         steps = newList;
         List<SolutionStep> tmpSteps = findAllHiddenSingles();
         steps.addAll(tmpSteps);
+        initSubsets();
+        while (findHiddenSubsetsInNextUnit()) {
+            // search all units
+        }
         for (int i = 2; i <= 4; i++) {
-            findHiddenXleInEntity(2 * Sudoku2.UNITS, Sudoku2.BLOCKS, i, false);
-            findHiddenXleInEntity(0, Sudoku2.LINES, i, false);
-            findHiddenXleInEntity(Sudoku2.UNITS, Sudoku2.COLS, i, false);
+            for (int j = 0; j < hiddenSubsetsAnz[i]; j++) {
+                steps.add(createSubsetStep(hiddenSubsets[i][j], HIDDEN_TYPES[i]));
+            }
         }
         Collections.sort(steps);
         steps = oldList;
@@ -515,130 +641,20 @@ public class SimpleSolver extends AbstractSolver {
     }
     
     /**
-     * Find the next Hidden Subset with size <code>anz</code>
+     * Find the next Hidden Subset with size <code>anz</code>: the first entry
+     * in {@link #hiddenSubsets}, the units are searched until one is found.
      * @param anz
      * @return
      */
     private SolutionStep findHiddenXle(int anz) {
         SudokuUtil.clearStepList(steps);
-        SolutionStep step = findHiddenXleInEntity(2 * Sudoku2.UNITS, Sudoku2.BLOCKS, anz, true);
-        if (step != null) {
-            return step;
-        }
-        step = findHiddenXleInEntity(0, Sudoku2.LINES, anz, true);
-        if (step != null) {
-            return step;
-        }
-        step = findHiddenXleInEntity(Sudoku2.UNITS, Sudoku2.COLS, anz, true);
-        return step;
-    }
-    
-    /**
-     * Searches for Naked Subsets in the group of units <code>indices</code>. Doesnt use
-     * recursion to squeaze a few more microseconds out of the code.
-     * @param constraintBase
-     * @param indices
-     * @param anz
-     * @param onlyOne
-     * @return
-     */
-    private SolutionStep findHiddenXleInEntity(int constraintBase, int[][] indices, int anz, boolean onlyOne) {
-        SolutionStep step = null;
-        // check all entities
-        for (int entity = 0; entity < indices.length; entity++) {
-            // get the number of cells from indices[entity] that are not yet set
-            int maxIndex = 0;
-            for (int i = 0; i < indices[entity].length; i++) {
-                if (sudoku.getCell(indices[entity][i]) != 0) {
-                    maxIndex++;
-                }
-            }
-            if (maxIndex <= anz) {
-                // not enough cells with the correct number of candidates -> no Hidden Subset possible
-                // (for a HS there must be more than anz cells!)
-                continue;
-            }
-            // now check, if we have enough eligible candidates in this constraint, and collect them
-            // build bitmaps per candidate too (bits indicate cells in unit, not candidates)
-            short candMask = 0;
-            byte[][] free = sudoku.getFree();
-            for (int i = 1; i <= 9; i++) {
-                int actFree = free[constraintBase + entity][i];
-                if (actFree != 0 && actFree <= anz) {
-                    // ok, candidate could be part of a Hidden Subset of size anz
-                    candMask |= Sudoku2.MASKS[i];
-                    ipcMask[i] = 0;
-                    for (int j = 0; j < Sudoku2.UNITS; j++) {
-                        if ((sudoku.getCell(indices[entity][j]) & Sudoku2.MASKS[i]) != 0) {
-                            ipcMask[i] |= Sudoku2.MASKS[j + 1];
-                        }
-                    }
-                }
-            }
-            if (Sudoku2.ANZ_VALUES[candMask] < anz) {
-                // not enough candidates
-                continue;
-            }
-            // now check all possible combinations of candidates
-            int[] candArr = Sudoku2.POSSIBLE_VALUES[candMask];
-            // first level: take all candidates
-            for (int i1 = 0; i1 < candArr.length - anz + 1; i1++) {
-                short cand1 = Sudoku2.MASKS[candArr[i1]];
-                short cell1 = ipcMask[candArr[i1]];
-                // second level: always necessary.
-                for (int i2 = i1 + 1; i2 < candArr.length - anz + 2; i2++) {
-                    short cand2 = (short)(cand1 | Sudoku2.MASKS[candArr[i2]]);
-                    short cell2 = (short)(cell1 | ipcMask[candArr[i2]]);
-                    if (anz == 2) {
-                        if (Sudoku2.ANZ_VALUES[cell2] == anz) {
-                            // step found!
-                            int[] tmp = Sudoku2.POSSIBLE_VALUES[cell2];
-                            step = createSubsetStep(indices[entity][tmp[0] - 1], indices[entity][tmp[1] - 1],
-                                    -1, -1, cand2,
-                                    SolutionType.HIDDEN_PAIR, onlyOne, onlyOne);
-                            if (step != null && onlyOne) {
-                                return step;
-                            }
-                        }
-                    } else {
-                        // third level
-                        for (int i3 = i2 + 1; i3 < candArr.length - anz + 3; i3++) {
-                            short cand3 = (short)(cand2 | Sudoku2.MASKS[candArr[i3]]);
-                            short cell3 = (short)(cell2 | ipcMask[candArr[i3]]);
-                            if (anz == 3) {
-                                if (Sudoku2.ANZ_VALUES[cell3] == anz) {
-                                    // step found!
-                                    int[] tmp = Sudoku2.POSSIBLE_VALUES[cell3];
-                                    step = createSubsetStep(indices[entity][tmp[0] - 1], indices[entity][tmp[1] - 1],
-                                            indices[entity][tmp[2] - 1], -1, cand3,
-                                            SolutionType.HIDDEN_TRIPLE, onlyOne, onlyOne);
-                                    if (step != null && onlyOne) {
-                                        return step;
-                                    }
-                                }
-                            } else {
-                                // fourth level
-                                for (int i4 = i3 + 1; i4 < candArr.length; i4++) {
-                                    short cand4 = (short)(cand3 | Sudoku2.MASKS[candArr[i4]]);
-                                    short cell4 = (short)(cell3 | ipcMask[candArr[i4]]);
-                                    if (Sudoku2.ANZ_VALUES[cell4] == anz) {
-                                        // step found!
-                                        int[] tmp = Sudoku2.POSSIBLE_VALUES[cell4];
-                                        step = createSubsetStep(indices[entity][tmp[0] - 1], indices[entity][tmp[1] - 1],
-                                                indices[entity][tmp[2] - 1], indices[entity][tmp[3] - 1], cand4,
-                                                SolutionType.HIDDEN_QUADRUPLE, onlyOne, onlyOne);
-                                        if (step != null && onlyOne) {
-                                            return step;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
+        initSubsets();
+        while (hiddenSubsetsAnz[anz] == 0) {
+            if (! findHiddenSubsetsInNextUnit()) {
+                return null;
             }
         }
-        return null;
+        return createSubsetStep(hiddenSubsets[anz][0], HIDDEN_TYPES[anz]);
     }
 
     /**
@@ -802,55 +818,92 @@ public class SimpleSolver extends AbstractSolver {
                 }
             }
         }
-        return (SolutionStep) globalStep.clone();
+        return finder.copyStep(globalStep);
     }
 
     /**
-     * Convenience method, delegates to {@link #createSubsetStep(int[], short, sudoku.SolutionType, boolean, boolean)}.
-     * The valid indices are stored in an array with the correct size to make iterating them easier.
-     * @param i1
-     * @param i2
-     * @param i3
-     * @param i4
+     * Adds all combinations of <code>k</code> values from <code>bits</code> (starting
+     * at index <code>start</code>) to <code>buffer</code> in lexicographical order.
+     * @param buffer
+     * @param anz Number of entries in <code>buffer</code>
+     * @param bits
+     * @param start
+     * @param k
+     * @param combination The values already in the combination
+     * @return The new number of entries in <code>buffer</code>
+     */
+    private static int addCombinations(short[] buffer, int anz, int[] bits, int start, int k, int combination) {
+        if (k == 0) {
+            buffer[anz++] = (short) combination;
+            return anz;
+        }
+        for (int i = start; i <= bits.length - k; i++) {
+            anz = addCombinations(buffer, anz, bits, i + 1, k - 1, combination | Sudoku2.MASKS[bits[i]]);
+        }
+        return anz;
+    }
+
+    /**
+     * Stores a subset in <code>subsets</code>. A subset is packed into one int:
+     * the constraint (bits 18 to 22), the cells in the constraint (bits 9 to 17),
+     * the candidates (bits 0 to 8) and {@link #LOCKED_SUBSET}.
+     * @param subsets
+     * @param subsetsAnz
+     * @param anz
+     * @param constr
+     * @param cells
      * @param cands
-     * @param type
-     * @param lockedOnly
-     * @param nakedOnly
+     */
+    private void addSubset(int[][] subsets, int[] subsetsAnz, int anz, int constr, int cells, int cands) {
+        if (subsetsAnz[anz] == subsets[anz].length) {
+            subsets[anz] = Arrays.copyOf(subsets[anz], 2 * subsetsAnz[anz]);
+        }
+        subsets[anz][subsetsAnz[anz]++] = constr << 18 | cells << 9 | cands;
+    }
+
+    /**
+     * Gets the constraint of a packed subset.
+     * @param subset
      * @return
      */
-    private SolutionStep createSubsetStep(int i1, int i2, int i3, int i4, short cands, SolutionType type, boolean lockedOnly, boolean nakedOnly) {
-        if (i4 >= 0) {
-            // Quadruple search
-            indices4[0] = i1;
-            indices4[1] = i2;
-            indices4[2] = i3;
-            indices4[3] = i4;
-            return createSubsetStep(indices4, cands, type, lockedOnly, nakedOnly);
-        } else if (i3 >= 0) {
-            // Triple search
-            indices3[0] = i1;
-            indices3[1] = i2;
-            indices3[2] = i3;
-            return createSubsetStep(indices3, cands, type, lockedOnly, nakedOnly);
-        } else {
-            // Pair search
-            indices2[0] = i1;
-            indices2[1] = i2;
-            return createSubsetStep(indices2, cands, type, lockedOnly, nakedOnly);
+    private int getSubsetConstraint(int subset) {
+        return (subset >> 18) & 0x1f;
+    }
+
+    /**
+     * Gets the indices of the cells <code>cells</code> (9-bit mask) in constraint <code>constr</code>.
+     * The indices are stored in an array with the correct size to make iterating them easier.
+     * @param constr
+     * @param cells
+     * @return
+     */
+    private int[] getSubsetIndices(int constr, int cells) {
+        int[] positions = Sudoku2.POSSIBLE_VALUES[cells & 0x1ff];
+        int[] indices = positions.length == 2 ? indices2 : (positions.length == 3 ? indices3 : indices4);
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = Sudoku2.ALL_UNITS[constr][positions[i] - 1];
         }
+        return indices;
     }
 
     /**
-     * Check the subset in <code>indices</code> if it deletes any candidates. If
-     * it does so, create the step and store it.<br>
+     * Creates the step for a packed subset (see {@link #addSubset(int[][], int[], int, int, int, int) }).
+     * @param subset
+     * @param type
+     * @return
+     */
+    private SolutionStep createSubsetStep(int subset, SolutionType type) {
+        int[] indices = getSubsetIndices(getSubsetConstraint(subset), subset >> 9);
+        return createSubsetStep(indices, (short) (subset & 0x1ff), type);
+    }
+
+    /**
+     * Creates the step for the subset in <code>indices</code>.<br>
      * The following steps have to be taken:
      * <ul>
      *  <li>Determine the common constraints of all cells in <code>indices</code> (used for Locked Set detection amongst others)</li>
      *  <li>Check the constraints for candidates that can be deleted</li>
-     *  <li>If <code>lockedOnly</code> or <code>nakedHiddenOnly</code> is set, the search runs for
-     *     the first step only. If the step doesnt match (Locked instead of Naked or vice versa) it is cached.
-     *     If it does match, return it.</li>
-     *  <li>If the search runs for all steps (no flag set), it is added tp {@link #steps}.</li>
+     *  <li>Naked Pairs/Triples are changed to Locked Pairs/Triples, if applicable.</li>
      * </ul>
      * The method handles Naked and Hidden subsets (determined by <code>type</code>). For
      * Naked subsets all candidates in <code>cands</code> can be deleted from all cells that
@@ -860,12 +913,9 @@ public class SimpleSolver extends AbstractSolver {
      * @param indices
      * @param cands
      * @param type
-     * @param lockedOnly
-     * @param nakedHiddenOnly
      * @return
      */
-    private SolutionStep createSubsetStep(int[] indices, short cands,
-            SolutionType type, boolean lockedOnly, boolean nakedHiddenOnly) {
+    private SolutionStep createSubsetStep(int[] indices, short cands, SolutionType type) {
 //        System.out.println("create SubsetStep: " + type + " (" + Arrays.toString(indices) + ")");
         globalStep.reset();
         globalStep.setType(type);
@@ -974,24 +1024,7 @@ public class SimpleSolver extends AbstractSolver {
             globalStep.addValue(candArray[i]);
         }
 
-        // what should we do with the step?
-        SolutionStep step = (SolutionStep) globalStep.clone();
-        if (lockedOnly && ! nakedHiddenOnly) {
-            // search for Locked Subsets only
-            if (! isLocked) {
-                cachedSteps.add(step);
-                step = null;
-            }
-        } else if (nakedHiddenOnly && ! lockedOnly) {
-            if (isLocked) {
-                cachedSteps.add(step);
-                step = null;
-            }
-        } else  if (! lockedOnly && ! nakedHiddenOnly) {
-            // search for ALL steps
-            steps.add(step);
-        }
-        return step;
+        return finder.copyStep(globalStep);
     }
 
     public static void main(String[] args) {
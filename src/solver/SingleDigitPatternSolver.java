@@ -39,7 +39,6 @@ package solver;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import sudoku.Candidate;
 import sudoku.Options;
 import sudoku.SolutionStep;
 import sudoku.SolutionType;
@@ -157,6 +156,13 @@ public class SingleDigitPatternSolver extends AbstractSolver {
         }
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.SKYSCRAPER, SolutionType.TWO_STRING_KITE, SolutionType.EMPTY_RECTANGLE
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -185,9 +191,7 @@ public class SingleDigitPatternSolver extends AbstractSolver {
             case DUAL_TWO_STRING_KITE:
             case EMPTY_RECTANGLE:
             case DUAL_EMPTY_RECTANGLE:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                }
+                deleteCandidates(step);
                 break;
             default:
                 handled = false;
@@ -410,7 +414,7 @@ public class SingleDigitPatternSolver extends AbstractSolver {
                                 globalStep.addFin(blockCands.get(k), cand);
                             }
                             globalStep.addCandidateToDelete(indexDel, cand);
-                            SolutionStep step = (SolutionStep) globalStep.clone();
+                            SolutionStep step = finder.copyStep(globalStep);
                             // only one elimination per conjugate pair possible
                             if (onlyOne && ! Options.getInstance().isAllowDualsAndSiamese()) {
                                 return step;
@@ -454,14 +458,14 @@ public class SingleDigitPatternSolver extends AbstractSolver {
                     // different boxes -> cant be a dual
                     continue;
                 }
-                if (step1.getFins().size() != step2.getFins().size()) {
+                if (step1.getPackedFins().size() != step2.getPackedFins().size()) {
                     // different number of candidates in box -> cant be a dual
                     continue;
                 }
                 boolean finsEqual = true;
-                for (int k = 0; k < step1.getFins().size(); k++) {
-                    if (! step1.getFins().get(k).equals(step2.getFins().get(k))) {
-//                        System.out.println("  " + step1.getFins().get(k) + " - " + step2.getFins().get(k));
+                for (int k = 0; k < step1.getPackedFins().size(); k++) {
+                    if (step1.getPackedFins().get(k) != step2.getPackedFins().get(k)) {
+//                        System.out.println("  " + step1.getPackedFins().get(k) + " - " + step2.getPackedFins().get(k));
                         finsEqual = false;
                         break;
                     }
@@ -471,7 +475,7 @@ public class SingleDigitPatternSolver extends AbstractSolver {
                     continue;
                 }
                 // possible dual ER; different eliminations?
-                if (step1.getCandidatesToDelete().get(0).equals(step2.getCandidatesToDelete().get(0))) {
+                if (step1.getPackedCandidatesToDelete().get(0) == step2.getPackedCandidatesToDelete().get(0)) {
                     // same step twice -> no dual
                     continue;
                 }
@@ -480,7 +484,7 @@ public class SingleDigitPatternSolver extends AbstractSolver {
                 dual.setType(SolutionType.DUAL_EMPTY_RECTANGLE);
                 dual.addIndex(step2.getIndices().get(0));
                 dual.addIndex(step2.getIndices().get(1));
-                dual.addCandidateToDelete(step2.getCandidatesToDelete().get(0));
+                dual.getPackedCandidatesToDelete().add(step2.getPackedCandidatesToDelete().get(0));
                 ers.add(dual);
             }
         }
@@ -599,7 +603,7 @@ public class SingleDigitPatternSolver extends AbstractSolver {
                     firstUnit.and(Sudoku2.buddies[only2Indices[j][otherIndex]]);
                     if (! firstUnit.isEmpty()) {
                         // Skyscraper found!
-                        SolutionStep step = new SolutionStep(SolutionType.SKYSCRAPER);
+                        SolutionStep step = finder.createStep(SolutionType.SKYSCRAPER);
                         step.addValue(cand);
                         if (otherIndex == 0) {
                             step.addIndex(only2Indices[i][0]);
@@ -739,7 +743,7 @@ public class SingleDigitPatternSolver extends AbstractSolver {
                     int crossIndex = Sudoku2.getIndex(Sudoku2.getLine(only2Indices[j][1]), Sudoku2.getCol(only2Indices[i][1]));
                     if (sudoku.isCandidate(crossIndex, cand)) {
                         // valid 2-String-Kite!
-                        SolutionStep step = new SolutionStep(SolutionType.TWO_STRING_KITE);
+                        SolutionStep step = finder.createStep(SolutionType.TWO_STRING_KITE);
                         step.addValue(cand);
                         step.addIndex(only2Indices[i][1]);
                         step.addIndex(only2Indices[j][1]);
@@ -790,7 +794,7 @@ public class SingleDigitPatternSolver extends AbstractSolver {
                 int b22 = step2.getIndices().get(3);
                 if ((b11 == b21 && b12 == b22) || (b12 == b21 && b11 == b22)) {
                     // possible dual kite; different eliminations?
-                    if (step1.getCandidatesToDelete().get(0).equals(step2.getCandidatesToDelete().get(0))) {
+                    if (step1.getPackedCandidatesToDelete().get(0) == step2.getPackedCandidatesToDelete().get(0)) {
                         // same step twice -> no dual
                         continue;
                     }
@@ -801,7 +805,7 @@ public class SingleDigitPatternSolver extends AbstractSolver {
                     dual.addIndex(step2.getIndices().get(1));
                     dual.addIndex(step2.getIndices().get(2));
                     dual.addIndex(step2.getIndices().get(3));
-                    dual.addCandidateToDelete(step2.getCandidatesToDelete().get(0));
+                    dual.getPackedCandidatesToDelete().add(step2.getPackedCandidatesToDelete().get(0));
                     kites.add(dual);
                 }
             }
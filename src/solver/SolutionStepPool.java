@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import sudoku.SolutionStep;
+import sudoku.SolutionType;
+
+/**
+ * A pool of {@link SolutionStep SolutionSteps}. The pool is owned by
+ * {@link SudokuSolver}: while a puzzle is solved, the specialized solvers
+ * get their steps from the pool (see {@link SudokuStepFinder#createStep(sudoku.SolutionType) }
+ * and {@link SudokuStepFinder#copyStep(sudoku.SolutionStep) }) instead of
+ * creating new ones. All steps handed out are recorded; they go back into
+ * the pool with {@link #releaseAll() }, when the solver gets a new sudoku.
+ * Steps, that are still needed afterwards (e.g. by the GUI), have
+ * to be removed from the pool with {@link #retainAll() } first.<br><br>
+ *
+ * The pool is not synchronized, it must only be used by the thread
+ * that solves the puzzle.
+ *
+ * @author hobiwan
+ */
+class SolutionStepPool {
+
+    /** Steps, that can be handed out again. */
+    private List<SolutionStep> freeSteps = new ArrayList<SolutionStep>();
+    /** All steps handed out since the last call to {@link #releaseAll() } or {@link #retainAll() }. */
+    private List<SolutionStep> usedSteps = new ArrayList<SolutionStep>();
+
+    /**
+     * Gets an empty step of type <code>type</code> (same as
+     * <code>new SolutionStep(type)</code>).
+     * @param type
+     * @return
+     */
+    SolutionStep createStep(SolutionType type) {
+        SolutionStep step = getFreeStep();
+        if (step == null) {
+            step = new SolutionStep(type);
+        } else {
+            step.reset();
+            step.setSubType(null);
+            step.setType(type);
+        }
+        usedSteps.add(step);
+        return step;
+    }
+
+    /**
+     * Gets a copy of <code>src</code> (same as <code>src.clone()</code>).
+     * @param src
+     * @return
+     */
+    SolutionStep copyStep(SolutionStep src) {
+        SolutionStep step = getFreeStep();
+        if (step == null) {
+            step = (SolutionStep) src.clone();
+        } else {
+            step.set(src);
+        }
+        usedSteps.add(step);
+        return step;
+    }
+
+    /**
+     * Puts all steps, that have been handed out, back into the pool.
+     */
+    void releaseAll() {
+        for (int i = 0; i < usedSteps.size(); i++) {
+            freeSteps.add(usedSteps.get(i));
+        }
+        usedSteps.clear();
+    }
+
+    /**
+     * Removes all steps, that have been handed out, from the pool:
+     * they belong to the caller now and are never reused.
+     */
+    void retainAll() {
+        usedSteps.clear();
+    }
+
+    /**
+     * Removes the last step from {@link #freeSteps}.
+     * @return <code>null</code>, if the pool is empty
+     */
+    private SolutionStep getFreeStep() {
+        int size = freeSteps.size();
+        if (size == 0) {
+            return null;
+        }
+        return freeSteps.remove(size - 1);
+    }
+}
@@ -24,6 +24,12 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import sudoku.DifficultyLevel;
@@ -55,6 +61,32 @@ public class SudokuSolver {
     private int[] anzSteps = new int[Options.getInstance().solverSteps.length];
     private int[] anzStepsProgress = new int[Options.getInstance().solverSteps.length];
     private long[] stepsNanoTime = new long[Options.getInstance().solverSteps.length];
+    /** Threads for the speculative hint search (shared by all solvers, idle threads die after a minute). */
+    private static final ExecutorService speculativeExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "SpeculativeHintSearch");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    /** One step finder per speculatively searched technique (created on demand). */
+    private SudokuStepFinder[] speculativeFinders = new SudokuStepFinder[0];
+    /** The sudokus for {@link #speculativeFinders}. */
+    private Sudoku2[] speculativeSudokus = new Sudoku2[0];
+    /** For every running speculative search the index into the StepConfig array. */
+    private int[] speculativeIndices = new int[0];
+    /** The running speculative searches. */
+    private List<Future<SolutionStep>> speculativeFutures = new ArrayList<Future<SolutionStep>>();
+    /** Scratch sudoku for the early rejection of puzzles, that are too easy. */
+    private Sudoku2 singlesSudoku = new Sudoku2();
+    /** Step finder for {@link #singlesSudoku} (created on demand). */
+    private SudokuStepFinder singlesFinder = null;
+    /** Indices of the singles in the StepConfig array of the current solve. */
+    private int[] singlesIndices = new int[3];
+    /** The steps found while solving are taken from this pool; see {@link #retainSteps() }. */
+    private SolutionStepPool stepPool = new SolutionStepPool();
 
     /** Creates a new instance of SudokuSolver */
     public SudokuSolver() {
@@ -117,7 +149,8 @@ public class SudokuSolver {
         //sudoku = newSudoku;
         setSudoku(newSudoku);
         steps = tmpSteps;
-        SudokuUtil.clearStepListWithNullify(steps);
+        // the steps may have been handed out again by the step pool: dont reset them
+        SudokuUtil.clearStepList(steps);
         boolean solved = solve(Options.getInstance().getDifficultyLevel(DifficultyType.EXTREME.ordinal()), null, false, null, true);
         steps = oldList;
         //sudoku = tmpSudoku;
@@ -138,7 +171,8 @@ public class SudokuSolver {
         //sudoku = newSudoku;
         setSudoku(newSudoku);
         steps = tmpSteps;
-        SudokuUtil.clearStepListWithNullify(steps);
+        // the steps may have been handed out again by the step pool: dont reset them
+        SudokuUtil.clearStepList(steps);
 //        boolean solved = solve(Options.getInstance().getDifficultyLevels()[DifficultyType.EXTREME.ordinal()], null, false, null, true);
         boolean solved = solve(Options.getInstance().getDifficultyLevel(DifficultyType.EXTREME.ordinal()),
                     null, false, null, false, stepConfigs, GameMode.PLAYING);
@@ -197,6 +231,62 @@ public class SudokuSolver {
     public boolean solve(DifficultyLevel maxLevel, Sudoku2 tmpSudoku, boolean rejectTooLowScore,
             final SolverProgressDialog dlg, boolean singlesOnly, StepConfig[] stepConfigs,
             GameMode gameMode) {
+        return solve(maxLevel, null, tmpSudoku, rejectTooLowScore, dlg, singlesOnly, stepConfigs, gameMode);
+    }
+
+    /**
+     * Like {@link #solve(sudoku.DifficultyLevel, sudoku.Sudoku2, boolean, sudoku.SolverProgressDialog, boolean, sudoku.StepConfig[], sudoku.GameMode) },
+     * but puzzles with a level lower than <code>minLevel</code> are rejected
+     * as well. This is meant for the generator, that throws away most
+     * puzzles because they have the wrong level: if the game mode is
+     * <code>PLAYING</code>, the solver checks at the start and after every
+     * step that is not a single, whether the rest of the puzzle can be solved
+     * with singles only. If it can, the final level and score are known
+     * without searching for any other technique (see
+     * {@link #isRejectedWithSinglesOnly(sudoku.StepConfig[], sudoku.DifficultyLevel, sudoku.DifficultyLevel, boolean) })
+     * and a puzzle that will be rejected is rejected immediately.<br>
+     * The verdict is the same as with a complete solve.
+     *
+     * @param maxLevel
+     * @param minLevel <code>null</code> if no puzzle is too easy
+     * @param tmpSudoku
+     * @param rejectTooLowScore
+     * @param dlg
+     * @param singlesOnly
+     * @param stepConfigs
+     * @param gameMode
+     * @return
+     */
+    public boolean solve(DifficultyLevel maxLevel, DifficultyLevel minLevel, Sudoku2 tmpSudoku,
+            boolean rejectTooLowScore, final SolverProgressDialog dlg, boolean singlesOnly,
+            StepConfig[] stepConfigs, GameMode gameMode) {
+        // only the steps of the solution are pooled, not the steps of getHint()
+        getStepFinder().setStepPool(stepPool);
+        try {
+            return solvePooled(maxLevel, minLevel, tmpSudoku, rejectTooLowScore, dlg, singlesOnly,
+                    stepConfigs, gameMode);
+        } finally {
+            getStepFinder().setStepPool(null);
+        }
+    }
+
+    /**
+     * Does the real work for {@link #solve(sudoku.DifficultyLevel, sudoku.DifficultyLevel, sudoku.Sudoku2, boolean, sudoku.SolverProgressDialog, boolean, sudoku.StepConfig[], sudoku.GameMode) }
+     * while the step finder takes its steps from {@link #stepPool}.
+     *
+     * @param maxLevel
+     * @param minLevel
+     * @param tmpSudoku
+     * @param rejectTooLowScore
+     * @param dlg
+     * @param singlesOnly
+     * @param stepConfigs
+     * @param gameMode
+     * @return
+     */
+    private boolean solvePooled(DifficultyLevel maxLevel, DifficultyLevel minLevel, Sudoku2 tmpSudoku,
+            boolean rejectTooLowScore, final SolverProgressDialog dlg, boolean singlesOnly,
+            StepConfig[] stepConfigs, GameMode gameMode) {
         if (tmpSudoku != null) {
             setSudoku(tmpSudoku);
         }
@@ -227,6 +317,17 @@ public class SudokuSolver {
         
         boolean acceptAnyway = false;
 //        System.out.println("Start solving (" + gameMode + ")!");
+        boolean singlesFirst = initSinglesIndices(stepConfigs, singlesOnly);
+        // the singles fast path doesnt write the FINER log messages of getHint()
+        boolean singlesFastPath = singlesFirst
+                && !Logger.getLogger(getClass().getName()).isLoggable(Level.FINER);
+        // the early rejection only works, if singles are always tried first
+        boolean checkTooEasy = minLevel != null && !singlesOnly && gameMode == GameMode.PLAYING
+                && minLevel.getOrdinal() > DifficultyType.EASY.ordinal() && singlesFirst;
+        if (checkTooEasy && isSolvableWithSinglesOnly()
+                && isRejectedWithSinglesOnly(stepConfigs, maxLevel, minLevel, rejectTooLowScore)) {
+            return false;
+        }
 
         do {
             // show progress if progress dialog is enabled
@@ -235,7 +336,7 @@ public class SudokuSolver {
             }
             
             // jetzt eine Methode nach der anderen, aber immer nur einmal; wenn etwas gefunden wurde continue
-            step = getHint(singlesOnly, stepConfigs, acceptAnyway);
+            step = getHint(singlesOnly, stepConfigs, acceptAnyway, singlesFastPath);
             if (step != null) {
 //                System.out.println("Step: " + step.toString(2));
                 //System.out.println(sudoku.getSudoku(ClipboardMode.LIBRARY, step));
@@ -247,6 +348,10 @@ public class SudokuSolver {
                 getStepFinder().doStep(step);
                 if (step.getType() == SolutionType.GIVE_UP) {
                     step = null;
+                } else if (checkTooEasy && !step.getType().isSingle() && isSolvableWithSinglesOnly()
+                        && isRejectedWithSinglesOnly(stepConfigs, maxLevel, minLevel, rejectTooLowScore)) {
+//                    System.out.println("        rejected early");
+                    return false;
                 }
             }
         } while (step != null);
@@ -272,6 +377,10 @@ public class SudokuSolver {
         sudoku.setScore(score);
         if (sudoku.isSolved()) {
             sudoku.setLevel(level);
+            if (minLevel != null && level.getOrdinal() < minLevel.getOrdinal() && acceptAnyway == false) {
+                // too easy (not detected early)
+                return false;
+            }
 //            System.out.println("        puzzle accepted!");
             return true;
         } else {
@@ -281,6 +390,139 @@ public class SudokuSolver {
         }
     }
 
+    /**
+     * Checks, whether the three singles are the first techniques, that are
+     * enabled in <code>stepConfigs</code>, and stores their indices in
+     * {@link #singlesIndices}. Only then the solver is guaranteed to use
+     * nothing but singles, once the rest of the puzzle can be solved with
+     * singles. If <code>singlesOnly</code> is set, all other techniques
+     * are ignored anyway.
+     *
+     * @param stepConfigs
+     * @param singlesOnly
+     * @return
+     */
+    private boolean initSinglesIndices(StepConfig[] stepConfigs, boolean singlesOnly) {
+        int anz = 0;
+        for (int i = 0; i < stepConfigs.length && anz < singlesIndices.length; i++) {
+            if (!isEnabled(stepConfigs, i)) {
+                continue;
+            }
+            if (!stepConfigs[i].getType().isSingle()) {
+                if (singlesOnly) {
+                    continue;
+                }
+                return false;
+            }
+            singlesIndices[anz++] = i;
+        }
+        return anz == singlesIndices.length;
+    }
+
+    /**
+     * Early rejection for {@link #solve(sudoku.DifficultyLevel, sudoku.DifficultyLevel, sudoku.Sudoku2, boolean, sudoku.SolverProgressDialog, boolean, sudoku.StepConfig[], sudoku.GameMode) }:
+     * Must only be called, if the rest of the puzzle can be solved with singles.
+     * The rest of the solution is then done with singles only (in exactly
+     * the same order as in the solver, but in {@link #singlesSudoku} with
+     * {@link #singlesFinder}), which gives the final score and level without
+     * searching for any other technique. The checks at the end of
+     * <code>solve()</code> are applied to the result.
+     *
+     * @param stepConfigs
+     * @param maxLevel
+     * @param minLevel
+     * @param rejectTooLowScore
+     * @return <code>true</code>, if <code>solve()</code> will certainly return
+     * <code>false</code>
+     */
+    private boolean isRejectedWithSinglesOnly(StepConfig[] stepConfigs, DifficultyLevel maxLevel,
+            DifficultyLevel minLevel, boolean rejectTooLowScore) {
+        if (singlesFinder == null) {
+            singlesFinder = new SudokuStepFinder();
+            // only used within solve(): the steps are thrown away immediately
+            singlesFinder.setStepPool(stepPool);
+        }
+        singlesSudoku.set(sudoku);
+        singlesFinder.setSudoku(singlesSudoku);
+        int singlesScore = score;
+        DifficultyLevel singlesLevel = level;
+        while (!singlesSudoku.isSolved()) {
+            SolutionStep step = null;
+            for (int i = 0; i < singlesIndices.length && step == null; i++) {
+                StepConfig stepConfig = stepConfigs[singlesIndices[i]];
+                step = singlesFinder.getStep(stepConfig.getType());
+                if (step != null) {
+                    singlesScore += stepConfig.getBaseScore();
+                    if (Options.getInstance().getDifficultyLevels()[stepConfig.getLevel()].getOrdinal() > singlesLevel.getOrdinal()) {
+                        singlesLevel = Options.getInstance().getDifficultyLevels()[stepConfig.getLevel()];
+                    }
+                    if (singlesLevel.getOrdinal() > maxLevel.getOrdinal() || singlesScore >= maxLevel.getMaxScore()) {
+                        // too hard
+                        return true;
+                    }
+                }
+            }
+            if (step == null) {
+                // stuck: no verdict possible
+                return false;
+            }
+            singlesFinder.doStep(step);
+        }
+        while (singlesScore > singlesLevel.getMaxScore()) {
+            singlesLevel = Options.getInstance().getDifficultyLevel(singlesLevel.getOrdinal() + 1);
+        }
+        if (singlesLevel.getOrdinal() > maxLevel.getOrdinal()) {
+            return true;
+        }
+        if (rejectTooLowScore && singlesLevel.getOrdinal() > DifficultyType.EASY.ordinal()
+                && singlesScore < Options.getInstance().getDifficultyLevel(singlesLevel.getOrdinal() - 1).getMaxScore()) {
+            return true;
+        }
+        return singlesLevel.getOrdinal() < minLevel.getOrdinal();
+    }
+
+    /**
+     * Quick check, if the current sudoku can be solved using only singles. The
+     * singles are set in {@link #singlesSudoku}: first all Naked Singles, if
+     * there are none, one Hidden Single.
+     *
+     * @return
+     */
+    private boolean isSolvableWithSinglesOnly() {
+        singlesSudoku.set(sudoku);
+        byte[][] free = singlesSudoku.getFree();
+        boolean found = true;
+        while (found && singlesSudoku.getUnsolvedCellsAnz() > 0) {
+            found = false;
+            for (int index = 0; index < Sudoku2.LENGTH; index++) {
+                int cell = singlesSudoku.getCell(index);
+                if (singlesSudoku.getValue(index) == 0 && Sudoku2.ANZ_VALUES[cell] == 1) {
+                    if (!singlesSudoku.setCell(index, Sudoku2.CAND_FROM_MASK[cell], false, false)) {
+                        return false;
+                    }
+                    found = true;
+                }
+            }
+            for (int constr = 0; !found && constr < free.length; constr++) {
+                for (int cand = 1; cand <= 9; cand++) {
+                    if (free[constr][cand] == 1) {
+                        for (int index : Sudoku2.ALL_UNITS[constr]) {
+                            if (singlesSudoku.isCandidate(index, cand)) {
+                                if (!singlesSudoku.setCell(index, cand, false, false)) {
+                                    return false;
+                                }
+                                found = true;
+                                break;
+                            }
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return singlesSudoku.getUnsolvedCellsAnz() == 0;
+    }
+
     /**
      * Calculates the progress scores of all steps in <code>steps</code>
      * (see {@link #getProgressScoreSingles(sudoku.Sudoku2, sudoku.SolutionStep) }).
@@ -429,7 +671,15 @@ public class SudokuSolver {
      * calculate the next step and to calculate the progress measure for
      * a given sudoku state.<br>
      * Any step is accepted, if the GameMode is not GameMode.PLAYING and
-     * one of the training techniques is already in the solution.
+     * one of the training techniques is already in the solution.<br><br>
+     * 
+     * If {@link Options#getSpeculativeHintSteps() } is greater than 0, the
+     * next techniques of level EXTREME are started in background threads
+     * as soon as the serial search reaches the first technique of level
+     * UNFAIR (see {@link #startSpeculativeSearch(sudoku.StepConfig[], int, int) }),
+     * at most one technique per additional core.
+     * The result is always the same as without speculation: a speculative
+     * result is only used, when the serial search reaches its technique.
      * @param singlesOnly
      * @param solverSteps
      * @param acceptAnyway
@@ -437,22 +687,82 @@ public class SudokuSolver {
      */
     private SolutionStep getHint(boolean singlesOnly, StepConfig[] solverSteps,
             boolean acceptAnyway) {
+        return getHint(singlesOnly, solverSteps, acceptAnyway, false);
+    }
+
+    /**
+     * Like {@link #getHint(boolean, sudoku.StepConfig[], boolean) }, but if
+     * <code>singlesFastPath</code> is set, the singles are tried first in
+     * one tight loop: no checks, no logging, no speculation. Their indices
+     * must have been stored in {@link #singlesIndices} by
+     * {@link #initSinglesIndices(sudoku.StepConfig[], boolean) }. Since they are
+     * the first enabled techniques, the result is the same as with the
+     * normal loop, which continues after the last single if no single
+     * can be found.<br>
+     * The Naked and Hidden Singles are taken from the queues in {@link Sudoku2},
+     * entries that are not valid anymore are skipped by the finders.
+     * @param singlesOnly
+     * @param solverSteps
+     * @param acceptAnyway
+     * @param singlesFastPath
+     * @return
+     */
+    private SolutionStep getHint(boolean singlesOnly, StepConfig[] solverSteps,
+            boolean acceptAnyway, boolean singlesFastPath) {
         if (sudoku.isSolved()) {
             return null;
         }
+        int startIndex = 0;
+        if (singlesFastPath) {
+            for (int j = 0; j < singlesIndices.length; j++) {
+                int i = singlesIndices[j];
+                long nanos = System.nanoTime();
+                SolutionStep hint = getStepFinder().getStep(solverSteps[i].getType());
+                stepsNanoTime[i] += System.nanoTime() - nanos;
+                anzStepsProgress[i]++;
+                if (hint != null) {
+                    return acceptHint(solverSteps, i, hint, acceptAnyway);
+                }
+            }
+            if (singlesOnly) {
+                return null;
+            }
+            startIndex = singlesIndices[singlesIndices.length - 1] + 1;
+        }
+        // speculation only makes sense, if there are free cores
+        int speculativeAnz = singlesOnly ? 0 : Math.min(Options.getInstance().getSpeculativeHintSteps(),
+                Runtime.getRuntime().availableProcessors() - 1);
+        try {
+            return getHint(singlesOnly, solverSteps, acceptAnyway, speculativeAnz, startIndex);
+        } finally {
+            stopSpeculativeSearch();
+        }
+    }
+
+    /**
+     * Does the real work for {@link #getHint(boolean, sudoku.StepConfig[], boolean) }.
+     * @param singlesOnly
+     * @param solverSteps
+     * @param acceptAnyway
+     * @param speculativeAnz Maximum number of techniques searched in advance
+     * @param startIndex First index in <code>solverSteps</code>, that is tried
+     * @return
+     */
+    private SolutionStep getHint(boolean singlesOnly, StepConfig[] solverSteps,
+            boolean acceptAnyway, int speculativeAnz, int startIndex) {
         SolutionStep hint = null;
         //System.out.println("  sudoku: " + getStepFinder().getSudoku().getSudoku(ClipboardMode.VALUES_ONLY));
+        Logger logger = Logger.getLogger(getClass().getName());
+        boolean logFiner = logger.isLoggable(Level.FINER);
 
-        for (int i = 0; i < solverSteps.length; i++) {
-            if (solverSteps == Options.getInstance().solverStepsProgress) {
-                if (solverSteps[i].isEnabledProgress() == false) {
-                    continue;
-                }
-            } else {
-                if (solverSteps[i].isEnabled() == false) {
-                    // diesen Schritt nicht ausführen
-                    continue;
-                }
+        for (int i = startIndex; i < solverSteps.length; i++) {
+            if (!isEnabled(solverSteps, i)) {
+                continue;
+            }
+            if (speculativeAnz > 0 && solverSteps[i].getLevel() >= DifficultyType.UNFAIR.ordinal()) {
+                // all cheap techniques have failed -> start the expensive ones
+                startSpeculativeSearch(solverSteps, i, speculativeAnz);
+                speculativeAnz = 0;
             }
             SolutionType type = solverSteps[i].getType();
             if (singlesOnly &&
@@ -460,33 +770,173 @@ public class SudokuSolver {
                     type != SolutionType.FULL_HOUSE)) {
                 continue;
             }
-            Logger.getLogger(getClass().getName()).log(Level.FINER, "trying {0}: ", SolutionStep.getStepName(type));
+            if (!getStepFinder().isApplicable(type)) {
+                // quick check: the step cannot exist in the current sudoku
+                continue;
+            }
+            if (logFiner) {
+                logger.log(Level.FINER, "trying {0}: ", SolutionStep.getStepName(type));
+            }
             long nanos = System.nanoTime();
-            hint = getStepFinder().getStep(type);
+            hint = getSpeculativeStep(i, type);
             nanos = System.nanoTime() - nanos;
-            Logger.getLogger(getClass().getName()).log(Level.FINER, "{0}ms ({1})", new Object[]{nanos / 1000, hint != null ? hint.toString(2) : "-"});
+            if (logFiner) {
+                logger.log(Level.FINER, "{0}ms ({1})", new Object[]{nanos / 1000, hint != null ? hint.toString(2) : "-"});
+            }
 //            if (nanos > 20000) {
 //                Logger.getLogger(getClass().getName()).log(Level.FINE, "trying {0}: {1}ms", new Object[]{SolutionStep.getStepName(type), nanos});
 //            }
             anzStepsProgress[i]++;
             stepsNanoTime[i] += nanos;
             if (hint != null) {
-                anzSteps[i]++;
-                score += solverSteps[i].getBaseScore();
-                if (Options.getInstance().getDifficultyLevels()[solverSteps[i].getLevel()].getOrdinal() > level.getOrdinal()) {
-                    level = Options.getInstance().getDifficultyLevels()[solverSteps[i].getLevel()];
+                return acceptHint(solverSteps, i, hint, acceptAnyway);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A step has been found with technique <code>index</code>: the counters,
+     * the score and the level are updated.
+     * @param solverSteps
+     * @param index
+     * @param hint
+     * @param acceptAnyway
+     * @return <code>hint</code> or <code>null</code>, if the puzzle has become too hard
+     */
+    private SolutionStep acceptHint(StepConfig[] solverSteps, int index, SolutionStep hint,
+            boolean acceptAnyway) {
+        anzSteps[index]++;
+        score += solverSteps[index].getBaseScore();
+        if (Options.getInstance().getDifficultyLevels()[solverSteps[index].getLevel()].getOrdinal() > level.getOrdinal()) {
+            level = Options.getInstance().getDifficultyLevels()[solverSteps[index].getLevel()];
+        }
+        // Wenn das Puzzle zu schwer ist, gleich abbrechen
+        if (!acceptAnyway) {
+            if (level.getOrdinal() > maxLevel.getOrdinal() || score >= maxLevel.getMaxScore()) {
+                // zu schwer!
+                return null;
+            }
+        }
+        return hint;
+    }
+
+    /**
+     * Checks, if the technique at <code>index</code> should be used
+     * by {@link #getHint(boolean, sudoku.StepConfig[], boolean) }.
+     * @param solverSteps
+     * @param index
+     * @return
+     */
+    private boolean isEnabled(StepConfig[] solverSteps, int index) {
+        if (solverSteps == Options.getInstance().solverStepsProgress) {
+            return solverSteps[index].isEnabledProgress();
+        }
+        return solverSteps[index].isEnabled();
+    }
+
+    /**
+     * Starts the first <code>speculativeAnz</code> enabled techniques of level
+     * EXTREME at or after <code>startIndex</code> in background threads. Every
+     * technique gets its own {@link SudokuStepFinder} and its own copy of
+     * the sudoku.
+     * @param solverSteps
+     * @param startIndex
+     * @param speculativeAnz
+     */
+    private void startSpeculativeSearch(StepConfig[] solverSteps, int startIndex, int speculativeAnz) {
+        if (speculativeFinders.length < speculativeAnz) {
+            SudokuStepFinder[] newFinders = new SudokuStepFinder[speculativeAnz];
+            Sudoku2[] newSudokus = new Sudoku2[speculativeAnz];
+            for (int i = 0; i < speculativeAnz; i++) {
+                if (i < speculativeFinders.length) {
+                    newFinders[i] = speculativeFinders[i];
+                    newSudokus[i] = speculativeSudokus[i];
+                } else {
+                    newFinders[i] = new SudokuStepFinder();
+                    newSudokus[i] = new Sudoku2();
                 }
-                // Wenn das Puzzle zu schwer ist, gleich abbrechen
-                if (!acceptAnyway) {
-                    if (level.getOrdinal() > maxLevel.getOrdinal() || score >= maxLevel.getMaxScore()) {
-                        // zu schwer!
-                        return null;
-                    }
+            }
+            speculativeFinders = newFinders;
+            speculativeSudokus = newSudokus;
+            speculativeIndices = new int[speculativeAnz];
+        }
+        speculativeFutures.clear();
+        for (int i = startIndex; i < solverSteps.length && speculativeFutures.size() < speculativeAnz; i++) {
+            final SolutionType type = solverSteps[i].getType();
+            if (!isEnabled(solverSteps, i) || solverSteps[i].getLevel() < DifficultyType.EXTREME.ordinal() ||
+                    !getStepFinder().isApplicable(type)) {
+                continue;
+            }
+            int slot = speculativeFutures.size();
+            final SudokuStepFinder finder = speculativeFinders[slot];
+            speculativeSudokus[slot].set(sudoku);
+            finder.setSudoku(speculativeSudokus[slot]);
+            finder.setCancelled(false);
+            speculativeIndices[slot] = i;
+            speculativeFutures.add(speculativeExecutor.submit(new Callable<SolutionStep>() {
+
+                @Override
+                public SolutionStep call() {
+                    return finder.getStep(type);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Gets the step for the technique at <code>index</code>: if it has been
+     * started speculatively, the result is taken from the background search,
+     * else the search is done now.
+     * @param index
+     * @param type
+     * @return
+     */
+    private SolutionStep getSpeculativeStep(int index, SolutionType type) {
+        for (int i = 0; i < speculativeFutures.size(); i++) {
+            if (speculativeIndices[i] == index) {
+                try {
+                    return speculativeFutures.get(i).get();
+                } catch (InterruptedException ex) {
+                    // search it ourselves
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    throw new RuntimeException(ex.getCause());
                 }
-                return hint;
             }
         }
-        return null;
+        return getStepFinder().getStep(type);
+    }
+
+    /**
+     * Cancels all speculative searches, that are still running, and waits
+     * until they have stopped (the step finders are reused).
+     */
+    private void stopSpeculativeSearch() {
+        for (int i = 0; i < speculativeFutures.size(); i++) {
+            speculativeFinders[i].setCancelled(true);
+        }
+        boolean interrupted = false;
+        for (int i = 0; i < speculativeFutures.size(); i++) {
+            while (true) {
+                try {
+                    speculativeFutures.get(i).get();
+                    break;
+                } catch (InterruptedException ex) {
+                    // we have to wait anyway
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    // result is not needed anyway
+                    break;
+                }
+            }
+            speculativeFinders[i].setCancelled(false);
+        }
+        speculativeFutures.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public void doStep(Sudoku2 sudoku, SolutionStep step) {
@@ -515,8 +965,15 @@ public class SudokuSolver {
         getStepFinder().setSudoku(sudoku);
     }
 
+    /**
+     * Sets a new sudoku. All steps of the last solution, that have not
+     * been retained (see {@link #retainSteps() }), go back into the step
+     * pool and must not be used anymore.
+     * @param sudoku
+     */
     public void setSudoku(Sudoku2 sudoku) {
         SudokuUtil.clearStepList(steps);
+        stepPool.releaseAll();
         for (int i = 0; i < anzSteps.length; i++) {
             anzSteps[i] = 0;
         }
@@ -528,6 +985,17 @@ public class SudokuSolver {
         return steps;
     }
 
+    /**
+     * The steps found by {@link #solve() } are reused for the next sudoku.
+     * Callers, that keep the steps (or parts of them) after the next call
+     * to {@link #setSudoku(sudoku.Sudoku2) } (like the GUI), must call this
+     * method right after solving: all steps handed out since the last
+     * <code>setSudoku()</code> are removed from the pool.
+     */
+    public void retainSteps() {
+        stepPool.retainAll();
+    }
+
     public int getAnzUsedSteps() {
         int anz = 0;
         for (int i = 0; i < anzSteps.length; i++) {
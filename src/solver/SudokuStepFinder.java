@@ -19,6 +19,9 @@
 package solver;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -74,6 +77,12 @@ public class SudokuStepFinder {
     private GiveUpSolver giveUpSolver;
     /** An array for all specialized solvers. Makes finding steps easier. */
     private AbstractSolver[] solvers;
+    /** Dispatch table for {@link #getStep(sudoku.SolutionType) }: the specialized solver for every
+     *  {@link SolutionType} (index is the ordinal), <code>null</code> if the type cannot be found. */
+    private AbstractSolver[] stepSolvers;
+    /** Dispatch table for {@link #doStep(sudoku.SolutionStep) }; filled whenever a type is
+     *  executed for the first time. */
+    private AbstractSolver[] doStepSolvers;
     /** The sudoku for which steps should be found. */
     private Sudoku2 sudoku;
     /** The step configuration for searches. */
@@ -91,6 +100,11 @@ public class SudokuStepFinder {
     private boolean initialized = false;
     /** If set to <code>true</code>, the StepFinder contains only one {@link SimpleSolver} instance. */
     private boolean simpleOnly = false;
+    /** Set from another thread, if the result of the current search is not needed anymore
+     *  (speculative search in {@link SudokuSolver}). Long running solvers check it regularly. */
+    private volatile boolean cancelled = false;
+    /** If not <code>null</code>, new steps are taken from this pool (only while {@link SudokuSolver} solves a puzzle). */
+    private SolutionStepPool stepPool = null;
     // Data that is used by more than one specialized solver
     /** One set with all positions left for each candidate. */
     private SudokuSet[] candidates = new SudokuSet[10];
@@ -106,6 +120,11 @@ public class SudokuStepFinder {
     private boolean candidatesAllowedDirty = true;
     /** A set for all cells that are not set yet */
     private SudokuSet emptyCells = new SudokuSet();
+    /** For every number of candidates the number of unsolved cells with exactly that many candidates
+     *  (for the quick checks in {@link AbstractSolver#isApplicable(sudoku.SolutionType) }). */
+    private int[] anzCellsWithCandidates = new int[10];
+    /** Dirty flag for anzCellsWithCandidates. */
+    private boolean anzCellsWithCandidatesDirty = true;
     /** One template per candidate with all positions that can be set immediately. */
     private SudokuSet[] setValueTemplates = new SudokuSet[10];
     /** One template per candidate with all positions from which the candidate can be eliminated immediately. */
@@ -120,20 +139,45 @@ public class SudokuStepFinder {
     private List<GroupNode> groupNodes = null;
     /** Step number for which {@link #groupNodes} was computed. */
     private int groupNodesStepNumber = -1;
+    /** All links between the candidates (shared by chains, coloring and tabling). */
+    private LinkGraph linkGraph = new LinkGraph();
     /** Cache for ALS entries (only ALS with more than one cell). */
-    private List<Als> alsesOnlyLargerThanOne = null;
-    /** Step number for which {@link #alsesOnlyLargerThanOne} was computed. */
-    private int alsesOnlyLargerThanOneStepNumber = -1;
+    private AlsCache alsesOnlyLargerThanOne = new AlsCache();
     /** Cache for ALS entries (ALS with one cell allowed). */
-    private List<Als> alsesWithOne = null;
-    /** Step number for which {@link #alsesWithOne} was computed. */
-    private int alsesWithOneStepNumber = -1;
+    private AlsCache alsesWithOne = new AlsCache();
+    /** 
+     * If more cells than this have changed since the last ALS search, the ALS
+     * are searched from scratch instead of updating the cached list.
+     */
+    private static final int MAX_ALS_CHANGED_CELLS = 27;
+    /** All cells, that have changed since the ALS list was calculated. */
+    private SudokuSet alsChangedCells = new SudokuSet();
+    /** All cells, that see at least one cell in {@link #alsChangedCells}. */
+    private SudokuSet alsPeerCells = new SudokuSet();
+    /** Sorts ALS in the order, in which {@link #doGetAlses(boolean) } finds them. */
+    private Comparator<Als> alsOrderComparator = new Comparator<Als>() {
+
+        @Override
+        public int compare(Als als1, Als als2) {
+            long key1 = getAlsKey(als1.indices);
+            long key2 = getAlsKey(als2.indices);
+            return key1 < key2 ? -1 : (key1 == key2 ? 0 : 1);
+        }
+    };
+    /** ALS list for which {@link #alsesPerCandidate} was calculated. */
+    private List<Als> alsesPerCandidateList = null;
+    /** For every candidate the indices of all ALS, that contain the candidate. */
+    private int[][] alsesPerCandidate = new int[10][];
     /** Cache for RC entries. */
     private List<RestrictedCommon> restrictedCommons = null;
     /** start indices into {@link #restrictedCommons} for all ALS. */
     private int[] startIndices = null;
     /** end indices into {@link #restrictedCommons} for all ALS. */
     private int[] endIndices = null;
+    /** {@link #startIndices} of the former RC search (needed for updating the RCs). */
+    private int[] oldStartIndices = null;
+    /** {@link #endIndices} of the former RC search (needed for updating the RCs). */
+    private int[] oldEndIndices = null;
     /** Overlap status at last RC search. */
     private boolean lastRcAllowOverlap;
     /** Step number for which {@link #restrictedCommons} was computed. */
@@ -149,6 +193,16 @@ public class SudokuStepFinder {
     private SudokuSet indexSet = new SudokuSet();
     /** Temporary set for recursion: all numbers contained in {@link #indexSet}. */
     private short[] candSets = new short[10];
+    /** Hash set for the ALS search: {@link SudokuSetBase#getMask1() } of the cells of all ALS found. */
+    private long[] alsHashMask1 = new long[1024];
+    /** Hash set for the ALS search: {@link SudokuSetBase#getMask2() } of the cells of all ALS found. */
+    private long[] alsHashMask2 = new long[1024];
+    /** An entry in the ALS hash set is valid, if it holds the current {@link #alsHashGeneration}. */
+    private int[] alsHashUsed = new int[1024];
+    /** Current generation of the ALS hash set (avoids clearing the arrays for every search). */
+    private int alsHashGeneration = 0;
+    /** Number of entries in the ALS hash set. */
+    private int alsHashAnz = 0;
     /** statistics: total time for all calls */
     private long alsNanos;
     /** statistics: number of calls */
@@ -230,6 +284,17 @@ public class SudokuStepFinder {
         } else {
             solvers = new AbstractSolver[]{simpleSolver};
         }
+        // build the dispatch table: if more than one solver knows a type,
+        // the first one in solvers gets it
+        stepSolvers = new AbstractSolver[SolutionType.values().length];
+        doStepSolvers = new AbstractSolver[SolutionType.values().length];
+        for (AbstractSolver solver : solvers) {
+            for (SolutionType type : solver.getSolutionTypes()) {
+                if (stepSolvers[type.ordinal()] == null) {
+                    stepSolvers[type.ordinal()] = solver;
+                }
+            }
+        }
         initialized = true;
     }
 
@@ -257,26 +322,45 @@ public class SudokuStepFinder {
      * @return
      */
     public SolutionStep getStep(SolutionType type) {
-        initialize();
-        SolutionStep result = null;
-        for (int i = 0; i < solvers.length; i++) {
-            if ((result = solvers[i].getStep(type)) != null) {
-                // step has been found!
-                stepNumber++;
-                return result;
-            }
+        if (!isApplicable(type)) {
+            return null;
+        }
+        SolutionStep result = stepSolvers[type.ordinal()].getStep(type);
+        if (result != null) {
+            // step has been found!
+            stepNumber++;
         }
         return result;
     }
 
+    /**
+     * Checks, if a step of type <code>type</code> can exist in the current sudoku:
+     * <code>false</code> is returned, if no specialized solver can find the type
+     * or if the quick check of the solver ({@link AbstractSolver#isApplicable(sudoku.SolutionType) })
+     * fails. Used by the solver to skip whole families of techniques cheaply.
+     * @param type
+     * @return
+     */
+    public boolean isApplicable(SolutionType type) {
+        initialize();
+        AbstractSolver solver = stepSolvers[type.ordinal()];
+        return solver != null && solver.isApplicable(type);
+    }
+
     /**
      * Executes a step.
      * @param step
      */
     public void doStep(SolutionStep step) {
         initialize();
+        int typeIndex = step.getType().ordinal();
+        if (doStepSolvers[typeIndex] != null && doStepSolvers[typeIndex].doStep(step)) {
+            setSudokuDirty();
+            return;
+        }
         for (int i = 0; i < solvers.length; i++) {
             if (solvers[i].doStep(step)) {
+                doStepSolvers[typeIndex] = solvers[i];
                 setSudokuDirty();
                 return;
             }
@@ -293,6 +377,7 @@ public class SudokuStepFinder {
         positionsDirty = true;
         templatesDirty = true;
         templatesListDirty = true;
+        anzCellsWithCandidatesDirty = true;
         stepNumber++;
     }
 
@@ -749,6 +834,25 @@ public class SudokuStepFinder {
         return candidates;
     }
 
+    /**
+     * Returns the number of unsolved cells, that have exactly <code>anzCandidates</code>
+     * candidates left.
+     * @param anzCandidates
+     * @return
+     */
+    public int getAnzCellsWithCandidates(int anzCandidates) {
+        if (anzCellsWithCandidatesDirty) {
+            Arrays.fill(anzCellsWithCandidates, 0);
+            for (int i = 0; i < Sudoku2.LENGTH; i++) {
+                if (sudoku.getValue(i) == 0) {
+                    anzCellsWithCandidates[sudoku.getAnzCandidates(i)]++;
+                }
+            }
+            anzCellsWithCandidatesDirty = false;
+        }
+        return anzCellsWithCandidates[anzCandidates];
+    }
+
     /**
      * Returns the {@link #positions}. Recalculates them if they are dirty.
      * @return
@@ -987,6 +1091,56 @@ public class SudokuStepFinder {
         return stepNumber;
     }
 
+    /**
+     * Sets the pool, from which the specialized solvers get their steps.
+     * @param stepPool <code>null</code>, if all steps should be created anew
+     */
+    void setStepPool(SolutionStepPool stepPool) {
+        this.stepPool = stepPool;
+    }
+
+    /**
+     * Creates a new step of type <code>type</code>. Should be used by the
+     * specialized solvers instead of <code>new SolutionStep(type)</code>.
+     * @param type
+     * @return
+     */
+    SolutionStep createStep(SolutionType type) {
+        if (stepPool == null) {
+            return new SolutionStep(type);
+        }
+        return stepPool.createStep(type);
+    }
+
+    /**
+     * Creates a copy of <code>step</code>. Should be used by the
+     * specialized solvers instead of <code>step.clone()</code>.
+     * @param step
+     * @return
+     */
+    SolutionStep copyStep(SolutionStep step) {
+        if (stepPool == null) {
+            return (SolutionStep) step.clone();
+        }
+        return stepPool.copyStep(step);
+    }
+
+    /**
+     * @return <code>true</code>, if the current search should be stopped
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops (or allows) searches in long running solvers. The result of a
+     * cancelled search is undefined.
+     * @param cancelled
+     */
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
     /******************************************************************************************************************/
     /* END TEMPLATES                                                                                                  */
     /******************************************************************************************************************/
@@ -1012,6 +1166,35 @@ public class SudokuStepFinder {
     /* END GROUP NODE CACHE                                                                                           */
     /******************************************************************************************************************/
     /******************************************************************************************************************/
+    /* LINK GRAPH                                                                                                     */
+    /******************************************************************************************************************/
+    /**
+     * Gets all links between the candidates of {@link #sudoku}. The graph
+     * is only updated, if the step number has changed since the last call;
+     * in that case only the nodes of the cells that have changed are
+     * recalculated (see {@link LinkGraph}).
+     * @return
+     */
+    public LinkGraph getLinkGraph() {
+        linkGraph.update(sudoku, stepNumber);
+        return linkGraph;
+    }
+
+    /**
+     * Like {@link #getLinkGraph() }, but the links of the group nodes
+     * (see {@link #getGroupNodes() }) are valid as well.
+     * @return
+     */
+    public LinkGraph getLinkGraphWithGroupNodes() {
+        linkGraph.update(sudoku, stepNumber);
+        linkGraph.updateGroupNodes(getGroupNodes(), getCandidates());
+        return linkGraph;
+    }
+
+    /******************************************************************************************************************/
+    /* END LINK GRAPH                                                                                                 */
+    /******************************************************************************************************************/
+    /******************************************************************************************************************/
     /* ALS AND RC CACHE                                                                                               */
     /******************************************************************************************************************/
     /**
@@ -1029,27 +1212,54 @@ public class SudokuStepFinder {
      * The work is delegated to {@link #collectAllAlsesForHouse(int[][], sudoku.Sudoku2, java.util.List, boolean)}.<br><br>
      * The list is cached in {@link #alsesOnlyLargerThanOne} or
      * {@link #alsesWithOne} respectively and only recomputed if necessary.
+     * If only a few cells have changed since the last call, the cached list
+     * is updated (see {@link #doUpdateAlses(solver.SudokuStepFinder.AlsCache, boolean) }).
+     * The result is always the same as a search from scratch, including the
+     * order of the ALS.
      * @param onlyLargerThanOne
      * @return
      */
     public List<Als> getAlses(boolean onlyLargerThanOne) {
-        if (onlyLargerThanOne) {
-            if (alsesOnlyLargerThanOneStepNumber == stepNumber) {
-                return alsesOnlyLargerThanOne;
-            } else {
-                alsesOnlyLargerThanOne = doGetAlses(onlyLargerThanOne);
-                alsesOnlyLargerThanOneStepNumber = stepNumber;
-                return alsesOnlyLargerThanOne;
+        AlsCache cache = onlyLargerThanOne ? alsesOnlyLargerThanOne : alsesWithOne;
+        if (cache.stepNumber != stepNumber) {
+            updateAlses(cache, onlyLargerThanOne);
+            cache.stepNumber = stepNumber;
+        }
+        return cache.alses;
+    }
+
+    /**
+     * Brings the ALS list in <code>cache</code> up to date: If nothing has
+     * changed, the list is left alone; if only a few cells have changed,
+     * the list is updated, else it is recomputed.
+     * @param cache
+     * @param onlyLargerThanOne 
+     */
+    private void updateAlses(AlsCache cache, boolean onlyLargerThanOne) {
+        short[] cells = sudoku.getCells();
+        if (cache.alses != null) {
+            alsChangedCells.clear();
+            for (int i = 0; i < Sudoku2.LENGTH; i++) {
+                if (cells[i] != cache.cells[i] || sudoku.getValue(i) != cache.values[i]) {
+                    alsChangedCells.add(i);
+                }
             }
-        } else {
-            if (alsesWithOneStepNumber == stepNumber) {
-                return alsesWithOne;
-            } else {
-                alsesWithOne = doGetAlses(onlyLargerThanOne);
-                alsesWithOneStepNumber = stepNumber;
-                return alsesWithOne;
+            if (alsChangedCells.isEmpty()) {
+                // the list (and all RCs calculated for it) are still valid
+                return;
             }
         }
+        if (cache.alses != null && alsChangedCells.size() <= MAX_ALS_CHANGED_CELLS) {
+            doUpdateAlses(cache, onlyLargerThanOne);
+        } else {
+            cache.alses = doGetAlses(onlyLargerThanOne);
+            cache.previous = null;
+            cache.previousIndices = null;
+        }
+        System.arraycopy(cells, 0, cache.cells, 0, Sudoku2.LENGTH);
+        for (int i = 0; i < Sudoku2.LENGTH; i++) {
+            cache.values[i] = sudoku.getValue(i);
+        }
     }
 
     /**
@@ -1064,14 +1274,14 @@ public class SudokuStepFinder {
         // this is the list we will be working with
         List<Als> alses = new ArrayList<Als>(300);
         alses.clear();
+        clearAlsHash();
 
-        // recursion is started once for every cell in every house
+        // recursion is started once for every house (the recursion
+        // itself tries every cell of the house as first cell)
         for (int i = 0; i < Sudoku2.ALL_UNITS.length; i++) {
-            for (int j = 0; j < Sudoku2.ALL_UNITS[i].length; j++) {
-                indexSet.clear();
-                candSets[0] = 0;
-                checkAlsRecursive(0, j, Sudoku2.ALL_UNITS[i], alses, onlyLargerThanOne);
-            }
+            indexSet.clear();
+            candSets[0] = 0;
+            checkAlsRecursive(0, 0, Sudoku2.ALL_UNITS[i], alses, onlyLargerThanOne);
         }
 
         // compute fields
@@ -1115,9 +1325,8 @@ public class SudokuStepFinder {
                 if (!onlyLargerThanOne || indexSet.size() > 1) {
                     // found one -> save it if it doesnt exist already
                     anzAls++;
-                    Als newAls = new Als(indexSet, candSets[anzahl]);
-                    if (!alses.contains(newAls)) {
-                        alses.add(newAls);
+                    if (addAlsHash(indexSet.getMask1(), indexSet.getMask2())) {
+                        alses.add(new Als(indexSet, candSets[anzahl]));
                     } else {
                         doubleAls++;
                     }
@@ -1132,6 +1341,292 @@ public class SudokuStepFinder {
         }
     }
 
+    /**
+     * Updates the ALS list in <code>cache</code> after the cells in
+     * {@link #alsChangedCells} have been changed:
+     * <ul>
+     * <li>ALS containing a changed cell are dropped; they are found again
+     * by the search below, if they are still valid</li>
+     * <li>ALS, that see a changed cell, are still valid, but their
+     * buddies have to be recomputed (a new instance is created)</li>
+     * <li>All other ALS are taken over unchanged</li>
+     * <li>New ALS can only contain changed cells: only the houses containing
+     * changed cells are searched</li>
+     * </ul>
+     * The new list is sorted in the order of {@link #doGetAlses(boolean) }.
+     * For all ALS that are taken over unchanged, the index in the former list
+     * is stored in <code>cache</code> (used for updating the RCs).
+     * @param cache
+     * @param onlyLargerThanOne 
+     */
+    private void doUpdateAlses(AlsCache cache, boolean onlyLargerThanOne) {
+        long actNanos = System.nanoTime();
+
+        List<Als> oldAlses = cache.alses;
+        alsPeerCells.clear();
+        for (int i = 0; i < alsChangedCells.size(); i++) {
+            alsPeerCells.or(Sudoku2.buddies[alsChangedCells.get(i)]);
+        }
+        // check the old ALS
+        List<Als> keptAlses = new ArrayList<Als>(oldAlses.size());
+        int[] keptIndices = new int[oldAlses.size()];
+        for (int i = 0; i < oldAlses.size(); i++) {
+            Als als = oldAlses.get(i);
+            if (als.indices.intersects(alsChangedCells)) {
+                continue;
+            }
+            if (als.indices.intersects(alsPeerCells)) {
+                Als newAls = new Als(als.indices, als.candidates);
+                newAls.computeFields(this);
+                keptIndices[keptAlses.size()] = -1;
+                keptAlses.add(newAls);
+            } else {
+                keptIndices[keptAlses.size()] = i;
+                keptAlses.add(als);
+            }
+        }
+        // search for new ALS
+        List<Als> newAlses = new ArrayList<Als>();
+        boolean[] housesDone = new boolean[Sudoku2.ALL_UNITS.length];
+        for (int i = 0; i < alsChangedCells.size(); i++) {
+            int[] houses = Sudoku2.CONSTRAINTS[alsChangedCells.get(i)];
+            for (int j = 0; j < houses.length; j++) {
+                if (!housesDone[houses[j]]) {
+                    housesDone[houses[j]] = true;
+                    indexSet.clear();
+                    candSets[0] = 0;
+                    checkAlsRecursiveChanged(0, 0, houses[j], false, newAlses, onlyLargerThanOne);
+                }
+            }
+        }
+        Collections.sort(newAlses, alsOrderComparator);
+        for (Als als : newAlses) {
+            als.computeFields(this);
+        }
+        // merge both lists
+        List<Als> alses = new ArrayList<Als>(keptAlses.size() + newAlses.size());
+        int[] previousIndices = new int[keptAlses.size() + newAlses.size()];
+        int keptIndex = 0;
+        int newIndex = 0;
+        while (keptIndex < keptAlses.size() || newIndex < newAlses.size()) {
+            if (newIndex >= newAlses.size() || (keptIndex < keptAlses.size()
+                    && alsOrderComparator.compare(keptAlses.get(keptIndex), newAlses.get(newIndex)) < 0)) {
+                previousIndices[alses.size()] = keptIndices[keptIndex];
+                alses.add(keptAlses.get(keptIndex++));
+            } else {
+                previousIndices[alses.size()] = -1;
+                alses.add(newAlses.get(newIndex++));
+            }
+        }
+        cache.previous = oldAlses;
+        cache.previousIndices = previousIndices;
+        cache.alses = alses;
+
+        alsNanos += (System.nanoTime() - actNanos);
+        anzAlsCalls++;
+    }
+
+    /**
+     * Empties the hash set for the ALS search.
+     */
+    private void clearAlsHash() {
+        alsHashGeneration++;
+        if (alsHashGeneration == 0) {
+            // overflow: the old entries have to be deleted
+            Arrays.fill(alsHashUsed, 0);
+            alsHashGeneration = 1;
+        }
+        alsHashAnz = 0;
+    }
+
+    /**
+     * Adds the cells of an ALS to the hash set, if they are not already
+     * contained (open addressing with linear probing). The table is
+     * doubled, if it becomes half full.
+     * @param mask1 {@link SudokuSetBase#getMask1() } of the ALS cells
+     * @param mask2 {@link SudokuSetBase#getMask2() } of the ALS cells
+     * @return <code>true</code>, if the ALS is new
+     */
+    private boolean addAlsHash(long mask1, long mask2) {
+        if (alsHashAnz * 2 >= alsHashUsed.length) {
+            growAlsHash();
+        }
+        int mask = alsHashUsed.length - 1;
+        long hash = mask1 * 0x9E3779B97F4A7C15L + mask2;
+        int index = (int) (hash ^ (hash >>> 32)) & mask;
+        while (alsHashUsed[index] == alsHashGeneration) {
+            if (alsHashMask1[index] == mask1 && alsHashMask2[index] == mask2) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        alsHashUsed[index] = alsHashGeneration;
+        alsHashMask1[index] = mask1;
+        alsHashMask2[index] = mask2;
+        alsHashAnz++;
+        return true;
+    }
+
+    /**
+     * Doubles the size of the ALS hash set.
+     */
+    private void growAlsHash() {
+        long[] oldMask1 = alsHashMask1;
+        long[] oldMask2 = alsHashMask2;
+        int[] oldUsed = alsHashUsed;
+        int oldGeneration = alsHashGeneration;
+        alsHashMask1 = new long[oldMask1.length * 2];
+        alsHashMask2 = new long[oldMask2.length * 2];
+        alsHashUsed = new int[oldUsed.length * 2];
+        alsHashGeneration = 1;
+        alsHashAnz = 0;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i] == oldGeneration) {
+                addAlsHash(oldMask1[i], oldMask2[i]);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #checkAlsRecursive(int, int, int[], java.util.List, boolean) }, but
+     * only ALS, that contain at least one cell from {@link #alsChangedCells}, are
+     * collected. An ALS is only collected in the first house (in the order of
+     * {@link Sudoku2#ALL_UNITS}) that contains all of its cells, so no ALS is found twice.
+     * @param anzahl Number of cells already contained in {@link #indexSet}.
+     * @param startIndex First index in the house to check.
+     * @param house The index of the current house in {@link Sudoku2#ALL_UNITS}.
+     * @param containsChanged <code>true</code>, if {@link #indexSet} already contains a changed cell.
+     * @param alses List for all newly found ALS
+     * @param onlyLargerThanOne Allow ALS with only one cell (bivalue cells)
+     */
+    private void checkAlsRecursiveChanged(int anzahl, int startIndex, int house, boolean containsChanged,
+            List<Als> alses, boolean onlyLargerThanOne) {
+        int[] indexe = Sudoku2.ALL_UNITS[house];
+        anzahl++;
+        if (anzahl > indexe.length - 1) {
+            // end recursion (no more than 8 cells in an ALS possible)
+            return;
+        }
+        for (int i = startIndex; i < indexe.length; i++) {
+            int houseIndex = indexe[i];
+            if (sudoku.getValue(houseIndex) != 0) {
+                // cell already set -> ignore
+                continue;
+            }
+            boolean nowChanged = containsChanged || alsChangedCells.contains(houseIndex);
+            if (!nowChanged && !containsChangedCell(indexe, i + 1)) {
+                // no changed cell left in this house
+                return;
+            }
+            indexSet.add(houseIndex);
+            candSets[anzahl] = (short) (candSets[anzahl - 1] | sudoku.getCell(houseIndex));
+
+            if (nowChanged && Sudoku2.ANZ_VALUES[candSets[anzahl]] - anzahl == 1
+                    && (!onlyLargerThanOne || anzahl > 1) && isFirstHouse(houseIndex, house)) {
+                alses.add(new Als(indexSet, candSets[anzahl]));
+            }
+
+            // continue recursion
+            checkAlsRecursiveChanged(anzahl, i + 1, house, nowChanged, alses, onlyLargerThanOne);
+
+            // remove current cell
+            indexSet.remove(houseIndex);
+        }
+    }
+
+    /**
+     * Checks, if one of the unsolved cells <code>indexe[startIndex]</code> and
+     * above is contained in {@link #alsChangedCells}.
+     * @param indexe
+     * @param startIndex
+     * @return 
+     */
+    private boolean containsChangedCell(int[] indexe, int startIndex) {
+        for (int i = startIndex; i < indexe.length; i++) {
+            if (sudoku.getValue(indexe[i]) == 0 && alsChangedCells.contains(indexe[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks, if <code>house</code> is the first house, that contains all
+     * cells of {@link #indexSet}.
+     * @param cell One of the cells in {@link #indexSet}
+     * @param house
+     * @return 
+     */
+    private boolean isFirstHouse(int cell, int house) {
+        int[] houses = Sudoku2.CONSTRAINTS[cell];
+        for (int i = 0; i < houses.length && houses[i] < house; i++) {
+            if (Sudoku2.ALL_CONSTRAINTS_TEMPLATES[houses[i]].contains(indexSet)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates a sort key for an ALS, that reflects the order in which
+     * {@link #doGetAlses(boolean) } finds the ALS: an ALS is found in the
+     * first house containing all of its cells, within the house the search
+     * is done depth first.
+     * @param indices
+     * @return 
+     */
+    private long getAlsKey(SudokuSet indices) {
+        int[] houses = Sudoku2.CONSTRAINTS[indices.get(0)];
+        int house = houses[houses.length - 1];
+        for (int i = 0; i < houses.length; i++) {
+            if (Sudoku2.ALL_CONSTRAINTS_TEMPLATES[houses[i]].contains(indices)) {
+                house = houses[i];
+                break;
+            }
+        }
+        // four bits per cell (position in the house + 1), the first cell is the most significant
+        long key = house;
+        int[] indexe = Sudoku2.ALL_UNITS[house];
+        int anz = 0;
+        for (int i = 0; i < indexe.length; i++) {
+            if (indices.contains(indexe[i])) {
+                key = (key << 4) | (i + 1);
+                anz++;
+            }
+        }
+        return key << (4 * (indexe.length - anz));
+    }
+
+    /**
+     * Returns for every candidate the indices of all ALS in <code>alses</code>,
+     * that contain the candidate. The result is cached for the last list.
+     * @param alses
+     * @return 
+     */
+    public int[][] getAlsesPerCandidate(List<Als> alses) {
+        if (alses != alsesPerCandidateList) {
+            int[] anz = new int[10];
+            for (int i = 0; i < alses.size(); i++) {
+                int[] cands = Sudoku2.POSSIBLE_VALUES[alses.get(i).candidates];
+                for (int j = 0; j < cands.length; j++) {
+                    anz[cands[j]]++;
+                }
+            }
+            for (int i = 1; i <= 9; i++) {
+                alsesPerCandidate[i] = new int[anz[i]];
+                anz[i] = 0;
+            }
+            for (int i = 0; i < alses.size(); i++) {
+                int[] cands = Sudoku2.POSSIBLE_VALUES[alses.get(i).candidates];
+                for (int j = 0; j < cands.length; j++) {
+                    alsesPerCandidate[cands[j]][anz[cands[j]]++] = i;
+                }
+            }
+            alsesPerCandidateList = alses;
+        }
+        return alsesPerCandidate;
+    }
+
     /**
      * Do some statistics.
      * @return
@@ -1146,7 +1641,9 @@ public class SudokuStepFinder {
 
     /**
      * Lists of all RCs of the current sudoku are needed by more than one solver,
-     * but caching them can greatly increase performance.
+     * but caching them can greatly increase performance.<br>
+     * If the ALS list has been updated from the list, for which the RCs were
+     * calculated last, only the RCs of the changed ALS are recomputed.
      *
      * @param alses
      * @param allowOverlap
@@ -1155,12 +1652,37 @@ public class SudokuStepFinder {
     public List<RestrictedCommon> getRestrictedCommons(List<Als> alses, boolean allowOverlap) {
         if (lastRcStepNumber != stepNumber || lastRcAllowOverlap != allowOverlap
                 || lastRcAlsList != alses || lastRcOnlyForward != rcOnlyForward) {
-            // recompute
-            if (startIndices == null || startIndices.length < alses.size()) {
-                startIndices = new int[(int) (alses.size() * 1.5)];
-                endIndices = new int[(int) (alses.size() * 1.5)];
+            boolean sameMode = lastRcAllowOverlap == allowOverlap && lastRcOnlyForward == rcOnlyForward
+                    && restrictedCommons != null;
+            AlsCache cache = null;
+            if (alses == alsesWithOne.alses) {
+                cache = alsesWithOne;
+            } else if (alses == alsesOnlyLargerThanOne.alses) {
+                cache = alsesOnlyLargerThanOne;
+            }
+            if (sameMode && lastRcAlsList == alses && cache != null) {
+                // the list has not been changed since the last call (see getAlses())
+            } else if (sameMode && cache != null && cache.previous != null && cache.previous == lastRcAlsList) {
+                // update
+                int[] tmpStart = oldStartIndices;
+                int[] tmpEnd = oldEndIndices;
+                oldStartIndices = startIndices;
+                oldEndIndices = endIndices;
+                startIndices = tmpStart;
+                endIndices = tmpEnd;
+                if (startIndices == null || startIndices.length < alses.size()) {
+                    startIndices = new int[(int) (alses.size() * 1.5)];
+                    endIndices = new int[(int) (alses.size() * 1.5)];
+                }
+                restrictedCommons = doUpdateRestrictedCommons(alses, cache.previousIndices, allowOverlap);
+            } else {
+                // recompute
+                if (startIndices == null || startIndices.length < alses.size()) {
+                    startIndices = new int[(int) (alses.size() * 1.5)];
+                    endIndices = new int[(int) (alses.size() * 1.5)];
+                }
+                restrictedCommons = doGetRestrictedCommons(alses, allowOverlap);
             }
-            restrictedCommons = doGetRestrictedCommons(alses, allowOverlap);
             // store caching flags
             lastRcStepNumber = stepNumber;
             lastRcAllowOverlap = allowOverlap;
@@ -1240,56 +1762,63 @@ public class SudokuStepFinder {
                 if (i == j) {
                     continue;
                 }
-                Als als2 = alses.get(j);
-                // check whether the ALS overlap (intersectionSet is needed later on anyway)
-                intersectionSet.set(als1.indices);
-                intersectionSet.and(als2.indices);
-                if (!withOverlap && !intersectionSet.isEmpty()) {
-                    // overlap is not allowed!
-                    continue;
-                }
-                //if (DEBUG) System.out.println("als2: " + SolutionStep.getAls(als2));
-                // restricted common: all buddies + the positions of the candidates themselves ANDed
-                // check whether als1 and als2 have common candidates
-                possibleRestrictedCommonsSet = als1.candidates;
-                possibleRestrictedCommonsSet &= als2.candidates;
-                // possibleRestrictedCommons now contains all candidates common to both ALS
-                if (possibleRestrictedCommonsSet == 0) {
-                    // nothing to do!
+                checkRestrictedCommons(als1, alses.get(j), i, j, withOverlap, rcs);
+            }
+            endIndices[i] = rcs.size();
+        }
+        actNanos = System.nanoTime() - actNanos;
+        rcNanos += actNanos;
+        return rcs;
+    }
+
+    /**
+     * Like {@link #doGetRestrictedCommons(java.util.List, boolean) }, but the RCs
+     * between two ALS, that have not changed since the last call, are taken
+     * from the former result ({@link #restrictedCommons}, {@link #oldStartIndices}
+     * and {@link #oldEndIndices}). The result is the same as from
+     * {@link #doGetRestrictedCommons(java.util.List, boolean) }.
+     * 
+     * @param alses
+     * @param previousIndices For every ALS in <code>alses</code> the index in the former ALS list
+     *      or -1, if the ALS has changed
+     * @param withOverlap If <code>false</code> overlapping ALS are not allowed
+     * @return 
+     */
+    private List<RestrictedCommon> doUpdateRestrictedCommons(List<Als> alses, int[] previousIndices,
+            boolean withOverlap) {
+        rcAnzCalls++;
+        long actNanos = 0;
+        actNanos = System.nanoTime();
+        List<RestrictedCommon> oldRcs = restrictedCommons;
+        List<RestrictedCommon> rcs = new ArrayList<RestrictedCommon>(Math.max(2000, oldRcs.size()));
+        for (int i = 0; i < alses.size(); i++) {
+            Als als1 = alses.get(i);
+            startIndices[i] = rcs.size();
+            int start = 0;
+            if (rcOnlyForward) {
+                start = i + 1;
+            }
+            int oldIndex1 = previousIndices[i];
+            // the old RCs of als1 (sorted by their second ALS)
+            int oldRcIndex = oldIndex1 >= 0 ? oldStartIndices[oldIndex1] : 0;
+            int oldRcEnd = oldIndex1 >= 0 ? oldEndIndices[oldIndex1] : 0;
+            for (int j = start; j < alses.size(); j++) {
+                if (i == j) {
                     continue;
                 }
-                // number of RC candidates found for this ALS combination
-                int rcAnz = 0;
-                RestrictedCommon newRC = null;
-                int[] prcs = Sudoku2.POSSIBLE_VALUES[possibleRestrictedCommonsSet];
-                for (int k = 0; k < prcs.length; k++) {
-                    int cand = prcs[k];
-                    // Get all positions of cand in both ALS
-                    restrictedCommonIndexSet.set(als1.indicesPerCandidat[cand]);
-                    restrictedCommonIndexSet.or(als2.indicesPerCandidat[cand]);
-                    // non of these positions may be in the overlapping area of the two ALS
-                    if (!restrictedCommonIndexSet.andEmpty(intersectionSet)) {
-                        // at least on occurence of cand is in overlap -> forbidden
-                        continue;
+                int oldIndex2 = previousIndices[j];
+                if (oldIndex1 >= 0 && oldIndex2 >= 0) {
+                    // both ALS are unchanged: RCs are unchanged too
+                    while (oldRcIndex < oldRcEnd && oldRcs.get(oldRcIndex).getAls2() < oldIndex2) {
+                        oldRcIndex++;
                     }
-                    // now check if all those candidates see each other
-                    restrictedCommonBuddiesSet.setAnd(als1.buddiesAlsPerCandidat[cand],
-                            als2.buddiesAlsPerCandidat[cand]);
-                    // we now know all common buddies, all common candidates must be in that set
-                    if (restrictedCommonIndexSet.andEquals(restrictedCommonBuddiesSet)) {
-                        // found -> cand is RC
-                        if (rcAnz == 0) {
-                            newRC = new RestrictedCommon(i, j, cand);
-                            rcs.add(newRC);
-                            anzRcs++;
-                        } else {
-                            newRC.setCand2(cand);
-                        }
-                        rcAnz++;
+                    if (oldRcIndex < oldRcEnd && oldRcs.get(oldRcIndex).getAls2() == oldIndex2) {
+                        RestrictedCommon oldRC = oldRcs.get(oldRcIndex);
+                        rcs.add(new RestrictedCommon(i, j, oldRC.getCand1(), oldRC.getCand2()));
+                        anzRcs++;
                     }
-                }
-                if (rcAnz > 0) {
-                    //if (DEBUG) System.out.println(newRC + ": " + rcAnz + " RCs for ALS " + SolutionStep.getAls(als1) + "/" + SolutionStep.getAls(als2));
+                } else {
+                    checkRestrictedCommons(als1, alses.get(j), i, j, withOverlap, rcs);
                 }
             }
             endIndices[i] = rcs.size();
@@ -1299,6 +1828,67 @@ public class SudokuStepFinder {
         return rcs;
     }
 
+    /**
+     * Checks, if <code>als1</code> and <code>als2</code> have one or two RCs. If
+     * so, a new {@link RestrictedCommon} is added to <code>rcs</code>.
+     * @param als1
+     * @param als2
+     * @param i Index of <code>als1</code>
+     * @param j Index of <code>als2</code>
+     * @param withOverlap If <code>false</code> overlapping ALS are not allowed
+     * @param rcs 
+     */
+    private void checkRestrictedCommons(Als als1, Als als2, int i, int j, boolean withOverlap,
+            List<RestrictedCommon> rcs) {
+        // check whether the ALS overlap (intersectionSet is needed later on anyway)
+        intersectionSet.set(als1.indices);
+        intersectionSet.and(als2.indices);
+        if (!withOverlap && !intersectionSet.isEmpty()) {
+            // overlap is not allowed!
+            return;
+        }
+        //if (DEBUG) System.out.println("als2: " + SolutionStep.getAls(als2));
+        // restricted common: all buddies + the positions of the candidates themselves ANDed
+        // check whether als1 and als2 have common candidates
+        possibleRestrictedCommonsSet = als1.candidates;
+        possibleRestrictedCommonsSet &= als2.candidates;
+        // possibleRestrictedCommons now contains all candidates common to both ALS
+        if (possibleRestrictedCommonsSet == 0) {
+            // nothing to do!
+            return;
+        }
+        // number of RC candidates found for this ALS combination
+        int rcAnz = 0;
+        RestrictedCommon newRC = null;
+        int[] prcs = Sudoku2.POSSIBLE_VALUES[possibleRestrictedCommonsSet];
+        for (int k = 0; k < prcs.length; k++) {
+            int cand = prcs[k];
+            // Get all positions of cand in both ALS
+            restrictedCommonIndexSet.set(als1.indicesPerCandidat[cand]);
+            restrictedCommonIndexSet.or(als2.indicesPerCandidat[cand]);
+            // non of these positions may be in the overlapping area of the two ALS
+            if (!restrictedCommonIndexSet.andEmpty(intersectionSet)) {
+                // at least on occurence of cand is in overlap -> forbidden
+                continue;
+            }
+            // now check if all those candidates see each other
+            restrictedCommonBuddiesSet.setAnd(als1.buddiesAlsPerCandidat[cand],
+                    als2.buddiesAlsPerCandidat[cand]);
+            // we now know all common buddies, all common candidates must be in that set
+            if (restrictedCommonIndexSet.andEquals(restrictedCommonBuddiesSet)) {
+                // found -> cand is RC
+                if (rcAnz == 0) {
+                    newRC = new RestrictedCommon(i, j, cand);
+                    rcs.add(newRC);
+                    anzRcs++;
+                } else {
+                    newRC.setCand2(cand);
+                }
+                rcAnz++;
+            }
+        }
+    }
+
     /**
      * Do some statistics.
      * @return
@@ -1320,4 +1910,22 @@ public class SudokuStepFinder {
 //        fishSolver.printStatistics();
 //        chainSolver.printStatistics();
     }
+
+    /**
+     * One cached ALS list (see {@link #getAlses(boolean) }).
+     */
+    private static class AlsCache {
+        /** The ALS list. */
+        List<Als> alses = null;
+        /** Step number for which {@link #alses} was computed. */
+        int stepNumber = -1;
+        /** The candidates of all cells at the time {@link #alses} was computed. */
+        short[] cells = new short[Sudoku2.LENGTH];
+        /** The values of all cells at the time {@link #alses} was computed. */
+        int[] values = new int[Sudoku2.LENGTH];
+        /** The list {@link #alses} has been updated from (<code>null</code> if it was recomputed). */
+        List<Als> previous = null;
+        /** For every ALS in {@link #alses} the index in {@link #previous} or -1, if the ALS has changed. */
+        int[] previousIndices = null;
+    }
 }
@@ -417,6 +417,18 @@ public class TablingSolver extends AbstractSolver {
         tmpChainsIndex = 0;
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.NICE_LOOP, SolutionType.CONTINUOUS_NICE_LOOP, SolutionType.DISCONTINUOUS_NICE_LOOP,
+            SolutionType.AIC, SolutionType.GROUPED_NICE_LOOP, SolutionType.GROUPED_CONTINUOUS_NICE_LOOP,
+            SolutionType.GROUPED_DISCONTINUOUS_NICE_LOOP, SolutionType.GROUPED_AIC,
+            SolutionType.FORCING_CHAIN, SolutionType.FORCING_CHAIN_CONTRADICTION,
+            SolutionType.FORCING_CHAIN_VERITY, SolutionType.FORCING_NET,
+            SolutionType.FORCING_NET_CONTRADICTION, SolutionType.FORCING_NET_VERITY
+        };
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -479,9 +491,7 @@ public class TablingSolver extends AbstractSolver {
             case GROUPED_CONTINUOUS_NICE_LOOP:
             case GROUPED_DISCONTINUOUS_NICE_LOOP:
             case GROUPED_AIC:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                }
+                deleteCandidates(step);
                 break;
             case FORCING_CHAIN:
             case FORCING_CHAIN_CONTRADICTION:
@@ -496,9 +506,7 @@ public class TablingSolver extends AbstractSolver {
                         sudoku.setCell(index, value);
                     }
                 } else {
-                    for (Candidate cand : step.getCandidatesToDelete()) {
-                        sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                    }
+                    deleteCandidates(step);
                 }
                 break;
             default:
@@ -771,6 +779,9 @@ public class TablingSolver extends AbstractSolver {
         printTableAnz();
         //printTable("r5c6=2 expand", onTable[412]);
         //printTable("r8c6<>4 expand", offTable[684]);
+        if (finder.isCancelled()) {
+            return;
+        }
 
         // ok, here it starts!
         ticks = System.currentTimeMillis();
@@ -826,6 +837,9 @@ public class TablingSolver extends AbstractSolver {
         printTableAnz();
         //printTable("r6c8=1 expand", onTable[521]);
         //printTable("r6c8<>1 expand", offTable[521]);
+        if (finder.isCancelled()) {
+            return;
+        }
 
         if (chainsOnly == true) {
             // ok, hier beginnt der Spass!
@@ -851,6 +865,9 @@ public class TablingSolver extends AbstractSolver {
                 printTable("r2c1=8 nets", onTable[98], alses);
             }
             printTableAnz();
+            if (finder.isCancelled()) {
+                return;
+            }
 
             // ok, hier beginnt der Spass!
             nanos = System.nanoTime();
@@ -875,7 +892,7 @@ public class TablingSolver extends AbstractSolver {
 
         if (DEBUG) {
 //            for (SolutionStep step : steps) {
-//                if (step.getCandidatesToDelete().get(0).getIndex() == 3 && step.getCandidatesToDelete().get(0).getValue() == 5) {
+//                if (step.getPackedCandidatesToDelete().get(0).getIndex() == 3 && step.getPackedCandidatesToDelete().get(0).getValue() == 5) {
 //                    System.out.println("==================================");
 //                    System.out.println("   " + step.toString(2));
 //                    List<Chain> chains = step.getChains();
@@ -1104,9 +1121,9 @@ public class TablingSolver extends AbstractSolver {
                 dest.getValues().set(i, src.getValues().get(i));
             }
         } else {
-            dest.getCandidatesToDelete().clear();
-            for (int i = 0; i < src.getCandidatesToDelete().size(); i++) {
-                dest.getCandidatesToDelete().add(src.getCandidatesToDelete().get(i));
+            dest.getPackedCandidatesToDelete().clear();
+            for (int i = 0; i < src.getPackedCandidatesToDelete().size(); i++) {
+                dest.getPackedCandidatesToDelete().add(src.getPackedCandidatesToDelete().get(i));
             }
         }
         // copy all ALS
@@ -1116,9 +1133,9 @@ public class TablingSolver extends AbstractSolver {
                 dest.addAls(src.getAlses().get(i));
             }
         }
-        dest.getEndoFins().clear();
-        for (int i = 0; i < src.getEndoFins().size(); i++) {
-            dest.getEndoFins().add(src.getEndoFins().get(i));
+        dest.getPackedEndoFins().clear();
+        for (int i = 0; i < src.getPackedEndoFins().size(); i++) {
+            dest.getPackedEndoFins().add(src.getPackedEndoFins().get(i));
         }
         dest.setEntity(src.getEntity());
         dest.setEntityNumber(src.getEntityNumber());
@@ -1196,7 +1213,7 @@ public class TablingSolver extends AbstractSolver {
         }
 
         String del;
-        if (globalStep.getCandidatesToDelete().size() > 0) {
+        if (globalStep.getPackedCandidatesToDelete().size() > 0) {
             // candidates can be deleted
             del = globalStep.getCandidateString();
         } else {
@@ -1894,7 +1911,7 @@ public class TablingSolver extends AbstractSolver {
             }
         }
 
-        if (!globalStep.getCandidatesToDelete().isEmpty()) {
+        if (!globalStep.getPackedCandidatesToDelete().isEmpty()) {
             // ok, this is a valid step!
             // check for group or ALS nodes
             boolean grouped = false;
@@ -2059,6 +2076,11 @@ public class TablingSolver extends AbstractSolver {
 
         if (chainsOnly) {
             // collect only direct links -> should create only chains, not nets
+            // the links are taken from the link graph of the finder
+            LinkGraph graph = finder.getLinkGraph();
+            int[] links = graph.getLinks();
+            int[] startIndices = graph.getStartIndices();
+            int[] endIndices = graph.getEndIndices();
             for (int i = 0; i < sudoku.getCells().length; i++) {
                 if (sudoku.getValue(i) != 0) {
                     // cell not empty -> ignore
@@ -2071,56 +2093,37 @@ public class TablingSolver extends AbstractSolver {
                     }
                     // ok, valid candidate: collect the links
                     int cand = j;
+                    int node = i * 10 + cand;
 
-                    onTable[i * 10 + cand].addEntry(i, cand, true);
-                    offTable[i * 10 + cand].addEntry(i, cand, false);
+                    onTable[node].addEntry(i, cand, true);
+                    offTable[node].addEntry(i, cand, false);
                     // candidate ON deletes all other candidates from the cell and
                     // the candidate itself from all other cells in the houses
                     // candidate OFF sets all resulting singles (hidden und naked)
                     // all collected results depend directly on the premise, so
                     // retIndex is always 0
-
-                    // first the candidates in the cell itself
-                    int[] cands = sudoku.getAllCandidates(i);
-                    for (int k = 0; k < cands.length; k++) {
-                        int otherCand = cands[k];
-                        if (otherCand == cand) {
-                            // not cand itself
-                            continue;
-                        }
-                        // if cand is ON, otherCand has to be OFF
-                        onTable[i * 10 + cand].addEntry(i, otherCand, false);
-//                        if (sudoku.getAnzCandidates(i) == 2) {
-                        if (cands.length == 2) {
-                            // only two candidates in cell -> if
-                            // cand is OFF, otherCand has to be ON
-                            offTable[i * 10 + cand].addEntry(i, otherCand, true);
+                    for (int k = startIndices[node]; k < endIndices[node]; k++) {
+                        int link = links[k];
+                        int index2 = Chain.getSCellIndex(link);
+                        if (index2 == i) {
+                            // other candidate in the cell: if cand is ON, otherCand has to be OFF
+                            int otherCand = Chain.getSCandidate(link);
+                            onTable[node].addEntry(i, otherCand, false);
+                            if (Chain.isSStrong(link)) {
+                                // only two candidates in cell -> if
+                                // cand is OFF, otherCand has to be ON
+                                offTable[node].addEntry(i, otherCand, true);
+                            }
+                        } else {
+                            // if cand is ON, all other candidates in the houses are OFF
+                            onTable[node].addEntry(index2, cand, false);
                         }
                     }
-                    tmpSet1.set(finder.getCandidates()[cand]);
-                    tmpSet1.remove(i);
                     for (int constrIndex = 0; constrIndex < Sudoku2.CONSTRAINTS[i].length; constrIndex++) {
-                        // number of candidates remaining in the current house: 1 - only
-                        // cand itself; 2 - strong link; > 2 - weak links
-                        int constr = Sudoku2.CONSTRAINTS[i][constrIndex];
-                        int anzCands = sudoku.getFree()[constr][cand];
-                        if (anzCands < 2) {
-                            // nothing to do
-                            continue;
-                        }
-                        // get the candidates
-                        tmpSet.setAnd(tmpSet1, Sudoku2.ALL_CONSTRAINTS_TEMPLATES[constr]);
-                        if (tmpSet.isEmpty()) {
-                            // no candidates left...
-                            continue;
-                        }
-                        for (int k = 0; k < tmpSet.size(); k++) {
-                            // if cand is ON, all other candidates are OFF
-                            onTable[i * 10 + cand].addEntry(tmpSet.get(k), cand, false);
-                        }
-                        if (anzCands == 2) {
+                        int index2 = graph.getConjugate(i, cand, constrIndex);
+                        if (index2 != -1) {
                             // strong link: if cand is OFF, the other candidate has to be ON
-                            offTable[i * 10 + cand].addEntry(tmpSet.get(0), cand, true);
+                            offTable[node].addEntry(index2, cand, true);
                         }
                     }
                 }
@@ -2213,8 +2216,12 @@ public class TablingSolver extends AbstractSolver {
      * in arbitrary order.
      */
     private void fillTablesWithGroupNodes() {
-        // get all the group nodes
+        // get all the group nodes and their links
         groupNodes = finder.getGroupNodes();
+        LinkGraph graph = finder.getLinkGraphWithGroupNodes();
+        int[] links = graph.getGroupNodeLinks();
+        int[] startIndices = graph.getGroupNodeStartIndices();
+        int[] endIndices = graph.getGroupNodeEndIndices();
         // now handle them
         for (int i = 0; i < groupNodes.size(); i++) {
             GroupNode gn = groupNodes.get(i);
@@ -2235,132 +2242,43 @@ public class TablingSolver extends AbstractSolver {
                 //System.out.println("GN: " + Chain.toString(offEntry.entries[0]) + "(" + (extendedTableIndex - 1) + "/" + offEntry.entries[0] + ")");
             }
 
-            // ok: collect candidates that can see the group node
-            tmpSet.setAnd(finder.getCandidates()[gn.cand], gn.buddies);
-            if (!tmpSet.isEmpty()) {
-                // every candidate that can see the group node is turned of by the on-entry
-                // every candidate's onTable triggers the offEntry
-                for (int j = 0; j < tmpSet.size(); j++) {
-                    int index = tmpSet.get(j);
-                    onEntry.addEntry(index, gn.cand, false);
-                    TableEntry tmp = onTable[index * 10 + gn.cand];
-                    tmp.addEntry(gn.index1, gn.index2, gn.index3, Chain.GROUP_NODE, gn.cand, false, 0, 0, 0, 0, 0, 0);
-                }
-                // if in a given house only one additional candidate exists, it is turned on by the off-entry
-                // the candidates offTable triggers the onEntry
-                tmpSet1.setAnd(tmpSet, Sudoku2.BLOCK_TEMPLATES[gn.block]);
-                if (!tmpSet1.isEmpty() && tmpSet1.size() == 1) {
-                    offEntry.addEntry(tmpSet1.get(0), gn.cand, true);
-                    TableEntry tmp = offTable[tmpSet1.get(0) * 10 + gn.cand];
-                    tmp.addEntry(gn.index1, gn.index2, gn.index3, Chain.GROUP_NODE, gn.cand, true, 0, 0, 0, 0, 0, 0);
-                }
-                tmpSet1.set(tmpSet);
-                if (gn.line != -1) {
-                    tmpSet1.and(Sudoku2.LINE_TEMPLATES[gn.line]);
-                } else {
-                    tmpSet1.and(Sudoku2.COL_TEMPLATES[gn.col]);
-                }
-                if (!tmpSet1.isEmpty() && tmpSet1.size() == 1) {
-                    offEntry.addEntry(tmpSet1.get(0), gn.cand, true);
-                    TableEntry tmp = offTable[tmpSet1.get(0) * 10 + gn.cand];
-                    tmp.addEntry(gn.index1, gn.index2, gn.index3, Chain.GROUP_NODE, gn.cand, true, 0, 0, 0, 0, 0, 0);
-                }
-            }
-
-            // next: a group node can of course be connected to another group node
-            // check all other group nodes for the same candidate: if they share one of
-            // the houses but don't overlap, they are connected
-            // NOTE: there cant be more than three group nodes in one house
-            int lineAnz = 0;
-            int line1Index = -1;
-            int colAnz = 0;
-            int col1Index = -1;
-            int blockAnz = 0;
-            int block1Index = -1;
-            GroupNode gn2;
-            for (int j = 0; j < groupNodes.size(); j++) {
-                gn2 = groupNodes.get(j);
-                if (j == i) {
-                    // thats us, skip
-                    continue;
-                }
-                if (gn.cand != gn2.cand) {
-                    // wrong candidate -> skip
-                    continue;
-                }
-                // check for overlap
-                tmpSet2.set(gn.indices);
-                if (!tmpSet2.andEmpty(gn2.indices)) {
-                    // group nodes do overlap -> skip
-                    continue;
-                }
-                if (gn.line != -1 && gn.line == gn2.line) {
-                    // store it for later use
-                    lineAnz++;
-                    if (lineAnz == 1) {
-                        line1Index = j;
-                    }
-                    // group node is in the same line -> on-entry turns it off
-                    onEntry.addEntry(gn2.index1, gn2.index2, gn2.index3, Chain.GROUP_NODE, gn.cand, false, 0, 0, 0, 0, 0, 0);
-                }
-                if (gn.col != -1 && gn.col == gn2.col) {
-                    // store it for later use
-                    colAnz++;
-                    if (colAnz == 1) {
-                        col1Index = j;
-                    }
-                    // group node is in the same col -> on-entry turns it off
-                    onEntry.addEntry(gn2.index1, gn2.index2, gn2.index3, Chain.GROUP_NODE, gn.cand, false, 0, 0, 0, 0, 0, 0);
-                }
-                if (gn.block == gn2.block) {
-                    // store it for later use
-                    blockAnz++;
-                    if (blockAnz == 1) {
-                        block1Index = j;
-                    }
-                    // group node is in the same block -> on-entry turns it off
-                    onEntry.addEntry(gn2.index1, gn2.index2, gn2.index3, Chain.GROUP_NODE, gn.cand, false, 0, 0, 0, 0, 0, 0);
-                }
-            }
-            // if in one house was only one additional group node and if there is no additional single candidate
-            // in that same house -> group node is turned on by off-entry
-            // has to be done in seperate blocks,sincemore than one condition can be true!
-            if (lineAnz == 1) {
-                gn2 = groupNodes.get(line1Index);
-                tmpSet.set(Sudoku2.LINE_TEMPLATES[gn.line]);
-                tmpSet.and(finder.getCandidates()[gn.cand]);
-                tmpSet.andNot(gn.indices);
-                tmpSet.andNot(gn2.indices);
-                if (tmpSet.isEmpty()) {
-                    // no additional candidates -> write it
-                    offEntry.addEntry(gn2.index1, gn2.index2, gn2.index3, Chain.GROUP_NODE, gn.cand, true, 0, 0, 0, 0, 0, 0);
-                }
-            }
-            if (colAnz == 1) {
-                gn2 = groupNodes.get(col1Index);
-                tmpSet.set(Sudoku2.COL_TEMPLATES[gn.col]);
-                tmpSet.and(finder.getCandidates()[gn.cand]);
-                tmpSet.andNot(gn.indices);
-                tmpSet.andNot(gn2.indices);
-                if (tmpSet.isEmpty()) {
-                    // no additional candidates -> write it
-                    offEntry.addEntry(gn2.index1, gn2.index2, gn2.index3, Chain.GROUP_NODE, gn.cand, true, 0, 0, 0, 0, 0, 0);
-                }
+            // every candidate that can see the group node and every group node,
+            // that shares a house with it, is turned off by the on-entry;
+            // every candidate's onTable triggers the offEntry
+            for (int j = startIndices[i * 2]; j < endIndices[i * 2]; j++) {
+                addGroupNodeLink(onEntry, links[j], gn, onTable, false);
             }
-            if (blockAnz == 1) {
-                gn2 = groupNodes.get(block1Index);
-                tmpSet.set(Sudoku2.BLOCK_TEMPLATES[gn.block]);
-                tmpSet.and(finder.getCandidates()[gn.cand]);
-                tmpSet.andNot(gn.indices);
-                tmpSet.andNot(gn2.indices);
-                if (tmpSet.isEmpty()) {
-                    // no additional candidates -> write it
-                    offEntry.addEntry(gn2.index1, gn2.index2, gn2.index3, Chain.GROUP_NODE, gn.cand, true, 0, 0, 0, 0, 0, 0);
-                }
+            // if in a given house only one additional candidate or group node exists,
+            // it is turned on by the off-entry; the candidates offTable triggers the onEntry
+            for (int j = startIndices[i * 2 + 1]; j < endIndices[i * 2 + 1]; j++) {
+                addGroupNodeLink(offEntry, links[j], gn, offTable, true);
             }
         }
     }
 
+    /**
+     * Adds one link of the {@link LinkGraph} to the table of a group node. If the
+     * link points to a normal node, the group node is added to the table of
+     * that node as well.
+     *
+     * @param entry The table of the group node
+     * @param link The link
+     * @param gn The group node
+     * @param tables {@link #onTable} for weak links, {@link #offTable} for strong links
+     * @param set <code>true</code> for strong links
+     */
+    private void addGroupNodeLink(TableEntry entry, int link, GroupNode gn, TableEntry[] tables, boolean set) {
+        int cellIndex = Chain.getSCellIndex(link);
+        if (Chain.getSNodeType(link) == Chain.GROUP_NODE) {
+            entry.addEntry(cellIndex, Chain.getSCellIndex2(link), Chain.getSCellIndex3(link),
+                    Chain.GROUP_NODE, gn.cand, set, 0, 0, 0, 0, 0, 0);
+        } else {
+            entry.addEntry(cellIndex, gn.cand, set);
+            TableEntry tmp = tables[cellIndex * 10 + gn.cand];
+            tmp.addEntry(gn.index1, gn.index2, gn.index3, Chain.GROUP_NODE, gn.cand, set, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
     /**
      * Collect all ALS and handle them correctly.<br><br>
      *
@@ -2926,6 +2844,10 @@ public class TablingSolver extends AbstractSolver {
     private void expandTables() {
         // for every entry in all tables do...
         for (int i = 0; i < onTable.length; i++) {
+            if (finder.isCancelled()) {
+                // result is not needed anymore
+                return;
+            }
             if (onTable[i].index == 0) {
                 // cell is set -> no implications
                 continue;
@@ -2934,6 +2856,9 @@ public class TablingSolver extends AbstractSolver {
             expandTable(onTable[i], i / 10, i % 10, true, 1, -1);
         }
         for (int i = 0; i < offTable.length; i++) {
+            if (finder.isCancelled()) {
+                return;
+            }
             if (offTable[i].index == 0) {
                 // cell is set -> no implications
                 continue;
@@ -3106,7 +3031,7 @@ public class TablingSolver extends AbstractSolver {
             createNets();
             newEntryAnz = getTableAnz();
 //            System.out.println("createNets() end: " + count + "/" + newEntryAnz);
-        } while (newEntryAnz > entryAnz);
+        } while (newEntryAnz > entryAnz && !finder.isCancelled());
         if (DEBUG) {
             nanos = System.nanoTime() - nanos;
             System.out.println("createAllNets(): " + (nanos / 1000000l) + "ms (" + count + " iterations)");
@@ -3123,12 +3048,19 @@ public class TablingSolver extends AbstractSolver {
 //            printTable("r7c1=8", onTable[548], alses);
         }
         for (int i = 0; i < onTable.length; i++) {
+            if (finder.isCancelled()) {
+                // result is not needed anymore
+                return;
+            }
             if (onTable[i].index == 0) {
                 continue;
             }
             createNet(onTable[i], i / 10, i % 10, true);
         }
         for (int i = 0; i < offTable.length; i++) {
+            if (finder.isCancelled()) {
+                return;
+            }
             if (offTable[i].index == 0) {
                 continue;
             }
@@ -4255,7 +4187,7 @@ public class TablingSolver extends AbstractSolver {
             } else {
                 // eliminate candidates
                 // number of candidates to eliminate (descending)
-                int result = o2.getCandidatesToDelete().size() - o1.getCandidatesToDelete().size();
+                int result = o2.getPackedCandidatesToDelete().size() - o1.getPackedCandidatesToDelete().size();
                 if (result != 0) {
                     return result;
                 }
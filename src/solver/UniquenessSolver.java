@@ -27,6 +27,7 @@ import java.util.logging.Logger;
 import sudoku.Candidate;
 import sudoku.ClipboardMode;
 import sudoku.Options;
+import sudoku.PackedIntSet;
 import sudoku.SolutionStep;
 import sudoku.SolutionType;
 import sudoku.Sudoku2;
@@ -81,6 +82,43 @@ public class UniquenessSolver extends AbstractSolver {
         super(finder);
     }
 
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.UNIQUENESS_1, SolutionType.UNIQUENESS_2, SolutionType.UNIQUENESS_3,
+            SolutionType.UNIQUENESS_4, SolutionType.UNIQUENESS_5, SolutionType.UNIQUENESS_6,
+            SolutionType.HIDDEN_RECTANGLE, SolutionType.AVOIDABLE_RECTANGLE_1,
+            SolutionType.AVOIDABLE_RECTANGLE_2, SolutionType.BUG_PLUS_1
+        };
+    }
+
+    @Override
+    protected boolean isApplicable(SolutionType type) {
+        switch (type) {
+            case UNIQUENESS_1:
+            case UNIQUENESS_2:
+            case UNIQUENESS_3:
+            case UNIQUENESS_4:
+            case UNIQUENESS_5:
+            case UNIQUENESS_6:
+            case HIDDEN_RECTANGLE:
+                // the search starts from bivalue cells
+                return finder.getAnzCellsWithCandidates(2) > 0;
+            case BUG_PLUS_1:
+                // exactly one trivalue cell, no cell with more candidates
+                if (finder.getAnzCellsWithCandidates(3) != 1) {
+                    return false;
+                }
+                for (int i = 4; i <= 9; i++) {
+                    if (finder.getAnzCellsWithCandidates(i) != 0) {
+                        return false;
+                    }
+                }
+                return true;
+        }
+        return true;
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -129,18 +167,21 @@ public class UniquenessSolver extends AbstractSolver {
             case AVOIDABLE_RECTANGLE_1:
             case AVOIDABLE_RECTANGLE_2:
             case BUG_PLUS_1:
-                if (step.getCandidatesToDelete().isEmpty()) {
+                PackedIntSet candidatesToDelete = step.getPackedCandidatesToDelete();
+                if (candidatesToDelete.isEmpty()) {
                     System.out.println("ERROR: No candidate to delete!");
                     System.out.println(step.toString(2));
                     System.out.println(sudoku.getSudoku(ClipboardMode.LIBRARY));
                 }
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    if (! sudoku.isCandidate(cand.getIndex(), cand.getValue())) {
-                        System.out.println("ERROR: " + cand.getIndex() + "/" + cand.getValue());
+                for (int i = 0; i < candidatesToDelete.size(); i++) {
+                    int index = Candidate.getPackedIndex(candidatesToDelete.get(i));
+                    int value = Candidate.getPackedValue(candidatesToDelete.get(i));
+                    if (! sudoku.isCandidate(index, value)) {
+                        System.out.println("ERROR: " + index + "/" + value);
                         System.out.println(step.toString(2));
                         System.out.println(sudoku.getSudoku(ClipboardMode.LIBRARY));
                     }
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
+                    sudoku.delCandidate(index, value);
                 }
                 break;
             default:
@@ -337,7 +378,7 @@ public class UniquenessSolver extends AbstractSolver {
                     globalStep.addCandidateToDelete(index3, candArr[i]);
                 }
             }
-            return (SolutionStep) globalStep.clone();
+            return finder.copyStep(globalStep);
         }
         return null;
     }
@@ -480,8 +521,8 @@ public class UniquenessSolver extends AbstractSolver {
             if (sudoku.isCandidate(delIndex, cand2)) {
                 globalStep.addCandidateToDelete(delIndex, cand2);
             }
-            if (globalStep.getCandidatesToDelete().size() > 0) {
-                step = (SolutionStep) globalStep.clone();
+            if (globalStep.getPackedCandidatesToDelete().size() > 0) {
+                step = finder.copyStep(globalStep);
                 if (onlyOne) {
                     if (searchType == step.getType()) {
                         return step;
@@ -529,7 +570,7 @@ public class UniquenessSolver extends AbstractSolver {
                     for (int i = 0; i < tmpSet.size(); i++) {
                         globalStep.addCandidateToDelete(tmpSet.get(i), addCand);
                     }
-                    step = (SolutionStep) globalStep.clone();
+                    step = finder.copyStep(globalStep);
                     if (onlyOne) {
                         if (searchType == step.getType()) {
                             return step;
@@ -617,8 +658,8 @@ public class UniquenessSolver extends AbstractSolver {
                     if (sudoku.isCandidate(i2, delCand)) {
                         globalStep.addCandidateToDelete(i2, delCand);
                     }
-                    if (globalStep.getCandidatesToDelete().size() > 0) {
-                        step = (SolutionStep) globalStep.clone();
+                    if (globalStep.getPackedCandidatesToDelete().size() > 0) {
+                        step = finder.copyStep(globalStep);
                         if (onlyOne) {
                             if (searchType == step.getType()) {
                                 return step;
@@ -665,8 +706,8 @@ public class UniquenessSolver extends AbstractSolver {
                     if (sudoku.isCandidate(i2, delCand)) {
                         globalStep.addCandidateToDelete(i2, delCand);
                     }
-                    if (globalStep.getCandidatesToDelete().size() > 0) {
-                        step = (SolutionStep) globalStep.clone();
+                    if (globalStep.getPackedCandidatesToDelete().size() > 0) {
+                        step = finder.copyStep(globalStep);
                         if (onlyOne) {
                             if (searchType == step.getType()) {
                                 return step;
@@ -739,8 +780,8 @@ public class UniquenessSolver extends AbstractSolver {
                     globalStep.addCandidateToDelete(index21, cand2);
                 }
             }
-            if (globalStep.getCandidatesToDelete().size() > 0) {
-                step = (SolutionStep) globalStep.clone();
+            if (globalStep.getPackedCandidatesToDelete().size() > 0) {
+                step = finder.copyStep(globalStep);
                 if (onlyOne) {
                     if (type == SolutionType.AVOIDABLE_RECTANGLE_1) {
                         return step;
@@ -777,7 +818,7 @@ public class UniquenessSolver extends AbstractSolver {
             }
             globalStep.addEndoFin(index21, additionalCand);
             globalStep.addEndoFin(index22, additionalCand);
-            step = (SolutionStep) globalStep.clone();
+            step = finder.copyStep(globalStep);
             if (onlyOne) {
                 if (type == SolutionType.AVOIDABLE_RECTANGLE_2) {
                     return step;
@@ -866,8 +907,8 @@ public class UniquenessSolver extends AbstractSolver {
         if (sudoku.isCandidate(delIndex, cand2)) {
             globalStep.addCandidateToDelete(delIndex, cand2);
         }
-        if (globalStep.getCandidatesToDelete().size() > 0) {
-            SolutionStep step = (SolutionStep) globalStep.clone();
+        if (globalStep.getPackedCandidatesToDelete().size() > 0) {
+            SolutionStep step = finder.copyStep(globalStep);
             if (onlyOne) {
                 if (type == step.getType()) {
                     return step;
@@ -970,7 +1011,7 @@ public class UniquenessSolver extends AbstractSolver {
                         }
                     }
                     // do we have a step?
-                    if (globalStep.getCandidatesToDelete().size() > 0) {
+                    if (globalStep.getPackedCandidatesToDelete().size() > 0) {
                         // write the fins
                         int[] aktCandsArray = Sudoku2.POSSIBLE_VALUES[aktCands];
                         for (int k = 0; k < aktCandsArray.length; k++) {
@@ -1008,7 +1049,7 @@ public class UniquenessSolver extends AbstractSolver {
                                 }
                             }
                         }
-                        step = (SolutionStep) globalStep.clone();
+                        step = finder.copyStep(globalStep);
                         if (onlyOne) {
                             if (searchType == step.getType()) {
                                 return step;
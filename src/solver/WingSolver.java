@@ -21,7 +21,6 @@ package solver;
 
 import java.util.ArrayList;
 import java.util.List;
-import sudoku.Candidate;
 import sudoku.ClipboardMode;
 import sudoku.SolutionStep;
 import sudoku.SolutionType;
@@ -60,6 +59,30 @@ public class WingSolver extends AbstractSolver {
         super(finder);
     }
     
+    @Override
+    protected SolutionType[] getSolutionTypes() {
+        return new SolutionType[]{
+            SolutionType.XY_WING, SolutionType.XYZ_WING, SolutionType.W_WING
+        };
+    }
+
+    @Override
+    protected boolean isApplicable(SolutionType type) {
+        int anzBivalue = finder.getAnzCellsWithCandidates(2);
+        switch (type) {
+            case XY_WING:
+                // three bivalue cells
+                return anzBivalue >= 3;
+            case XYZ_WING:
+                // one trivalue and two bivalue cells
+                return anzBivalue >= 2 && finder.getAnzCellsWithCandidates(3) >= 1;
+            case W_WING:
+                // two bivalue cells
+                return anzBivalue >= 2;
+        }
+        return true;
+    }
+
     @Override
     protected SolutionStep getStep(SolutionType type) {
         SolutionStep result = null;
@@ -86,9 +109,7 @@ public class WingSolver extends AbstractSolver {
             case XY_WING:
             case W_WING:
             case XYZ_WING:
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    sudoku.delCandidate(cand.getIndex(), cand.getValue());
-                }
+                deleteCandidates(step);
                 break;
             default:
                 handled = false;
@@ -261,7 +282,7 @@ public class WingSolver extends AbstractSolver {
                         for (int l = 0; l < elimSet.size(); l++) {
                             globalStep.addCandidateToDelete(elimSet.get(l), candZ);
                         }
-                        SolutionStep step = (SolutionStep) globalStep.clone();
+                        SolutionStep step = finder.copyStep(globalStep);
                         if (onlyOne) {
                             return step;
                         } else {
@@ -398,7 +419,7 @@ public class WingSolver extends AbstractSolver {
         for (int i = 0; i < elimSet.size(); i++) {
             globalStep.addCandidateToDelete(elimSet.get(i), cand1);
         }
-        SolutionStep step = (SolutionStep) globalStep.clone();
+        SolutionStep step = finder.copyStep(globalStep);
         if (onlyOne) {
             return step;
         } else {
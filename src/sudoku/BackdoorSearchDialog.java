@@ -19,8 +19,6 @@
 package sudoku;
 
 import java.awt.EventQueue;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.ResourceBundle;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -28,7 +26,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.DefaultListModel;
 import javax.swing.JOptionPane;
-import solver.SudokuSolver;
+import solver.BackdoorSearch;
+import solver.BackdoorSearchListener;
 
 /**
  *
@@ -37,20 +36,14 @@ import solver.SudokuSolver;
 @SuppressWarnings("serial")
 public class BackdoorSearchDialog extends javax.swing.JDialog implements Runnable {
 
-    private static final int MAX_FOUND = 100;
     private static final long serialVersionUID = 1L;
     private DefaultListModel singlesListModel;
     private DefaultListModel progressListModel;
     private SudokuPanel sudokuPanel;
-    private Sudoku2 sudoku;
     private Sudoku2 orgSudoku;
-//    private Sudoku2 solvedSudoku;
-    private SudokuSolver solver;
-    private List<Candidate> candidates = new ArrayList<Candidate>();
     private BlockingQueue<String> singlesQueue = new ArrayBlockingQueue<String>(20);
     private BlockingQueue<String> progressQueue = new ArrayBlockingQueue<String>(20);
     private Thread thread;
-    private volatile int anzFound;
     private Runnable updateRunnable = new Runnable() {
 
         @Override
@@ -425,91 +418,32 @@ public class BackdoorSearchDialog extends javax.swing.JDialog implements Runnabl
     }
 
     /**
-     * The search is done in a background thread: A maximum of 12 searches is conducted
-     * (singles/progress, cells/candidates, up to combinations of three).<br>
+     * The search is done in a background thread: A maximum of 4 searches is conducted
+     * (singles/progress, cells/candidates), each of them for combinations of up
+     * to three cells/candidates. The searches itself are done by {@link BackdoorSearch}
+     * (on all available processors).<br>
      */
     @Override
     public void run() {
 //        System.out.println("Thread started!");
         orgSudoku = sudokuPanel.getSudoku().clone();
-        //solvedSudoku = sudokuPanel.getSolvedSudoku();
-        sudoku = orgSudoku.clone();
-        solver = sudokuPanel.getSolver();
         // makes sure the GUI is correctly displayed
         EventQueue.invokeLater(updateRunnable);
         try {
             // search for singles first
             if (Options.getInstance().isBdsSearchForCells()) {
-                // we need the number of unsolved cells
-                int anz = orgSudoku.getUnsolvedCellsAnz();
-                //System.out.println("thread: search 1");
                 // singles backdoor: singles only
-                setAnzFound(0);
-                if (!checkSingles(1, anz, null)) {
-                    int maxAnz = SudokuUtil.combinations(anz, 2);
-                    //System.out.println("thread: search 2");
-                    if (!checkSingles(2, maxAnz, null)) {
-                        //System.out.println("thread: search 3");
-                        maxAnz = SudokuUtil.combinations(anz, 3);
-                        checkSingles(3, maxAnz, null);
-                        //System.out.println("Thread: done");
-                    }
-                }
+                doSearch(true, null, BackdoorSearch.MAX_DEPTH);
                 // singles backdoor: progress measure
-                setAnzFound(0);
-                if (!checkSingles(1, anz, Options.getInstance().solverStepsProgress)) {
-                    int maxAnz = SudokuUtil.combinations(anz, 2);
-                    //System.out.println("thread: search 2");
-                    if (!checkSingles(2, maxAnz, Options.getInstance().solverStepsProgress)) {
-                        //System.out.println("thread: search 3");
-                        maxAnz = SudokuUtil.combinations(anz, 3);
-                        checkSingles(3, maxAnz, Options.getInstance().solverStepsProgress);
-                        //System.out.println("Thread: done");
-                    }
-                }
+                doSearch(true, Options.getInstance().solverStepsProgress, BackdoorSearch.MAX_DEPTH);
             }
             // now for candidates
             if (Options.getInstance().isBdsSearchForCandidates()) {
-                // collect all candidates
-                int anz = 0;
-                //SudokuCell[] cells = orgSudoku.getCells();
-                candidates.clear();
-                for (int i = 0; i < Sudoku2.LENGTH; i++) {
-                    if (sudoku.getValue(i) == 0) {
-                        int[] cands = sudoku.getAllCandidates(i);
-                        for (int j = 0; j < cands.length; j++) {
-                            if (cands[j] != sudoku.getSolution(i)) {
-                                candidates.add(new Candidate(i, cands[j]));
-                                anz++;
-                            }
-                        }
-                    }
-                }
-                // candidates backdoor: singles only
-                setAnzFound(0);
                 int maxDepth = Options.getInstance().getBdsSearchCandidatesAnz() + 1;
-                if (!checkCandidates(1, anz, candidates, null) && maxDepth > 1) {
-                    int maxAnz = SudokuUtil.combinations(anz, 2);
-                    //System.out.println("thread: search 2 (" + maxAnz + ")");
-                    if (!checkCandidates(2, maxAnz, candidates, null) && maxDepth > 2) {
-                        maxAnz = SudokuUtil.combinations(anz, 3);
-                        //System.out.println("thread: search 3 (" + maxAnz + ")");
-                        checkCandidates(3, maxAnz, candidates, null);
-                        //System.out.println("Thread: done");
-                    }
-                }
+                // candidates backdoor: singles only
+                doSearch(false, null, maxDepth);
                 // candidates backdoor: progress measure
-                setAnzFound(0);
-                if (!checkCandidates(1, anz, candidates, Options.getInstance().solverStepsProgress) && maxDepth > 1) {
-                    int maxAnz = SudokuUtil.combinations(anz, 2);
-                    //System.out.println("thread: search 2 (" + maxAnz + ")");
-                    if (!checkCandidates(2, maxAnz, candidates, Options.getInstance().solverStepsProgress) && maxDepth > 2) {
-                        maxAnz = SudokuUtil.combinations(anz, 3);
-                        //System.out.println("thread: search 3 (" + maxAnz + ")");
-                        checkCandidates(3, maxAnz, candidates, Options.getInstance().solverStepsProgress);
-                        //System.out.println("Thread: done");
-                    }
-                }
+                doSearch(false, Options.getInstance().solverStepsProgress, maxDepth);
             }
         } catch (InterruptedException ex) {
             // stop button pressed
@@ -522,6 +456,32 @@ public class BackdoorSearchDialog extends javax.swing.JDialog implements Runnabl
         //System.out.println("Thread finished!");
     }
 
+    /**
+     * Does one search and writes the results to the appropriate queue.
+     * @param cells
+     * @param stepConfigs
+     * @param maxDepth
+     * @throws InterruptedException
+     */
+    private void doSearch(final boolean cells, final StepConfig[] stepConfigs, int maxDepth)
+            throws InterruptedException {
+        final BlockingQueue<String> queue = stepConfigs == null ? singlesQueue : progressQueue;
+        BackdoorSearch search = new BackdoorSearch(orgSudoku, cells, stepConfigs, maxDepth);
+        search.search(new BackdoorSearchListener() {
+
+            @Override
+            public void backdoorFound(String backdoor) {
+                queue.offer(backdoor);
+                EventQueue.invokeLater(updateRunnable);
+            }
+
+            @Override
+            public void progress(int depth, int max, int act) {
+                triggerUpdateProgressbar(getProgressLabel(cells, stepConfigs, depth), max, act);
+            }
+        });
+    }
+
     /**
      * Adjusts the enabled state of all GUI items
      */
@@ -600,235 +560,23 @@ public class BackdoorSearchDialog extends javax.swing.JDialog implements Runnabl
     }
 
     /**
-     * Checks the sudoku for backdoors using combinations of candidates. <code>depth</code>
-     * can be 1, 2 or 3 (number of candidates in each try).
-     * @param depth
-     * @param max
-     * @param candidates 
+     * Builds the label for the progress bar.
+     * @param cells
      * @param stepConfigs
-     * @return
-     */
-    private boolean checkCandidates(int depth, int max, List<Candidate> candidates, StepConfig[] stepConfigs)
-            throws InterruptedException {
-        boolean found = false;
-        int end = candidates.size();
-        int counter = 0;
-        String startStr = ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.search_candidates") + " (";
-        if (stepConfigs == null) {
-            startStr += ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.singles");
-        } else {
-            startStr += ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.progress");
-        }
-        startStr += " - ";
-        String label = startStr + ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.search_candidates1");
-        if (depth == 2) {
-            label = startStr + ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.search_candidates2");
-        } else if (depth == 3) {
-            label = startStr + ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.search_candidates3");
-        }
-        label += ")";
-        for (int i = 0; i < end; i++) {
-            if (depth == 1) {
-                if (checkSingleOrCandidate(-1, -1, -1, candidates.get(i), null, null, stepConfigs)) {
-                    found = true;
-                    incAnzFound();
-                    if (getAnzFound() > MAX_FOUND) {
-                        return true;
-                    }
-                }
-                triggerUpdateProgressbar(label, max, ++counter);
-            } else {
-                for (int j = i + 1; j < end; j++) {
-                    if (depth == 2) {
-                        if (checkSingleOrCandidate(-1, -1, -1, candidates.get(i), candidates.get(j), null, stepConfigs)) {
-                            found = true;
-                            incAnzFound();
-                            if (getAnzFound() > MAX_FOUND) {
-                                return true;
-                            }
-                        }
-                        triggerUpdateProgressbar(label, max, ++counter);
-                    } else {
-                        for (int k = j + 1; k < end; k++) {
-                            if (checkSingleOrCandidate(-1, -1, -1, candidates.get(i), candidates.get(j), candidates.get(k), stepConfigs)) {
-                                found = true;
-                                incAnzFound();
-                                if (getAnzFound() > MAX_FOUND) {
-                                    return true;
-                                }
-                            }
-                            triggerUpdateProgressbar(label, max, ++counter);
-                        }
-                    }
-                }
-            }
-        }
-        return found;
-    }
-
-    /**
-     * Checks the sudoku for singles only backdoors. <code>depth</code>
-     * can be 1, 2 or 3 (number of cells in each try).<br>
      * @param depth
-     * @param max
-     * @param stepConfigs
      * @return
      */
-    private boolean checkSingles(int depth, int max, StepConfig[] stepConfigs)
-            throws InterruptedException {
-        boolean found = false;
-        int end = orgSudoku.getCells().length;
-        int counter = 0;
-        String startStr = ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.search_cells") + " (";
+    private String getProgressLabel(boolean cells, StepConfig[] stepConfigs, int depth) {
+        ResourceBundle bundle = ResourceBundle.getBundle("intl/BackdoorSearchDialog");
+        String key = cells ? "BackdoorSearchDialog.search_cells" : "BackdoorSearchDialog.search_candidates";
+        String startStr = bundle.getString(key) + " (";
         if (stepConfigs == null) {
-            startStr += ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.singles");
+            startStr += bundle.getString("BackdoorSearchDialog.singles");
         } else {
-            startStr += ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.progress");
+            startStr += bundle.getString("BackdoorSearchDialog.progress");
         }
         startStr += " - ";
-        String label = startStr + ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.search_cells1");
-        if (depth == 2) {
-            label = startStr + ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.search_cells2");
-        } else if (depth == 3) {
-            label = startStr + ResourceBundle.getBundle("intl/BackdoorSearchDialog").getString("BackdoorSearchDialog.search_cells3");
-        }
-        label += ")";
-        for (int i = 0; i < end; i++) {
-            if (orgSudoku.getValue(i) != 0) {
-                // cell already set
-                continue;
-            }
-            if (depth == 1) {
-                if (checkSingleOrCandidate(i, -1, -1, null, null, null, stepConfigs)) {
-                    found = true;
-                    incAnzFound();
-                    if (getAnzFound() > MAX_FOUND) {
-                        return true;
-                    }
-                }
-                triggerUpdateProgressbar(label, max, ++counter);
-            } else {
-                for (int j = i + 1; j < end; j++) {
-                    if (orgSudoku.getValue(j) != 0) {
-                        // cell already set
-                        continue;
-                    }
-                    if (depth == 2) {
-                        if (checkSingleOrCandidate(i, j, -1, null, null, null, stepConfigs)) {
-                            found = true;
-                            incAnzFound();
-                            if (getAnzFound() > MAX_FOUND) {
-                                return true;
-                            }
-                        }
-                        triggerUpdateProgressbar(label, max, ++counter);
-                    } else {
-                        for (int k = j + 1; k < end; k++) {
-                            if (orgSudoku.getValue(k) != 0) {
-                                // cell already set
-                                continue;
-                            }
-                            if (checkSingleOrCandidate(i, j, k, null, null, null, stepConfigs)) {
-                                found = true;
-                                incAnzFound();
-                                if (getAnzFound() > MAX_FOUND) {
-                                    return true;
-                                }
-                            }
-                            triggerUpdateProgressbar(label, max, ++counter);
-                        }
-                    }
-                }
-            }
-        }
-        return found;
-    }
-
-    /**
-     * Checks if the sudoku can be solved with singles only or with the
-     * techniques defined in {@link Options#solverStepsProgress}, after the
-     * cells <code>index1</code>, <code>index2</code> and <code>index3</code>
-     * have been set. If <code>index2</code> and/or <code>index3</code> are <code>-1</code>,
-     * they are ignored.<br>
-     * If <code>candx</code> is not <code>null</code>, a search for a candidate combination is
-     * done (same rules as above).
-     * @param index1
-     * @param index2
-     * @param index3
-     * @param cand1
-     * @param cand2
-     * @param cand3
-     * @param stepConfigs
-     * @return
-     */
-    private boolean checkSingleOrCandidate(int index1, int index2, int index3, Candidate cand1,
-            Candidate cand2, Candidate cand3, StepConfig[] stepConfigs)
-            throws InterruptedException {
-        if (thread.isInterrupted()) {
-            throw new InterruptedException();
-        }
-        // set the original sudoku
-        sudoku.set(orgSudoku);
-        if (cand1 == null) {
-            // set the cells to the correct values
-//            System.out.println("index1: " + sudoku.getSolution(index1) + "/" + sudoku.getValue(index1));
-            sudoku.setCell(index1, sudoku.getSolution(index1));
-//            System.out.println("sudoku: " + sudoku.getSudoku(ClipboardMode.VALUES_ONLY));
-//            if (index2 >= 0) {
-////                sudoku.setCell(index2, sudoku.getValue(index2));
-//                System.out.println("index2: " + sudoku.getSolution(index2) + "/" + sudoku.getValue(index2));
-//                sudoku.setCell(index2, sudoku.getSolution(index2));
-//            }
-//            if (index3 >= 0) {
-////                sudoku.setCell(index3, sudoku.getValue(index3));
-//                System.out.println("index3: " + sudoku.getSolution(index3) + "/" + sudoku.getValue(index3));
-//                sudoku.setCell(index3, sudoku.getSolution(index3));
-//            }
-        } else {
-            // remove the candidates
-            sudoku.setCandidate(cand1.getIndex(), cand1.getValue(), false);
-            if (cand2 != null) {
-                sudoku.setCandidate(cand2.getIndex(), cand2.getValue(), false);
-            }
-            if (cand3 != null) {
-                sudoku.setCandidate(cand3.getIndex(), cand3.getValue(), false);
-            }
-        }
-        // now try and solve
-        boolean isSolved = false;
-        if (stepConfigs == null) {
-            isSolved = solver.solveSinglesOnly(sudoku);
-        } else {
-            isSolved = solver.solveWithSteps(sudoku, stepConfigs);
-        }
-        if (isSolved) {
-            String cellString = "";
-            if (cand1 == null) {
-                cellString = SolutionStep.getCellPrint(index1, false);
-                if (index2 >= 0) {
-                    cellString += ", " + SolutionStep.getCellPrint(index2, false);
-                }
-                if (index3 >= 0) {
-                    cellString += ", " + SolutionStep.getCellPrint(index3, false);
-                }
-            } else {
-                cellString = SolutionStep.getCellPrint(cand1.getIndex(), false) + "<>" + cand1.getValue();
-                if (cand2 != null) {
-                    cellString += ", " + SolutionStep.getCellPrint(cand2.getIndex(), false) + "<>" + cand2.getValue();
-                }
-                if (cand3 != null) {
-                    cellString += ", " + SolutionStep.getCellPrint(cand2.getIndex(), false) + "<>" + cand3.getValue();
-                }
-            }
-            if (stepConfigs == null) {
-                singlesQueue.offer(cellString);
-            } else {
-                progressQueue.offer(cellString);
-            }
-            EventQueue.invokeLater(updateRunnable);
-            return true;
-        }
-        return false;
+        return startStr + bundle.getString(key + depth) + ")";
     }
 
     /**
@@ -887,27 +635,6 @@ public class BackdoorSearchDialog extends javax.swing.JDialog implements Runnabl
         this.finished = finished;
     }
 
-    /**
-     * @return the anzFound
-     */
-    private synchronized int getAnzFound() {
-        return anzFound;
-    }
-
-    /**
-     * @param anzFound the anzFound to set
-     */
-    private synchronized void setAnzFound(int anzFound) {
-        this.anzFound = anzFound;
-    }
-
-    /**
-     * Increment anzFound
-     */
-    private synchronized void incAnzFound() {
-        anzFound++;
-    }
-
     /**
      * @param args the command line arguments
      */
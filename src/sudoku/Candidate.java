@@ -47,6 +47,54 @@ public class Candidate implements Cloneable, Comparable<Candidate>, Serializable
         return ret;
     }
 
+    /**
+     * Packs a candidate into one int (<code>index * 10 + value</code>),
+     * as used in {@link PackedIntSet}.
+     * @param index
+     * @param value
+     * @return
+     */
+    public static int pack(int index, int value) {
+        return index * 10 + value;
+    }
+
+    /**
+     * @param packed A candidate created by {@link #pack(int, int) }
+     * @return The index of the candidate
+     */
+    public static int getPackedIndex(int packed) {
+        return packed / 10;
+    }
+
+    /**
+     * @param packed A candidate created by {@link #pack(int, int) }
+     * @return The value of the candidate
+     */
+    public static int getPackedValue(int packed) {
+        return packed % 10;
+    }
+
+    /**
+     * Compares two packed candidates like {@link #compareTo(sudoku.Candidate) }.
+     * @param packed1
+     * @param packed2
+     * @return
+     */
+    public static int compare(int packed1, int packed2) {
+        int ret = packed1 % 10 - packed2 % 10;
+        if (ret == 0) {
+            ret = packed1 - packed2;
+        }
+        return ret;
+    }
+
+    /**
+     * @return This candidate packed into one int (see {@link #pack(int, int) })
+     */
+    public int pack() {
+        return pack(index, value);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null) {
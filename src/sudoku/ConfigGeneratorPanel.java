@@ -19,7 +19,7 @@
 package sudoku;
 
 import generator.GeneratorPattern;
-import generator.SudokuGeneratorFactory;
+import generator.PatternGenerator;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.beans.XMLDecoder;
@@ -362,14 +362,24 @@ private void jButtonSaveActionPerformed(java.awt.event.ActionEvent evt) {//GEN-F
         Cursor oldCursor = getCursor();
         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
         // second: the number of givens is correct, can we create a valid sudoku with this pattern?
-        if (SudokuGeneratorFactory.getDefaultGeneratorInstance().generateSudoku(true, act.getPattern()) != null) {
+        PatternGenerator patternGenerator = new PatternGenerator(act.getPattern(),
+                Runtime.getRuntime().availableProcessors());
+        int[] givens = null;
+        try {
+            givens = patternGenerator.generate(PatternGenerator.DEFAULT_MAX_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        setCursor(oldCursor);
+        if (givens != null) {
             JOptionPane.showMessageDialog(this, "Pattern is valid!", "Valid", JOptionPane.INFORMATION_MESSAGE);
             act.setValid(true);
         } else {
-            JOptionPane.showMessageDialog(this, "Pattern is not valid! Please change it and try again.", "Invalid", JOptionPane.INFORMATION_MESSAGE);
+            JOptionPane.showMessageDialog(this, "Pattern is not valid! Please change it and try again.\n(No puzzle found in "
+                    + patternGenerator.getTries() + " tries, " + patternGenerator.getTriesPerSecond() + " tries/s)",
+                    "Invalid", JOptionPane.INFORMATION_MESSAGE);
             act.setValid(false);
         }
-        setCursor(oldCursor);
     }//GEN-LAST:event_jButtonCheckPatternActionPerformed
 
     /**
@@ -35,6 +35,41 @@ public class Entity implements Cloneable {
         entityName = name;
         entityNumber = number;
     }
+
+    /**
+     * Packs an entity into one int (<code>name * 10 + number</code>),
+     * as used in {@link PackedIntSet}. Only houses can be packed
+     * (number 0 to 8).
+     * @param name
+     * @param number
+     * @return
+     */
+    public static int pack(int name, int number) {
+        return name * 10 + number;
+    }
+
+    /**
+     * @param packed An entity created by {@link #pack(int, int) }
+     * @return The type of the entity
+     */
+    public static int getPackedName(int packed) {
+        return packed / 10;
+    }
+
+    /**
+     * @param packed An entity created by {@link #pack(int, int) }
+     * @return The number of the entity
+     */
+    public static int getPackedNumber(int packed) {
+        return packed % 10;
+    }
+
+    /**
+     * @return This entity packed into one int (see {@link #pack(int, int) })
+     */
+    public int pack() {
+        return pack(entityName, entityNumber);
+    }
     
     @Override
     public boolean equals(Object o) {
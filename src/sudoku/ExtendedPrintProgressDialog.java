@@ -19,6 +19,7 @@
 
 package sudoku;
 
+import generator.BackgroundGenerator;
 import generator.BackgroundGeneratorThread;
 import java.awt.Color;
 import java.awt.EventQueue;
@@ -32,7 +33,14 @@ import java.awt.print.PageFormat;
 import java.awt.print.Printable;
 import java.awt.print.PrinterException;
 import java.awt.print.PrinterJob;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.AbstractAction;
@@ -346,7 +354,10 @@ public class ExtendedPrintProgressDialog extends javax.swing.JDialog implements
     
     /**
      * Creates all the necessary sudokus. Returns <code>false</code>
-     * if interrupted.
+     * if interrupted.<br>
+     * All puzzles are created at once by a pool of worker threads (one per core),
+     * every puzzle keeps the level and mode of its section. The progress bar
+     * shows the number of puzzles finished so far.
      * 
      * @return 
      */
@@ -361,6 +372,8 @@ public class ExtendedPrintProgressDialog extends javax.swing.JDialog implements
         }
         sudokus = new Sudoku2[anzPuzzles];
         candidates = new boolean[anzPuzzles];
+        final DifficultyLevel[] levels = new DifficultyLevel[anzPuzzles];
+        final GameMode[] modes = new GameMode[anzPuzzles];
         int index = 0;
         for (int i = 0; i < numberTextFields.length; i++) {
             DifficultyLevel actDiffLevel = Options.getInstance().getDifficultyLevel(levelComboBoxes[i].getSelectedIndex() + 1);
@@ -372,23 +385,55 @@ public class ExtendedPrintProgressDialog extends javax.swing.JDialog implements
                 case 2: actGameMode = GameMode.PRACTISING; break;
             }
             for (int j = 0; j < getNumberOfPuzzles(i); j++) {
-                sudokus[index] = getSudoku(actDiffLevel, actGameMode);
-                if (sudokus[index] == null || thread.isInterrupted()) {
-                    return false;
-                }
+                levels[index] = actDiffLevel;
+                modes[index] = actGameMode;
                 candidates[index] = withCandidates;
-                // put puzzle in history
-                Options.getInstance().addSudokuToHistory(sudokus[index]);
                 index++;
-                // update progress bar
-                setPercentage((int)Math.round(index * 100.0 / anzPuzzles));
-                EventQueue.invokeLater(new Runnable() {
+            }
+        }
+        
+        // create the puzzles
+        final int total = anzPuzzles;
+        final AtomicInteger finished = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(anzPuzzles, Runtime.getRuntime().availableProcessors()));
+        List<Future<Sudoku2>> futures = new ArrayList<Future<Sudoku2>>(anzPuzzles);
+        try {
+            for (int i = 0; i < anzPuzzles; i++) {
+                final int puzzleIndex = i;
+                futures.add(executor.submit(new Callable<Sudoku2>() {
                     @Override
-                    public void run() {
-                        setProgress();
+                    public Sudoku2 call() {
+                        Sudoku2 sudoku = getSudoku(levels[puzzleIndex], modes[puzzleIndex]);
+                        // update progress bar
+                        setPercentage((int)Math.round(finished.incrementAndGet() * 100.0 / total));
+                        EventQueue.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                setProgress();
+                            }
+                        });
+                        return sudoku;
                     }
-                });
+                }));
             }
+            for (int i = 0; i < anzPuzzles; i++) {
+                sudokus[i] = futures.get(i).get();
+                if (sudokus[i] == null || thread.isInterrupted()) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException ex) {
+            return false;
+        } catch (ExecutionException ex) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error creating puzzles", ex.getCause());
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+        // put puzzles in history
+        for (int i = 0; i < anzPuzzles; i++) {
+            Options.getInstance().addSudokuToHistory(sudokus[i]);
         }
         
         return true;
@@ -399,7 +444,9 @@ public class ExtendedPrintProgressDialog extends javax.swing.JDialog implements
      * given {@link GameMode}. The puzzles are taken from the cache if
      * possible.<br>
      * If no puzzle could be generated (or the generation was aborted),
-     * <code>null</code> is returned.
+     * <code>null</code> is returned.<br>
+     * The method is called by the worker threads of {@link #createSudokus()}
+     * and uses its own solver.
      * 
      * @param level
      * @param mode
@@ -411,37 +458,42 @@ public class ExtendedPrintProgressDialog extends javax.swing.JDialog implements
             level = Options.getInstance().getDifficultyLevel(DifficultyType.EXTREME.ordinal());
         }
         String preGenSudoku = BackgroundGeneratorThread.getInstance().getSudoku(level, mode);
-        Sudoku2 tmpSudoku = null;
-        SudokuSolver solver = SudokuSolverFactory.getDefaultSolverInstance();
         if (preGenSudoku == null) {
-            // no pregenerated puzzle available -> do it in GUI
-            GenerateSudokuProgressDialog dlg = new GenerateSudokuProgressDialog(null, true, level, mode);
-            dlg.setVisible(true);
-            tmpSudoku = dlg.getSudoku();
-        } else {
-            tmpSudoku = new Sudoku2();
-            tmpSudoku.setSudoku(preGenSudoku, true);
-            Sudoku2 solvedSudoku = tmpSudoku.clone();
-            solver.solve(level, solvedSudoku, true, null, false, 
-                    Options.getInstance().solverSteps, Options.getInstance().getGameMode());
-            tmpSudoku.setLevel(solvedSudoku.getLevel());
-            tmpSudoku.setScore(solvedSudoku.getScore());
+            // no pregenerated puzzle available -> create one; the puzzles
+            // are already created in parallel: no producer thread and one
+            // thread per pattern search
+            BackgroundGenerator generator = new BackgroundGenerator();
+            generator.setPipelined(false);
+            generator.setPatternThreads(1);
+            preGenSudoku = generator.generate(level, mode);
         }
-        if (tmpSudoku == null) {
+        if (preGenSudoku == null) {
             // couldnt create anything or was aborted
             return null;
         }
-        if (mode == GameMode.LEARNING) {
-            // solve the sudoku up until the first trainingStep
-            List<SolutionStep> steps = solver.getSteps();
-            for (SolutionStep step : steps) {
-                if (step.getType().getStepConfig().isEnabledTraining()) {
-                    break;
-                } else {
-                    //System.out.println("doStep(): " + step.getType().getStepName());
-                    solver.doStep(tmpSudoku, step);
+        Sudoku2 tmpSudoku = new Sudoku2();
+        tmpSudoku.setSudoku(preGenSudoku, true);
+        Sudoku2 solvedSudoku = tmpSudoku.clone();
+        SudokuSolver solver = SudokuSolverFactory.getInstance();
+        try {
+            solver.solve(level, solvedSudoku, true, null, false, 
+                    Options.getInstance().solverSteps, Options.getInstance().getGameMode());
+            tmpSudoku.setLevel(solvedSudoku.getLevel());
+            tmpSudoku.setScore(solvedSudoku.getScore());
+            if (mode == GameMode.LEARNING) {
+                // solve the sudoku up until the first trainingStep
+                List<SolutionStep> steps = solver.getSteps();
+                for (SolutionStep step : steps) {
+                    if (step.getType().getStepConfig().isEnabledTraining()) {
+                        break;
+                    } else {
+                        //System.out.println("doStep(): " + step.getType().getStepName());
+                        solver.doStep(tmpSudoku, step);
+                    }
                 }
             }
+        } finally {
+            SudokuSolverFactory.giveBack(solver);
         }
         return tmpSudoku;
     }
@@ -20,7 +20,14 @@
 package sudoku;
 
 import java.awt.EventQueue;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import solver.SudokuSolver;
 import solver.SudokuSolverFactory;
 import solver.SudokuStepFinder;
 
@@ -29,6 +36,19 @@ import solver.SudokuStepFinder;
  * @author hobiwan
  */
 public class FindAllSteps implements Runnable {
+    /** The last step of the search: calculate the progress scores for all steps found. */
+    private static final int PROGRESS_STEP = 27;
+    /** 
+     * The families of techniques, that are searched together in parallel mode.
+     * All fish searches have to be in one lane, since they change the
+     * fish settings in {@link Options} temporarily. The progress scores
+     * change them too, so they are calculated after all lanes have finished.
+     */
+    private static final int[][] PARALLEL_LANES = {
+        {0},
+        {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18},
+        {19}, {20}, {21}, {22}, {23}, {24}, {25}, {26}
+    };
     private FindAllStepsProgressDialog dlg = null;
     private List<SolutionStep> steps;
     private List<SolutionType> testTypes = null;
@@ -42,6 +62,10 @@ public class FindAllSteps implements Runnable {
 //    private boolean krakenFish;
 
     private SudokuStepFinder stepFinder;
+    /** If set, the steps are handed over after every family of techniques and are not collected. */
+    private FindAllStepsListener listener = null;
+    /** Number of families done in parallel mode (<code>null</code> in serial mode). */
+    private volatile AtomicInteger parallelProgress = null;
     
     public FindAllSteps() {
         stepFinder = SudokuSolverFactory.getDefaultSolverInstance().getStepFinder();
@@ -60,7 +84,13 @@ public class FindAllSteps implements Runnable {
 
     private void updateProgress(final String label, final int step) {
         if (dlg != null) {
-            dlg.updateProgress(label, step);
+            AtomicInteger progress = parallelProgress;
+            if (progress != null) {
+                // the families are not searched in order
+                dlg.updateProgress(label, progress.get());
+            } else {
+                dlg.updateProgress(label, step);
+            }
         }
     }
 
@@ -106,204 +136,10 @@ public class FindAllSteps implements Runnable {
     
     @Override
     public void run() {
-        int actStep = 0;
-        //boolean[] tmpCands = new boolean[9];
-        List<SolutionStep> steps1 = null;
-        //while (! Thread.currentThread().isInterrupted()) {
-        while (! Thread.interrupted()) {
-            switch (actStep) {
-                case 0:
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.simple_solutions"), actStep);
-                    steps1 = stepFinder.findAllFullHouses(sudoku);
-                    steps.addAll(steps1);
-                    steps1 = stepFinder.findAllHiddenXle(sudoku);
-                    steps.addAll(steps1);
-                    steps1 = stepFinder.findAllNakedXle(sudoku);
-                    steps.addAll(steps1);
-                    filterSteps(steps);
-                    if (isAllStepsEnabled(SolutionType.LOCKED_CANDIDATES_1) && isAllStepsEnabled(SolutionType.LOCKED_CANDIDATES_2)) {
-                        steps1 = stepFinder.findAllLockedCandidates(sudoku);
-                        steps.addAll(steps1);
-                    } else if (isAllStepsEnabled(SolutionType.LOCKED_CANDIDATES_1)) {
-                        steps1 = stepFinder.findAllLockedCandidates1(sudoku);
-                        steps.addAll(steps1);
-                    } else if (isAllStepsEnabled(SolutionType.LOCKED_CANDIDATES_2)) {
-                        steps1 = stepFinder.findAllLockedCandidates2(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    if (isAllStepsEnabled(SolutionType.SKYSCRAPER)) {
-                        steps1 = stepFinder.findAllSkyScrapers(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    if (isAllStepsEnabled(SolutionType.EMPTY_RECTANGLE)) {
-                        steps1 = stepFinder.findAllEmptyRectangles(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    if (isAllStepsEnabled(SolutionType.TWO_STRING_KITE)) {
-                        steps1 = stepFinder.findAllTwoStringKites(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    if (isAllStepsEnabled(SolutionType.SUE_DE_COQ)) {
-                        steps1 = stepFinder.getAllSueDeCoqs(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 1:
-                case 2:
-                case 3:
-                case 4:
-                case 5:
-                case 6:
-                case 7:
-                case 8:
-                case 9:
-                    //System.out.println("Fish search cand " + (actStep) + ": " + Options.getInstance().allStepsFishCandidates.charAt(actStep - 1));
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.fish") + " " + actStep, actStep);
-                    if ((testTypes == null && Options.getInstance().isAllStepsSearchFish() && 
-                            Options.getInstance().getAllStepsFishCandidates().charAt(actStep - 1) == '1') ||
-                            testTypes != null && isFishTestTypes()) {
-                        boolean oldCheckTemplates = Options.getInstance().isCheckTemplates();
-                        Options.getInstance().setCheckTemplates(Options.getInstance().isAllStepsCheckTemplates());
-                        steps1 = stepFinder.getAllFishes(sudoku, Options.getInstance().getAllStepsMinFishSize(),
-                                Options.getInstance().getAllStepsMaxFishSize(), 
-                                Options.getInstance().getAllStepsMaxFins(), 
-                                Options.getInstance().getAllStepsMaxEndoFins(), dlg, actStep,
-                                Options.getInstance().getAllStepsMaxFishType());
-                        steps.addAll(steps1);
-                        Options.getInstance().setCheckTemplates(oldCheckTemplates);
-                    }
-                    break;
-                case 10:
-                case 11:
-                case 12:
-                case 13:
-                case 14:
-                case 15:
-                case 16:
-                case 17:
-                case 18:
-                    //System.out.println("Kraken Fish search cand " + (actStep - 9) + ": " + Options.getInstance().allStepsFishCandidates.charAt(actStep - 10));
-                    if (isAllStepsEnabled(SolutionType.KRAKEN_FISH) && 
-                            Options.getInstance().getAllStepsKrakenFishCandidates().charAt(actStep - 10) == '1') {
-                        updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.kraken_fish") + " " + (actStep - 9), actStep);
-                        steps1 = stepFinder.getAllKrakenFishes(sudoku, Options.getInstance().getAllStepsKrakenMinFishSize(),
-                                Options.getInstance().getAllStepsKrakenMaxFishSize(), 
-                                Options.getInstance().getAllStepsMaxKrakenFins(), 
-                                Options.getInstance().getAllStepsMaxKrakenEndoFins(), dlg, actStep - 9,
-                                Options.getInstance().getAllStepsKrakenMaxFishType());
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 19:
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.uniqueness"), actStep);
-                    if (isAllStepsEnabled(SolutionType.UNIQUENESS_1) || 
-                            isAllStepsEnabled(SolutionType.UNIQUENESS_2) ||
-                            isAllStepsEnabled(SolutionType.UNIQUENESS_3) ||
-                            isAllStepsEnabled(SolutionType.UNIQUENESS_4) ||
-                            isAllStepsEnabled(SolutionType.UNIQUENESS_5) ||
-                            isAllStepsEnabled(SolutionType.UNIQUENESS_6) ||
-                            isAllStepsEnabled(SolutionType.HIDDEN_RECTANGLE) ||
-                            isAllStepsEnabled(SolutionType.AVOIDABLE_RECTANGLE_1) ||
-                            isAllStepsEnabled(SolutionType.AVOIDABLE_RECTANGLE_2)) {
-                        steps1 = stepFinder.getAllUniqueness(sudoku);
-                        filterSteps(steps1);
-                        steps.addAll(steps1);
-                    }
-                    if (isAllStepsEnabled(SolutionType.BUG_PLUS_1)) {
-                        stepFinder.setSudoku(sudoku);
-                        SolutionStep result = stepFinder.getStep(SolutionType.BUG_PLUS_1);
-                        if (result != null) {
-                            steps.add(result);
-                        }
-                    }
-                    steps1 = stepFinder.getAllWings(sudoku);
-                    filterSteps(steps1);
-                    steps.addAll(steps1);
-                    if (isAllStepsEnabled(SolutionType.SIMPLE_COLORS)) {
-                        steps1 = stepFinder.findAllSimpleColors(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    if (isAllStepsEnabled(SolutionType.MULTI_COLORS)) {
-                        steps1 = stepFinder.findAllMultiColors(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 20:
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.chains"), actStep);
-                    if (isAllStepsEnabled(SolutionType.X_CHAIN) || isAllStepsEnabled(SolutionType.XY_CHAIN) ||
-                            isAllStepsEnabled(SolutionType.REMOTE_PAIR) || isAllStepsEnabled(SolutionType.TURBOT_FISH)) {
-                        steps1 = stepFinder.getAllChains(sudoku);
-                        filterSteps(steps1);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 21:
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.nice_loops"), actStep);
-                    if (isAllStepsEnabled(SolutionType.NICE_LOOP)) {
-                        steps1 = stepFinder.getAllNiceLoops(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 22:
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.grouped_nice_loops"), actStep);
-                    if (isAllStepsEnabled(SolutionType.GROUPED_NICE_LOOP)) {
-                        steps1 = stepFinder.getAllGroupedNiceLoops(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 23:
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.templates"), actStep);
-                    if (isAllStepsEnabled(SolutionType.TEMPLATE_DEL) || isAllStepsEnabled(SolutionType.TEMPLATE_SET)) {
-                        steps1 = stepFinder.getAllTemplates(sudoku);
-                        filterSteps(steps1);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 24:
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.als"), actStep);
-                    if (isAllStepsEnabled(SolutionType.ALS_XZ) || isAllStepsEnabled(SolutionType.ALS_XY_WING) ||
-                            isAllStepsEnabled(SolutionType.ALS_XY_CHAIN)) {
-                        steps1 = stepFinder.getAllAlsSteps(sudoku, isAllStepsEnabled(SolutionType.ALS_XZ),
-                                isAllStepsEnabled(SolutionType.ALS_XY_WING),
-                                isAllStepsEnabled(SolutionType.ALS_XY_CHAIN));
-                        filterSteps(steps1);
-                        steps.addAll(steps1);
-                    }
-                    if (isAllStepsEnabled(SolutionType.DEATH_BLOSSOM)) {
-                        steps1 = stepFinder.getAllDeathBlossoms(sudoku);
-                        filterSteps(steps1);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 25:
-                    if (isAllStepsEnabled(SolutionType.FORCING_CHAIN)) {
-                        updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.forcing_Chains"), actStep);
-                        steps1 = stepFinder.getAllForcingChains(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 26:
-                    if (isAllStepsEnabled(SolutionType.FORCING_NET)) {
-                        updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.forcing_Nets"), actStep);
-                        steps1 = stepFinder.getAllForcingNets(sudoku);
-                        steps.addAll(steps1);
-                    }
-                    break;
-                case 27:
-                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.progress_Score"), actStep);
-                    // calculate progress measure
-                    SudokuSolverFactory.getDefaultSolverInstance().getProgressScore(sudoku, steps, dlg);
-                    break;
-                default:
-                    if (testTypes == null) {
-                        Thread.currentThread().interrupt();
-                    } else {
-                        // called directly -> dont interrupt!
-                        return;
-                    }
-                    break;
-            }
-            actStep++;
+        if (testTypes == null && Options.getInstance().isAllStepsParallel()) {
+            runParallel();
+        } else {
+            runSerial();
         }
         // done!
         if (dlg != null) {
@@ -318,6 +154,321 @@ public class FindAllSteps implements Runnable {
         }
     }
 
+    /**
+     * Searches all families one after another with the step finder
+     * of the default solver.
+     */
+    private void runSerial() {
+        for (int actStep = 0; actStep < PROGRESS_STEP; actStep++) {
+            if (Thread.interrupted()) {
+                return;
+            }
+            findSteps(actStep, stepFinder, sudoku, steps);
+            familyDone();
+        }
+        if (! Thread.interrupted()) {
+            calculateProgressScores();
+        }
+    }
+
+    /**
+     * Searches the families in parallel: every entry in {@link #PARALLEL_LANES}
+     * is a task of its own, that runs with its own solver instance and
+     * its own copy of the sudoku. The results are merged in the order of
+     * the serial search, so the list of steps is exactly the same.<br>
+     * The families are handed over only after all lanes are done: the
+     * progress scores (see {@link #familyDone() }) must not run while the
+     * fish lane has changed the fish settings.
+     */
+    private void runParallel() {
+        List<List<SolutionStep>> results = new ArrayList<List<SolutionStep>>(PROGRESS_STEP);
+        for (int i = 0; i < PROGRESS_STEP; i++) {
+            results.add(new ArrayList<SolutionStep>());
+        }
+        parallelProgress = new AtomicInteger();
+        int anzThreads = Math.min(PARALLEL_LANES.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(anzThreads);
+        List<Future<?>> futures = new ArrayList<Future<?>>(PARALLEL_LANES.length);
+        try {
+            for (int i = 0; i < PARALLEL_LANES.length; i++) {
+                futures.add(executor.submit(new LaneSearch(PARALLEL_LANES[i], results)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            // search was cancelled
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            return;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error in parallel search for all steps", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            parallelProgress = null;
+        }
+        // merge the families in the order of the serial search
+        for (int actStep = 0; actStep < PROGRESS_STEP; actStep++) {
+            steps.addAll(results.get(actStep));
+            results.set(actStep, null);
+            familyDone();
+        }
+        if (! Thread.interrupted()) {
+            calculateProgressScores();
+        }
+    }
+
+    /**
+     * Is called whenever the steps of one family are complete. If a
+     * {@link #listener} is set, the steps are handed over and removed.
+     */
+    private void familyDone() {
+        if (listener != null && ! steps.isEmpty()) {
+            // the progress score of a step doesnt depend on the other
+            // steps -> calculate it for the current family only
+            SudokuSolverFactory.getDefaultSolverInstance().getProgressScore(sudoku, steps, dlg);
+            listener.stepsFound(steps);
+            steps.clear();
+        }
+    }
+
+    /**
+     * Calculates the progress measure for all steps (with a listener
+     * it has already been done for every family).
+     */
+    private void calculateProgressScores() {
+        updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.progress_Score"), PROGRESS_STEP);
+        if (listener == null) {
+            SudokuSolverFactory.getDefaultSolverInstance().getProgressScore(sudoku, steps, dlg);
+        }
+    }
+
+    /**
+     * Searches all steps of one family of techniques.
+     * 
+     * @param actStep The family (0 .. {@link #PROGRESS_STEP} - 1)
+     * @param stepFinder The step finder that does the search
+     * @param sudoku The sudoku for the search
+     * @param steps All steps found are added to this list
+     */
+    private void findSteps(int actStep, SudokuStepFinder stepFinder, Sudoku2 sudoku, List<SolutionStep> steps) {
+        List<SolutionStep> steps1 = null;
+        switch (actStep) {
+            case 0:
+                updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.simple_solutions"), actStep);
+                steps1 = stepFinder.findAllFullHouses(sudoku);
+                steps.addAll(steps1);
+                steps1 = stepFinder.findAllHiddenXle(sudoku);
+                steps.addAll(steps1);
+                steps1 = stepFinder.findAllNakedXle(sudoku);
+                steps.addAll(steps1);
+                filterSteps(steps);
+                if (isAllStepsEnabled(SolutionType.LOCKED_CANDIDATES_1) && isAllStepsEnabled(SolutionType.LOCKED_CANDIDATES_2)) {
+                    steps1 = stepFinder.findAllLockedCandidates(sudoku);
+                    steps.addAll(steps1);
+                } else if (isAllStepsEnabled(SolutionType.LOCKED_CANDIDATES_1)) {
+                    steps1 = stepFinder.findAllLockedCandidates1(sudoku);
+                    steps.addAll(steps1);
+                } else if (isAllStepsEnabled(SolutionType.LOCKED_CANDIDATES_2)) {
+                    steps1 = stepFinder.findAllLockedCandidates2(sudoku);
+                    steps.addAll(steps1);
+                }
+                if (isAllStepsEnabled(SolutionType.SKYSCRAPER)) {
+                    steps1 = stepFinder.findAllSkyScrapers(sudoku);
+                    steps.addAll(steps1);
+                }
+                if (isAllStepsEnabled(SolutionType.EMPTY_RECTANGLE)) {
+                    steps1 = stepFinder.findAllEmptyRectangles(sudoku);
+                    steps.addAll(steps1);
+                }
+                if (isAllStepsEnabled(SolutionType.TWO_STRING_KITE)) {
+                    steps1 = stepFinder.findAllTwoStringKites(sudoku);
+                    steps.addAll(steps1);
+                }
+                if (isAllStepsEnabled(SolutionType.SUE_DE_COQ)) {
+                    steps1 = stepFinder.getAllSueDeCoqs(sudoku);
+                    steps.addAll(steps1);
+                }
+                break;
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+            case 8:
+            case 9:
+                //System.out.println("Fish search cand " + (actStep) + ": " + Options.getInstance().allStepsFishCandidates.charAt(actStep - 1));
+                updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.fish") + " " + actStep, actStep);
+                if ((testTypes == null && Options.getInstance().isAllStepsSearchFish() && 
+                        Options.getInstance().getAllStepsFishCandidates().charAt(actStep - 1) == '1') ||
+                        testTypes != null && isFishTestTypes()) {
+                    boolean oldCheckTemplates = Options.getInstance().isCheckTemplates();
+                    Options.getInstance().setCheckTemplates(Options.getInstance().isAllStepsCheckTemplates());
+                    steps1 = stepFinder.getAllFishes(sudoku, Options.getInstance().getAllStepsMinFishSize(),
+                            Options.getInstance().getAllStepsMaxFishSize(), 
+                            Options.getInstance().getAllStepsMaxFins(), 
+                            Options.getInstance().getAllStepsMaxEndoFins(), dlg, actStep,
+                            Options.getInstance().getAllStepsMaxFishType());
+                    steps.addAll(steps1);
+                    Options.getInstance().setCheckTemplates(oldCheckTemplates);
+                }
+                break;
+            case 10:
+            case 11:
+            case 12:
+            case 13:
+            case 14:
+            case 15:
+            case 16:
+            case 17:
+            case 18:
+                //System.out.println("Kraken Fish search cand " + (actStep - 9) + ": " + Options.getInstance().allStepsFishCandidates.charAt(actStep - 10));
+                if (isAllStepsEnabled(SolutionType.KRAKEN_FISH) && 
+                        Options.getInstance().getAllStepsKrakenFishCandidates().charAt(actStep - 10) == '1') {
+                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.kraken_fish") + " " + (actStep - 9), actStep);
+                    steps1 = stepFinder.getAllKrakenFishes(sudoku, Options.getInstance().getAllStepsKrakenMinFishSize(),
+                            Options.getInstance().getAllStepsKrakenMaxFishSize(), 
+                            Options.getInstance().getAllStepsMaxKrakenFins(), 
+                            Options.getInstance().getAllStepsMaxKrakenEndoFins(), dlg, actStep - 9,
+                            Options.getInstance().getAllStepsKrakenMaxFishType());
+                    steps.addAll(steps1);
+                }
+                break;
+            case 19:
+                updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.uniqueness"), actStep);
+                if (isAllStepsEnabled(SolutionType.UNIQUENESS_1) || 
+                        isAllStepsEnabled(SolutionType.UNIQUENESS_2) ||
+                        isAllStepsEnabled(SolutionType.UNIQUENESS_3) ||
+                        isAllStepsEnabled(SolutionType.UNIQUENESS_4) ||
+                        isAllStepsEnabled(SolutionType.UNIQUENESS_5) ||
+                        isAllStepsEnabled(SolutionType.UNIQUENESS_6) ||
+                        isAllStepsEnabled(SolutionType.HIDDEN_RECTANGLE) ||
+                        isAllStepsEnabled(SolutionType.AVOIDABLE_RECTANGLE_1) ||
+                        isAllStepsEnabled(SolutionType.AVOIDABLE_RECTANGLE_2)) {
+                    steps1 = stepFinder.getAllUniqueness(sudoku);
+                    filterSteps(steps1);
+                    steps.addAll(steps1);
+                }
+                if (isAllStepsEnabled(SolutionType.BUG_PLUS_1)) {
+                    stepFinder.setSudoku(sudoku);
+                    SolutionStep result = stepFinder.getStep(SolutionType.BUG_PLUS_1);
+                    if (result != null) {
+                        steps.add(result);
+                    }
+                }
+                steps1 = stepFinder.getAllWings(sudoku);
+                filterSteps(steps1);
+                steps.addAll(steps1);
+                if (isAllStepsEnabled(SolutionType.SIMPLE_COLORS)) {
+                    steps1 = stepFinder.findAllSimpleColors(sudoku);
+                    steps.addAll(steps1);
+                }
+                if (isAllStepsEnabled(SolutionType.MULTI_COLORS)) {
+                    steps1 = stepFinder.findAllMultiColors(sudoku);
+                    steps.addAll(steps1);
+                }
+                break;
+            case 20:
+                updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.chains"), actStep);
+                if (isAllStepsEnabled(SolutionType.X_CHAIN) || isAllStepsEnabled(SolutionType.XY_CHAIN) ||
+                        isAllStepsEnabled(SolutionType.REMOTE_PAIR) || isAllStepsEnabled(SolutionType.TURBOT_FISH)) {
+                    steps1 = stepFinder.getAllChains(sudoku);
+                    filterSteps(steps1);
+                    steps.addAll(steps1);
+                }
+                break;
+            case 21:
+                updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.nice_loops"), actStep);
+                if (isAllStepsEnabled(SolutionType.NICE_LOOP)) {
+                    steps1 = stepFinder.getAllNiceLoops(sudoku);
+                    steps.addAll(steps1);
+                }
+                break;
+            case 22:
+                updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.grouped_nice_loops"), actStep);
+                if (isAllStepsEnabled(SolutionType.GROUPED_NICE_LOOP)) {
+                    steps1 = stepFinder.getAllGroupedNiceLoops(sudoku);
+                    steps.addAll(steps1);
+                }
+                break;
+            case 23:
+                updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.templates"), actStep);
+                if (isAllStepsEnabled(SolutionType.TEMPLATE_DEL) || isAllStepsEnabled(SolutionType.TEMPLATE_SET)) {
+                    steps1 = stepFinder.getAllTemplates(sudoku);
+                    filterSteps(steps1);
+                    steps.addAll(steps1);
+                }
+                break;
+            case 24:
+                updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.als"), actStep);
+                if (isAllStepsEnabled(SolutionType.ALS_XZ) || isAllStepsEnabled(SolutionType.ALS_XY_WING) ||
+                        isAllStepsEnabled(SolutionType.ALS_XY_CHAIN)) {
+                    steps1 = stepFinder.getAllAlsSteps(sudoku, isAllStepsEnabled(SolutionType.ALS_XZ),
+                            isAllStepsEnabled(SolutionType.ALS_XY_WING),
+                            isAllStepsEnabled(SolutionType.ALS_XY_CHAIN));
+                    filterSteps(steps1);
+                    steps.addAll(steps1);
+                }
+                if (isAllStepsEnabled(SolutionType.DEATH_BLOSSOM)) {
+                    steps1 = stepFinder.getAllDeathBlossoms(sudoku);
+                    filterSteps(steps1);
+                    steps.addAll(steps1);
+                }
+                break;
+            case 25:
+                if (isAllStepsEnabled(SolutionType.FORCING_CHAIN)) {
+                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.forcing_Chains"), actStep);
+                    steps1 = stepFinder.getAllForcingChains(sudoku);
+                    steps.addAll(steps1);
+                }
+                break;
+            case 26:
+                if (isAllStepsEnabled(SolutionType.FORCING_NET)) {
+                    updateProgress(java.util.ResourceBundle.getBundle("intl/FindAllStepsProgressDialog").getString("FindAllStepsProgressDialog.forcing_Nets"), actStep);
+                    steps1 = stepFinder.getAllForcingNets(sudoku);
+                    steps.addAll(steps1);
+                }
+                break;
+        }
+    }
+
+    /**
+     * One task for {@link #runParallel() }: searches the families of one
+     * lane with a solver from {@link SudokuSolverFactory}.
+     */
+    private class LaneSearch implements Runnable {
+
+        private int[] lane;
+        private List<List<SolutionStep>> results;
+
+        LaneSearch(int[] lane, List<List<SolutionStep>> results) {
+            this.lane = lane;
+            this.results = results;
+        }
+
+        @Override
+        public void run() {
+            SudokuSolver solver = SudokuSolverFactory.getInstance();
+            try {
+                // some solvers (e.g. forcing nets) change the sudoku
+                // temporarily -> every lane needs its own copy
+                Sudoku2 laneSudoku = sudoku.clone();
+                for (int actStep : lane) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    findSteps(actStep, solver.getStepFinder(), laneSudoku, results.get(actStep));
+                    parallelProgress.incrementAndGet();
+                }
+            } finally {
+                SudokuSolverFactory.giveBack(solver);
+            }
+        }
+    }
+
     public List<SolutionStep> getSteps() {
         return steps;
     }
@@ -326,6 +477,14 @@ public class FindAllSteps implements Runnable {
         this.steps = steps;
     }
 
+    public FindAllStepsListener getListener() {
+        return listener;
+    }
+
+    public void setListener(FindAllStepsListener listener) {
+        this.listener = listener;
+    }
+
     public List<SolutionType> getTestType() {
         return testTypes;
     }
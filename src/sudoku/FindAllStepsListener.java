@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+package sudoku;
+
+import java.util.List;
+
+/**
+ * Receives the results of {@link FindAllSteps} as soon as one family
+ * of techniques has been searched. The steps are handed over in the
+ * order, in which they would appear in the complete list. The list
+ * is cleared after the call, so the listener must not keep a reference
+ * to it.
+ *
+ * @author hobiwan
+ */
+public interface FindAllStepsListener {
+    public void stepsFound(List<SolutionStep> steps);
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures how fast puzzles can be loaded into a {@link Sudoku2} (console
+ * option <code>/bl</code>). All plain givens strings from the input file
+ * are loaded {@link #ROUNDS} times with every method:
+ * <ul>
+ * <li><b>setSudoku</b>: {@link Sudoku2#setSudoku(java.lang.String) } (including the initial state)</li>
+ * <li><b>setCell</b>: {@link Sudoku2#setCell(int, int, boolean) } for every given
+ *      (the batch modes)</li>
+ * <li><b>initFromValues</b>: {@link Sudoku2#initFromValues(int[]) } (the generator)</li>
+ * </ul>
+ * The first round of every method is not counted (warm up).
+ *
+ * @author hobiwan
+ */
+public class LoadBenchmark {
+
+    /** Number of rounds per method. */
+    private static final int ROUNDS = 20;
+    /** Maximum number of puzzles used from the input file. */
+    private static final int MAX_PUZZLES = 100000;
+    /** The input file. */
+    private String fileName;
+
+    /**
+     * Creates a new benchmark.
+     *
+     * @param fileName File with puzzles, one per line
+     */
+    public LoadBenchmark(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Runs the benchmark and writes the results to the console.
+     */
+    public void run() {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(fileName));
+            String line = null;
+            while ((line = in.readLine()) != null && lines.size() < MAX_PUZZLES) {
+                line = line.trim();
+                if (Sudoku2.isGivensString(line)) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error reading puzzles", ex);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                    // nothing to do
+                }
+            }
+        }
+        int[][] givens = new int[lines.size()][Sudoku2.LENGTH];
+        for (int i = 0; i < givens.length; i++) {
+            String line = lines.get(i);
+            for (int j = 0; j < Sudoku2.LENGTH; j++) {
+                char ch = line.charAt(j);
+                givens[i][j] = ch >= '1' && ch <= '9' ? ch - '0' : 0;
+            }
+        }
+        Sudoku2 sudoku = new Sudoku2();
+        long[] ticks = new long[3];
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < givens.length; i++) {
+                sudoku.setSudoku(lines.get(i));
+            }
+            long end = System.nanoTime();
+            if (round > 0) {
+                ticks[0] += end - start;
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < givens.length; i++) {
+                sudoku.clearSudoku();
+                for (int j = 0; j < Sudoku2.LENGTH; j++) {
+                    if (givens[i][j] != 0) {
+                        sudoku.setCell(j, givens[i][j], true);
+                    }
+                }
+            }
+            end = System.nanoTime();
+            if (round > 0) {
+                ticks[1] += end - start;
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < givens.length; i++) {
+                sudoku.initFromValues(givens[i]);
+            }
+            end = System.nanoTime();
+            if (round > 0) {
+                ticks[2] += end - start;
+            }
+        }
+        System.out.println("Load benchmark (" + givens.length + " puzzles, " + ROUNDS + " rounds):");
+        int anz = givens.length * ROUNDS;
+        printResult("setSudoku", ticks[0], anz);
+        printResult("setCell", ticks[1], anz);
+        printResult("initFromValues", ticks[2], anz);
+    }
+
+    /**
+     * Prints one line of the result.
+     *
+     * @param name
+     * @param ticks
+     * @param anz
+     */
+    private void printResult(String name, long ticks, int anz) {
+        double avg = anz == 0 ? 0 : ticks / 1000.0 / anz;
+        double perSecond = ticks == 0 ? 0 : anz * 1000000000.0 / ticks;
+        System.out.println(String.format("  %-16s %8.3f us/puzzle, %10.0f puzzles/s", name + ":", avg, perSecond));
+    }
+}
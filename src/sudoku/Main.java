@@ -28,12 +28,11 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
@@ -41,12 +40,17 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
+import solver.BackdoorSearch;
 import solver.SudokuSolver;
 import solver.SudokuSolverFactory;
 
@@ -60,6 +64,8 @@ public class Main {
     private static List<Logger> loggers = new ArrayList<Logger>();
     /** Value of the property "os.name" */
     public static String OS_NAME = "";
+    /** {@link #fillStore(java.lang.String, int, java.util.List, sudoku.DifficultyLevel) } gives up, if so many puzzles in a row were not stored. */
+    private static final int FILL_STORE_MAX_TRIES = 100000;
 
     /** Creates a new instance of Main */
     public Main() {
@@ -120,12 +126,19 @@ public class Main {
         batchSolve(fileName, puzzleString, printSolution, printSolutionPath, printStatistic, cMode, types, outFile, findAllSteps, false, null);
     }
 
-    @SuppressWarnings("CallToThreadDumpStack")
     public void batchSolve(String fileName, String puzzleString, boolean printSolution, boolean printSolutionPath,
             boolean printStatistic, ClipboardMode cMode, Set<SolutionType> types, String outFile, boolean findAllSteps,
             boolean bruteForceTest, List<SolutionType> testTypes) {
+        batchSolve(fileName, puzzleString, printSolution, printSolutionPath, printStatistic, cMode, types, outFile, findAllSteps,
+                bruteForceTest, testTypes, false);
+    }
+
+    @SuppressWarnings("CallToThreadDumpStack")
+    public void batchSolve(String fileName, String puzzleString, boolean printSolution, boolean printSolutionPath,
+            boolean printStatistic, ClipboardMode cMode, Set<SolutionType> types, String outFile, boolean findAllSteps,
+            boolean bruteForceTest, List<SolutionType> testTypes, boolean libraryOutput) {
         BatchSolveThread thread = new BatchSolveThread(fileName, puzzleString, printSolution, printSolutionPath, printStatistic,
-                cMode, types, outFile, findAllSteps, bruteForceTest, testTypes);
+                cMode, types, outFile, findAllSteps, bruteForceTest, testTypes, libraryOutput);
         thread.start();
         ShutDownThread st = new ShutDownThread(thread);
         Runtime.getRuntime().addShutdownHook(st);
@@ -181,126 +194,326 @@ public class Main {
             }
             if (!outFileName.equals("stdout")) {
                 out = new BufferedWriter(new FileWriter(outFileName));
+            } else {
+                out = new BufferedWriter(new OutputStreamWriter(System.out));
+            }
+            // filter and sort in one pass, files larger than the heap are sorted in runs
+            PuzzleFileSorter sorter = new PuzzleFileSorter(typeList);
+            try {
+                sorter.sort(in, out);
+            } finally {
+                in.close();
+                if (outFileName.equals("stdout")) {
+                    out.flush();
+                } else {
+                    out.close();
+                }
             }
-            List<String> puzzleList = new ArrayList<String>();
+            System.out.println(sorter.getAnz() + " puzzles sorted (" + sorter.getGesAnz() + ")!");
+        } catch (Exception ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error sorting puzzle file", ex);
+        }
+    }
+
+    /**
+     * Rates all puzzles in <code>fileName</code> and adds them to the puzzle
+     * store in <code>storeDir</code> (only the givens are used). Puzzles without
+     * a unique solution and puzzles, that cannot be solved, are skipped.
+     * @param storeDir
+     * @param fileName
+     */
+    void insertIntoStore(String storeDir, String fileName) {
+        PuzzleStore store = null;
+        BufferedReader in = null;
+        try {
+            store = new PuzzleStore(storeDir);
+            in = new BufferedReader(new FileReader(fileName));
+            SudokuGenerator generator = SudokuGeneratorFactory.getDefaultGeneratorInstance();
+            SudokuSolver solver = SudokuSolverFactory.getDefaultSolverInstance();
+            Sudoku2 sudoku = new Sudoku2();
             String line = null;
-            int gesAnz = 0;
+            int count = 0;
+            int inserted = 0;
+            long ticks = System.currentTimeMillis();
             while ((line = in.readLine()) != null) {
-                gesAnz++;
-                boolean includePuzzle = true;
-                if (line.contains("#") && typeList.size() > 0) {
-                    includePuzzle = false;
-                    // determine puzzle type
-                    String inputStr = line.substring(line.indexOf('#') + 1).trim();
-                    int puzzleType = 3;
-                    String[] types = inputStr.split(" ");
-                    for (int i = 0; i < types.length; i++) {
-                        if (types[i].equals("x")) {
-                            puzzleType = 0;
-                            break;
-                        }
-                    }
-//                    if (inputStr.contains("x")) {
-//                        puzzleType = 0;
-                    if (puzzleType == 3) {
-                        if (inputStr.startsWith("ssts")) {
-                            puzzleType = 2;
-                        }
-                        if (inputStr.endsWith("ssts")) {
-                            puzzleType = 1;
-                        }
-                    }
-                    String typeStr = null;
-                    int compAnz = 0;
-                    String[] parts = inputStr.split(" ");
-                    if (parts.length > 1) {
-                        typeStr = parts[1];
-                    } else {
-                        // invalid type in input -> nothing to apply
-                        continue;
-                    }
-                    int index1 = typeStr.indexOf('(');
-                    int index2 = typeStr.indexOf(')');
-                    String orgTypeStr = typeStr;
-                    if (index1 != -1) {
-                        typeStr = typeStr.substring(0, index1);
-                        if (index2 != -1) {
-                            String anzStr = orgTypeStr.substring(index1 + 1, index2);
-                            if (anzStr.length() > 0) {
-                                compAnz = Integer.parseInt(anzStr);
-                            }
-                        }
-                    }
-                    // apply filter
-                    for (StepType actType : typeList) {
-                        if (typeStr.equals(actType.type.getArgName()) && puzzleType >= actType.puzzleType) {
-                            // filter fits, do comparison
-                            switch (actType.compType) {
-                                case StepType.EQUAL:
-                                    if (compAnz == actType.compAnz) {
-                                        includePuzzle = true;
-                                    }
-                                    break;
-                                case StepType.LT:
-                                    if (compAnz < actType.compAnz) {
-                                        includePuzzle = true;
-                                    }
-                                    break;
-                                case StepType.GT:
-                                    if (compAnz > actType.compAnz) {
-                                        includePuzzle = true;
-                                    }
-                                    break;
-                                default:
-                                    includePuzzle = true;
-                                    break;
-                            }
-                        }
-                        if (includePuzzle) {
-                            break;
-                        }
-                    }
+                line = line.trim();
+                if (line.length() == 0) {
+                    continue;
+                }
+                count++;
+                sudoku.setSudoku(line);
+                sudoku.setSudoku(sudoku.getSudoku(ClipboardMode.CLUES_ONLY));
+                if (!generator.validSolution(sudoku)) {
+                    continue;
                 }
-                if (includePuzzle) {
-                    puzzleList.add(line);
+                solver.setSudoku(sudoku);
+                solver.solve();
+                if (!sudoku.isSolved()) {
+                    continue;
                 }
+                store.add(sudoku, solver.getSteps());
+                inserted++;
             }
-            in.close();
-            int anz = puzzleList.size();
-            Collections.sort(puzzleList, new Comparator<String>() {
-
-                @Override
-                public int compare(String s1, String s2) {
-                    int index1 = s1.indexOf('#');
-                    int index2 = s2.indexOf('#');
-                    if (index1 == -1 && index2 == -1) {
-                        return s1.compareTo(s2);
-                    } else if (index1 == -1 && index2 != -1) {
-                        return -1;
-                    } else if (index1 != -1 && index2 == -1) {
-                        return 1;
-                    } else {
-                        return s1.substring(index1).compareTo(s2.substring(index2));
+            ticks = System.currentTimeMillis() - ticks;
+            System.out.println(inserted + " of " + count + " puzzles inserted (" + ticks + "ms), "
+                    + store.getAnz() + " puzzles in store");
+        } catch (IOException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error inserting puzzles", ex);
+        } finally {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+                if (store != null) {
+                    store.close();
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error closing files", ex);
+            }
+        }
+    }
+
+    /**
+     * Fills the puzzle store in <code>storeDir</code>: new puzzles are created
+     * and rated, until the store contains <code>anz</code> puzzles, that can be
+     * used for new games (see {@link PuzzleStore#takePuzzle(sudoku.DifficultyLevel, sudoku.GameMode) }),
+     * for every level (only for <code>level</code>, if it is not <code>null</code>).
+     * If <code>typeList</code> is not empty, only puzzles, that match the filter,
+     * are stored and counted; levels below the lowest level of the techniques in
+     * <code>typeList</code> are skipped (such puzzles cannot exist). The method gives
+     * up after {@link #FILL_STORE_MAX_TRIES} puzzles in a row could not be stored.
+     * @param storeDir
+     * @param anz
+     * @param typeList
+     * @param level
+     */
+    void fillStore(String storeDir, int anz, List<StepType> typeList, DifficultyLevel level) {
+        PuzzleStore store = null;
+        try {
+            store = new PuzzleStore(storeDir);
+            // number of puzzles still needed per level
+            int[] missing = new int[DifficultyType.values().length];
+            int[] minScores = new int[missing.length];
+            int missingAnz = 0;
+            // a puzzle, that contains a technique, is at least as hard as the technique
+            int minLevel = DifficultyType.EXTREME.ordinal();
+            for (StepType type : typeList) {
+                minLevel = Math.min(minLevel, type.type.getStepConfig().getLevel());
+            }
+            if (typeList.isEmpty()) {
+                minLevel = DifficultyType.EASY.ordinal();
+            }
+            for (int i = DifficultyType.EASY.ordinal(); i <= DifficultyType.EXTREME.ordinal(); i++) {
+                if (i > DifficultyType.EASY.ordinal()) {
+                    minScores[i] = Options.getInstance().getDifficultyLevel(i - 1).getMaxScore();
+                }
+                if (i < minLevel) {
+                    if (level != null && level.getOrdinal() == i) {
+                        System.out.println(level.getName() + ": no puzzles possible with the given techniques");
                     }
+                    continue;
+                }
+                if (level == null || level.getOrdinal() == i) {
+                    DifficultyLevel actLevel = Options.getInstance().getDifficultyLevel(i);
+                    missing[i] = Math.max(0, anz - store.getAvailableAnz(typeList, actLevel, minScores[i], Integer.MAX_VALUE));
+                    missingAnz += missing[i];
+                    System.out.println(actLevel.getName() + ": " + missing[i] + " puzzles missing");
+                }
+            }
+            SudokuGenerator generator = SudokuGeneratorFactory.getDefaultGeneratorInstance();
+            SudokuSolver solver = SudokuSolverFactory.getDefaultSolverInstance();
+            int count = 0;
+            long ticks = System.currentTimeMillis();
+            long lastOutput = ticks;
+            int tries = 0;
+            while (missingAnz > 0) {
+                if (tries >= FILL_STORE_MAX_TRIES) {
+                    System.out.println("No matching puzzle found in " + tries + " tries, giving up ("
+                            + missingAnz + " still missing)");
+                    break;
+                }
+                Sudoku2 sudoku = generator.generateNextSudoku(true);
+                count++;
+                tries++;
+                solver.setSudoku(sudoku);
+                solver.solve();
+                int ordinal = sudoku.getLevel().getOrdinal();
+                if (!sudoku.isSolved() || missing[ordinal] == 0 || sudoku.getScore() < minScores[ordinal]
+                        || !PuzzleStore.matches(typeList, solver.getSteps())) {
+                    continue;
+                }
+                tries = 0;
+                store.add(sudoku, solver.getSteps());
+                missing[ordinal]--;
+                missingAnz--;
+                if (System.currentTimeMillis() - lastOutput > 10000) {
+                    lastOutput = System.currentTimeMillis();
+                    System.out.println(count + " puzzles created, " + missingAnz + " still missing");
+                }
+            }
+            ticks = System.currentTimeMillis() - ticks;
+            System.out.println(count + " puzzles created (" + ticks + "ms), " + store.getAnz() + " puzzles in store");
+        } catch (IOException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error filling puzzle store", ex);
+        } finally {
+            try {
+                if (store != null) {
+                    store.close();
                 }
-            });
-            for (String key : puzzleList) {
+            } catch (IOException ex) {
+                Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error closing puzzle store", ex);
+            }
+        }
+    }
+
+    /**
+     * Writes all puzzles from the puzzle store in <code>storeDir</code>, that
+     * match the filter, to <code>outFileName</code> (or to the console).
+     * @param storeDir
+     * @param typeList
+     * @param level
+     * @param minScore
+     * @param maxScore
+     * @param outFileName
+     */
+    void queryStore(String storeDir, List<StepType> typeList, DifficultyLevel level,
+            int minScore, int maxScore, String outFileName) {
+        if (typeList.size() > 0) {
+            System.out.println("Filter:");
+            for (StepType tmpType : typeList) {
+                System.out.println("   " + tmpType);
+            }
+        }
+        PuzzleStore store = null;
+        PrintWriter out = null;
+        try {
+            store = new PuzzleStore(storeDir);
+            if (outFileName != null && !outFileName.equals("stdout")) {
+                out = new PrintWriter(new BufferedWriter(new FileWriter(outFileName)));
+            }
+            long ticks = System.currentTimeMillis();
+            int[] result = store.query(typeList, level, minScore, maxScore);
+            ticks = System.currentTimeMillis() - ticks;
+            for (int index : result) {
+                String line = (store.getGivens(index) + " #" + store.getLevel(index).getName() + " "
+                        + store.getScore(index) + " " + store.getStepString(index)).trim();
                 if (out != null) {
-                    out.write(key);
-                    out.newLine();
+                    out.println(line);
+                } else {
+                    System.out.println(line);
+                }
+            }
+            System.out.println(result.length + " of " + store.getAnz() + " puzzles found (" + ticks + "ms)");
+        } catch (IOException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error querying puzzle store", ex);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+            try {
+                if (store != null) {
+                    store.close();
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error closing puzzle store", ex);
+            }
+        }
+    }
+
+    /**
+     * Searches every puzzle in <code>fileName</code> for backdoors. Which searches
+     * are done is controlled by the settings of the backdoor search dialog;
+     * in contrast to the dialog all depths are searched, only minimal backdoors
+     * are printed.
+     * @param fileName
+     * @param outFileName
+     */
+    void backdoorSearch(String fileName, String outFileName) {
+        try {
+            BufferedReader in = new BufferedReader(new FileReader(fileName));
+            PrintWriter out = null;
+            if (outFileName == null) {
+                outFileName = fileName + ".out.txt";
+            }
+            if (!outFileName.equals("stdout")) {
+                out = new PrintWriter(new BufferedWriter(new FileWriter(outFileName)));
+            }
+            SudokuGenerator generator = SudokuGeneratorFactory.getDefaultGeneratorInstance();
+            Sudoku2 sudoku = new Sudoku2();
+            String line = null;
+            int count = 0;
+            long ticks = System.currentTimeMillis();
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0) {
+                    continue;
+                }
+                count++;
+                sudoku.setSudoku(line);
+                List<String> result = new ArrayList<String>();
+                result.add(sudoku.getSudoku(ClipboardMode.CLUES_ONLY) + " #" + count);
+                if (!generator.validSolution(sudoku)) {
+                    result.add("   invalid puzzle");
                 } else {
-                    System.out.println(key);
+                    if (Options.getInstance().isBdsSearchForCells()) {
+                        result.add(getBackdoorLine("cells (singles)", sudoku, true, null, BackdoorSearch.MAX_DEPTH));
+                        result.add(getBackdoorLine("cells (progress)", sudoku, true,
+                                Options.getInstance().solverStepsProgress, BackdoorSearch.MAX_DEPTH));
+                    }
+                    if (Options.getInstance().isBdsSearchForCandidates()) {
+                        int maxDepth = Options.getInstance().getBdsSearchCandidatesAnz() + 1;
+                        result.add(getBackdoorLine("candidates (singles)", sudoku, false, null, maxDepth));
+                        result.add(getBackdoorLine("candidates (progress)", sudoku, false,
+                                Options.getInstance().solverStepsProgress, maxDepth));
+                    }
+                }
+                for (String resultLine : result) {
+                    if (out != null) {
+                        out.println(resultLine);
+                    } else {
+                        System.out.println(resultLine);
+                    }
                 }
             }
+            in.close();
             if (out != null) {
                 out.close();
             }
-            System.out.println(anz + " puzzles sorted (" + gesAnz + ")!");
+            ticks = System.currentTimeMillis() - ticks;
+            System.out.println(count + " puzzles searched for backdoors in " + ticks + "ms");
         } catch (Exception ex) {
-            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error sorting puzzle file", ex);
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, "Error in backdoor search", ex);
         }
     }
 
+    /**
+     * Does one backdoor search for {@link #backdoorSearch(java.lang.String, java.lang.String) }.
+     * @param title
+     * @param sudoku
+     * @param cells
+     * @param stepConfigs
+     * @param maxDepth
+     * @return
+     * @throws InterruptedException
+     */
+    private String getBackdoorLine(String title, Sudoku2 sudoku, boolean cells, StepConfig[] stepConfigs, int maxDepth)
+            throws InterruptedException {
+        BackdoorSearch search = new BackdoorSearch(sudoku, cells, stepConfigs, maxDepth);
+        search.setStopAtFirstDepth(false);
+        List<String> backdoors = search.search(null);
+        StringBuilder tmp = new StringBuilder("   " + title + ": ");
+        if (backdoors.isEmpty()) {
+            tmp.append("-");
+        }
+        for (int i = 0; i < backdoors.size(); i++) {
+            if (i > 0) {
+                tmp.append("; ");
+            }
+            tmp.append(backdoors.get(i));
+        }
+        return tmp.toString();
+    }
+
     /**
      * @param args the command line arguments
      * @throws IOException  
@@ -525,10 +738,13 @@ public class Main {
             for (int i = 0; i < options.size(); i++) {
                 String arg = options.get(i).trim().toLowerCase();
                 if (arg.equals("/bs") || arg.equals("/vg") || arg.equals("/sc")
-                        || arg.equals("/sl")
+                        || arg.equals("/sl") || arg.equals("/bd")
                         || arg.equals("/so") || arg.equals("/c") || arg.equals("/o")
                         || arg.equals("/bsaf") || arg.equals("/bts") || arg.equals("/bt")
                         || arg.equals("/test") || arg.equals("/testf") || arg.equals("/vf")
+                        || arg.equals("/render") || arg.equals("/rsize") || arg.equals("/rdpi") || arg.equals("/bp")
+                        || arg.equals("/bl") || arg.equals("/db") || arg.equals("/dbi") || arg.equals("/dbs")
+                        || arg.equals("/dbg")
                         || (arg.equals("/s") && (i + 1 < options.size()) && options.get(i + 1).trim().charAt(0) != '/')) {
                     // args with parameters (only one parameter per arg permitted)
                     if (i + 1 >= options.size() || options.get(i + 1).trim().charAt(0) == '/') {
@@ -678,6 +894,63 @@ public class Main {
                 }
                 return;
             }
+            String storeDir = Options.getInstance().getPuzzleStoreDir();
+            if (argMap.containsKey("/db")) {
+                storeDir = argMap.get("/db");
+                argMap.remove("/db");
+            }
+            int minScore = 0;
+            int maxScore = Integer.MAX_VALUE;
+            if (argMap.containsKey("/dbs")) {
+                String scoreStr = argMap.get("/dbs").trim();
+                try {
+                    int index = scoreStr.indexOf('-');
+                    if (index == -1) {
+                        minScore = Integer.parseInt(scoreStr);
+                    } else {
+                        if (index > 0) {
+                            minScore = Integer.parseInt(scoreStr.substring(0, index));
+                        }
+                        if (index < scoreStr.length() - 1) {
+                            maxScore = Integer.parseInt(scoreStr.substring(index + 1));
+                        }
+                    }
+                } catch (NumberFormatException ex) {
+                    System.out.println("Invalid argument for option /dbs: " + scoreStr + " - option ignored!");
+                    minScore = 0;
+                    maxScore = Integer.MAX_VALUE;
+                }
+                argMap.remove("/dbs");
+            }
+            if (argMap.containsKey("/dbi") || argMap.containsKey("/dbg") || argMap.containsKey("/dbq")) {
+                String option = argMap.containsKey("/dbi") ? "/dbi" : argMap.containsKey("/dbg") ? "/dbg" : "/dbq";
+                printIgnoredOptions(option, argMap);
+                if (storeDir == null) {
+                    System.out.println("No puzzle store given (use /db <dir>)!");
+                } else if (option.equals("/dbi")) {
+                    new Main().insertIntoStore(storeDir, argMap.get("/dbi"));
+                } else if (option.equals("/dbg")) {
+                    try {
+                        new Main().fillStore(storeDir, Integer.parseInt(argMap.get("/dbg")), typeList, actLevel);
+                    } catch (NumberFormatException ex) {
+                        System.out.println("Invalid argument for option /dbg: " + argMap.get("/dbg"));
+                    }
+                } else {
+                    new Main().queryStore(storeDir, typeList, actLevel, minScore, maxScore, outFile);
+                }
+                if (consoleFrame == null) {
+                    System.exit(0);
+                }
+                return;
+            }
+            if (argMap.containsKey("/bd")) {
+                printIgnoredOptions("/bd", argMap);
+                new Main().backdoorSearch(argMap.get("/bd"), outFile);
+                if (consoleFrame == null) {
+                    System.exit(0);
+                }
+                return;
+            }
             if (argMap.containsKey("/s")) {
                 printIgnoredOptions("/s", argMap);
                 if (typeList.isEmpty() && actLevel == null) {
@@ -708,6 +981,11 @@ public class Main {
                 printStatistics = true;
                 argMap.remove("/vst");
             }
+            boolean printLibrary = false;
+            if (argMap.containsKey("/vl")) {
+                printLibrary = true;
+                argMap.remove("/vl");
+            }
             if (argMap.containsKey("/vf")) {
                 String arg = argMap.get("/vf");
                 int fishFormat = 0;
@@ -781,11 +1059,55 @@ public class Main {
                 }
                 return;
             }
+            if (argMap.containsKey("/render")) {
+                System.setProperty("java.awt.headless", "true");
+                String fileName = argMap.get("/render");
+                PuzzleRenderer renderer = new PuzzleRenderer(fileName, outFile != null ? outFile : fileName + "_png");
+                if (argMap.containsKey("/rsize")) {
+                    try {
+                        renderer.setSize(Integer.parseInt(argMap.get("/rsize")));
+                    } catch (NumberFormatException ex) {
+                        System.out.println("Invalid value for /rsize (" + argMap.get("/rsize") + "): ignored!");
+                    }
+                    argMap.remove("/rsize");
+                }
+                if (argMap.containsKey("/rdpi")) {
+                    try {
+                        renderer.setDpi(Integer.parseInt(argMap.get("/rdpi")));
+                    } catch (NumberFormatException ex) {
+                        System.out.println("Invalid value for /rdpi (" + argMap.get("/rdpi") + "): ignored!");
+                    }
+                    argMap.remove("/rdpi");
+                }
+                printIgnoredOptions("/render", argMap);
+                renderer.render();
+                if (consoleFrame == null) {
+                    System.exit(0);
+                }
+                return;
+            }
+            if (argMap.containsKey("/bp")) {
+                printIgnoredOptions("/bp", argMap);
+                System.setProperty("java.awt.headless", "true");
+                new PaintBenchmark(argMap.get("/bp")).run();
+                if (consoleFrame == null) {
+                    System.exit(0);
+                }
+                return;
+            }
+            if (argMap.containsKey("/bl")) {
+                printIgnoredOptions("/bl", argMap);
+                new LoadBenchmark(argMap.get("/bl")).run();
+                if (consoleFrame == null) {
+                    System.exit(0);
+                }
+                return;
+            }
             if (argMap.containsKey("/bsaf")) {
                 printIgnoredOptions("/bsaf", argMap);
                 String fileName = argMap.get("/bsaf");
                 new Main().batchSolve(fileName, null, printSolution, printSolutionPath, printStatistics,
-                        clipboardMode, outTypes, outFile, true);
+                        clipboardMode, outTypes, outFile, true, false, null, printLibrary);
                 if (consoleFrame == null) {
                     System.exit(0);
                 }
@@ -802,7 +1124,7 @@ public class Main {
                     return;
                 }
                 new Main().batchSolve(null, puzzleString, printSolution, printSolutionPath, printStatistics,
-                        clipboardMode, outTypes, outFile, true);
+                        clipboardMode, outTypes, outFile, true, false, null, printLibrary);
                 if (consoleFrame == null) {
                     System.exit(0);
                 }
@@ -1022,18 +1344,36 @@ public class Main {
                 + "          is less than | is greater than n\r\n"
                 + "  /sl <level>: create only puzzles with difficulty level <level>\r\n"
                 + "      0: easy; 1: medium; 2: hard; 3: unfair; 4: extreme\r\n"
+                + "  /db <dir>: puzzle store for /dbi and /dbq (default: the store set in the\r\n"
+                + "      configuration)\r\n"
+                + "  /dbi <file>: rate all puzzles in <file> and add them to the puzzle store\r\n"
+                + "  /dbg <n>: create puzzles, until the puzzle store contains <n> unused puzzles\r\n"
+                + "      for every level (or only for /sl) that match /sc (used for new games,\r\n"
+                + "      if the store is set in the configuration)\r\n"
+                + "  /dbq: list all puzzles in the puzzle store, that match /sc (the puzzle type\r\n"
+                + "      is ignored), /sl and /dbs; output is written to the console or a file\r\n"
+                + "      given by /o\r\n"
+                + "  /dbs <min>-<max>: only puzzles with a score between <min> and <max> (/dbq)\r\n"
                 + "  /bs <file>: batch solve puzzles in <file> (output written to <file>.out.txt\r\n"
                 + "       or a file given by /o)\r\n"
                 + "  /bsaf <file>: batch process puzzles in <file> (output as in /bs);\r\n"
                 + "       for each puzzle \"Find all Steps\" is executed\r\n"
                 + "  /bsa: execute \"Find all Steps\" for [puzzle] (output written to\r\n"
                 + "       <file>.out.txt or a file given by /o)\r\n"
+                + "  /bd <file>: search all puzzles in <file> for minimal backdoors (output\r\n"
+                + "       as in /bs; cells and/or candidates as set in the backdoor dialog)\r\n"
+                + "  /render <file>: render all puzzles in <file> as png files (written to\r\n"
+                + "       <file>_png/nnnnnn.png or a directory given by /o)\r\n"
+                + "  /rsize <size>: size of the images in pixel (default 400; only with /render)\r\n"
+                + "  /rdpi <dpi>: resolution of the images (default 96; only with /render)\r\n"
                 + "  /bt <file>: batch test using puzzle collection in <file> (output as in /bs)\r\n"
                 + "  /bts <step>[,<step>...]: find all occurences of <step> after any non single\r\n"
                 + "      step and check all eliminations against the solution of the puzzle\r\n"
                 + "  /vs: print solution in output file (only valid with /bs)\r\n"
                 + "  /vp: print complete solution for each puzzle (only valid with /bs)\r\n"
                 + "  /vst: print statistics (only valid with /bs)\r\n"
+                + "  /vl: print every step in library format, one line per step (only valid\r\n"
+                + "      with /bsaf and /bsa)\r\n"
                 + "  /vf <0|1|2>: set fish output format (default, numbers, cells)\r\n"
                 + "  /vg [l|c|s:]<step>[,<step>...]: print pm before every <step> in the solution\r\n"
                 + "      (only valid with /bs and /vp)\r\n"
@@ -1043,6 +1383,9 @@ public class Main {
                 + "  /o <file>: write output to <file>; if <file> is \"stdout\", all output is\r\n"
                 + "      written to the console\r\n"
                 + "  /stdin: read options from stdin\r\n"
+                + "  /bp <file>: measure the repaint times of the sudoku panel using the puzzles\r\n"
+                + "      in <file>\r\n"
+                + "  /bl <file>: measure how fast the puzzles in <file> can be loaded\r\n"
                 + "  /test <file>: run regression tester against test cases in <file>\r\n"
                 + "  /testf <file>: same as /test, but long running tests are ommitted\r\n"
                 + "\r\n"
@@ -1149,10 +1492,16 @@ class SearchForTypeThread extends Thread {
 
             //System.out.println("level: " + level.getName());
             while (!isInterrupted()) {
-                Sudoku2 newSudoku = generator.generateSudoku(false);
+                Sudoku2 newSudoku = generator.generateNextSudoku(false);
                 Sudoku2 clonedSudoku = newSudoku.clone();
                 solver.setSudoku(clonedSudoku);
-                solver.solve();
+                if (level != null) {
+                    // puzzles that are too easy are rejected below anyway
+                    solver.solve(Options.getInstance().getDifficultyLevel(DifficultyType.EXTREME.ordinal()),
+                            level, null, false, null, false, Options.getInstance().solverSteps, GameMode.PLAYING);
+                } else {
+                    solver.solve();
+                }
                 //System.out.println("result: " + clonedSudoku.isSolved() + "/" + clonedSudoku.getLevel().getName());
                 if (level != null) {
                     if (!clonedSudoku.isSolved()) {
@@ -1192,10 +1541,10 @@ class SearchForTypeThread extends Thread {
                             }
                             StringBuilder stepName = new StringBuilder(" " + type.getArgName());
                             if (type.isFish()) {
-                                if (steps.get(i).getEndoFins().size() > 0) {
+                                if (steps.get(i).getPackedEndoFins().size() > 0) {
                                     stepName.append("e");
                                 }
-                                if (steps.get(i).getCannibalistic().size() > 0) {
+                                if (steps.get(i).getPackedCannibalistic().size() > 0) {
                                     stepName.append("c");
                                 }
                             }
@@ -1342,10 +1691,22 @@ class BatchSolveThread extends Thread {
     private StepStatistic[] stepStatistics;
     private StepStatistic[] singleStepStatistics;
     private FindAllSteps findAllStepsInstance = null;
+    /** Write the steps of "Find all steps" in library format, one line per step. */
+    private boolean libraryOutput = false;
+    /** The output file (<code>null</code> means console). */
+    private PrintWriter outFile = null;
+    private SudokuSolver solver;
+    /** The puzzle that is currently processed. */
+    private Sudoku2 sudoku;
+    /** The puzzle before the current step (for /vg and /bt). */
+    private Sudoku2 tmpSudoku;
+    private Sudoku2 solvedSudoku;
+    /** All steps for /bt. */
+    private List<SolutionStep> allSteps;
 
     BatchSolveThread(String fn, String pStr, boolean ps, boolean pp, boolean pst,
             ClipboardMode cm, Set<SolutionType> t,
-            String ofn, boolean fas, boolean bft, List<SolutionType> tt) {
+            String ofn, boolean fas, boolean bft, List<SolutionType> tt, boolean lo) {
         fileName = fn;
         puzzleString = pStr;
         printSolution = ps;
@@ -1360,6 +1721,7 @@ class BatchSolveThread extends Thread {
         findAllSteps = fas;
         bruteForceTest = bft;
         testTypes = tt;
+        libraryOutput = lo && findAllSteps;
         if (bruteForceTest) {
             findAllStepsInstance = new FindAllSteps();
         }
@@ -1483,6 +1845,93 @@ class BatchSolveThread extends Thread {
 
     }
 
+    /**
+     * Writes one line of output either to {@link #outFile} or to the console.
+     * @param line
+     */
+    private void writeLine(String line) {
+        if (outFile != null) {
+            outFile.println(line);
+        } else {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Handles one step of the solution path or of "Find all steps": the
+     * grid is printed if requested, the step is checked against the
+     * solution (batch test), the statistics are adjusted and the
+     * step itself is written.
+     * @param step
+     */
+    private void handleStep(SolutionStep step) {
+        if (outputGrid || bruteForceTest) {
+            if (types != null && clipboardMode != null && types.contains(step.getType())
+                    && (printSolutionPath || findAllSteps)) {
+                String grid = tmpSudoku.getSudoku(clipboardMode, step);
+                String[] gridLines = grid.split("\r\n");
+                int end = clipboardMode == ClipboardMode.PM_GRID_WITH_STEP ? gridLines.length - 2 : gridLines.length;
+                for (int j = 0; j < end; j++) {
+                    writeLine("   " + gridLines[j]);
+                }
+            }
+            if (bruteForceTest && !step.getType().isSingle()) {
+                // get all steps for testType
+//                System.out.println("Running: " + tmpSudoku.getSudoku(ClipboardMode.LIBRARY));
+                allSteps.clear();
+                findAllStepsInstance.setSteps(allSteps);
+                findAllStepsInstance.setSudoku(tmpSudoku);
+                findAllStepsInstance.setTestType(testTypes);
+                findAllStepsInstance.run();
+                // check them
+                for (SolutionStep act : allSteps) {
+//                    System.out.println("   " + act);
+                    if (!testTypes.contains(act.getType())) {
+                        continue;
+                    }
+                    boolean invalid = false;
+                    adjustStatistics(act);
+                    if (!act.getValues().isEmpty()) {
+                        // Set
+                        for (int index : act.getIndices()) {
+                            if (sudoku.getValue(index) != solvedSudoku.getValue(index)) {
+                                invalid = true;
+                                stepStatistics[act.getType().ordinal()].anzInvalidSet++;
+                            }
+                        }
+                    }
+                    PackedIntSet candidatesToDelete = act.getPackedCandidatesToDelete();
+                    for (int i = 0; i < candidatesToDelete.size(); i++) {
+                        int cand = candidatesToDelete.get(i);
+                        if (Candidate.getPackedValue(cand) == solvedSudoku.getValue(Candidate.getPackedIndex(cand))) {
+                            invalid = true;
+                            stepStatistics[act.getType().ordinal()].anzInvalidCandDel++;
+                        }
+                    }
+                    if (invalid) {
+                        stepStatistics[act.getType().ordinal()].anzInvalidSteps++;
+                        writeLine("INVALID:");
+                        writeLine(sudoku.getSudoku(ClipboardMode.LIBRARY, act));
+                    }
+                }
+            }
+            solver.doStep(tmpSudoku, step);
+        }
+        if (printStatistic && !bruteForceTest) {
+            adjustStatistics(step);
+        }
+        if (printSolutionPath || findAllSteps) {
+            if (libraryOutput) {
+                // all steps from "Find all steps" belong to the unchanged puzzle
+                writeLine(sudoku.getSudoku(ClipboardMode.LIBRARY, step));
+            } else if (printStatistic) {
+                writeLine("   " + step.getCandidateString(false, true) + ": " + step.toString(2));
+            } else {
+                writeLine("   " + step.toString(2));
+            }
+        }
+    }
+
     @Override
     @SuppressWarnings("CallToThreadDumpStack")
     public void run() {
@@ -1492,13 +1941,14 @@ class BatchSolveThread extends Thread {
         templateAnz = 0;
         unsolvedAnz = 0;
         givenUpAnz = 0;
-        BufferedReader inFile = null;
-        PrintWriter outFile = null;
+        MappedLineReader inFile = null;
+        outFile = null;
+        ExecutorService findAllStepsExecutor = null;
         ticks = System.currentTimeMillis();
         count = 0;
         try {
             if (fileName != null) {
-                inFile = new BufferedReader(new FileReader(fileName));
+                inFile = new MappedLineReader(fileName);
             }
             if (outFileName == null) {
                 outFileName = fileName + ".out.txt";
@@ -1508,31 +1958,63 @@ class BatchSolveThread extends Thread {
             } else {
                 outFile = new PrintWriter(new BufferedWriter(new FileWriter(outFileName)));
             }
-            String line = null;
-            SudokuSolver solver = SudokuSolverFactory.getDefaultSolverInstance();
+            // either a String or the current line of inFile (only valid
+            // until the next line is read)
+            CharSequence line = null;
+            // format of the input file, determined by the first line
+            Boolean givensFormat = null;
+            solver = SudokuSolverFactory.getDefaultSolverInstance();
             //Sudoku2 sudoku = new Sudoku2(true);
-            Sudoku2 sudoku = new Sudoku2();
-            Sudoku2 tmpSudoku = null;
-            Sudoku2 solvedSudoku = null;
-            List<SolutionStep> allSteps = null;
+            sudoku = new Sudoku2();
+            tmpSudoku = null;
+            solvedSudoku = null;
+            allSteps = null;
             if (bruteForceTest) {
                 allSteps = new ArrayList<SolutionStep>();
             }
+            List<SolutionStep> findAllStepsList = null;
+            FindAllStepsListener findAllStepsListener = null;
+            if (findAllSteps) {
+                // FindAllSteps is run in its own thread (the batch thread must stay
+                // interruptible), but the thread is reused for all puzzles;
+                // the steps are written as soon as one family of techniques is done
+                findAllStepsExecutor = Executors.newSingleThreadExecutor();
+                findAllStepsList = new ArrayList<SolutionStep>();
+                findAllStepsListener = new FindAllStepsListener() {
+
+                    @Override
+                    public void stepsFound(List<SolutionStep> steps) {
+                        for (int i = 0; i < steps.size(); i++) {
+                            handleStep(steps.get(i));
+                        }
+                    }
+                };
+            }
             long outTicks = 0;
             while (!isInterrupted()
-                    && (inFile != null && (line = inFile.readLine()) != null)
+                    && (inFile != null && inFile.nextLine())
                     || (puzzleString != null)) {
                 if (puzzleString != null) {
-                    line = puzzleString;
+                    line = puzzleString.trim();
                     puzzleString = null;
+                } else {
+                    inFile.trim();
+                    line = inFile;
                 }
 //                System.out.println("solving: " + line);
-                line = line.trim();
                 if (line.length() == 0) {
                     continue;
                 }
 //                System.out.println(line);
-                sudoku.setSudoku(line);
+                if (line == inFile && givensFormat == null) {
+                    givensFormat = Sudoku2.isGivensString(line);
+                }
+                if (line != inFile || !givensFormat
+                        || !sudoku.setSudokuFromGivens(line, false)) {
+                    // other formats (or a line that doesnt fit the format
+                    // of the first line) go through the general parser
+                    sudoku.setSudoku(line.toString());
+                }
 //                System.out.println("Sudoku: " + sudoku.getSudoku(ClipboardMode.VALUES_ONLY));
                 if (outputGrid || bruteForceTest) {
                     tmpSudoku = sudoku.clone();
@@ -1547,13 +2029,7 @@ class BatchSolveThread extends Thread {
                 boolean givenUp = false;
                 boolean unsolved = false;
                 List<SolutionStep> steps = null;
-                if (findAllSteps) {
-                    steps = new ArrayList<SolutionStep>();
-                    Thread thread = new Thread(new FindAllSteps(steps, sudoku, null));
-                    thread.start();
-                    thread.join();
-                    //System.out.println("fas: " + steps.size());
-                } else {
+                if (!findAllSteps) {
                     // only for now: check the solution
                     generator.validSolution(sudoku);
                     solver.setSudoku(sudoku);
@@ -1615,98 +2091,37 @@ class BatchSolveThread extends Thread {
                             + guess + template + giveUp;
                     results[solver.getLevel().getOrdinal()]++;
                 }
-                if (outFile != null) {
-                    outFile.println(out);
-                } else {
-                    System.out.println(out);
-                }
+                writeLine(out);
 
-                if (printSolutionPath || findAllSteps || printStatistic || bruteForceTest) {
+                if (findAllSteps) {
+                    // "Find all steps" doesnt change the sudoku, so the header line
+                    // can be written first; the steps follow family by family
+                    FindAllSteps findAllStepsTask = new FindAllSteps(findAllStepsList, sudoku, null);
+                    findAllStepsTask.setListener(findAllStepsListener);
+                    Future<?> future = findAllStepsExecutor.submit(findAllStepsTask);
+                    try {
+                        future.get();
+                    } catch (InterruptedException ex) {
+                        future.cancel(true);
+                        interrupt();
+                        break;
+                    } catch (ExecutionException ex) {
+                        // one bad puzzle must not abort the whole batch
+                        Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                "Error in find all steps (puzzle #" + count + "): "
+                                + sudoku.getSudoku(ClipboardMode.LIBRARY), ex.getCause());
+                    }
+                    //System.out.println("fas: " + steps.size());
+                } else if (printSolutionPath || printStatistic || bruteForceTest) {
                     steps = new ArrayList<SolutionStep>(steps);
                     for (int i = 0; i < steps.size(); i++) {
-                        if (outputGrid || bruteForceTest) {
-                            if (types != null && clipboardMode != null && types.contains(steps.get(i).getType())
-                                    && (printSolutionPath || findAllSteps)) {
-                                String grid = tmpSudoku.getSudoku(clipboardMode, steps.get(i));
-                                String[] gridLines = grid.split("\r\n");
-                                int end = clipboardMode == ClipboardMode.PM_GRID_WITH_STEP ? gridLines.length - 2 : gridLines.length;
-                                for (int j = 0; j < end; j++) {
-                                    if (outFile != null) {
-                                        outFile.println("   " + gridLines[j]);
-                                    } else {
-                                        System.out.println("   " + gridLines[j]);
-                                    }
-                                }
-                            }
-                            if (bruteForceTest && !steps.get(i).getType().isSingle()) {
-                                // get all steps for testType
-//                                System.out.println("Running: " + tmpSudoku.getSudoku(ClipboardMode.LIBRARY));
-                                allSteps.clear();
-                                findAllStepsInstance.setSteps(allSteps);
-                                findAllStepsInstance.setSudoku(tmpSudoku);
-                                findAllStepsInstance.setTestType(testTypes);
-                                findAllStepsInstance.run();
-                                // check them
-                                for (SolutionStep act : allSteps) {
-//                                    System.out.println("   " + act);
-                                    if (!testTypes.contains(act.getType())) {
-                                        continue;
-                                    }
-                                    boolean invalid = false;
-                                    adjustStatistics(act);
-                                    if (!act.getValues().isEmpty()) {
-                                        // Set
-                                        for (int index : act.getIndices()) {
-                                            if (sudoku.getValue(index) != solvedSudoku.getValue(index)) {
-                                                invalid = true;
-                                                stepStatistics[act.getType().ordinal()].anzInvalidSet++;
-                                            }
-                                        }
-                                    }
-                                    for (Candidate cand : act.getCandidatesToDelete()) {
-                                        if (cand.getValue() == solvedSudoku.getValue(cand.getIndex())) {
-                                            invalid = true;
-                                            stepStatistics[act.getType().ordinal()].anzInvalidCandDel++;
-                                        }
-                                    }
-                                    if (invalid) {
-                                        stepStatistics[act.getType().ordinal()].anzInvalidSteps++;
-                                        if (outFile != null) {
-                                            outFile.println("INVALID:");
-                                            outFile.println(sudoku.getSudoku(ClipboardMode.LIBRARY, act));
-                                        } else {
-                                            System.out.println("INVALID:");
-                                            System.out.println(sudoku.getSudoku(ClipboardMode.LIBRARY, act));
-                                        }
-                                    }
-                                }
-                            }
-                            solver.doStep(tmpSudoku, steps.get(i));
-                        }
-                        if (printStatistic && !bruteForceTest) {
-                            adjustStatistics(steps.get(i));
-                        }
-                        if (printSolutionPath || findAllSteps) {
-                            if (outFile != null) {
-                                outFile.write("   ");
-                                if (printStatistic) {
-                                    outFile.write(steps.get(i).getCandidateString(false, true) + ": ");
-                                }
-                                outFile.println(steps.get(i).toString(2));
-                            } else {
-                                System.out.print("   ");
-                                if (printStatistic) {
-                                    System.out.print(steps.get(i).getCandidateString(false, true) + ": ");
-                                }
-                                System.out.println(steps.get(i).toString(2));
-                            }
-                        }
-                    }
-                    if (printStatistic && (printSolutionPath || findAllSteps)) {
-                        printStatistic(outFile, true);
-                        clearSingleStepStatistics();
+                        handleStep(steps.get(i));
                     }
                 }
+                if (printStatistic && (printSolutionPath || findAllSteps)) {
+                    printStatistic(outFile, true);
+                    clearSingleStepStatistics();
+                }
 //                    if (printStatistic) {
 //                        System.out.print(count + " -");
 //                        printStatistic(null, true);
@@ -1729,6 +2144,9 @@ class BatchSolveThread extends Thread {
             System.out.println("Error in batch solve:");
             ex.printStackTrace();
         } finally {
+            if (findAllStepsExecutor != null) {
+                findAllStepsExecutor.shutdownNow();
+            }
             try {
                 if (inFile != null) {
                     inFile.close();
@@ -1800,207 +2218,6 @@ class ShutDownThread extends Thread {
     }
 }
 
-class StepType {
-
-    static final int UNDEFINED = -1;
-    static final int EQUAL = 0;
-    static final int LT = 1;
-    static final int GT = 2;
-    SolutionType type;
-    int puzzleType = 0;
-    boolean isRemove = false;
-    int compType = UNDEFINED;
-    int compAnz = 0;
-
-    private StepType(SolutionType type, int puzzleType, boolean isRemove, int compType, int compAnz) {
-        this.type = type;
-        this.puzzleType = puzzleType;
-        this.isRemove = isRemove;
-        this.compType = compType;
-        this.compAnz = compAnz;
-    }
-
-    @Override
-    public String toString() {
-        char compChar = '-';
-        switch (compType) {
-            case EQUAL:
-                compChar = '=';
-                break;
-            case LT:
-                compChar = '<';
-                break;
-            case GT:
-                compChar = '>';
-                break;
-        }
-        if (compType != UNDEFINED) {
-            return type.getStepName() + " (" + puzzleType + ", " + compChar + compAnz + ")";
-        } else {
-            return type.getStepName() + " (" + puzzleType + ", -)";
-        }
-    }
-
-    public static void parseTypeStr(List<StepType> stepList, String inputStr) {
-        SolutionType type;
-        int puzzleType = 0;
-        boolean isRemove = false;
-        int compType = UNDEFINED;
-        int compAnz = 0;
-
-        inputStr = inputStr.toLowerCase();
-        if (inputStr.startsWith("-")) {
-            isRemove = true;
-            inputStr = inputStr.substring(1);
-        }
-        String compStr = null;
-        String typeStr = null;
-        int compIndex = -1;
-        compIndex = inputStr.indexOf('+');
-        int typeIndex = inputStr.indexOf(':');
-        if (typeIndex == -1 && compIndex != -1) {
-            compStr = inputStr.substring(compIndex + 1);
-            inputStr = inputStr.substring(0, compIndex);
-        } else if (typeIndex != -1 && compIndex == -1) {
-            typeStr = inputStr.substring(typeIndex);
-            inputStr = inputStr.substring(0, typeIndex);
-        } else if (typeIndex != -1 && compIndex != -1) {
-            if (typeIndex < compIndex) {
-                compStr = inputStr.substring(compIndex + 1);
-                typeStr = inputStr.substring(typeIndex, compIndex);
-                inputStr = inputStr.substring(0, typeIndex);
-            } else {
-                typeStr = inputStr.substring(typeIndex);
-                compStr = inputStr.substring(compIndex + 1, typeIndex);
-                inputStr = inputStr.substring(0, compIndex);
-            }
-        }
-        puzzleType = 0;
-        if (typeStr != null) {
-            if (typeStr.length() < 2) {
-                System.out.println("Puzzle type missing (assuming '0')!");
-            } else {
-                char typeModeChar = typeStr.charAt(1);
-                switch (typeModeChar) {
-                    case '0':
-                        puzzleType = 0; // step must be in puzzle, nothing else required
-                        break;
-                    case '1':
-                        puzzleType = 1; // SSTS + step + SSTS
-                        break;
-                    case '2':
-                        puzzleType = 2; // SSTS + step + Singles
-                        break;
-                    case '3':
-                        puzzleType = 3; // singles + step + singles
-                        break;
-                    default:
-                        System.out.println("Invalid puzzle type: " + typeModeChar + " (assuming '0')");
-                        break;
-                }
-            }
-        }
-        if (compStr != null) {
-            // now comparison
-            if (compStr.length() < 2) {
-                System.out.println("Invalid comparison spec - ignored!");
-            } else {
-                switch (compStr.charAt(0)) {
-                    case 'e':
-                        compType = EQUAL;
-                        break;
-                    case 'l':
-                        compType = LT;
-                        break;
-                    case 'g':
-                        compType = GT;
-                        break;
-                    default:
-                        System.out.println("Invalid comparison mode: " + compStr.charAt(0) + " (ignored)");
-                        break;
-                }
-                if (compType != UNDEFINED) {
-                    String compAnzStr = compStr.substring(1);
-                    try {
-                        compAnz = Integer.parseInt(compAnzStr);
-                    } catch (NumberFormatException ex) {
-                        System.out.println("Invalid comparison digit: " + compAnzStr + " (comparison ignored)");
-                        compType = UNDEFINED;
-                    }
-                }
-            }
-        }
-        type = null;
-        SolutionType[] values = SolutionType.values();
-        for (int j = 0; j < values.length; j++) {
-            if (values[j].getArgName().equals(inputStr)) {
-                type = values[j];
-            }
-        }
-        if (type == null) {
-            if (inputStr.equals("all")) {
-                for (SolutionType tmpType : SolutionType.values()) {
-                    if (!tmpType.isSingle()) {
-                        addDeleteStepInList(stepList, new StepType(tmpType, puzzleType, isRemove, compType, compAnz));
-                    }
-                }
-            } else if (inputStr.equals("nssts")) {
-                for (SolutionType tmpType : SolutionType.values()) {
-                    if (!tmpType.isSingle() && !tmpType.isSSTS()) {
-                        addDeleteStepInList(stepList, new StepType(tmpType, puzzleType, isRemove, compType, compAnz));
-                    }
-                }
-            } else if (inputStr.equals("nssts1")) {
-                for (SolutionType tmpType : SolutionType.values()) {
-                    if (!tmpType.isSingle() && !tmpType.isSSTS()
-                            && !tmpType.equals(SolutionType.TWO_STRING_KITE)
-                            && !tmpType.equals(SolutionType.SKYSCRAPER)
-                            && !tmpType.equals(SolutionType.BUG_PLUS_1)
-                            && !tmpType.equals(SolutionType.EMPTY_RECTANGLE)
-                            && !tmpType.equals(SolutionType.W_WING)
-                            && !tmpType.equals(SolutionType.UNIQUENESS_1)
-                            && !tmpType.equals(SolutionType.XYZ_WING)
-                            && !tmpType.equals(SolutionType.REMOTE_PAIR)) {
-                        addDeleteStepInList(stepList, new StepType(tmpType, puzzleType, isRemove, compType, compAnz));
-                    }
-                }
-            } else {
-                System.out.println("Invalid step name: " + inputStr + " (ignored!)");
-            }
-        } else {
-            addDeleteStepInList(stepList, new StepType(type, puzzleType, isRemove, compType, compAnz));
-        }
-    }
-
-    private static void addDeleteStepInList(List<StepType> stepList, StepType step) {
-        if (step.type == null) {
-            return;
-        }
-        boolean found = false;
-        for (int i = 0; i < stepList.size(); i++) {
-            StepType tmpStep = stepList.get(i);
-            if (tmpStep.type == step.type && tmpStep.puzzleType == step.puzzleType) {
-                found = true;
-                if (step.isRemove) {
-                    stepList.remove(i);
-                    i--;
-                } else {
-                    // allow multiple instances with same puzzleType
-//                    tmpStep.compType = step.compType;
-//                    tmpStep.compAnz = step.compAnz;
-                }
-            }
-        }
-        if (step.isRemove) {
-            if (!found) {
-                System.out.println("Could not remove step " + step.type.getArgName() + ":" + step.puzzleType + ": was not set yet.");
-            }
-        } else {
-            stepList.add(step);
-        }
-    }
-}
-
 class StepStatistic {
 
     SolutionType type;
@@ -1999,6 +1999,7 @@ public class MainFrame extends javax.swing.JFrame implements FlavorListener {
             SudokuSolver solver = SudokuSolverFactory.getDefaultSolverInstance();
             solver.solve(actDiffLevel, solvedSudoku, true, null, false,
                     Options.getInstance().solverSteps, Options.getInstance().getGameMode());
+            solver.retainSteps();
             tmpSudoku.setLevel(solvedSudoku.getLevel());
             tmpSudoku.setScore(solvedSudoku.getScore());
         }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sudoku;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Reads a puzzle file line by line for the batch modes. The file is
+ * memory mapped in windows of {@link #WINDOW_SIZE} bytes (larger, if a
+ * single line doesn't fit), lines are split directly in the mapped
+ * buffer.<br><br>
+ *
+ * The reader itself is a <code>CharSequence</code> for the current line,
+ * so that a line can be checked and parsed without creating a
+ * <code>String</code> (see {@link Sudoku2#setSudokuFromGivens(java.lang.CharSequence, boolean) }).
+ * {@link #charAt(int) } returns the raw bytes, which is correct for
+ * ASCII; {@link #toString() } decodes the line with the platform charset
+ * (like <code>FileReader</code>). The view is only valid until the next call
+ * to {@link #nextLine() }.<br><br>
+ *
+ * Lines end with '\n', '\r' or "\r\n", exactly as in
+ * <code>BufferedReader.readLine()</code>.
+ *
+ * @author hobiwan
+ */
+class MappedLineReader implements CharSequence, Closeable {
+
+    /** Default size of a mapped window. */
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+    /** The input file. */
+    private FileInputStream in;
+    /** The channel of {@link #in}. */
+    private FileChannel channel;
+    /** Size of the file. */
+    private long fileSize;
+    /** The currently mapped part of the file. */
+    private MappedByteBuffer buffer;
+    /** File position of {@link #buffer}. */
+    private long windowStart;
+    /** <code>true</code>, if {@link #buffer} reaches the end of the file. */
+    private boolean lastWindow;
+    /** Start of the current line in {@link #buffer}. */
+    private int lineStart = 0;
+    /** End of the current line in {@link #buffer} (exclusive). */
+    private int lineEnd = 0;
+    /** Start of the next line in {@link #buffer}. */
+    private int next = 0;
+    /** Buffer for {@link #toString() }. */
+    private byte[] bytes = new byte[256];
+
+    /**
+     * Opens <code>fileName</code> and maps the first window.
+     *
+     * @param fileName
+     * @throws IOException
+     */
+    MappedLineReader(String fileName) throws IOException {
+        in = new FileInputStream(fileName);
+        channel = in.getChannel();
+        fileSize = channel.size();
+        map(0, WINDOW_SIZE);
+    }
+
+    /**
+     * Maps a new window starting at <code>start</code>.
+     *
+     * @param start
+     * @param size
+     * @throws IOException
+     */
+    private void map(long start, long size) throws IOException {
+        size = Math.min(Math.min(size, fileSize - start), Integer.MAX_VALUE);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        windowStart = start;
+        lastWindow = start + size == fileSize;
+        lineStart = lineEnd = next = 0;
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return <code>false</code>, if the end of the file has been reached
+     * @throws IOException
+     */
+    boolean nextLine() throws IOException {
+        while (true) {
+            int limit = buffer.limit();
+            int index = next;
+            while (index < limit) {
+                byte b = buffer.get(index);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                index++;
+            }
+            // a '\r' at the end of a window could be followed by a '\n'
+            if (index < limit && (index < limit - 1 || lastWindow || buffer.get(index) == '\n')) {
+                lineStart = next;
+                lineEnd = index;
+                next = index + 1;
+                if (buffer.get(index) == '\r' && next < limit && buffer.get(next) == '\n') {
+                    next++;
+                }
+                return true;
+            }
+            if (lastWindow) {
+                if (next >= limit) {
+                    return false;
+                }
+                // last line without line end
+                lineStart = next;
+                lineEnd = limit;
+                next = limit;
+                return true;
+            }
+            // the line doesn't fit into the window: move the window (and make
+            // it larger, if the line fills the whole window)
+            map(windowStart + next, Math.max(WINDOW_SIZE, 2L * (limit - next)));
+        }
+    }
+
+    /**
+     * Removes white space at the beginning and at the end of the current line
+     * (same as <code>String.trim()</code>).
+     */
+    void trim() {
+        while (lineStart < lineEnd && (buffer.get(lineStart) & 0xff) <= ' ') {
+            lineStart++;
+        }
+        while (lineEnd > lineStart && (buffer.get(lineEnd - 1) & 0xff) <= ' ') {
+            lineEnd--;
+        }
+    }
+
+    @Override
+    public int length() {
+        return lineEnd - lineStart;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(lineStart + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * Creates a <code>String</code> from the current line.
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        int length = length();
+        if (bytes.length < length) {
+            bytes = new byte[length * 2];
+        }
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(lineStart + i);
+        }
+        return new String(bytes, 0, length, Charset.defaultCharset());
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -167,6 +167,15 @@ public final class Options {
     private String[] learningPuzzles = new String[CACHE_SIZE];    // 10 puzzles for training
     private String[] practisingPuzzles = new String[CACHE_SIZE];  // 10 puzzles for practising
     private int practisingPuzzlesLevel = -1;                      // the DifficultyLevel, for which the practising puzzles have been created
+    public static final int GENERATOR_THREADS = 0;                // number of background creation threads (0: one less than the number of cores)
+    public static final int GENERATOR_CACHE_TARGET = CACHE_SIZE;  // number of puzzles kept per DifficultyLevel/GameMode (at most CACHE_SIZE)
+    private int generatorThreads = GENERATOR_THREADS;
+    private int generatorCacheTarget = GENERATOR_CACHE_TARGET;
+    public static final String PUZZLE_STORE_DIR = null;           // puzzle store used by the background creation (null: none)
+    private String puzzleStoreDir = PUZZLE_STORE_DIR;
+    // SudokuSolver
+    public static final int SPECULATIVE_HINT_STEPS = 0;          // number of EXTREME techniques searched in advance by getHint() (0: off)
+    private int speculativeHintSteps = SPECULATIVE_HINT_STEPS;
     // ChainSolver
     public static final int RESTRICT_CHAIN_LENGTH = 20;      // maximale Länge von X-/XY-Chains, wenn restrictChainSize gesetzt ist
     public static final int RESTRICT_NICE_LOOP_LENGTH = 10;  // maximale Länge von Nice-Loops, wenn restrictChainSize gesetzt ist
@@ -174,6 +183,8 @@ public final class Options {
     private int restrictChainLength = RESTRICT_CHAIN_LENGTH;
     private int restrictNiceLoopLength = RESTRICT_NICE_LOOP_LENGTH;
     private boolean restrictChainSize = RESTRICT_CHAIN_SIZE;
+    public static final boolean SHORTEST_CHAINS_FIRST = false; // X-/XY-Chains: breadth first search, only the shortest chains for a hint
+    private boolean shortestChainsFirst = SHORTEST_CHAINS_FIRST;
     // TablingSolver
     public static final int MAX_TABLE_ENTRY_LENGTH = 1000;
 //    public static final int MAX_TABLE_ENTRY_LENGTH = 400;
@@ -232,6 +243,7 @@ public final class Options {
     public static final int ALL_STEPS_SORT_MODE = 4; // sort by StepType
     public static final int ALL_STEPS_ALS_CHAIN_LENGTH = 6; // maximum chain length in ALS-Chain search (all steps only)
     public static final boolean ALL_STEPS_ALS_CHAIN_FORWARD_ONLY = true;
+    public static final boolean ALL_STEPS_PARALLEL = true; // search the families of techniques in parallel
     private boolean allStepsSearchFish = ALL_STEPS_SEARCH_FISH;
     private int allStepsMaxFishType = ALL_STEPS_MAX_FISH_TYPE;
     private int allStepsMinFishSize = ALL_STEPS_MIN_FISH_SIZE;
@@ -249,6 +261,7 @@ public final class Options {
     private int allStepsSortMode = ALL_STEPS_SORT_MODE;
     private int allStepsAlsChainLength = ALL_STEPS_ALS_CHAIN_LENGTH;
     private boolean allStepsAlsChainForwardOnly = ALL_STEPS_ALS_CHAIN_FORWARD_ONLY;
+    private boolean allStepsParallel = ALL_STEPS_PARALLEL;
     //SudokuPanel
     // Coloring Solver
     public static final Color[] COLORING_COLORS = {
@@ -1215,6 +1228,62 @@ public final class Options {
         this.practisingPuzzlesLevel = practisingPuzzlesLevel;
     }
 
+    /**
+     * @return the generatorThreads
+     */
+    public int getGeneratorThreads() {
+        return generatorThreads;
+    }
+
+    /**
+     * @param generatorThreads the generatorThreads to set
+     */
+    public void setGeneratorThreads(int generatorThreads) {
+        this.generatorThreads = generatorThreads;
+    }
+
+    /**
+     * @return the generatorCacheTarget
+     */
+    public int getGeneratorCacheTarget() {
+        return generatorCacheTarget;
+    }
+
+    /**
+     * @param generatorCacheTarget the generatorCacheTarget to set
+     */
+    public void setGeneratorCacheTarget(int generatorCacheTarget) {
+        this.generatorCacheTarget = generatorCacheTarget;
+    }
+
+    /**
+     * @return the puzzleStoreDir
+     */
+    public String getPuzzleStoreDir() {
+        return puzzleStoreDir;
+    }
+
+    /**
+     * @param puzzleStoreDir the puzzleStoreDir to set
+     */
+    public void setPuzzleStoreDir(String puzzleStoreDir) {
+        this.puzzleStoreDir = puzzleStoreDir;
+    }
+
+    /**
+     * @return the speculativeHintSteps
+     */
+    public int getSpeculativeHintSteps() {
+        return speculativeHintSteps;
+    }
+
+    /**
+     * @param speculativeHintSteps the speculativeHintSteps to set
+     */
+    public void setSpeculativeHintSteps(int speculativeHintSteps) {
+        this.speculativeHintSteps = speculativeHintSteps;
+    }
+
     /**
      * @return the generatorPatterns
      */
@@ -1400,6 +1469,20 @@ public final class Options {
         this.allStepsAlsChainForwardOnly = allStepsAlsChainForwardOnly;
     }
 
+    /**
+     * @return the allStepsParallel
+     */
+    public boolean isAllStepsParallel() {
+        return allStepsParallel;
+    }
+
+    /**
+     * @param allStepsParallel the allStepsParallel to set
+     */
+    public void setAllStepsParallel(boolean allStepsParallel) {
+        this.allStepsParallel = allStepsParallel;
+    }
+
     private static class ProgressComparator implements Comparator<StepConfig> {
 
         @Override
@@ -1473,6 +1556,14 @@ public final class Options {
         this.restrictChainSize = restrictChainSize;
     }
 
+    public boolean isShortestChainsFirst() {
+        return shortestChainsFirst;
+    }
+
+    public void setShortestChainsFirst(boolean shortestChainsFirst) {
+        this.shortestChainsFirst = shortestChainsFirst;
+    }
+
     public int getMaxFins() {
         return maxFins;
     }
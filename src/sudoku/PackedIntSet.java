@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+package sudoku;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A duplicate free list of packed ints between 0 and {@link #MAX_VALUE}:
+ * candidates (<code>index * 10 + value</code>, see {@link Candidate#pack(int, int) })
+ * or entities (<code>type * 10 + number</code>, see {@link Entity#pack(int, int) }).
+ * {@link SolutionStep} holds its eliminations, fins and fish entities in
+ * such sets, the solvers add them without creating objects.<br><br>
+ *
+ * The values are kept in the order in which they were added (the order is
+ * visible in the textual representation of a step), a value that is already
+ * contained is not added again. Small sets are checked with a linear search,
+ * if a set grows larger than {@link #MASK_THRESHOLD}, a bitmask is
+ * used.<br><br>
+ *
+ * Siamese fish hold the cover sets and fins of both fishes in one list,
+ * the list must keep the duplicates (see {@link #setDuplicatesAllowed(boolean) }).
+ * The eliminations of a step keep them too: their number (duplicates included)
+ * is a sort criterion of {@link SolutionStep#compareTo(sudoku.SolutionStep) }.
+ *
+ * @author hobiwan
+ */
+public final class PackedIntSet implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /** The largest value, that can be stored in the set (cell 80, candidate 9). */
+    public static final int MAX_VALUE = 809;
+    /** Size of the set, above which {@link #mask} is used. */
+    private static final int MASK_THRESHOLD = 16;
+    /** Initial size of {@link #values}. */
+    private static final int INITIAL_CAPACITY = 8;
+    /** Shared by all empty sets. */
+    private static final int[] EMPTY_VALUES = new int[0];
+    /** The values in the order in which they were added. */
+    private int[] values = EMPTY_VALUES;
+    /** Number of values in {@link #values}. */
+    private int size = 0;
+    /** One bit for every value in the set; <code>null</code> for small sets and if {@link #duplicatesAllowed} is set. */
+    private long[] mask = null;
+    /** If set, {@link #add(int, int) } doesnt check for duplicates. */
+    private boolean duplicatesAllowed = false;
+
+    /** Creates an empty set. */
+    public PackedIntSet() {
+    }
+
+    @Override
+    public PackedIntSet clone() {
+        PackedIntSet newSet = new PackedIntSet();
+        newSet.set(this);
+        return newSet;
+    }
+
+    /**
+     * Makes this set a copy of <code>src</code>.
+     * @param src
+     */
+    public void set(PackedIntSet src) {
+        clear();
+        ensureCapacity(src.size);
+        System.arraycopy(src.values, 0, values, 0, src.size);
+        size = src.size;
+        duplicatesAllowed = src.duplicatesAllowed;
+        if (size > MASK_THRESHOLD && !duplicatesAllowed) {
+            createMask();
+        }
+    }
+
+    /**
+     * If <code>duplicatesAllowed</code> is set, values are always added, the
+     * set becomes a plain list. Used for Siamese fish.
+     * @param duplicatesAllowed
+     */
+    public void setDuplicatesAllowed(boolean duplicatesAllowed) {
+        this.duplicatesAllowed = duplicatesAllowed;
+        mask = null;
+        if (size > MASK_THRESHOLD && !duplicatesAllowed) {
+            createMask();
+        }
+    }
+
+    public boolean isDuplicatesAllowed() {
+        return duplicatesAllowed;
+    }
+
+    /**
+     * Adds <code>value</code> at the end of the set.
+     * @param value
+     * @return <code>false</code>, if <code>value</code> was already contained in the set
+     */
+    public boolean add(int value) {
+        return add(size, value);
+    }
+
+    /**
+     * Inserts <code>value</code> at position <code>pos</code>.
+     * @param pos
+     * @param value
+     * @return <code>false</code>, if <code>value</code> was already contained in the set
+     *          (and duplicates are not allowed)
+     */
+    public boolean add(int pos, int value) {
+        if (value < 0 || value > MAX_VALUE) {
+            throw new IllegalArgumentException("value out of range: " + value);
+        }
+        if (!duplicatesAllowed && contains(value)) {
+            return false;
+        }
+        ensureCapacity(size + 1);
+        if (pos < size) {
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+        }
+        values[pos] = value;
+        size++;
+        if (mask != null) {
+            mask[value >> 6] |= 1L << value;
+        } else if (size > MASK_THRESHOLD && !duplicatesAllowed) {
+            createMask();
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the value at position <code>pos</code>. If <code>value</code>
+     * is contained elsewhere in the set (and duplicates are not allowed),
+     * the value at <code>pos</code> is removed instead.
+     * @param pos
+     * @param value
+     * @return The old value
+     */
+    public int set(int pos, int value) {
+        int old = remove(pos);
+        add(pos, value);
+        return old;
+    }
+
+    /**
+     * Removes the value at position <code>pos</code>.
+     * @param pos
+     * @return The removed value
+     */
+    public int remove(int pos) {
+        int value = get(pos);
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+        if (mask != null) {
+            mask[value >> 6] &= ~(1L << value);
+        }
+        return value;
+    }
+
+    /**
+     * @param value
+     * @return <code>true</code>, if <code>value</code> is contained in the set
+     */
+    public boolean contains(int value) {
+        if (mask != null) {
+            return value >= 0 && value <= MAX_VALUE && (mask[value >> 6] & (1L << value)) != 0;
+        }
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param set
+     * @return <code>true</code>, if all values of <code>set</code> are contained in this set
+     */
+    public boolean containsAll(PackedIntSet set) {
+        for (int i = 0; i < set.size; i++) {
+            if (!contains(set.values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param pos
+     * @return The value at position <code>pos</code>
+     */
+    public int get(int pos) {
+        if (pos >= size) {
+            throw new IndexOutOfBoundsException("Index: " + pos + ", Size: " + size);
+        }
+        return values[pos];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        mask = null;
+    }
+
+    /**
+     * @return The number of different values in the set
+     */
+    public int distinctSize() {
+        if (!duplicatesAllowed) {
+            return size;
+        }
+        int anz = 0;
+        for (int i = 0; i < size; i++) {
+            if (indexOf(values[i], i) < 0) {
+                anz++;
+            }
+        }
+        return anz;
+    }
+
+    /**
+     * Removes all values that are contained in the set more than once,
+     * the first occurrence is kept.
+     */
+    public void removeDuplicates() {
+        int newSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (indexOf(values[i], newSize) < 0) {
+                values[newSize++] = values[i];
+            }
+        }
+        size = newSize;
+    }
+
+    /**
+     * Sorts the set as if it contained {@link Candidate} objects
+     * (see {@link Candidate#compareTo(sudoku.Candidate) }: by value, then by index).
+     */
+    public void sortCandidates() {
+        // insertion sort: the sets are small
+        for (int i = 1; i < size; i++) {
+            int act = values[i];
+            int j = i - 1;
+            while (j >= 0 && Candidate.compare(values[j], act) > 0) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = act;
+        }
+    }
+
+    /**
+     * @param value
+     * @param end
+     * @return The first position of <code>value</code> before <code>end</code> or -1
+     */
+    private int indexOf(int value, int end) {
+        for (int i = 0; i < end; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes sure, that {@link #values} can hold <code>capacity</code> values.
+     * @param capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, Math.max(INITIAL_CAPACITY, values.length * 2)));
+        }
+    }
+
+    /**
+     * Creates {@link #mask} for all values in the set.
+     */
+    private void createMask() {
+        mask = new long[MAX_VALUE / 64 + 1];
+        for (int i = 0; i < size; i++) {
+            mask[values[i] >> 6] |= 1L << values[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder tmp = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                tmp.append(", ");
+            }
+            tmp.append(values[i]);
+        }
+        return tmp.append("]").toString();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sudoku;
+
+import generator.SudokuGenerator;
+import generator.SudokuGeneratorFactory;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the repaint time of {@link SudokuPanel} (console option
+ * <code>/bp</code>). Every puzzle in the input file is shown with all
+ * candidates and painted with and without layered painting:
+ * <ul>
+ * <li><b>direct</b>: every repaint draws the whole sudoku (as before layered painting)</li>
+ * <li><b>layered, full</b>: the cached layer is invalid and has to be drawn completely</li>
+ * <li><b>layered, cursor</b>: the cursor is moved to every cell, only the changed
+ *      cells are redrawn</li>
+ * </ul>
+ * The panel is painted into a <code>BufferedImage</code>, so the benchmark
+ * can run headless.
+ *
+ * @author hobiwan
+ */
+public class PaintBenchmark {
+
+    /** Default size of the panel (about the height of a 4K display). */
+    public static final int DEFAULT_SIZE = 2000;
+    /** Maximum number of puzzles used from the input file. */
+    private static final int MAX_PUZZLES = 50;
+    /** The input file. */
+    private String fileName;
+    /** The size of the panel. */
+    private int size = DEFAULT_SIZE;
+
+    /**
+     * Creates a new benchmark.
+     *
+     * @param fileName File with puzzles, one per line
+     */
+    public PaintBenchmark(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Runs the benchmark and writes the results to the console.
+     */
+    public void run() {
+        SudokuPanel panel = new SudokuPanel(null);
+        panel.setSize(size, size);
+        panel.setShowCandidates(true);
+        BufferedImage screen = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        SudokuGenerator generator = SudokuGeneratorFactory.getDefaultGeneratorInstance();
+        long directTicks = 0;
+        int directAnz = 0;
+        long fullTicks = 0;
+        int fullAnz = 0;
+        long cursorTicks = 0;
+        int cursorAnz = 0;
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(fileName));
+            String line = null;
+            int puzzleAnz = 0;
+            while ((line = in.readLine()) != null && puzzleAnz < MAX_PUZZLES) {
+                line = line.trim();
+                if (line.length() < 81) {
+                    continue;
+                }
+                Sudoku2 sudoku = new Sudoku2();
+                sudoku.setSudoku(line.substring(0, 81));
+                if (!generator.validSolution(sudoku)) {
+                    continue;
+                }
+                puzzleAnz++;
+                panel.setSudokuForRendering(sudoku);
+
+                // warm up and direct painting
+                panel.setLayeredPainting(false);
+                paint(panel, screen);
+                for (int i = 0; i < 9; i++) {
+                    panel.moveCursor(i, i);
+                    long ticks = System.nanoTime();
+                    paint(panel, screen);
+                    directTicks += System.nanoTime() - ticks;
+                    directAnz++;
+                }
+                panel.setLayeredPainting(true);
+                long ticks = System.nanoTime();
+                paint(panel, screen);
+                fullTicks += System.nanoTime() - ticks;
+                fullAnz++;
+                for (int i = 0; i < Sudoku2.LENGTH; i++) {
+                    panel.moveCursor(Sudoku2.getLine(i), Sudoku2.getCol(i));
+                    ticks = System.nanoTime();
+                    paint(panel, screen);
+                    cursorTicks += System.nanoTime() - ticks;
+                    cursorAnz++;
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error reading puzzles", ex);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                    // nothing to do
+                }
+            }
+        }
+        System.out.println("Paint benchmark (" + size + "x" + size + " pixel, all candidates):");
+        printResult("direct", directTicks, directAnz);
+        printResult("layered, full", fullTicks, fullAnz);
+        printResult("layered, cursor", cursorTicks, cursorAnz);
+    }
+
+    /**
+     * Paints the panel into <code>image</code>.
+     *
+     * @param panel
+     * @param image
+     */
+    private void paint(SudokuPanel panel, BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, image.getWidth(), image.getHeight());
+        panel.paintComponent(g);
+        g.dispose();
+    }
+
+    /**
+     * Prints one line of the result.
+     *
+     * @param name
+     * @param ticks
+     * @param anz
+     */
+    private void printResult(String name, long ticks, int anz) {
+        double avg = anz == 0 ? 0 : ticks / 1000000.0 / anz;
+        System.out.println(String.format("  %-16s %6d repaints, %8.3f ms/repaint", name + ":", anz, avg));
+    }
+
+    /**
+     * @param size the size to set
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Filters and sorts puzzle files created with <code>/s</code> (console option
+ * <code>/so</code>). The files can be much larger than the heap:<br>
+ * <ul>
+ * <li>The filter is applied to every line while it is read.</li>
+ * <li>For every line the start of the sort key (the '#') is determined
+ * only once. The lines are collected in a run until the run reaches
+ * {@link #runSize} bytes (estimated); the run is then sorted and written
+ * to a temporary file.</li>
+ * <li>All runs are merged ({@link #MAX_MERGE_RUNS} at a time, if there are
+ * more, the merge is done in more than one pass).</li>
+ * </ul>
+ * If the whole file fits into one run, no temporary files are written.<br><br>
+ *
+ * The order is the same as before: Lines without '#' come first and are sorted
+ * by the whole line, all other lines are sorted by the part starting with the
+ * '#'. The sort is stable, lines with equal keys keep the order of the input
+ * file. The temporary files are written to <code>java.io.tmpdir</code>.
+ *
+ * @author hobiwan
+ */
+class PuzzleFileSorter {
+
+    /** Maximum number of runs, that are merged at once. */
+    private static final int MAX_MERGE_RUNS = 128;
+    /** Estimated memory per line in a run (without the characters). */
+    private static final int LINE_OVERHEAD = 64;
+    /** The filter (can be empty). */
+    private List<StepType> typeList;
+    /** Maximum estimated size of a run in bytes. */
+    private long runSize = Runtime.getRuntime().maxMemory() / 4;
+    /** The lines of the current run. */
+    private String[] lines = new String[1024];
+    /** For every line in {@link #lines} the index of the '#' or -1. */
+    private int[] keys = new int[1024];
+    /** Number of lines in the current run. */
+    private int lineAnz = 0;
+    /** Estimated size of the current run. */
+    private long actRunSize = 0;
+    /** The order of the lines in the current run after sorting. */
+    private int[] order = new int[1024];
+    /** Temporary array for the merge sort. */
+    private int[] tmpOrder = new int[1024];
+    /** All runs written so far. */
+    private List<File> runs = new ArrayList<File>();
+    /** Number of lines read. */
+    private int gesAnz = 0;
+    /** Number of lines that passed the filter. */
+    private int anz = 0;
+
+    /**
+     * Creates a new sorter.
+     * @param typeList The filter
+     */
+    PuzzleFileSorter(List<StepType> typeList) {
+        this.typeList = typeList;
+    }
+
+    /**
+     * Sets the maximum size of a run in bytes.
+     * @param runSize
+     */
+    void setRunSize(long runSize) {
+        this.runSize = runSize;
+    }
+
+    /**
+     * Filters and sorts <code>in</code>, the result is written to <code>out</code>.
+     * The writers are not closed.
+     * @param in
+     * @param out
+     * @throws IOException
+     */
+    void sort(BufferedReader in, BufferedWriter out) throws IOException {
+        try {
+            String line = null;
+            while ((line = in.readLine()) != null) {
+                gesAnz++;
+                if (includePuzzle(line)) {
+                    anz++;
+                    addLine(line);
+                }
+            }
+            if (runs.isEmpty()) {
+                // everything fits into memory
+                sortRun();
+                for (int i = 0; i < lineAnz; i++) {
+                    out.write(lines[order[i]]);
+                    out.newLine();
+                }
+            } else {
+                if (lineAnz > 0) {
+                    writeRun();
+                }
+                mergeRuns(out);
+            }
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    /**
+     * @return The number of lines in the input.
+     */
+    int getGesAnz() {
+        return gesAnz;
+    }
+
+    /**
+     * @return The number of lines, that passed the filter.
+     */
+    int getAnz() {
+        return anz;
+    }
+
+    /**
+     * Applies the filter to one line of the input.
+     * @param line
+     * @return
+     */
+    private boolean includePuzzle(String line) {
+        if (!line.contains("#") || typeList.isEmpty()) {
+            return true;
+        }
+        // determine puzzle type
+        String inputStr = line.substring(line.indexOf('#') + 1).trim();
+        int puzzleType = 3;
+        String[] parts = inputStr.split(" ");
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i].equals("x")) {
+                puzzleType = 0;
+                break;
+            }
+        }
+        if (puzzleType == 3) {
+            if (inputStr.startsWith("ssts")) {
+                puzzleType = 2;
+            }
+            if (inputStr.endsWith("ssts")) {
+                puzzleType = 1;
+            }
+        }
+        if (parts.length <= 1) {
+            // invalid type in input -> nothing to apply
+            return false;
+        }
+        String typeStr = parts[1];
+        int compAnz = 0;
+        int index1 = typeStr.indexOf('(');
+        int index2 = typeStr.indexOf(')');
+        if (index1 != -1) {
+            if (index2 != -1) {
+                String anzStr = typeStr.substring(index1 + 1, index2);
+                if (anzStr.length() > 0) {
+                    compAnz = Integer.parseInt(anzStr);
+                }
+            }
+            typeStr = typeStr.substring(0, index1);
+        }
+        // apply filter
+        for (StepType actType : typeList) {
+            if (typeStr.equals(actType.type.getArgName()) && puzzleType >= actType.puzzleType) {
+                // filter fits, do comparison
+                switch (actType.compType) {
+                    case StepType.EQUAL:
+                        if (compAnz == actType.compAnz) {
+                            return true;
+                        }
+                        break;
+                    case StepType.LT:
+                        if (compAnz < actType.compAnz) {
+                            return true;
+                        }
+                        break;
+                    case StepType.GT:
+                        if (compAnz > actType.compAnz) {
+                            return true;
+                        }
+                        break;
+                    default:
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a line to the current run; if the run is full, it is
+     * written to disk.
+     * @param line
+     * @throws IOException
+     */
+    private void addLine(String line) throws IOException {
+        if (lineAnz == lines.length) {
+            int newLength = lines.length * 2;
+            String[] newLines = new String[newLength];
+            System.arraycopy(lines, 0, newLines, 0, lineAnz);
+            lines = newLines;
+            int[] newKeys = new int[newLength];
+            System.arraycopy(keys, 0, newKeys, 0, lineAnz);
+            keys = newKeys;
+            order = new int[newLength];
+            tmpOrder = new int[newLength];
+        }
+        lines[lineAnz] = line;
+        keys[lineAnz] = line.indexOf('#');
+        lineAnz++;
+        actRunSize += LINE_OVERHEAD + 2 * line.length();
+        if (actRunSize >= runSize) {
+            writeRun();
+        }
+    }
+
+    /**
+     * Sorts the current run and writes it to a temporary file.
+     * @throws IOException
+     */
+    private void writeRun() throws IOException {
+        sortRun();
+        File run = File.createTempFile("hodoku", ".run");
+        run.deleteOnExit();
+        runs.add(run);
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(run), "UTF-8"));
+        try {
+            for (int i = 0; i < lineAnz; i++) {
+                out.write(lines[order[i]]);
+                out.write('\n');
+                lines[order[i]] = null;
+            }
+        } finally {
+            out.close();
+        }
+        lineAnz = 0;
+        actRunSize = 0;
+    }
+
+    /**
+     * Sorts {@link #order} for the current run (stable merge sort).
+     */
+    private void sortRun() {
+        for (int i = 0; i < lineAnz; i++) {
+            order[i] = i;
+        }
+        mergeSort(0, lineAnz);
+    }
+
+    /**
+     * Sorts <code>order[from]</code> to <code>order[to - 1]</code>.
+     * @param from
+     * @param to
+     */
+    private void mergeSort(int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(from, middle);
+        mergeSort(middle, to);
+        if (compare(order[middle - 1], order[middle]) <= 0) {
+            // already in order
+            return;
+        }
+        System.arraycopy(order, from, tmpOrder, from, to - from);
+        int i = from;
+        int j = middle;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < middle && compare(tmpOrder[i], tmpOrder[j]) <= 0)) {
+                order[k] = tmpOrder[i++];
+            } else {
+                order[k] = tmpOrder[j++];
+            }
+        }
+    }
+
+    /**
+     * Compares two lines of the current run.
+     * @param index1
+     * @param index2
+     * @return
+     */
+    private int compare(int index1, int index2) {
+        return compare(lines[index1], keys[index1], lines[index2], keys[index2]);
+    }
+
+    /**
+     * Compares two lines: lines without key ('#') are sorted before lines
+     * with key, lines with key are sorted by the key, all other lines
+     * by the whole line.
+     * @param s1
+     * @param key1 Index of the '#' in <code>s1</code> or -1
+     * @param s2
+     * @param key2 Index of the '#' in <code>s2</code> or -1
+     * @return
+     */
+    private static int compare(String s1, int key1, String s2, int key2) {
+        if (key1 == -1 && key2 != -1) {
+            return -1;
+        } else if (key1 != -1 && key2 == -1) {
+            return 1;
+        }
+        int start1 = Math.max(key1, 0);
+        int start2 = Math.max(key2, 0);
+        int length1 = s1.length() - start1;
+        int length2 = s2.length() - start2;
+        int length = Math.min(length1, length2);
+        for (int i = 0; i < length; i++) {
+            char c1 = s1.charAt(start1 + i);
+            char c2 = s2.charAt(start2 + i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length1 - length2;
+    }
+
+    /**
+     * Merges all runs into <code>out</code>. If there are too many runs,
+     * they are merged in groups into larger runs first.
+     * @param out
+     * @throws IOException
+     */
+    private void mergeRuns(BufferedWriter out) throws IOException {
+        while (runs.size() > MAX_MERGE_RUNS) {
+            List<File> newRuns = new ArrayList<File>();
+            try {
+                for (int i = 0; i < runs.size(); i += MAX_MERGE_RUNS) {
+                    File run = File.createTempFile("hodoku", ".run");
+                    run.deleteOnExit();
+                    newRuns.add(run);
+                    BufferedWriter runOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(run), "UTF-8"));
+                    try {
+                        merge(runs.subList(i, Math.min(i + MAX_MERGE_RUNS, runs.size())), runOut, false);
+                    } finally {
+                        runOut.close();
+                    }
+                }
+            } finally {
+                for (File run : runs) {
+                    run.delete();
+                }
+                runs = newRuns;
+            }
+        }
+        merge(runs, out, true);
+    }
+
+    /**
+     * k-way merge of <code>mergeRuns</code>. If two lines are equal, the line
+     * from the earlier run is written first (the sort stays stable).
+     * @param mergeRuns
+     * @param out
+     * @param newLine <code>true</code>: lines are terminated by {@link BufferedWriter#newLine() },
+     *      else by '\n' (temporary files)
+     * @throws IOException
+     */
+    private void merge(List<File> mergeRuns, BufferedWriter out, boolean newLine) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(mergeRuns.size());
+        List<RunReader> readers = new ArrayList<RunReader>(mergeRuns.size());
+        try {
+            for (int i = 0; i < mergeRuns.size(); i++) {
+                RunReader reader = new RunReader(mergeRuns.get(i), i);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                out.write(reader.line);
+                if (newLine) {
+                    out.newLine();
+                } else {
+                    out.write('\n');
+                }
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+
+    /**
+     * Reads one run during the merge.
+     */
+    private static class RunReader implements Comparable<RunReader> {
+
+        /** The run. */
+        private BufferedReader in;
+        /** Index of the run (for stability). */
+        private int runIndex;
+        /** The current line. */
+        private String line;
+        /** Index of the '#' in {@link #line} or -1. */
+        private int key;
+
+        /**
+         * Opens a run.
+         * @param run
+         * @param runIndex
+         * @throws IOException
+         */
+        RunReader(File run, int runIndex) throws IOException {
+            in = new BufferedReader(new InputStreamReader(new FileInputStream(run), "UTF-8"), 1 << 16);
+            this.runIndex = runIndex;
+        }
+
+        /**
+         * Reads the next line.
+         * @return <code>false</code>, if the run is exhausted
+         * @throws IOException
+         */
+        boolean next() throws IOException {
+            line = in.readLine();
+            if (line == null) {
+                return false;
+            }
+            key = line.indexOf('#');
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader o) {
+            int result = compare(line, key, o.line, o.key);
+            if (result == 0) {
+                result = runIndex - o.runIndex;
+            }
+            return result;
+        }
+    }
+}
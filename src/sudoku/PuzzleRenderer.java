@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sudoku;
+
+import generator.SudokuGenerator;
+import generator.SudokuGeneratorFactory;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.FileImageOutputStream;
+
+/**
+ * Renders all puzzles in a file to png files (console option <code>/render</code>).
+ * The rendering code of {@link SudokuPanel} is used, the program should be
+ * running with <code>java.awt.headless=true</code>.<br><br>
+ *
+ * Every thread has its own {@link SudokuPanel}, its own image and its
+ * own ImageWriter; all objects are reused for every puzzle. The panels
+ * are created in the calling thread, since the constructor of
+ * {@link SudokuPanel} uses the default solver.<br><br>
+ *
+ * The puzzles are read line by line (the first 81 characters of every
+ * line are used, as in <code>/bs</code>) and written to
+ * <code>&lt;outDir&gt;/nnnnnn.png</code>, where <code>nnnnnn</code> is
+ * the line number in the input file. Invalid puzzles are skipped.
+ *
+ * @author hobiwan
+ */
+public class PuzzleRenderer {
+
+    /** Default size of the images in pixel. */
+    public static final int DEFAULT_SIZE = 400;
+    /** Default resolution stored in the png files. */
+    public static final int DEFAULT_DPI = 96;
+    /** The input file. */
+    private String fileName;
+    /** The directory, into which the images are written. */
+    private File outDir;
+    /** The size of the images. */
+    private int size = DEFAULT_SIZE;
+    /** The resolution stored in the images. */
+    private int dpi = DEFAULT_DPI;
+    /** The number of rendering threads. */
+    private int threadAnz = Runtime.getRuntime().availableProcessors();
+    /** The input, shared by all threads. */
+    private BufferedReader in;
+    /** The number of the last line read. */
+    private int lineNumber = 0;
+    /** Number of images written. */
+    private AtomicInteger rendered = new AtomicInteger();
+    /** Number of puzzles, that were skipped. */
+    private AtomicInteger invalid = new AtomicInteger();
+
+    /**
+     * Creates a new renderer.
+     *
+     * @param fileName The file containing the puzzles
+     * @param outDir The directory for the png files (is created, if it doesnt exist)
+     */
+    public PuzzleRenderer(String fileName, String outDir) {
+        this.fileName = fileName;
+        this.outDir = new File(outDir);
+    }
+
+    /**
+     * Renders all puzzles. Statistics are written to the console.
+     */
+    public void render() {
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            System.out.println("Can't create directory " + outDir.getPath() + "!");
+            return;
+        }
+        long ticks = System.currentTimeMillis();
+        try {
+            in = new BufferedReader(new FileReader(fileName));
+            // the panels must be created in this thread
+            Renderer[] renderers = new Renderer[threadAnz];
+            for (int i = 0; i < renderers.length; i++) {
+                renderers[i] = new Renderer();
+            }
+            Thread[] threads = new Thread[threadAnz - 1];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(renderers[i + 1], "PuzzleRenderer-" + (i + 1));
+                threads[i].start();
+            }
+            renderers[0].run();
+            for (int i = 0; i < threads.length; i++) {
+                threads[i].join();
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error rendering puzzles", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                    // nothing to do
+                }
+            }
+        }
+        ticks = System.currentTimeMillis() - ticks;
+        int anz = rendered.get();
+        System.out.println(anz + " puzzles rendered in " + ticks + "ms ("
+                + (ticks == 0 ? anz : (anz * 1000L / ticks)) + " images/s)");
+        if (invalid.get() > 0) {
+            System.out.println(invalid.get() + " invalid puzzles skipped");
+        }
+    }
+
+    /**
+     * Gets the next puzzle from the input file.
+     *
+     * @param number Array of length 1 that receives the line number
+     * @return The puzzle or <code>null</code>, if the file is exhausted
+     * @throws IOException
+     */
+    private synchronized String nextPuzzle(int[] number) throws IOException {
+        String line = null;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() >= 81) {
+                number[0] = lineNumber;
+                return line.substring(0, 81);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders puzzles until the input file is exhausted.
+     */
+    private class Renderer implements Runnable {
+
+        /** The panel used for rendering. */
+        private SudokuPanel panel = new SudokuPanel(null);
+        /** The image, that is reused for every puzzle. */
+        private BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_3BYTE_BGR);
+
+        Renderer() {
+            panel.setShowCandidates(false);
+        }
+
+        @Override
+        public void run() {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+            if (!writers.hasNext()) {
+                System.out.println("No png ImageWriter available!");
+                return;
+            }
+            ImageWriter imageWriter = writers.next();
+            SudokuGenerator generator = SudokuGeneratorFactory.getInstance();
+            try {
+                IIOMetadata metadata = SudokuPanel.getPNGMetadata(imageWriter, image, dpi);
+                int[] number = new int[1];
+                String puzzle = null;
+                while ((puzzle = nextPuzzle(number)) != null) {
+                    Sudoku2 sudoku = new Sudoku2();
+                    sudoku.setSudoku(puzzle);
+                    if (!generator.validSolution(sudoku)) {
+                        System.out.println("Invalid puzzle in line " + number[0] + ": " + puzzle);
+                        invalid.incrementAndGet();
+                        continue;
+                    }
+                    panel.setSudokuForRendering(sudoku);
+                    panel.drawSudokuImage(image, false);
+                    File file = new File(outDir, String.format("%06d.png", number[0]));
+                    // FileImageOutputStream doesnt truncate existing files
+                    file.delete();
+                    FileImageOutputStream out = new FileImageOutputStream(file);
+                    try {
+                        imageWriter.setOutput(out);
+                        imageWriter.write(new IIOImage(image, null, metadata));
+                    } finally {
+                        out.close();
+                    }
+                    rendered.incrementAndGet();
+                }
+            } catch (IIOInvalidTreeException ex) {
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error creating png metadata", ex);
+            } catch (IOException ex) {
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Error rendering puzzles", ex);
+            } finally {
+                imageWriter.dispose();
+                SudokuGeneratorFactory.giveBack(generator);
+            }
+        }
+    }
+
+    /**
+     * @param size the size to set
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * @param dpi the dpi to set
+     */
+    public void setDpi(int dpi) {
+        this.dpi = dpi;
+    }
+
+    /**
+     * @param threadAnz the threadAnz to set
+     */
+    public void setThreadAnz(int threadAnz) {
+        this.threadAnz = Math.max(1, threadAnz);
+    }
+}
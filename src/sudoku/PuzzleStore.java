@@ -0,0 +1,818 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sudoku;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A file based store for rated puzzles (console options <code>/db</code>,
+ * <code>/dbi</code>, <code>/dbg</code> and <code>/dbq</code>; optionally used
+ * by the background generator, see {@link Options#getPuzzleStoreDir() }).<br><br>
+ *
+ * The store is a directory with append-only segment files
+ * (<code>segment-nnnnn.dat</code>). Every segment starts with a header:
+ * <ul>
+ * <li>magic number and version</li>
+ * <li>a fingerprint of the step configuration, with which the puzzles in
+ *      the segment were rated (see {@link #getConfigHash() })</li>
+ * <li>the names of all techniques ({@link SolutionType#getArgName() }),
+ *      the records refer to techniques by their index in this table</li>
+ * </ul>
+ * The header is followed by one record per puzzle:
+ * <ul>
+ * <li>number of techniques in the step histogram (1 byte)</li>
+ * <li>givens, two cells per byte ({@link #GIVENS_LENGTH} bytes)</li>
+ * <li>level ordinal (1 byte) and score (4 bytes)</li>
+ * <li>for every technique used in the solution: index, number of steps and
+ *      maximum number of candidates deleted by one step (1 byte each,
+ *      counts are limited to 255)</li>
+ * </ul>
+ * Existing data are never rewritten: a new segment is started, if the last
+ * one is full or if the step configuration has changed. A record, that was
+ * only partly written, is ignored (and overwritten by the next insert).<br><br>
+ *
+ * The store can be used as a pool of puzzles for new games (see
+ * {@link #takePuzzle(sudoku.DifficultyLevel, sudoku.GameMode) }): every puzzle
+ * is given out only once, the indices of all puzzles given out are appended
+ * to <code>served.dat</code> (delete the file to use all puzzles again).
+ * A random puzzle is taken in constant time from a list of all suitable
+ * puzzles, that is built once per level and {@link GameMode}.<br><br>
+ *
+ * Only the segments are stored on disk. When the store is opened, all
+ * segments are scanned once and the indexes are built in memory: the file
+ * position, level and score of every record and one bitmap per level and
+ * per technique. The histogram is read from disk, if a query has to check
+ * the number of candidates deleted.<br><br>
+ *
+ * All public methods are synchronized, the store can be shared between
+ * threads.
+ *
+ * @author hobiwan
+ */
+public class PuzzleStore implements Closeable {
+
+    /** Magic number at the start of every segment ("HDKS"). */
+    private static final int MAGIC = 0x48444b53;
+    /** Version of the file format. */
+    private static final int VERSION = 1;
+    /** A new segment is started, if the last segment has reached this size. */
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+    /** Length of the givens in a record. */
+    private static final int GIVENS_LENGTH = (Sudoku2.LENGTH + 1) / 2;
+    /** Length of a record without the histogram. */
+    private static final int RECORD_HEADER_LENGTH = 1 + GIVENS_LENGTH + 1 + 4;
+    /** Length of one histogram entry. */
+    private static final int HISTOGRAM_ENTRY_LENGTH = 3;
+    /** Maximum length of a record. */
+    private static final int MAX_RECORD_LENGTH = RECORD_HEADER_LENGTH + 255 * HISTOGRAM_ENTRY_LENGTH;
+    /** The directory of the store. */
+    private File dir;
+    /** All segments, in the order of their numbers. */
+    private List<Segment> segments = new ArrayList<Segment>();
+    /** Number of records in the store. */
+    private int anz = 0;
+    /** Segment index (upper 16 bits) and position (lower 48 bits) of every record. */
+    private long[] positions = new long[1024];
+    /** Score of every record. */
+    private int[] scores = new int[1024];
+    /** Level ordinal of every record. */
+    private byte[] levels = new byte[1024];
+    /** One bitmap per level: the records with that level (index is the level ordinal). */
+    private BitSet[] levelIndex = new BitSet[DifficultyType.values().length];
+    /** One bitmap per technique: the records, whose solution uses that technique. */
+    private BitSet[] typeIndex = new BitSet[SolutionType.values().length];
+    /** The records, that have been rated with the current step configuration. */
+    private BitSet configIndex = new BitSet();
+    /** The records, that have been returned by {@link #takePuzzle(sudoku.DifficultyLevel, sudoku.GameMode) }. */
+    private BitSet taken = new BitSet();
+    /** Log of all records in {@link #taken} (one int per record). */
+    private RandomAccessFile servedFile;
+    /** The puzzles available for {@link #takePuzzle(sudoku.DifficultyLevel, sudoku.GameMode) } per level and mode. */
+    private Map<String, Pool> pools = new HashMap<String, Pool>();
+    /** The fingerprint of the step configuration, for which {@link #configIndex} was built. */
+    private int configHash;
+    /** Buffer for reading one record. */
+    private ByteBuffer readBuffer = ByteBuffer.allocate(MAX_RECORD_LENGTH);
+    /** Random generator for {@link #takePuzzle(sudoku.DifficultyLevel, sudoku.GameMode) }. */
+    private Random rand = new Random();
+
+    /**
+     * The puzzles, that can be given out for one combination of level and
+     * mode. Puzzles, that are taken, are moved behind {@link #anz}.
+     */
+    private static class Pool {
+        /** The indices of the puzzles. */
+        int[] indices;
+        /** Number of puzzles still available. */
+        int anz;
+    }
+
+    /**
+     * One segment file.
+     */
+    private static class Segment {
+        /** The file. */
+        RandomAccessFile file;
+        /** The channel of {@link #file}. */
+        FileChannel channel;
+        /** Step configuration used for rating the records. */
+        int configHash;
+        /** Technique for every index in the header (<code>null</code>, if unknown). */
+        SolutionType[] types;
+        /** <code>true</code>, if the header table equals the current techniques. */
+        boolean currentTypes;
+        /** End of the last complete record. */
+        long end;
+    }
+
+    /**
+     * Opens the store in <code>dirName</code>. If the directory doesn't
+     * exist, it is created.
+     *
+     * @param dirName
+     * @throws IOException
+     */
+    public PuzzleStore(String dirName) throws IOException {
+        dir = new File(dirName);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create puzzle store " + dirName);
+        }
+        for (int i = 0; i < levelIndex.length; i++) {
+            levelIndex[i] = new BitSet();
+        }
+        for (int i = 0; i < typeIndex.length; i++) {
+            typeIndex[i] = new BitSet();
+        }
+        configHash = getConfigHash();
+        for (int i = 0;; i++) {
+            File file = getSegmentFile(i);
+            if (!file.exists()) {
+                break;
+            }
+            openSegment(file);
+        }
+        servedFile = new RandomAccessFile(new File(dir, "served.dat"), "rw");
+        long servedAnz = servedFile.length() / 4;
+        ByteBuffer buffer = ByteBuffer.allocate((int) servedAnz * 4);
+        readFully(servedFile.getChannel(), buffer, 0);
+        while (buffer.remaining() >= 4) {
+            int index = buffer.getInt();
+            if (index >= 0 && index < anz) {
+                taken.set(index);
+            }
+        }
+        // an incomplete entry is overwritten
+        servedFile.setLength(servedAnz * 4);
+        servedFile.seek(servedAnz * 4);
+    }
+
+    /**
+     * Closes all segments.
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.file.close();
+        }
+        segments.clear();
+        servedFile.close();
+    }
+
+    /**
+     * @return The number of puzzles in the store
+     */
+    public synchronized int getAnz() {
+        return anz;
+    }
+
+    /**
+     * Stores a solved puzzle. <code>sudoku</code> must contain the level and
+     * the score, <code>steps</code> is the solution.
+     *
+     * @param sudoku
+     * @param steps
+     * @throws IOException
+     */
+    public synchronized void add(Sudoku2 sudoku, List<SolutionStep> steps) throws IOException {
+        // histogram: number of steps and maximum number of candidates deleted per technique
+        SolutionType[] values = SolutionType.values();
+        int[] stepAnz = new int[values.length];
+        int[] maxDel = new int[values.length];
+        int histAnz = 0;
+        for (SolutionStep step : steps) {
+            int ordinal = step.getType().ordinal();
+            if (stepAnz[ordinal] == 0) {
+                histAnz++;
+            }
+            stepAnz[ordinal]++;
+            maxDel[ordinal] = Math.max(maxDel[ordinal], step.getAnzCandidatesToDelete());
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + histAnz * HISTOGRAM_ENTRY_LENGTH);
+        record.put((byte) histAnz);
+        for (int i = 0; i < Sudoku2.LENGTH; i += 2) {
+            int value1 = sudoku.isFixed(i) ? sudoku.getValue(i) : 0;
+            int value2 = i + 1 < Sudoku2.LENGTH && sudoku.isFixed(i + 1) ? sudoku.getValue(i + 1) : 0;
+            record.put((byte) ((value1 << 4) | value2));
+        }
+        record.put((byte) sudoku.getLevel().getOrdinal());
+        record.putInt(sudoku.getScore());
+        for (int i = 0; i < values.length; i++) {
+            if (stepAnz[i] > 0) {
+                record.put((byte) i);
+                record.put((byte) Math.min(stepAnz[i], 255));
+                record.put((byte) Math.min(maxDel[i], 255));
+            }
+        }
+        record.flip();
+        Segment segment = getWriteSegment();
+        long position = segment.end;
+        while (record.hasRemaining()) {
+            segment.channel.write(record, segment.end + record.position());
+        }
+        segment.end += record.limit();
+        record.rewind();
+        addToIndex(segments.size() - 1, segment, position, record);
+        pools.clear();
+    }
+
+    /**
+     * Finds all puzzles, that match the filter: <code>level</code> (ignored,
+     * if <code>null</code>), the score has to be between <code>minScore</code>
+     * and <code>maxScore</code> (inclusive) and at least one technique in
+     * <code>typeList</code> must be used in the solution (ignored, if empty).
+     * Comparisons in <code>typeList</code> are applied to the maximum number
+     * of candidates deleted by one step of that technique (as in <code>/so</code>);
+     * the puzzle type (<code>:0</code> - <code>:3</code>) is ignored.
+     *
+     * @param typeList
+     * @param level
+     * @param minScore
+     * @param maxScore
+     * @return The indices of the matching puzzles
+     * @throws IOException
+     */
+    synchronized int[] query(List<StepType> typeList, DifficultyLevel level, int minScore, int maxScore) throws IOException {
+        BitSet result = select(typeList, level, minScore, maxScore);
+        int[] indices = new int[result.cardinality()];
+        int resultAnz = 0;
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            indices[resultAnz++] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * Gets the number of puzzles, that match the filter (see
+     * {@link #query(java.util.List, sudoku.DifficultyLevel, int, int) }),
+     * that were rated with the current step configuration and that have not
+     * been given out yet.
+     *
+     * @param typeList
+     * @param level
+     * @param minScore
+     * @param maxScore
+     * @return
+     * @throws IOException
+     */
+    synchronized int getAvailableAnz(List<StepType> typeList, DifficultyLevel level, int minScore, int maxScore) throws IOException {
+        checkConfig();
+        BitSet result = select(typeList, level, minScore, maxScore);
+        result.and(configIndex);
+        result.andNot(taken);
+        return result.cardinality();
+    }
+
+    /**
+     * Checks, if <code>anzDel</code> candidates deleted by a step fulfill
+     * the comparison in <code>type</code>.
+     *
+     * @param type
+     * @param anzDel
+     * @return
+     */
+    static boolean matches(StepType type, int anzDel) {
+        switch (type.compType) {
+            case StepType.EQUAL:
+                return anzDel == type.compAnz;
+            case StepType.LT:
+                return anzDel < type.compAnz;
+            case StepType.GT:
+                return anzDel > type.compAnz;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Checks, if a solution matches the filter <code>typeList</code> (as in
+     * {@link #query(java.util.List, sudoku.DifficultyLevel, int, int) }).
+     *
+     * @param typeList
+     * @param steps
+     * @return
+     */
+    static boolean matches(List<StepType> typeList, List<SolutionStep> steps) {
+        if (typeList.isEmpty()) {
+            return true;
+        }
+        for (StepType type : typeList) {
+            int anzDel = -1;
+            for (SolutionStep step : steps) {
+                if (step.getType() == type.type) {
+                    anzDel = Math.max(anzDel, step.getAnzCandidatesToDelete());
+                }
+            }
+            if (anzDel >= 0 && matches(type, anzDel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes a random puzzle for a new game out of the store. The puzzle must
+     * have been rated with the current step configuration and must not have
+     * been given out before. The conditions are the same as in the generator:
+     * <ul>
+     * <li><code>PLAYING</code>: the level must be <code>level</code>, the score
+     *      must not fall into the range of the next easier level.</li>
+     * <li><code>PRACTISING</code>: the level must be <code>level</code>, a
+     *      training technique must be used in the solution.</li>
+     * <li><code>LEARNING</code>: any level, a training technique must be
+     *      used in the solution.</li>
+     * </ul>
+     *
+     * @param level
+     * @param mode
+     * @return The givens of the puzzle or <code>null</code>, if no puzzle is
+     * available
+     * @throws IOException
+     */
+    public synchronized String takePuzzle(DifficultyLevel level, GameMode mode) throws IOException {
+        Pool pool = getPool(level, mode);
+        while (pool.anz > 0) {
+            int poolIndex = rand.nextInt(pool.anz);
+            int index = pool.indices[poolIndex];
+            pool.anz--;
+            pool.indices[poolIndex] = pool.indices[pool.anz];
+            pool.indices[pool.anz] = index;
+            if (!taken.get(index)) {
+                // could have been taken from another pool
+                taken.set(index);
+                servedFile.writeInt(index);
+                return getGivens(index);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the givens of a puzzle (empty cells as in {@link ClipboardMode#CLUES_ONLY}).
+     *
+     * @param index
+     * @return
+     * @throws IOException
+     */
+    public synchronized String getGivens(int index) throws IOException {
+        ByteBuffer record = readRecord(index);
+        char dot = Options.getInstance().isUseZeroInsteadOfDot() ? '0' : '.';
+        StringBuilder tmp = new StringBuilder(Sudoku2.LENGTH);
+        for (int i = 0; i < Sudoku2.LENGTH; i++) {
+            int value = record.get(1 + i / 2);
+            value = (i & 1) == 0 ? (value >> 4) & 0x0f : value & 0x0f;
+            tmp.append(value == 0 ? dot : (char) ('0' + value));
+        }
+        return tmp.toString();
+    }
+
+    /**
+     * @param index
+     * @return The level of a puzzle
+     */
+    public synchronized DifficultyLevel getLevel(int index) {
+        return Options.getInstance().getDifficultyLevel(levels[index]);
+    }
+
+    /**
+     * @param index
+     * @return The score of a puzzle
+     */
+    public synchronized int getScore(int index) {
+        return scores[index];
+    }
+
+    /**
+     * Gets the step histogram of a puzzle in printable form: all techniques
+     * except singles, every technique as "argName(maximum number of
+     * candidates deleted)" and, if it was used more than once, "*number of
+     * steps".
+     *
+     * @param index
+     * @return
+     * @throws IOException
+     */
+    public synchronized String getStepString(int index) throws IOException {
+        ByteBuffer record = readRecord(index);
+        SolutionType[] types = segments.get((int) (positions[index] >>> 48)).types;
+        StringBuilder tmp = new StringBuilder();
+        int histAnz = record.get(0) & 0xff;
+        for (int i = 0; i < histAnz; i++) {
+            int offset = RECORD_HEADER_LENGTH + i * HISTOGRAM_ENTRY_LENGTH;
+            SolutionType type = types[record.get(offset) & 0xff];
+            if (type == null || type.isSingle()) {
+                continue;
+            }
+            if (tmp.length() > 0) {
+                tmp.append(' ');
+            }
+            tmp.append(type.getArgName()).append('(').append(record.get(offset + 2) & 0xff).append(')');
+            int stepAnz = record.get(offset + 1) & 0xff;
+            if (stepAnz > 1) {
+                tmp.append('*').append(stepAnz);
+            }
+        }
+        return tmp.toString();
+    }
+
+    /**
+     * Calculates a fingerprint of the current step configuration: order,
+     * level, score and enabled state of all techniques and the maximum scores
+     * of all levels. Puzzles rated with another configuration could have
+     * another level.
+     *
+     * @return
+     */
+    public static int getConfigHash() {
+        int hash = 0;
+        for (StepConfig config : Options.getInstance().solverSteps) {
+            hash = 31 * hash + config.getType().getArgName().hashCode();
+            hash = 31 * hash + config.getLevel();
+            hash = 31 * hash + config.getBaseScore();
+            hash = 31 * hash + (config.isEnabled() ? 1 : 0);
+        }
+        for (DifficultyLevel level : Options.getInstance().getDifficultyLevels()) {
+            hash = 31 * hash + level.getMaxScore();
+        }
+        return hash;
+    }
+
+    /**
+     * Finds all puzzles, that match the filter (see {@link #query(java.util.List, sudoku.DifficultyLevel, int, int) }).
+     *
+     * @param typeList
+     * @param level
+     * @param minScore
+     * @param maxScore
+     * @return
+     * @throws IOException
+     */
+    private BitSet select(List<StepType> typeList, DifficultyLevel level, int minScore, int maxScore) throws IOException {
+        BitSet result = new BitSet(anz);
+        if (level != null) {
+            result.or(levelIndex[level.getOrdinal()]);
+        } else {
+            result.set(0, anz);
+        }
+        if (!typeList.isEmpty()) {
+            BitSet matches = new BitSet(anz);
+            for (StepType type : typeList) {
+                BitSet tmp = (BitSet) typeIndex[type.type.ordinal()].clone();
+                tmp.and(result);
+                if (type.compType != StepType.UNDEFINED) {
+                    for (int i = tmp.nextSetBit(0); i >= 0; i = tmp.nextSetBit(i + 1)) {
+                        if (!matches(type, getMaxCandidatesDeleted(i, type.type))) {
+                            tmp.clear(i);
+                        }
+                    }
+                }
+                matches.or(tmp);
+            }
+            result = matches;
+        }
+        if (minScore > 0 || maxScore < Integer.MAX_VALUE) {
+            for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+                if (scores[i] < minScore || scores[i] > maxScore) {
+                    result.clear(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the pool for <code>level</code> and <code>mode</code>; the pool
+     * is created, if it doesnt exist yet.
+     *
+     * @param level
+     * @param mode
+     * @return
+     */
+    private Pool getPool(DifficultyLevel level, GameMode mode) {
+        checkConfig();
+        BitSet candidates = new BitSet(anz);
+        StringBuilder key = new StringBuilder(mode.name());
+        if (mode == GameMode.PLAYING) {
+            key.append(level.getOrdinal());
+        } else {
+            // the training techniques are part of the key
+            for (StepConfig config : Options.getInstance().solverSteps) {
+                if (config.isEnabledTraining()) {
+                    key.append(' ').append(config.getType().ordinal());
+                    candidates.or(typeIndex[config.getType().ordinal()]);
+                }
+            }
+            if (mode == GameMode.PRACTISING) {
+                key.append('/').append(level.getOrdinal());
+            }
+        }
+        Pool pool = pools.get(key.toString());
+        if (pool != null) {
+            return pool;
+        }
+        if (mode == GameMode.PLAYING) {
+            candidates.or(levelIndex[level.getOrdinal()]);
+        } else if (mode == GameMode.PRACTISING) {
+            candidates.and(levelIndex[level.getOrdinal()]);
+        }
+        candidates.and(configIndex);
+        candidates.andNot(taken);
+        int minScore = 0;
+        if (mode == GameMode.PLAYING && level.getOrdinal() > DifficultyType.EASY.ordinal()) {
+            minScore = Options.getInstance().getDifficultyLevel(level.getOrdinal() - 1).getMaxScore();
+        }
+        pool = new Pool();
+        pool.indices = new int[candidates.cardinality()];
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (scores[i] >= minScore) {
+                pool.indices[pool.anz++] = i;
+            }
+        }
+        pools.put(key.toString(), pool);
+        return pool;
+    }
+
+    /**
+     * Gets the maximum number of candidates deleted by one step with
+     * technique <code>type</code> in the solution of a puzzle.
+     *
+     * @param index
+     * @param type
+     * @return
+     * @throws IOException
+     */
+    private int getMaxCandidatesDeleted(int index, SolutionType type) throws IOException {
+        ByteBuffer record = readRecord(index);
+        SolutionType[] types = segments.get((int) (positions[index] >>> 48)).types;
+        int histAnz = record.get(0) & 0xff;
+        for (int i = 0; i < histAnz; i++) {
+            int offset = RECORD_HEADER_LENGTH + i * HISTOGRAM_ENTRY_LENGTH;
+            if (types[record.get(offset) & 0xff] == type) {
+                return record.get(offset + 2) & 0xff;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reads one record into {@link #readBuffer}.
+     *
+     * @param index
+     * @return
+     * @throws IOException
+     */
+    private ByteBuffer readRecord(int index) throws IOException {
+        Segment segment = segments.get((int) (positions[index] >>> 48));
+        long position = positions[index] & 0xffffffffffffL;
+        readBuffer.clear();
+        readBuffer.limit((int) Math.min(MAX_RECORD_LENGTH, segment.end - position));
+        while (readBuffer.hasRemaining()) {
+            if (segment.channel.read(readBuffer, position + readBuffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+        readBuffer.flip();
+        return readBuffer;
+    }
+
+    /**
+     * Reads the header of a segment and adds all records to the indexes.
+     *
+     * @param file
+     * @throws IOException
+     */
+    private void openSegment(File file) throws IOException {
+        Segment segment = new Segment();
+        segment.file = new RandomAccessFile(file, "rw");
+        segment.channel = segment.file.getChannel();
+        int segmentIndex = segments.size();
+        segments.add(segment);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(segment.channel.size(), 1024 * 1024));
+        long bufferStart = 0;
+        readFully(segment.channel, buffer, bufferStart);
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Invalid segment " + file);
+        }
+        segment.configHash = buffer.getInt();
+        int typeAnz = buffer.getShort();
+        SolutionType[] values = SolutionType.values();
+        segment.types = new SolutionType[typeAnz];
+        segment.currentTypes = typeAnz == values.length;
+        for (int i = 0; i < typeAnz; i++) {
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            String argName = new String(name, "UTF-8");
+            for (SolutionType type : values) {
+                if (type.getArgName().equals(argName)) {
+                    segment.types[i] = type;
+                }
+            }
+            if (segment.types[i] == null || segment.types[i].ordinal() != i) {
+                segment.currentTypes = false;
+            }
+        }
+        // the records
+        long size = segment.channel.size();
+        while (true) {
+            if (buffer.remaining() < MAX_RECORD_LENGTH && bufferStart + buffer.limit() < size) {
+                bufferStart += buffer.position();
+                buffer.clear();
+                readFully(segment.channel, buffer, bufferStart);
+            }
+            if (buffer.remaining() < RECORD_HEADER_LENGTH) {
+                break;
+            }
+            int length = RECORD_HEADER_LENGTH + (buffer.get(buffer.position()) & 0xff) * HISTOGRAM_ENTRY_LENGTH;
+            if (buffer.remaining() < length) {
+                break;
+            }
+            ByteBuffer record = buffer.slice();
+            record.limit(length);
+            addToIndex(segmentIndex, segment, bufferStart + buffer.position(), record);
+            buffer.position(buffer.position() + length);
+        }
+        segment.end = bufferStart + buffer.position();
+    }
+
+    /**
+     * Reads from <code>channel</code> into <code>buffer</code>, until
+     * the buffer is full or the end of the file has been reached.
+     * The buffer is flipped.
+     *
+     * @param channel
+     * @param buffer
+     * @param position
+     * @throws IOException
+     */
+    private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Adds one record to the indexes.
+     *
+     * @param segmentIndex
+     * @param segment
+     * @param position
+     * @param record The record, starting at position 0
+     */
+    private void addToIndex(int segmentIndex, Segment segment, long position, ByteBuffer record) {
+        if (anz == positions.length) {
+            int newLength = positions.length * 2;
+            positions = Arrays.copyOf(positions, newLength);
+            scores = Arrays.copyOf(scores, newLength);
+            levels = Arrays.copyOf(levels, newLength);
+        }
+        int index = anz++;
+        positions[index] = ((long) segmentIndex << 48) | position;
+        levels[index] = record.get(1 + GIVENS_LENGTH);
+        scores[index] = record.getInt(2 + GIVENS_LENGTH);
+        if (levels[index] >= 0 && levels[index] < levelIndex.length) {
+            levelIndex[levels[index]].set(index);
+        }
+        int histAnz = record.get(0) & 0xff;
+        for (int i = 0; i < histAnz; i++) {
+            int typeIndex = record.get(RECORD_HEADER_LENGTH + i * HISTOGRAM_ENTRY_LENGTH) & 0xff;
+            if (typeIndex < segment.types.length && segment.types[typeIndex] != null) {
+                this.typeIndex[segment.types[typeIndex].ordinal()].set(index);
+            }
+        }
+        if (segment.configHash == configHash) {
+            configIndex.set(index);
+        }
+    }
+
+    /**
+     * If the step configuration has changed, {@link #configIndex} is rebuilt.
+     */
+    private void checkConfig() {
+        int newHash = getConfigHash();
+        if (newHash == configHash) {
+            return;
+        }
+        configHash = newHash;
+        configIndex.clear();
+        pools.clear();
+        for (int i = 0; i < anz; i++) {
+            if (segments.get((int) (positions[i] >>> 48)).configHash == configHash) {
+                configIndex.set(i);
+            }
+        }
+    }
+
+    /**
+     * Gets the segment for the next record: the last segment can be used,
+     * if it is not full and if it was written with the current step
+     * configuration. Otherwise a new segment is started. An incomplete
+     * record at the end of the segment is overwritten.
+     *
+     * @return
+     * @throws IOException
+     */
+    private Segment getWriteSegment() throws IOException {
+        checkConfig();
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            if (last.configHash == configHash && last.currentTypes && last.end < SEGMENT_SIZE) {
+                if (last.channel.size() > last.end) {
+                    last.channel.truncate(last.end);
+                }
+                return last;
+            }
+        }
+        if (segments.size() >= 0xffff) {
+            throw new IOException("Too many segments in puzzle store " + dir);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(configHash);
+        SolutionType[] values = SolutionType.values();
+        out.writeShort(values.length);
+        for (SolutionType type : values) {
+            byte[] name = type.getArgName().getBytes("UTF-8");
+            out.writeShort(name.length);
+            out.write(name);
+        }
+        out.close();
+        Segment segment = new Segment();
+        segment.file = new RandomAccessFile(getSegmentFile(segments.size()), "rw");
+        segment.channel = segment.file.getChannel();
+        segment.configHash = configHash;
+        segment.types = values;
+        segment.currentTypes = true;
+        ByteBuffer header = ByteBuffer.wrap(bytes.toByteArray());
+        while (header.hasRemaining()) {
+            segment.channel.write(header, header.position());
+        }
+        segment.end = header.limit();
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * @param index
+     * @return The file for segment <code>index</code>
+     */
+    private File getSegmentFile(int index) {
+        return new File(dir, String.format("segment-%05d.dat", index));
+    }
+}
@@ -186,6 +186,12 @@ public class RegressionTester {
             addIgnoredTechnique(testCase);
             return;
         }
+        // fish: <extra> can contain the hint of a Siamese Fish, that must be found
+        String siamese = null;
+        if (type.isFish() && parts.length > 7 && parts[7].length() > 0) {
+            siamese = parts[7];
+            testCase = testCase.substring(0, testCase.lastIndexOf(siamese));
+        }
 
         // Create and set a new Sudoku2
         Sudoku2 sudoku = new Sudoku2();
@@ -618,6 +624,33 @@ public class RegressionTester {
                 addIgnoredTechnique(testCase);
                 break;
         }
+        if (siamese != null && steps != null) {
+            checkSiamese(testCase, steps, siamese);
+        }
+    }
+
+    /**
+     * Checks, if <code>steps</code> contains a Siamese Fish with the
+     * hint <code>siamese</code> (the hint without the name of the fish).
+     * The check is counted as a test case of its own.
+     *
+     * @param testCase
+     * @param steps
+     * @param siamese
+     */
+    private void checkSiamese(String testCase, List<SolutionStep> steps, String siamese) {
+        anzTestCases++;
+        for (SolutionStep step : steps) {
+            if (step.isIsSiamese()) {
+                String hint = step.toString(2);
+                if (hint.substring(hint.indexOf(": ") + 2).equals(siamese)) {
+                    anzGoodCases++;
+                    return;
+                }
+            }
+        }
+        anzBadCases++;
+        failedCases.put(testCase + siamese, "Siamese Fish not found!");
     }
 
     private List<SolutionStep> findAllFishes(Sudoku2 sudoku, int size, int type) {
@@ -520,6 +520,7 @@ private void tabPrintMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//
             Sudoku2 actSudoku = mainFrame.getSudokuPanel().getSudoku().clone();
             solver.setSudoku(actSudoku, actSteps);
             solver.solve(true);
+            solver.retainSteps();
             setActSteps(solver.getSteps());
             setStepsInList();
             //actList.setSelectedIndex(actSelectedIndex);
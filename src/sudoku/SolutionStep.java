@@ -20,8 +20,8 @@ package sudoku;
 
 import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -63,12 +63,14 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     private int progressScore = -1;  // the resulting score (only no single steps)
     private List<Integer> values = new ArrayList<Integer>();
     private List<Integer> indices = new ArrayList<Integer>();
-    private List<Candidate> candidatesToDelete = new ArrayList<Candidate>();
-    private List<Candidate> cannibalistic = new ArrayList<Candidate>();
-    private List<Candidate> fins = new ArrayList<Candidate>();     // für Finned Fische
-    private List<Candidate> endoFins = new ArrayList<Candidate>(); // für Finned Fische
-    private List<Entity> baseEntities = new ArrayList<Entity>();   // für Fisch
-    private List<Entity> coverEntities = new ArrayList<Entity>();  // für Fisch
+    // candidates and entities are packed into ints (see Candidate.pack() and Entity.pack()),
+    // the Candidate/Entity lists of the getters are only views for the GUI
+    private PackedIntSet candidatesToDelete = new PackedIntSet();
+    private PackedIntSet cannibalistic = new PackedIntSet();
+    private PackedIntSet fins = new PackedIntSet();     // für Finned Fische
+    private PackedIntSet endoFins = new PackedIntSet(); // für Finned Fische
+    private PackedIntSet baseEntities = new PackedIntSet();   // für Fisch
+    private PackedIntSet coverEntities = new PackedIntSet();  // für Fisch
     private List<Chain> chains = new ArrayList<Chain>();           // Für alle Arten Chains und Loops
     private List<AlsInSolutionStep> alses = new ArrayList<AlsInSolutionStep>();
     private SortedMap<Integer, Integer> colorCandidates = new TreeMap<Integer, Integer>(); // coloring moves
@@ -77,12 +79,15 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     private SudokuSet potentialEliminations = new SudokuSet(); // for fish only
 
     public SolutionStep() {
+        // the number of eliminations including duplicates is used for sorting
+        candidatesToDelete.setDuplicatesAllowed(true);
     }
 
     /** Creates a new instance of SolutionStep
      * @param type 
      */
     public SolutionStep(SolutionType type) {
+        this();
         setType(type);
     }
 
@@ -103,12 +108,12 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
             newStep.progressScore = progressScore;
             newStep.values = (List<Integer>) ((ArrayList) values).clone();
             newStep.indices = (List<Integer>) ((ArrayList) indices).clone();
-            newStep.candidatesToDelete = (List<Candidate>) ((ArrayList) candidatesToDelete).clone();
-            newStep.cannibalistic = (List<Candidate>) ((ArrayList) cannibalistic).clone();
-            newStep.fins = (List<Candidate>) ((ArrayList) fins).clone();
-            newStep.endoFins = (List<Candidate>) ((ArrayList) endoFins).clone();
-            newStep.baseEntities = (List<Entity>) ((ArrayList) baseEntities).clone();
-            newStep.coverEntities = (List<Entity>) ((ArrayList) coverEntities).clone();
+            newStep.candidatesToDelete = candidatesToDelete.clone();
+            newStep.cannibalistic = cannibalistic.clone();
+            newStep.fins = fins.clone();
+            newStep.endoFins = endoFins.clone();
+            newStep.baseEntities = baseEntities.clone();
+            newStep.coverEntities = coverEntities.clone();
             newStep.chains = (List<Chain>) ((ArrayList) chains).clone();
             newStep.alses = (List<AlsInSolutionStep>) ((ArrayList) alses).clone();
             newStep.colorCandidates = (SortedMap<Integer, Integer>) ((TreeMap) getColorCandidates()).clone();
@@ -122,13 +127,60 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         return newStep;
     }
 
+    /**
+     * Makes this step a copy of <code>src</code> (same result as {@link #clone() }),
+     * but the lists of this step are reused. Used by the step pool of the solver.
+     * @param src
+     */
+    public void set(SolutionStep src) {
+        type = src.type;
+        subType = src.subType;
+        entity = src.entity;
+        entityNumber = src.entityNumber;
+        entity2 = src.entity2;
+        entity2Number = src.entity2Number;
+        isSiamese = src.isSiamese;
+        progressScoreSingles = src.progressScoreSingles;
+        progressScoreSinglesOnly = src.progressScoreSinglesOnly;
+        progressScore = src.progressScore;
+        copyList(values, src.values);
+        copyList(indices, src.indices);
+        candidatesToDelete.set(src.candidatesToDelete);
+        cannibalistic.set(src.cannibalistic);
+        fins.set(src.fins);
+        endoFins.set(src.endoFins);
+        baseEntities.set(src.baseEntities);
+        coverEntities.set(src.coverEntities);
+        copyList(chains, src.chains);
+        copyList(alses, src.alses);
+        colorCandidates.clear();
+        colorCandidates.putAll(src.colorCandidates);
+        copyList(restrictedCommons, src.restrictedCommons);
+        potentialCannibalisticEliminations.set(src.potentialCannibalisticEliminations);
+        potentialEliminations.set(src.potentialEliminations);
+    }
+
+    /**
+     * Replaces the contents of <code>dest</code> with the contents of
+     * <code>src</code> (<code>addAll()</code> would create a temporary array).
+     * @param <T>
+     * @param dest
+     * @param src
+     */
+    private static <T> void copyList(List<T> dest, List<T> src) {
+        dest.clear();
+        for (int i = 0; i < src.size(); i++) {
+            dest.add(src.get(i));
+        }
+    }
+
     public void reset() {
         type = SolutionType.HIDDEN_SINGLE;
         entity = 0;
         entityNumber = 0;
         entity2 = 0;
         entity2Number = 0;
-        isSiamese = false;
+        setIsSiamese(false);
         progressScoreSingles = -1;
         progressScoreSinglesOnly = -1;
         progressScore = -1;
@@ -400,23 +452,25 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     }
 
     public String getCandidateString(boolean library, boolean statistics) {
-        Collections.sort(candidatesToDelete);
-        eliminateDoubleCandidatesToDelete();
+        candidatesToDelete.sortCandidates();
+        candidatesToDelete.removeDuplicates();
         StringBuilder candBuff = new StringBuilder();
         int lastCand = -1;
         StringBuffer delPos = new StringBuffer();
-        for (Candidate cand : candidatesToDelete) {
-            if (cand.getValue() != lastCand) {
+        for (int i = 0; i < candidatesToDelete.size(); i++) {
+            int value = Candidate.getPackedValue(candidatesToDelete.get(i));
+            int index = Candidate.getPackedIndex(candidatesToDelete.get(i));
+            if (value != lastCand) {
                 if (lastCand != -1) {
                     candBuff.append("/");
                 }
-                candBuff.append(cand.getValue());
-                lastCand = cand.getValue();
+                candBuff.append(value);
+                lastCand = value;
             }
             delPos.append(" ");
             if (library) {
-                delPos.append(Integer.toString(cand.getValue())).append(Integer.toString(Sudoku2.getLine(cand.getIndex()) + 1)).
-                        append(Integer.toString(Sudoku2.getCol(cand.getIndex()) + 1));
+                delPos.append(Integer.toString(value)).append(Integer.toString(Sudoku2.getLine(index) + 1)).
+                        append(Integer.toString(Sudoku2.getCol(index) + 1));
             }
         }
         if (library) {
@@ -440,17 +494,6 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         }
     }
 
-    private void eliminateDoubleCandidatesToDelete() {
-        Set<Candidate> candSet = new TreeSet<Candidate>();
-        for (int i = 0; i < candidatesToDelete.size(); i++) {
-            candSet.add(candidatesToDelete.get(i));
-        }
-        candidatesToDelete.clear();
-        for (Candidate cand : candSet) {
-            candidatesToDelete.add(cand);
-        }
-    }
-
     public static String getCellPrint(int index) {
         return getCellPrint(index, true);
     }
@@ -573,42 +616,35 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     }
 
     public void addCandidateToDelete(Candidate cand) {
-        candidatesToDelete.add(cand);
+        candidatesToDelete.add(cand.pack());
     }
 
     public void addCandidateToDelete(int index, int candidate) {
-        candidatesToDelete.add(new Candidate(index, candidate));
+        candidatesToDelete.add(Candidate.pack(index, candidate));
     }
 
     public void addCannibalistic(Candidate cand) {
-        cannibalistic.add(cand);
+        cannibalistic.add(cand.pack());
     }
 
     public void addCannibalistic(int index, int candidate) {
-        cannibalistic.add(new Candidate(index, candidate));
+        cannibalistic.add(Candidate.pack(index, candidate));
     }
 
     public void addFin(int index, int candidate) {
-        addFin(new Candidate(index, candidate));
+        fins.add(Candidate.pack(index, candidate));
     }
 
     public void addFin(Candidate fin) {
-        fins.add(fin);
+        fins.add(fin.pack());
     }
 
     public void addEndoFin(int index, int candidate) {
-        endoFins.add(new Candidate(index, candidate));
+        endoFins.add(Candidate.pack(index, candidate));
     }
 
     public int getAnzCandidatesToDelete() {
-        SortedSet<Candidate> tmpSet = new TreeSet<Candidate>();
-        for (int i = 0; i < candidatesToDelete.size(); i++) {
-            tmpSet.add(candidatesToDelete.get(i));
-        }
-        int anz = tmpSet.size();
-        tmpSet.clear();
-        tmpSet = null;
-        return anz;
+        return candidatesToDelete.distinctSize();
     }
 
     public int getAnzSet() {
@@ -639,19 +675,43 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         return indices;
     }
 
+    /**
+     * A modifiable view of the candidates that can be deleted (for the GUI,
+     * the solvers should use {@link #getPackedCandidatesToDelete() }).
+     * @return
+     */
     public List<Candidate> getCandidatesToDelete() {
-        return candidatesToDelete;
+        return new CandidateList(candidatesToDelete);
     }
 
     public List<Candidate> getCannibalistic() {
-        return cannibalistic;
+        return new CandidateList(cannibalistic);
     }
 
     public List<Candidate> getFins() {
-        return fins;
+        return new CandidateList(fins);
     }
 
     public List<Candidate> getEndoFins() {
+        return new CandidateList(endoFins);
+    }
+
+    /**
+     * @return The candidates that can be deleted, packed with {@link Candidate#pack(int, int) }
+     */
+    public PackedIntSet getPackedCandidatesToDelete() {
+        return candidatesToDelete;
+    }
+
+    public PackedIntSet getPackedCannibalistic() {
+        return cannibalistic;
+    }
+
+    public PackedIntSet getPackedFins() {
+        return fins;
+    }
+
+    public PackedIntSet getPackedEndoFins() {
         return endoFins;
     }
 
@@ -1301,28 +1361,28 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         // exo fins
         set.clear();
         for (int i = 0; i < fins.size(); i++) {
-            set.add(fins.get(i).getIndex());
+            set.add(Candidate.getPackedIndex(fins.get(i)));
         }
         for (int i = 0; i < endoFins.size(); i++) {
-            set.remove(endoFins.get(i).getIndex());
+            set.remove(Candidate.getPackedIndex(endoFins.get(i)));
         }
         appendFishData(tmp, set, "XF", cells);
         // endo fins
         set.clear();
         for (int i = 0; i < endoFins.size(); i++) {
-            set.add(endoFins.get(i).getIndex());
+            set.add(Candidate.getPackedIndex(endoFins.get(i)));
         }
         appendFishData(tmp, set, "NF", cells);
         // eventual eliminations
         set.clear();
         for (int i = 0; i < candidatesToDelete.size(); i++) {
-            set.add(candidatesToDelete.get(i).getIndex());
+            set.add(Candidate.getPackedIndex(candidatesToDelete.get(i)));
         }
         appendFishData(tmp, set, "EE", cells);
         // cannibalistic eventual eliminations
         set.clear();
         for (int i = 0; i < cannibalistic.size(); i++) {
-            set.add(cannibalistic.get(i).getIndex());
+            set.add(Candidate.getPackedIndex(cannibalistic.get(i)));
         }
         appendFishData(tmp, set, "CE", cells);
         // potential eliminations
@@ -1371,10 +1431,10 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     private void getAlsXorZ(StringBuffer tmp, boolean x) {
         // gemeinsame Kandidaten für AlsInSolutionStep-XZ stehen in fins,
         // restricted commons in endoFins
-        List<Candidate> list = x ? endoFins : fins;
+        PackedIntSet list = x ? endoFins : fins;
         TreeSet<Integer> cands = new TreeSet<Integer>();
         for (int i = 0; i < list.size(); i++) {
-            cands.add(list.get(i).getValue());
+            cands.add(Candidate.getPackedValue(list.get(i)));
         }
         boolean first = true;
         for (int cand : cands) {
@@ -1442,16 +1502,16 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     /**
      * Ein Eintrag pro betroffener Zelle und pro betroffenem Kandidaten -> beinhart Set verwenden!
      */
-    private void getFinSet(StringBuffer tmp, List<Candidate> fins) {
+    private void getFinSet(StringBuffer tmp, PackedIntSet fins) {
         getFinSet(tmp, fins, true);
     }
 
-    private void getFinSet(StringBuffer tmp, List<Candidate> fins, boolean withCandidates) {
+    private void getFinSet(StringBuffer tmp, PackedIntSet fins, boolean withCandidates) {
         TreeSet<Integer> indexes = new TreeSet<Integer>();
         TreeSet<Integer> candidates = new TreeSet<Integer>();
-        for (Candidate cand : fins) {
-            indexes.add(cand.getIndex());
-            candidates.add(cand.getValue());
+        for (int i = 0; i < fins.size(); i++) {
+            indexes.add(Candidate.getPackedIndex(fins.get(i)));
+            candidates.add(Candidate.getPackedValue(fins.get(i)));
         }
         // Alle indexe ausschließen, die in indices enthalten sind
         for (int index : indices) {
@@ -1467,23 +1527,26 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         }
     }
 
-    public void getEntities(StringBuffer tmp, List<Entity> entities) {
+    public void getEntities(StringBuffer tmp, PackedIntSet entities) {
         getEntities(tmp, entities, false);
     }
 
-    public void getEntities(StringBuffer tmp, List<Entity> entities, boolean library) {
+    public void getEntities(StringBuffer tmp, PackedIntSet entities, boolean library) {
         getEntities(tmp, entities, library, false);
     }
 
-    public void getEntities(StringBuffer tmp, List<Entity> entities, boolean library, boolean checkSiamese) {
+    public void getEntities(StringBuffer tmp, PackedIntSet entities, boolean library, boolean checkSiamese) {
         boolean first = true;
         if (!library) {
             tmp.append("(");
         }
+        // both fishes of a Siamese fish have the same number of cover sets
         int siameseIndex = entities.size() / 2 - 1;
         int lastEntityName = -1;
         int index = 0;
-        for (Entity act : entities) {
+        for (int i = 0; i < entities.size(); i++) {
+            int entityName = Entity.getPackedName(entities.get(i));
+            int entityNumber = Entity.getPackedNumber(entities.get(i));
             if (first) {
                 first = false;
             } else {
@@ -1492,14 +1555,14 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
                 }
             }
             if (library) {
-                if (lastEntityName != act.getEntityName()) {
-                    tmp.append(getEntityShortName(act.getEntityName()));
+                if (lastEntityName != entityName) {
+                    tmp.append(getEntityShortName(entityName));
                 }
-                tmp.append(act.getEntityNumber());
+                tmp.append(entityNumber);
             } else {
-                tmp.append(getEntityName(act.getEntityName())).append(" ").append(act.getEntityNumber());
+                tmp.append(getEntityName(entityName)).append(" ").append(entityNumber);
             }
-            lastEntityName = act.getEntityName();
+            lastEntityName = entityName;
             if (checkSiamese && isSiamese && index == siameseIndex) {
                 tmp.append("/");
                 lastEntityName = -1;
@@ -1560,7 +1623,7 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     private void getCandidatesToDeleteDigits(StringBuffer tmp) {
         SortedSet<Integer> candSet = new TreeSet<Integer>();
         for (int i = 0; i < candidatesToDelete.size(); i++) {
-            candSet.add(candidatesToDelete.get(i).getValue());
+            candSet.add(Candidate.getPackedValue(candidatesToDelete.get(i)));
         }
         for (int value : candSet) {
             tmp.append(value);
@@ -1583,20 +1646,20 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
 
     private void getCandidatesToDelete(StringBuffer tmp) {
         tmp.append(" => ");
-        @SuppressWarnings("unchecked")
-        ArrayList<Candidate> tmpList = (ArrayList<Candidate>) ((ArrayList<Candidate>) candidatesToDelete).clone();
+        // all candidates with the same value are printed together (in the order of their first occurence)
+        short doneValues = 0;
         boolean first = true;
         ArrayList<Integer> candList = new ArrayList<Integer>();
-        while (tmpList.size() > 0) {
-            Candidate firstCand = tmpList.remove(0);
+        for (int i = 0; i < candidatesToDelete.size(); i++) {
+            int value = Candidate.getPackedValue(candidatesToDelete.get(i));
+            if ((doneValues & Sudoku2.MASKS[value]) != 0) {
+                continue;
+            }
+            doneValues |= Sudoku2.MASKS[value];
             candList.clear();
-            candList.add(firstCand.getIndex());
-            Iterator<Candidate> it = tmpList.iterator();
-            while (it.hasNext()) {
-                Candidate c1 = it.next();
-                if (c1.getValue() == firstCand.getValue()) {
-                    candList.add(c1.getIndex());
-                    it.remove();
+            for (int j = i; j < candidatesToDelete.size(); j++) {
+                if (Candidate.getPackedValue(candidatesToDelete.get(j)) == value) {
+                    candList.add(Candidate.getPackedIndex(candidatesToDelete.get(j)));
                 }
             }
             if (first) {
@@ -1606,7 +1669,7 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
             }
             tmp.append(getCompactCellPrint(candList));
             tmp.append("<>");
-            tmp.append(firstCand.getValue());
+            tmp.append(value);
         }
     }
 
@@ -1615,7 +1678,7 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     }
 
     public void getFins(StringBuffer tmp, boolean endo, boolean library) {
-        List<Candidate> list = endo ? endoFins : fins;
+        PackedIntSet list = endo ? endoFins : fins;
         if (list.isEmpty()) {
             return;
         }
@@ -1636,7 +1699,8 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         }
         String finStr = endo ? "ef" : "f";
         boolean first = true;
-        for (Candidate cand : list) {
+        for (int i = 0; i < list.size(); i++) {
+            int index = Candidate.getPackedIndex(list.get(i));
             if (first) {
                 first = false;
             } else {
@@ -1647,9 +1711,9 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
                 }
             }
             if (library) {
-                tmp.append(finStr).append(getCellPrint(cand.getIndex(), false));
+                tmp.append(finStr).append(getCellPrint(index, false));
             } else {
-                tmp.append(getCellPrint(cand.getIndex(), false));
+                tmp.append(getCellPrint(index, false));
             }
         }
     }
@@ -1690,19 +1754,19 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     }
 
     public void addBaseEntity(int name, int number) {
-        baseEntities.add(new Entity(name, number));
+        baseEntities.add(Entity.pack(name, number));
     }
 
     public void addBaseEntity(Entity e) {
-        baseEntities.add(e);
+        baseEntities.add(e.pack());
     }
 
     public void addCoverEntity(int name, int number) {
-        coverEntities.add(new Entity(name, number));
+        coverEntities.add(Entity.pack(name, number));
     }
 
     public void addCoverEntity(Entity e) {
-        coverEntities.add(e);
+        coverEntities.add(e.pack());
     }
 
     public void addChain(int start, int end, int[] chain) {
@@ -1949,12 +2013,7 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
             // hat weniger Kandidaten -> kann nicht sein
             return false;
         }
-        for (Candidate cand : candidatesToDelete) {
-            if (!s.candidatesToDelete.contains(cand)) {
-                return false;
-            }
-        }
-        return true;
+        return s.candidatesToDelete.containsAll(candidatesToDelete);
     }
 
     public boolean isSingle() {
@@ -2147,29 +2206,11 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     }
 
     public boolean isEqualCandidate(SolutionStep s) {
-        return isEqualCandidate(candidatesToDelete, s.getCandidatesToDelete());
+        return isEqualCandidate(candidatesToDelete, s.candidatesToDelete);
     }
 
-    private boolean isEqualCandidate(List<Candidate> l1, List<Candidate> l2) {
-        if (l1.size() != l2.size()) {
-            return false;
-        }
-        int anz = l1.size();
-        for (int i = 0; i < anz; i++) {
-            Candidate c1 = l1.get(i);
-            boolean found = false;
-            for (int j = 0; j < anz; j++) {
-                Candidate c2 = l2.get(j);
-                if (c1.getIndex() == c2.getIndex() && c1.getValue() == c2.getValue()) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                return false;
-            }
-        }
-        return true;
+    private boolean isEqualCandidate(PackedIntSet l1, PackedIntSet l2) {
+        return l1.size() == l2.size() && l2.containsAll(l1);
     }
 
     /**
@@ -2181,11 +2222,11 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
      * @param list
      * @return 
      */
-    public int getIndexSumme(List<Candidate> list) {
+    public int getIndexSumme(PackedIntSet list) {
         int sum = 0;
         int offset = 1;
         for (int i = 0; i < list.size(); i++) {
-            sum += list.get(i).getIndex() * offset + list.get(i).getValue();
+            sum += Candidate.getPackedIndex(list.get(i)) * offset + Candidate.getPackedValue(list.get(i));
             offset += 80;
         }
         return sum;
@@ -2209,9 +2250,7 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         // gleich viele Kandidaten -> einzeln vergleichen
         int result = 0;
         for (int i = 0; i < size1; i++) {
-            Candidate c1 = candidatesToDelete.get(i);
-            Candidate c2 = o.candidatesToDelete.get(i);
-            result = (c1.getIndex() * 10 + c1.getValue()) - (c2.getIndex() * 10 + c2.getValue());
+            result = candidatesToDelete.get(i) - o.candidatesToDelete.get(i);
             if (result != 0) {
                 return result;
             }
@@ -2219,11 +2258,27 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         return 0;
     }
 
+    /**
+     * A modifiable view of the base entities (for the GUI,
+     * the solvers should use {@link #getPackedBaseEntities() }).
+     * @return
+     */
     public List<Entity> getBaseEntities() {
-        return baseEntities;
+        return new EntityList(baseEntities);
     }
 
     public List<Entity> getCoverEntities() {
+        return new EntityList(coverEntities);
+    }
+
+    /**
+     * @return The base entities, packed with {@link Entity#pack(int, int) }
+     */
+    public PackedIntSet getPackedBaseEntities() {
+        return baseEntities;
+    }
+
+    public PackedIntSet getPackedCoverEntities() {
         return coverEntities;
     }
 
@@ -2236,27 +2291,61 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     }
 
     public void setCandidatesToDelete(List<Candidate> candidatesToDelete) {
-        this.candidatesToDelete = candidatesToDelete;
+        setCandidates(this.candidatesToDelete, candidatesToDelete);
     }
 
     public void setCannibalistic(List<Candidate> cannibalistic) {
-        this.cannibalistic = cannibalistic;
+        setCandidates(this.cannibalistic, cannibalistic);
     }
 
     public void setFins(List<Candidate> fins) {
-        this.fins = fins;
+        // XMLDecoder can set the fins before isSiamese
+        this.fins.setDuplicatesAllowed(isSiamese || containsDuplicates(fins));
+        setCandidates(this.fins, fins);
     }
 
     public void setEndoFins(List<Candidate> endoFins) {
-        this.endoFins = endoFins;
+        setCandidates(this.endoFins, endoFins);
     }
 
     public void setBaseEntities(List<Entity> baseEntities) {
-        this.baseEntities = baseEntities;
+        setEntities(this.baseEntities, baseEntities);
     }
 
     public void setCoverEntities(List<Entity> coverEntities) {
-        this.coverEntities = coverEntities;
+        this.coverEntities.setDuplicatesAllowed(isSiamese || containsDuplicates(coverEntities));
+        setEntities(this.coverEntities, coverEntities);
+    }
+
+    /**
+     * Checks, if <code>list</code> contains an element more than once
+     * (the lists of a Siamese fish, see {@link #setIsSiamese(boolean) }).
+     * @param list
+     * @return
+     */
+    private static boolean containsDuplicates(List<?> list) {
+        for (int i = 0; i < list.size(); i++) {
+            for (int j = i + 1; j < list.size(); j++) {
+                if (list.get(i).equals(list.get(j))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void setCandidates(PackedIntSet dest, List<Candidate> src) {
+        dest.clear();
+        for (int i = 0; i < src.size(); i++) {
+            dest.add(src.get(i).pack());
+        }
+    }
+
+    private static void setEntities(PackedIntSet dest, List<Entity> src) {
+        dest.clear();
+        for (int i = 0; i < src.size(); i++) {
+            dest.add(src.get(i).pack());
+        }
     }
 
     public void setChains(List<Chain> chains) {
@@ -2287,8 +2376,16 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
         return isSiamese;
     }
 
+    /**
+     * A Siamese fish contains the cover sets and fins of both fishes
+     * (step 2 appended to step 1), including the ones they share: the cover
+     * sets are split in the middle by {@link #getEntities(java.lang.StringBuffer, sudoku.PackedIntSet, boolean, boolean) }.
+     * @param isSiamese
+     */
     public void setIsSiamese(boolean isSiamese) {
         this.isSiamese = isSiamese;
+        coverEntities.setDuplicatesAllowed(isSiamese);
+        fins.setDuplicatesAllowed(isSiamese);
     }
 
     public List<RestrictedCommon> getRestrictedCommons() {
@@ -2368,4 +2465,101 @@ public class SolutionStep implements Comparable<SolutionStep>, Cloneable, Serial
     public void setPotentialEliminations(SudokuSet potentialEliminations) {
         this.potentialEliminations = potentialEliminations;
     }
+
+    /**
+     * A list of {@link Candidate Candidates} backed by a {@link PackedIntSet}:
+     * all changes are written through, the <code>Candidate</code> objects are
+     * created on demand.
+     */
+    private static class CandidateList extends AbstractList<Candidate> {
+
+        private PackedIntSet set;
+
+        CandidateList(PackedIntSet set) {
+            this.set = set;
+        }
+
+        @Override
+        public Candidate get(int index) {
+            int packed = set.get(index);
+            return new Candidate(Candidate.getPackedIndex(packed), Candidate.getPackedValue(packed));
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
+
+        @Override
+        public Candidate set(int index, Candidate element) {
+            Candidate old = get(index);
+            set.set(index, element.pack());
+            return old;
+        }
+
+        @Override
+        public void add(int index, Candidate element) {
+            set.add(index, element.pack());
+        }
+
+        @Override
+        public Candidate remove(int index) {
+            Candidate old = get(index);
+            set.remove(index);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            set.clear();
+        }
+    }
+
+    /**
+     * A list of {@link Entity Entities} backed by a {@link PackedIntSet}
+     * (see {@link CandidateList}).
+     */
+    private static class EntityList extends AbstractList<Entity> {
+
+        private PackedIntSet set;
+
+        EntityList(PackedIntSet set) {
+            this.set = set;
+        }
+
+        @Override
+        public Entity get(int index) {
+            int packed = set.get(index);
+            return new Entity(Entity.getPackedName(packed), Entity.getPackedNumber(packed));
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
+
+        @Override
+        public Entity set(int index, Entity element) {
+            Entity old = get(index);
+            set.set(index, element.pack());
+            return old;
+        }
+
+        @Override
+        public void add(int index, Entity element) {
+            set.add(index, element.pack());
+        }
+
+        @Override
+        public Entity remove(int index) {
+            Entity old = get(index);
+            set.remove(index);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            set.clear();
+        }
+    }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2008-12  Bernhard Hobiger
+ *
+ * This file is part of HoDoKu.
+ *
+ * HoDoKu is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoDoKu is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoDoKu. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sudoku;
+
+import java.util.List;
+
+/**
+ * One technique from the command line option <code>/sc</code>: the
+ * {@link SolutionType}, the required puzzle type and an optional comparison
+ * for the number of steps. The list is built with
+ * {@link #parseTypeStr(java.util.List, java.lang.String) }.
+ *
+ * @author hobiwan
+ */
+class StepType {
+
+    static final int UNDEFINED = -1;
+    static final int EQUAL = 0;
+    static final int LT = 1;
+    static final int GT = 2;
+    SolutionType type;
+    int puzzleType = 0;
+    boolean isRemove = false;
+    int compType = UNDEFINED;
+    int compAnz = 0;
+
+    private StepType(SolutionType type, int puzzleType, boolean isRemove, int compType, int compAnz) {
+        this.type = type;
+        this.puzzleType = puzzleType;
+        this.isRemove = isRemove;
+        this.compType = compType;
+        this.compAnz = compAnz;
+    }
+
+    @Override
+    public String toString() {
+        char compChar = '-';
+        switch (compType) {
+            case EQUAL:
+                compChar = '=';
+                break;
+            case LT:
+                compChar = '<';
+                break;
+            case GT:
+                compChar = '>';
+                break;
+        }
+        if (compType != UNDEFINED) {
+            return type.getStepName() + " (" + puzzleType + ", " + compChar + compAnz + ")";
+        } else {
+            return type.getStepName() + " (" + puzzleType + ", -)";
+        }
+    }
+
+    public static void parseTypeStr(List<StepType> stepList, String inputStr) {
+        SolutionType type;
+        int puzzleType = 0;
+        boolean isRemove = false;
+        int compType = UNDEFINED;
+        int compAnz = 0;
+
+        inputStr = inputStr.toLowerCase();
+        if (inputStr.startsWith("-")) {
+            isRemove = true;
+            inputStr = inputStr.substring(1);
+        }
+        String compStr = null;
+        String typeStr = null;
+        int compIndex = -1;
+        compIndex = inputStr.indexOf('+');
+        int typeIndex = inputStr.indexOf(':');
+        if (typeIndex == -1 && compIndex != -1) {
+            compStr = inputStr.substring(compIndex + 1);
+            inputStr = inputStr.substring(0, compIndex);
+        } else if (typeIndex != -1 && compIndex == -1) {
+            typeStr = inputStr.substring(typeIndex);
+            inputStr = inputStr.substring(0, typeIndex);
+        } else if (typeIndex != -1 && compIndex != -1) {
+            if (typeIndex < compIndex) {
+                compStr = inputStr.substring(compIndex + 1);
+                typeStr = inputStr.substring(typeIndex, compIndex);
+                inputStr = inputStr.substring(0, typeIndex);
+            } else {
+                typeStr = inputStr.substring(typeIndex);
+                compStr = inputStr.substring(compIndex + 1, typeIndex);
+                inputStr = inputStr.substring(0, compIndex);
+            }
+        }
+        puzzleType = 0;
+        if (typeStr != null) {
+            if (typeStr.length() < 2) {
+                System.out.println("Puzzle type missing (assuming '0')!");
+            } else {
+                char typeModeChar = typeStr.charAt(1);
+                switch (typeModeChar) {
+                    case '0':
+                        puzzleType = 0; // step must be in puzzle, nothing else required
+                        break;
+                    case '1':
+                        puzzleType = 1; // SSTS + step + SSTS
+                        break;
+                    case '2':
+                        puzzleType = 2; // SSTS + step + Singles
+                        break;
+                    case '3':
+                        puzzleType = 3; // singles + step + singles
+                        break;
+                    default:
+                        System.out.println("Invalid puzzle type: " + typeModeChar + " (assuming '0')");
+                        break;
+                }
+            }
+        }
+        if (compStr != null) {
+            // now comparison
+            if (compStr.length() < 2) {
+                System.out.println("Invalid comparison spec - ignored!");
+            } else {
+                switch (compStr.charAt(0)) {
+                    case 'e':
+                        compType = EQUAL;
+                        break;
+                    case 'l':
+                        compType = LT;
+                        break;
+                    case 'g':
+                        compType = GT;
+                        break;
+                    default:
+                        System.out.println("Invalid comparison mode: " + compStr.charAt(0) + " (ignored)");
+                        break;
+                }
+                if (compType != UNDEFINED) {
+                    String compAnzStr = compStr.substring(1);
+                    try {
+                        compAnz = Integer.parseInt(compAnzStr);
+                    } catch (NumberFormatException ex) {
+                        System.out.println("Invalid comparison digit: " + compAnzStr + " (comparison ignored)");
+                        compType = UNDEFINED;
+                    }
+                }
+            }
+        }
+        type = null;
+        SolutionType[] values = SolutionType.values();
+        for (int j = 0; j < values.length; j++) {
+            if (values[j].getArgName().equals(inputStr)) {
+                type = values[j];
+            }
+        }
+        if (type == null) {
+            if (inputStr.equals("all")) {
+                for (SolutionType tmpType : SolutionType.values()) {
+                    if (!tmpType.isSingle()) {
+                        addDeleteStepInList(stepList, new StepType(tmpType, puzzleType, isRemove, compType, compAnz));
+                    }
+                }
+            } else if (inputStr.equals("nssts")) {
+                for (SolutionType tmpType : SolutionType.values()) {
+                    if (!tmpType.isSingle() && !tmpType.isSSTS()) {
+                        addDeleteStepInList(stepList, new StepType(tmpType, puzzleType, isRemove, compType, compAnz));
+                    }
+                }
+            } else if (inputStr.equals("nssts1")) {
+                for (SolutionType tmpType : SolutionType.values()) {
+                    if (!tmpType.isSingle() && !tmpType.isSSTS()
+                            && !tmpType.equals(SolutionType.TWO_STRING_KITE)
+                            && !tmpType.equals(SolutionType.SKYSCRAPER)
+                            && !tmpType.equals(SolutionType.BUG_PLUS_1)
+                            && !tmpType.equals(SolutionType.EMPTY_RECTANGLE)
+                            && !tmpType.equals(SolutionType.W_WING)
+                            && !tmpType.equals(SolutionType.UNIQUENESS_1)
+                            && !tmpType.equals(SolutionType.XYZ_WING)
+                            && !tmpType.equals(SolutionType.REMOTE_PAIR)) {
+                        addDeleteStepInList(stepList, new StepType(tmpType, puzzleType, isRemove, compType, compAnz));
+                    }
+                }
+            } else {
+                System.out.println("Invalid step name: " + inputStr + " (ignored!)");
+            }
+        } else {
+            addDeleteStepInList(stepList, new StepType(type, puzzleType, isRemove, compType, compAnz));
+        }
+    }
+
+    private static void addDeleteStepInList(List<StepType> stepList, StepType step) {
+        if (step.type == null) {
+            return;
+        }
+        boolean found = false;
+        for (int i = 0; i < stepList.size(); i++) {
+            StepType tmpStep = stepList.get(i);
+            if (tmpStep.type == step.type && tmpStep.puzzleType == step.puzzleType) {
+                found = true;
+                if (step.isRemove) {
+                    stepList.remove(i);
+                    i--;
+                } else {
+                    // allow multiple instances with same puzzleType
+//                    tmpStep.compType = step.compType;
+//                    tmpStep.compAnz = step.compAnz;
+                }
+            }
+        }
+        if (step.isRemove) {
+            if (!found) {
+                System.out.println("Could not remove step " + step.type.getArgName() + ":" + step.puzzleType + ": was not set yet.");
+            }
+        } else {
+            stepList.add(step);
+        }
+    }
+}
@@ -455,6 +455,11 @@ public class Sudoku2 implements Cloneable {
      * @param saveInitialState
      */
     public void setSudoku(String init, boolean saveInitialState) {
+        // plain givens strings are by far the most common format: no need
+        // to split and clean the string
+        if (init != null && setSudokuFromGivens(init, saveInitialState)) {
+            return;
+        }
         clearSudoku();
         if (init == null) {
             return;
@@ -912,6 +917,192 @@ public class Sudoku2 implements Cloneable {
         statusGivens = SudokuStatus.VALID;
     }
 
+    /**
+     * Checks, if <code>init</code> is a plain givens string: 81 characters
+     * ('1' to '9' for givens, '0' or '.' for empty cells), optionally
+     * surrounded by white space and followed by a comment started with '#'.
+     * Comments, that would make {@link #setSudoku(java.lang.String, boolean) }
+     * treat the line as library format or as gsf's q2-taxonomy, are not
+     * accepted.<br>
+     * No objects are created, the check can be applied to every line of a
+     * batch file.
+     *
+     * @param init
+     * @return
+     */
+    public static boolean isGivensString(CharSequence init) {
+        int length = init.length();
+        int start = getGivensStart(init);
+        if (length - start < LENGTH) {
+            return false;
+        }
+        for (int i = start; i < start + LENGTH; i++) {
+            char ch = init.charAt(i);
+            if ((ch < '0' || ch > '9') && ch != '.') {
+                return false;
+            }
+        }
+        int index = start + LENGTH;
+        while (index < length && init.charAt(index) <= ' ') {
+            index++;
+        }
+        if (index == length) {
+            return true;
+        }
+        if (init.charAt(index) != '#') {
+            return false;
+        }
+        // the comment must be one line and must not look like another format
+        int anzDoppelpunkt = 0;
+        int anzKomma = 0;
+        for (int i = index; i < length; i++) {
+            char ch = init.charAt(i);
+            if (ch == '\r' || ch == '\n') {
+                return false;
+            } else if (ch == ':') {
+                anzDoppelpunkt++;
+            } else if (ch == ',') {
+                anzKomma++;
+            }
+        }
+        return anzDoppelpunkt != 6 && anzDoppelpunkt != 7 && anzKomma < 6;
+    }
+
+    /**
+     * Bulk initialization from an array of givens (0 means "cell not set"):
+     * The candidates of all cells are computed in one pass from the digits
+     * used in each house, {@link #free}, {@link #unsolvedCellsAnz} and the
+     * Naked Single queue are filled in the same pass, the Hidden Single
+     * queue afterwards. Much faster than calling
+     * {@link #setCell(int, int, boolean) } for every given, but the singles
+     * queues are in the same order as after {@link #rebuildInternalData() }
+     * (by index and by house) instead of the order in which they were
+     * exposed.<br>
+     * All non-zero cells become givens; {@link #solution},
+     * {@link #userCells}, {@link #initialState} and the status are reset
+     * as in {@link #clearSudoku() }.
+     *
+     * @param givens
+     * @return <code>false</code>, if a digit appears more than once in a
+     * house, if an unsolved cell has no candidates left or if a digit has no
+     * place left in a house
+     */
+    public boolean initFromValues(int[] givens) {
+        // the digits already used in every house
+        int[] houseMasks = new int[ALL_UNITS.length];
+        boolean valid = true;
+        for (int index = 0; index < LENGTH; index++) {
+            int value = givens[index];
+            values[index] = value;
+            fixed[index] = value != 0;
+            solution[index] = 0;
+            userCells[index] = 0;
+            if (value != 0) {
+                for (int i = 0; i < CONSTRAINTS[index].length; i++) {
+                    int constr = CONSTRAINTS[index][i];
+                    if ((houseMasks[constr] & MASKS[value]) != 0) {
+                        valid = false;
+                    }
+                    houseMasks[constr] |= MASKS[value];
+                }
+            }
+        }
+        nsQueue.clear();
+        hsQueue.clear();
+        for (int i = 0; i < free.length; i++) {
+            Arrays.fill(free[i], (byte) 0);
+        }
+        int anz = 0;
+        for (int index = 0; index < LENGTH; index++) {
+            if (values[index] != 0) {
+                cells[index] = 0;
+                continue;
+            }
+            anz++;
+            int[] constr = CONSTRAINTS[index];
+            int mask = MAX_MASK & ~(houseMasks[constr[0]] | houseMasks[constr[1]] | houseMasks[constr[2]]);
+            cells[index] = (short) mask;
+            if (mask == 0) {
+                valid = false;
+            } else if (ANZ_VALUES[mask] == 1) {
+                addNakedSingle(index, CAND_FROM_MASK[mask]);
+            }
+            byte[] free0 = free[constr[0]];
+            byte[] free1 = free[constr[1]];
+            byte[] free2 = free[constr[2]];
+            while (mask != 0) {
+                int cand = CAND_FROM_MASK[mask];
+                free0[cand]++;
+                free1[cand]++;
+                free2[cand]++;
+                mask &= mask - 1;
+            }
+        }
+        unsolvedCellsAnz = anz;
+        for (int constr = 0; constr < free.length; constr++) {
+            for (int cand = 1; cand <= 9; cand++) {
+                if (free[constr][cand] == 1) {
+                    addHiddenSingle(constr, cand);
+                } else if (free[constr][cand] == 0 && (houseMasks[constr] & MASKS[cand]) == 0) {
+                    // no place left for cand
+                    valid = false;
+                }
+            }
+        }
+        initialState = null;
+        solutionSet = false;
+        status = SudokuStatus.EMPTY;
+        statusGivens = SudokuStatus.EMPTY;
+        return valid;
+    }
+
+    /**
+     * Returns the index of the first character in <code>init</code>,
+     * that is not white space.
+     *
+     * @param init
+     * @return
+     */
+    private static int getGivensStart(CharSequence init) {
+        int start = 0;
+        while (start < init.length() && init.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Fast path for {@link #setSudoku(java.lang.String, boolean) }: If
+     * <code>init</code> is a plain givens string (see
+     * {@link #isGivensString(java.lang.CharSequence) }), the givens are set
+     * directly without any intermediate strings. The resulting puzzle is
+     * exactly the same as with <code>setSudoku()</code>.
+     *
+     * @param init
+     * @param saveInitialState
+     * @return <code>false</code>, if <code>init</code> is not a plain givens
+     * string (the sudoku is left unchanged)
+     */
+    public boolean setSudokuFromGivens(CharSequence init, boolean saveInitialState) {
+        if (!isGivensString(init)) {
+            return false;
+        }
+        clearSudoku();
+        int start = getGivensStart(init);
+        for (int i = 0; i < LENGTH; i++) {
+            int value = init.charAt(start + i) - '0';
+            if (value > 0 && value <= 9) {
+                setCell(i, value, true);
+            }
+        }
+        if (saveInitialState) {
+            setInitialState(getSudoku(ClipboardMode.LIBRARY));
+        }
+        status = SudokuStatus.VALID;
+        statusGivens = SudokuStatus.VALID;
+        return true;
+    }
+
     /**
      * Takes the first 9 Strings of <code>lines</code> and
      * condenses it into one 81 character string.
@@ -1169,8 +1360,9 @@ public class Sudoku2 implements Cloneable {
                 // append the candidates, that can be deleted
                 SortedSet<Integer> candToDeleteSet = new TreeSet<Integer>();
                 if (step.getType().useCandToDelInLibraryFormat()) {
-                    for (Candidate cand : step.getCandidatesToDelete()) {
-                        candToDeleteSet.add(cand.getValue());
+                    PackedIntSet candidatesToDelete = step.getPackedCandidatesToDelete();
+                    for (int i = 0; i < candidatesToDelete.size(); i++) {
+                        candToDeleteSet.add(Candidate.getPackedValue(candidatesToDelete.get(i)));
                     }
                 }
                 // if nothing can be deleted, append the cells, that can be set
@@ -1238,15 +1430,17 @@ public class Sudoku2 implements Cloneable {
                 // fins and endo-fins
                 if (SolutionType.isFish(step.getType())
                         || step.getType() == SolutionType.W_WING) {
-                    for (Candidate cand : step.getFins()) {
-                        int index = cand.getIndex();
+                    PackedIntSet fins = step.getPackedFins();
+                    for (int i = 0; i < fins.size(); i++) {
+                        int index = Candidate.getPackedIndex(fins.get(i));
                         insertOrReplaceChar(cellBuffers[index], '#');
                         cellsWithExtraChar[index] = true;
                     }
                 }
                 if (SolutionType.isFish(step.getType())) {
-                    for (Candidate cand : step.getEndoFins()) {
-                        int index = cand.getIndex();
+                    PackedIntSet endoFins = step.getPackedEndoFins();
+                    for (int i = 0; i < endoFins.size(); i++) {
+                        int index = Candidate.getPackedIndex(endoFins.get(i));
                         insertOrReplaceChar(cellBuffers[index], '@');
                         cellsWithExtraChar[index] = true;
                     }
@@ -1287,9 +1481,10 @@ public class Sudoku2 implements Cloneable {
                 }
 
                 // candidates to delete
-                for (Candidate cand : step.getCandidatesToDelete()) {
-                    int index = cand.getIndex();
-                    char candidate = Character.forDigit(cand.getValue(), 10);
+                PackedIntSet candidatesToDelete = step.getPackedCandidatesToDelete();
+                for (int j = 0; j < candidatesToDelete.size(); j++) {
+                    int index = Candidate.getPackedIndex(candidatesToDelete.get(j));
+                    char candidate = Character.forDigit(Candidate.getPackedValue(candidatesToDelete.get(j)), 10);
                     for (int i = 0; i < cellBuffers[index].length(); i++) {
                         if (cellBuffers[index].charAt(i) == candidate && (i == 0 || (i > 0 && cellBuffers[index].charAt(i - 1) != '-'))) {
                             cellBuffers[index].insert(i, '-');
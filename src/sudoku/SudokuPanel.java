@@ -27,6 +27,8 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
 import java.awt.Point;
 import java.awt.Polygon;
 import java.awt.RenderingHints;
@@ -41,6 +43,7 @@ import java.awt.geom.CubicCurve2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
 import java.awt.print.PrinterException;
@@ -50,8 +53,11 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -246,6 +252,60 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
      * code>true</code> for every candidate that can still be filtered
      */
     private boolean[] remainingCandidates = new boolean[Sudoku2.UNITS];
+    // layered painting
+    /**
+     * If set, cells and grid are cached in {@link #layerImage} and only the
+     * cells that have changed are redrawn (see {@link #paintComponent(java.awt.Graphics) }).
+     */
+    private boolean layeredPainting = true;
+    /**
+     * Cells and grid as drawn with the last repaint (a <code>VolatileImage</code>,
+     * if possible)
+     */
+    private Image layerImage = null;
+    /**
+     * <code>false</code>, if {@link #layerImage} has to be redrawn completely
+     */
+    private boolean layerValid = false;
+    /**
+     * Sizes, fonts and grid settings used for drawing {@link #layerImage}
+     */
+    private List<Object> layerPageKey = null;
+    /**
+     * The state of every cell in {@link #layerImage}
+     */
+    private CellState[] cellStates = new CellState[Sudoku2.LENGTH];
+    /**
+     * For comparing a cell with {@link #cellStates}
+     */
+    private CellState tmpCellState = new CellState();
+    /**
+     * Set while {@link #layerImage} is drawn: the cell backgrounds are filled
+     * without antialiasing (the layer has no transformation), single cells
+     * draw their candidates from {@link #glyphAtlas}
+     */
+    private boolean drawingLayer = false;
+    /**
+     * Pre-rasterized candidate digits, one array per color (only valid for
+     * {@link #glyphAtlasFont})
+     */
+    private Map<Color, BufferedImage[]> glyphAtlas = new HashMap<Color, BufferedImage[]>();
+    /**
+     * The font used for {@link #glyphAtlas}
+     */
+    private Font glyphAtlasFont = null;
+    /**
+     * Width of the lines within a block
+     */
+    private float strokeWidth;
+    /**
+     * Width of the lines around a block
+     */
+    private float boxStrokeWidth;
+    /**
+     * Size of a colorKu icon for a value
+     */
+    private int colorKuCellSize;
 
     /**
      * Creates new form SudokuPanel
@@ -254,6 +314,9 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
      */
     public SudokuPanel(MainFrame mf) {
         mainFrame = mf;
+        for (int i = 0; i < cellStates.length; i++) {
+            cellStates[i] = new CellState();
+        }
         sudoku = new Sudoku2();
         sudoku.clearSudoku();
         setShowCandidates(Options.getInstance().isShowCandidates());
@@ -261,6 +324,7 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         solver = SudokuSolverFactory.getDefaultSolverInstance();
         solver.setSudoku(sudoku.clone());
         solver.solve();
+        solver.retainSteps();
         progressChecker = new ProgressChecker(mainFrame);
 
         initComponents();
@@ -1916,12 +1980,42 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
      */
     public BufferedImage getSudokuImage(int size, boolean allBlack) {
         BufferedImage fileImage = new BufferedImage(size, size, BufferedImage.TYPE_3BYTE_BGR);
-        Graphics2D g = fileImage.createGraphics();
+        drawSudokuImage(fileImage, allBlack);
+        return fileImage;
+    }
+
+    /**
+     * Draws the current sudoku into an existing image (the image
+     * is cleared first). Used for rendering many puzzles into the
+     * same image.
+     *
+     * @param image
+     * @param allBlack
+     */
+    void drawSudokuImage(BufferedImage image, boolean allBlack) {
+        int size = Math.min(image.getWidth(), image.getHeight());
+        Graphics2D g = image.createGraphics();
         this.g2 = g;
         g2.setColor(Color.WHITE);
-        g2.fillRect(0, 0, size, size);
+        g2.fillRect(0, 0, image.getWidth(), image.getHeight());
         drawPage(size, size, true, false, allBlack, 1.0);
-        return fileImage;
+        g.dispose();
+    }
+
+    /**
+     * Sets a sudoku for rendering only: The sudoku is neither checked
+     * nor solved and it is not copied, the solver and the generator of
+     * the panel are not used. <code>newSudoku</code> should have its
+     * solution set.
+     *
+     * @param newSudoku
+     */
+    void setSudokuForRendering(Sudoku2 newSudoku) {
+        step = null;
+        setChainInStep(-1);
+        coloringMap.clear();
+        resetShowHintCellValues();
+        sudoku = newSudoku;
     }
 
     /**
@@ -2021,11 +2115,161 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         return Printable.PAGE_EXISTS;
     }
 
+    /**
+     * Paints the sudoku. If {@link #layeredPainting} is set, the cells and
+     * the grid are drawn into {@link #layerImage} (see {@link #drawLayer(int, int) }),
+     * only the chains are painted directly on the screen.
+     *
+     * @param g
+     */
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        if (!layeredPainting) {
+            super.paintComponent(g);
+            g2 = (Graphics2D) g;
+            drawPage(getBounds().width, getBounds().height, false, true, false, 1.0);
+            return;
+        }
+        // the layer covers the whole panel: super.paintComponent() (clearing
+        // the background) is not necessary
+        int w = getWidth();
+        int h = getHeight();
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        do {
+            validateLayerImage(w, h);
+            g2 = (Graphics2D) layerImage.getGraphics();
+            drawingLayer = true;
+            drawLayer(w, h);
+            drawingLayer = false;
+            g2.dispose();
+            g.drawImage(layerImage, 0, 0, null);
+        } while (layerImage instanceof VolatileImage && ((VolatileImage) layerImage).contentsLost());
         g2 = (Graphics2D) g;
-        drawPage(getBounds().width, getBounds().height, false, true, false, 1.0);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        drawChains(false);
+    }
+
+    /**
+     * Makes sure, that {@link #layerImage} exists, has the correct size and
+     * is usable. If the image has to be (re)created, {@link #layerValid} is
+     * reset. A <code>VolatileImage</code> is used, if the panel is displayable,
+     * a <code>BufferedImage</code> otherwise.
+     *
+     * @param w
+     * @param h
+     */
+    private void validateLayerImage(int w, int h) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (layerImage != null && (layerImage.getWidth(null) != w || layerImage.getHeight(null) != h
+                || (gc != null) != (layerImage instanceof VolatileImage))) {
+            layerImage.flush();
+            layerImage = null;
+        }
+        if (layerImage == null) {
+            layerValid = false;
+            if (gc != null) {
+                layerImage = gc.createCompatibleVolatileImage(w, h);
+            } else {
+                layerImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            }
+        }
+        if (layerImage instanceof VolatileImage) {
+            int valid = ((VolatileImage) layerImage).validate(gc);
+            if (valid == VolatileImage.IMAGE_INCOMPATIBLE) {
+                layerImage.flush();
+                layerImage = gc.createCompatibleVolatileImage(w, h);
+                layerValid = false;
+            } else if (valid == VolatileImage.IMAGE_RESTORED) {
+                layerValid = false;
+            }
+        }
+    }
+
+    /**
+     * Draws cells and grid into {@link #layerImage} ({@link #g2} must already
+     * point to the image). If the layer is still valid, only the cells whose
+     * {@link CellState} differs from the one stored in {@link #cellStates}
+     * are redrawn; the grid is redrawn clipped to those cells.
+     *
+     * @param totalWidth
+     * @param totalHeight
+     */
+    private void drawLayer(int totalWidth, int totalHeight) {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        initPage(totalWidth, totalHeight, false, true);
+
+        // everything, that is not part of a CellState but changes the layer
+        List<Object> pageKey = Arrays.<Object>asList(totalWidth, totalHeight, valueFont, candidateFont,
+                candidateHeight, getBackground(), Options.getInstance().getDrawMode(),
+                Options.getInstance().getGridColor(), Options.getInstance().getInnerGridColor(),
+                Options.getInstance().getBoxLineFactor());
+        if (!pageKey.equals(layerPageKey)) {
+            layerValid = false;
+            layerPageKey = pageKey;
+        }
+        if (!layerValid) {
+            fillLayerBackground(totalWidth, totalHeight);
+            for (int line = 0; line < 9; line++) {
+                for (int col = 0; col < 9; col++) {
+                    CellState state = cellStates[Sudoku2.getIndex(line, col)];
+                    getCellState(line, col, false, false, state);
+                    drawCell(line, col, state);
+                }
+            }
+            drawGrid(false);
+            layerValid = true;
+            return;
+        }
+        for (int line = 0; line < 9; line++) {
+            for (int col = 0; col < 9; col++) {
+                int index = Sudoku2.getIndex(line, col);
+                getCellState(line, col, false, false, tmpCellState);
+                if (!tmpCellState.isEqual(cellStates[index])) {
+                    g2.setClip(getX(line, col), getY(line, col), cellSize, cellSize);
+                    drawCell(line, col, tmpCellState);
+                    drawGrid(false);
+                    g2.setClip(null);
+                    cellStates[index].set(tmpCellState);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills everything in {@link #layerImage}, that is not covered by a cell,
+     * with the background color: the border around the grid and the space
+     * between the blocks. The cells are filled by {@link #drawCell(int, int, sudoku.SudokuPanel.CellState) },
+     * filling them twice would make a complete redraw of the layer slower
+     * than painting directly.
+     *
+     * @param totalWidth
+     * @param totalHeight
+     */
+    private void fillLayerBackground(int totalWidth, int totalHeight) {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2.setColor(getBackground());
+        g2.fillRect(0, 0, totalWidth, startSY);
+        g2.fillRect(0, startSY + height, totalWidth, totalHeight - startSY - height);
+        g2.fillRect(0, startSY, startSX, height);
+        g2.fillRect(startSX + width, startSY, totalWidth - startSX - width, height);
+        if (delta > 0) {
+            for (int i = 0; i < 4; i++) {
+                g2.fillRect(startSX, startSY + i * (3 * cellSize + delta), width, delta);
+                g2.fillRect(startSX + i * (3 * cellSize + delta), startSY, delta, height);
+            }
+        }
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+
+    /**
+     * Forces a complete redraw of {@link #layerImage} with the next repaint.
+     */
+    private void invalidateLayer() {
+        layerValid = false;
     }
 
 //    private void drawPage(int totalWidth, int totalHeight) {
@@ -2062,6 +2306,34 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 
+        initPage(totalWidth, totalHeight, isPrint, withBorder);
+
+        // draw the cells
+        CellState state = new CellState();
+        for (int line = 0; line < 9; line++) {
+            for (int col = 0; col < 9; col++) {
+                getCellState(line, col, isPrint, allBlack, state);
+                drawCell(line, col, state);
+            }
+        }
+
+        // Rahmen zeichnen: muss am Schluss sein, wegen der Hintergründe
+        drawGrid(allBlack);
+
+        // Chains zeichnen, wenn vorhanden
+        drawChains(allBlack);
+    }
+
+    /**
+     * Calculates the size and the position of the grid and adjusts the fonts
+     * if necessary (first part of {@link #drawPage(int, int, boolean, boolean, boolean, double) }).
+     *
+     * @param totalWidth
+     * @param totalHeight
+     * @param isPrint
+     * @param withBorder
+     */
+    private void initPage(int totalWidth, int totalHeight, boolean isPrint, boolean withBorder) {
         if (lastCursorChanged == -1) {
             lastCursorChanged = System.currentTimeMillis();
         }
@@ -2073,11 +2345,11 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         height = (width < height) ? width : height;
 
         // make the size of the lines larger, especially for high res printing
-        float strokeWidth = 2.0f / 1000.0f * width;
+        strokeWidth = 2.0f / 1000.0f * width;
         if (width > 1000) {
             strokeWidth *= 1.5f;
         }
-        float boxStrokeWidth = (float) (strokeWidth * Options.getInstance().getBoxLineFactor());
+        boxStrokeWidth = (float) (strokeWidth * Options.getInstance().getBoxLineFactor());
         int strokeWidthInt = Math.round(boxStrokeWidth / 2);
 //        delta = (int)(DELTA * scale);
 //        deltaRand = (int)(DELTA_RAND * scale);
@@ -2104,7 +2376,7 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         } else {
             startSY = (totalHeight - height) / 2;
         }
-        int colorKuCellSize = (int) (cellSize * 0.9);
+        colorKuCellSize = (int) (cellSize * 0.9);
 
         // get the fonts every time the size of the grid changes or
         // the user selects a different font in the preferences dialog
@@ -2147,312 +2419,386 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
                 resetColorKuImages();
             }
         }
+    }
 
-        // draw the cells
-        // dx, dy: Offset in a cell for drawing values
-        // dcx, dcy: Offset in one nineth of a cell for drawing candidates
-        // ddx, ddy: Height and width of the background circle for a candidate
-        //      more specifically: ddy is the diameter of the background circle
-        double dx = 0, dy = 0, dcx = 0, dcy = 0, ddy = 0;
-        for (int line = 0; line < 9; line++) {
-            for (int col = 0; col < 9; col++) {
-
-                // background first (ignore allBlack here!)
-                g2.setColor(Options.getInstance().getDefaultCellColor());
-                if (Sudoku2.getBlock(Sudoku2.getIndex(line, col)) % 2 != 0) {
-                    // every other block may have a different background color
-                    g2.setColor(Options.getInstance().getAlternateCellColor());
-                }
+    /**
+     * Determines, how a cell has to be drawn. All colors are resolved
+     * (including <code>allBlack</code>).
+     *
+     * @param line
+     * @param col
+     * @param isPrint
+     * @param allBlack
+     * @param state Filled with the result
+     */
+    private void getCellState(int line, int col, boolean isPrint, boolean allBlack, CellState state) {
+        state.clear();
+        // background first (ignore allBlack here!)
+        Color back = Options.getInstance().getDefaultCellColor();
+        if (Sudoku2.getBlock(Sudoku2.getIndex(line, col)) % 2 != 0) {
+            // every other block may have a different background color
+            back = Options.getInstance().getAlternateCellColor();
+        }
 
-                int cellIndex = Sudoku2.getIndex(line, col);
-                boolean isSelected = (selectedCells.isEmpty() && line == aktLine && col == aktCol) || selectedCells.contains(cellIndex);
-                // the cell doesnt count as selected, if the last change of the cursor has been a while
-                if (isSelected && selectedCells.isEmpty() && Options.getInstance().isDeleteCursorDisplay()) {
+        int cellIndex = Sudoku2.getIndex(line, col);
+        boolean isSelected = (selectedCells.isEmpty() && line == aktLine && col == aktCol) || selectedCells.contains(cellIndex);
+        // the cell doesnt count as selected, if the last change of the cursor has been a while
+        if (isSelected && selectedCells.isEmpty() && Options.getInstance().isDeleteCursorDisplay()) {
 //                    System.out.println("--- " + (System.currentTimeMillis() - lastCursorChanged));
-                    if ((System.currentTimeMillis() - lastCursorChanged) > Options.getInstance().getDeleteCursorDisplayLength()) {
-                        isSelected = false;
-                    }
-                }
-                // dont paint the whole cell yellow, just a small frame, if onlySmallCursors is set
-                if (isSelected && !isPrint && !Options.getInstance().isOnlySmallCursors()) {
-                    setColor(g2, allBlack, Options.getInstance().getAktCellColor());
-                }
-                // check if the candidate denoted by showHintCellValue is a valid candidate; if showCandidates == true,
-                // this can be done by SudokuCell.isCandidateValid(); if it is false, candidates entered by the user
-                // are highlighted, regardless of validity
-                // CHANGE: no filters if showCandiates == false
-                boolean candidateValid = false;
-                if (showInvalidOrPossibleCells) {
-                    if (showCandidates) {
-                        candidateValid = sudoku.areCandidatesValid(cellIndex, showHintCellValues, false);
+            if ((System.currentTimeMillis() - lastCursorChanged) > Options.getInstance().getDeleteCursorDisplayLength()) {
+                isSelected = false;
+            }
+        }
+        // dont paint the whole cell yellow, just a small frame, if onlySmallCursors is set
+        if (isSelected && !isPrint && !Options.getInstance().isOnlySmallCursors()) {
+            back = getColor(allBlack, Options.getInstance().getAktCellColor());
+        }
+        // check if the candidate denoted by showHintCellValue is a valid candidate; if showCandidates == true,
+        // this can be done by SudokuCell.isCandidateValid(); if it is false, candidates entered by the user
+        // are highlighted, regardless of validity
+        // CHANGE: no filters if showCandiates == false
+        boolean candidateValid = false;
+        if (showInvalidOrPossibleCells) {
+            if (showCandidates) {
+                candidateValid = sudoku.areCandidatesValid(cellIndex, showHintCellValues, false);
 //                    } else {
 //                        candidateValid = sudoku.isCandidateValid(cellIndex, showHintCellValue, ! showCandidates);
-                    }
-                }
-                if (isShowInvalidOrPossibleCells() && isInvalidCells()
-                        && (sudoku.getValue(cellIndex) != 0 || (showInvalidOrPossibleCells && !candidateValid))) {
+            }
+        }
+        if (isShowInvalidOrPossibleCells() && isInvalidCells()
+                && (sudoku.getValue(cellIndex) != 0 || (showInvalidOrPossibleCells && !candidateValid))) {
 //                        (cell.getValue() != 0 || (getShowHintCellValue() != 0 && !cell.isCandidateValid(SudokuCell.PLAY, getShowHintCellValue())))) {
-                    setColor(g2, allBlack, Options.getInstance().getInvalidCellColor());
-                }
-                if (isShowInvalidOrPossibleCells() && !isInvalidCells() && sudoku.getValue(cellIndex) == 0
-                        && candidateValid && !Options.getInstance().isOnlySmallFilters()) {
+            back = getColor(allBlack, Options.getInstance().getInvalidCellColor());
+        }
+        if (isShowInvalidOrPossibleCells() && !isInvalidCells() && sudoku.getValue(cellIndex) == 0
+                && candidateValid && !Options.getInstance().isOnlySmallFilters()) {
 //                        getShowHintCellValue() != 0 && cell.isCandidateValid(SudokuCell.PLAY, getShowHintCellValue())) {
-                    setColor(g2, allBlack, Options.getInstance().getPossibleCellColor());
-                }
-                //if (cell.getValue() == 0 && coloringMap.containsKey(cellIndex)) {
-                if (coloringMap.containsKey(cellIndex) && (sudoku.getValue(cellIndex) == 0 || Options.getInstance().isColorValues())) {
-                    // coloring
-                    setColor(g2, allBlack, Options.getInstance().getColoringColors()[coloringMap.get(cellIndex)]);
-                }
-                g2.fillRect(getX(line, col), getY(line, col), cellSize, cellSize);
-                if (isSelected && !isPrint && g2.getColor() != Options.getInstance().getAktCellColor()) {
-                    setColor(g2, allBlack, Options.getInstance().getAktCellColor());
-                    int frameSize = (int) (cellSize * Options.getInstance().getCursorFrameSize());
-//                    g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
-//                    g2.fillRect(getX(line, col), getY(line, col), cellSize, cellSize);
-//                    g2.setPaintMode();
-                    int cx = getX(line, col);
-                    int cy = getY(line, col);
-                    g2.fillRect(cx, cy, cellSize, frameSize);
-                    g2.fillRect(cx, cy, frameSize, cellSize);
-                    g2.fillRect(cx + cellSize - frameSize, cy, frameSize, cellSize);
-                    g2.fillRect(cx, cy + cellSize - frameSize, cellSize, frameSize);
-                }
-
-
-                // background is done, draw the value
-                int startX = getX(line, col);
-                int startY = getY(line, col);
-                Color offColor = null;
-                int offCand = 0;
-                if (sudoku.getValue(cellIndex) != 0) {
-                    // value set in cell: draw it
-                    setColor(g2, allBlack, Options.getInstance().getCellValueColor());
-                    if (sudoku.isFixed(cellIndex)) {
-                        setColor(g2, allBlack, Options.getInstance().getCellFixedValueColor());
-                    } else if (isShowWrongValues() == true && !sudoku.isValidValue(line, col, sudoku.getValue(cellIndex))) {
-                        offColor = Options.getInstance().getColorKuColor(10);
-                        offCand = 10;
-                        setColor(g2, allBlack, Options.getInstance().getWrongValueColor());
-                    } else if (isShowDeviations() && sudoku.isSolutionSet() && sudoku.getValue(cellIndex) != sudoku.getSolution(cellIndex)) {
-                        offColor = Options.getInstance().getColorKuColor(11);
-                        offCand = 11;
-                        setColor(g2, allBlack, Options.getInstance().getDeviationColor());
-                    }
-                    g2.setFont(valueFont);
-                    dx = (cellSize - g2.getFontMetrics().stringWidth("8")) / 2.0;
-                    dy = (cellSize + g2.getFontMetrics().getAscent() - g2.getFontMetrics().getDescent()) / 2.0;
-                    int value = sudoku.getValue(cellIndex);
-                    if (Options.getInstance().isShowColorKuAct()) {
-                        // draw the corresponding icon
-                        drawColorBox(value, g2, getX(line, col) + (cellSize - colorKuCellSize) / 2,
-                                getY(line, col) + (cellSize - colorKuCellSize) / 2, colorKuCellSize, true);
-//                        drawColorBox(value, g2, startX + 3, startY + 2, cellSize - 4);
-                        if (offColor != null) {
-                            // invalid values or deviations are shown with an "X" in different colors
-                            setColor(g2, allBlack, offColor);
-                            g2.drawString("X", (int) (startX + dx), (int) (startY + dy));
-                        }
-                    } else {
-                        // draw the value
-                        g2.drawString(Integer.toString(value), (int) (startX + dx), (int) (startY + dy));
+            back = getColor(allBlack, Options.getInstance().getPossibleCellColor());
+        }
+        //if (cell.getValue() == 0 && coloringMap.containsKey(cellIndex)) {
+        if (coloringMap.containsKey(cellIndex) && (sudoku.getValue(cellIndex) == 0 || Options.getInstance().isColorValues())) {
+            // coloring
+            back = getColor(allBlack, Options.getInstance().getColoringColors()[coloringMap.get(cellIndex)]);
+        }
+        state.background = back;
+        if (isSelected && !isPrint && back != Options.getInstance().getAktCellColor()) {
+            state.frame = getColor(allBlack, Options.getInstance().getAktCellColor());
+        }
+        state.colorKu = Options.getInstance().isShowColorKuAct();
+
+        // background is done, now the value
+        Color offColor = null;
+        int offCand = 0;
+        if (sudoku.getValue(cellIndex) != 0) {
+            // value set in cell
+            state.value = sudoku.getValue(cellIndex);
+            state.valueColor = getColor(allBlack, Options.getInstance().getCellValueColor());
+            if (sudoku.isFixed(cellIndex)) {
+                state.valueColor = getColor(allBlack, Options.getInstance().getCellFixedValueColor());
+            } else if (isShowWrongValues() == true && !sudoku.isValidValue(line, col, sudoku.getValue(cellIndex))) {
+                offColor = Options.getInstance().getColorKuColor(10);
+                state.valueColor = getColor(allBlack, Options.getInstance().getWrongValueColor());
+            } else if (isShowDeviations() && sudoku.isSolutionSet() && sudoku.getValue(cellIndex) != sudoku.getSolution(cellIndex)) {
+                offColor = Options.getInstance().getColorKuColor(11);
+                state.valueColor = getColor(allBlack, Options.getInstance().getDeviationColor());
+            }
+            if (offColor != null) {
+                // invalid values or deviations are shown with an "X" in different colors (colorKu only)
+                state.valueOffColor = getColor(allBlack, offColor);
+            }
+            return;
+        }
+        // the candidates: if showCandidates is false, the candidates are drawn anyway, if
+        // the user presses <shift><ctrl> (current cell - showAllCandidatesAkt)
+        // or <shift><alt> (all cells - showAllCandidates)
+        boolean userCandidates = !showCandidates;
+        if (showAllCandidates || showAllCandidatesAkt && line == aktLine && col == aktCol) {
+            userCandidates = false;
+        }
+        for (int i = 1; i <= 9; i++) {
+            offColor = null;
+            // one candidate at a time
+            if (sudoku.isCandidate(cellIndex, i, userCandidates)
+                    || (showCandidates && showDeviations && sudoku.isSolutionSet() && i == sudoku.getSolution(cellIndex))) {
+                state.candidates |= 1 << i;
+                Color hintColor = null;
+                Color candColor = null;
+                candColor = Options.getInstance().getCandidateColor();
+                if (step != null) {
+                    int index = Sudoku2.getIndex(line, col);
+                    if (step.getIndices().indexOf(index) >= 0 && step.getValues().indexOf(i) >= 0) {
+                        hintColor = Options.getInstance().getHintCandidateBackColor();
+                        candColor = Options.getInstance().getHintCandidateColor();
                     }
-                } else {
-                    // draw the candidates equally distributed within the cell
-                    // if showCandidates is false, the candidates are drawn anyway, if
-                    // the user presses <shift><ctrl> (current cell - showAllCandidatesAkt) 
-                    // or <shift><alt> (all cells - showAllCandidates)
-                    g2.setFont(candidateFont);
-                    boolean userCandidates = !showCandidates;
-                    if (showAllCandidates || showAllCandidatesAkt && line == aktLine && col == aktCol) {
-                        userCandidates = false;
+                    int alsIndex = step.getAlsIndex(index, chainIndex);
+                    if (alsIndex != -1 && ((chainIndex == -1 && !step.getType().isKrakenFish()) || alsToShow.contains(alsIndex))) {
+                        hintColor = Options.getInstance().getHintCandidateAlsBackColors()[alsIndex % Options.getInstance().getHintCandidateAlsBackColors().length];
+                        candColor = Options.getInstance().getHintCandidateAlsColors()[alsIndex % Options.getInstance().getHintCandidateAlsColors().length];
                     }
-                    // calculate the width of the space for one candidate
-                    double third = cellSize / 3.0;
-                    dcx = (third - g2.getFontMetrics().stringWidth("8")) / 2.0;
-                    dcy = (third + g2.getFontMetrics().getAscent() - g2.getFontMetrics().getDescent()) / 2.0;
-//                    ddx = g2.getFontMetrics().stringWidth("8") * Options.getInstance().getHintBackFactor();
-                    ddy = (g2.getFontMetrics().getAscent() - g2.getFontMetrics().getDescent()) * Options.getInstance().getHintBackFactor();
-                    for (int i = 1; i <= 9; i++) {
-                        offColor = null;
-                        // one candidate at a time
-                        if (sudoku.isCandidate(cellIndex, i, userCandidates)
-                                || (showCandidates && showDeviations && sudoku.isSolutionSet() && i == sudoku.getSolution(cellIndex))) {
-                            Color hintColor = null;
-                            Color candColor = null;
-//                            setColor(g2, allBlack, Options.getInstance().getCandidateColor());
-                            candColor = Options.getInstance().getCandidateColor();
-                            double shiftX = ((i - 1) % 3) * third;
-                            double shiftY = ((i - 1) / 3) * third;
-                            if (Options.getInstance().isShowColorKuAct()) {
-                                // Colorku has to be drawm here, or filters, coloring, hints wont be visible
-//                                int ccx = (int) Math.round(startX + shiftX + third / 2.0 - ddy / 2.0);
-//                                int ccy = (int) Math.round(startY + shiftY + third / 2.0 - ddy / 2.0);
-//                                int ccs = (int) Math.round(ddy);
-//                                drawColorBox(i, g2, ccx, ccy, ccs, false);
-                                int ccx = (int) Math.round(startX + shiftX + third / 2.0 - candidateHeight / 2.0);
-                                int ccy = (int) Math.round(startY + shiftY + third / 2.0 - candidateHeight / 2.0);
-                                drawColorBox(i, g2, ccx, ccy, candidateHeight, false);
-//                                drawColorBox(i, g2, (int) (startX + shiftX + 1), (int) (startY + shiftY + 1), (int) ddy - 1);
+                    for (int k = 0; k < step.getChains().size(); k++) {
+                        if (step.getType().isKrakenFish() && chainIndex == -1) {
+                            // Index 0 means show no chain at all
+                            continue;
+                        }
+                        if (chainIndex != -1 && k != chainIndex) {
+                            // show only one chain in Forcing Chains/Nets
+                            continue;
+                        }
+                        Chain chain = step.getChains().get(k);
+                        for (int j = chain.getStart(); j <= chain.getEnd(); j++) {
+                            if (chain.getChain()[j] == Integer.MIN_VALUE) {
+                                // Trennmarker für mins -> ignorieren
+                                continue;
+                            }
+                            int chainEntry = Math.abs(chain.getChain()[j]);
+                            int index1 = -1, index2 = -1, index3 = -1;
+                            if (Chain.getSNodeType(chainEntry) == Chain.NORMAL_NODE) {
+                                index1 = Chain.getSCellIndex(chainEntry);
                             }
-                            if (step != null) {
-                                int index = Sudoku2.getIndex(line, col);
-                                if (step.getIndices().indexOf(index) >= 0 && step.getValues().indexOf(i) >= 0) {
+                            if (Chain.getSNodeType(chainEntry) == Chain.GROUP_NODE) {
+                                index1 = Chain.getSCellIndex(chainEntry);
+                                index2 = Chain.getSCellIndex2(chainEntry);
+                                index3 = Chain.getSCellIndex3(chainEntry);
+                            }
+                            if ((index == index1 || index == index2 || index == index3) && Chain.getSCandidate(chainEntry) == i) {
+                                if (Chain.isSStrong(chainEntry)) {
+                                    // strong link
                                     hintColor = Options.getInstance().getHintCandidateBackColor();
                                     candColor = Options.getInstance().getHintCandidateColor();
+                                } else {
+                                    hintColor = Options.getInstance().getHintCandidateFinBackColor();
+                                    candColor = Options.getInstance().getHintCandidateFinColor();
                                 }
-                                int alsIndex = step.getAlsIndex(index, chainIndex);
-                                if (alsIndex != -1 && ((chainIndex == -1 && !step.getType().isKrakenFish()) || alsToShow.contains(alsIndex))) {
-                                    hintColor = Options.getInstance().getHintCandidateAlsBackColors()[alsIndex % Options.getInstance().getHintCandidateAlsBackColors().length];
-                                    candColor = Options.getInstance().getHintCandidateAlsColors()[alsIndex % Options.getInstance().getHintCandidateAlsColors().length];
-                                }
-                                for (int k = 0; k < step.getChains().size(); k++) {
-                                    if (step.getType().isKrakenFish() && chainIndex == -1) {
-                                        // Index 0 means show no chain at all
-                                        continue;
-                                    }
-                                    if (chainIndex != -1 && k != chainIndex) {
-                                        // show only one chain in Forcing Chains/Nets
-                                        continue;
-                                    }
-                                    Chain chain = step.getChains().get(k);
-                                    for (int j = chain.getStart(); j <= chain.getEnd(); j++) {
-                                        if (chain.getChain()[j] == Integer.MIN_VALUE) {
-                                            // Trennmarker für mins -> ignorieren
-                                            continue;
-                                        }
-                                        int chainEntry = Math.abs(chain.getChain()[j]);
-                                        int index1 = -1, index2 = -1, index3 = -1;
-                                        if (Chain.getSNodeType(chainEntry) == Chain.NORMAL_NODE) {
-                                            index1 = Chain.getSCellIndex(chainEntry);
-                                        }
-                                        if (Chain.getSNodeType(chainEntry) == Chain.GROUP_NODE) {
-                                            index1 = Chain.getSCellIndex(chainEntry);
-                                            index2 = Chain.getSCellIndex2(chainEntry);
-                                            index3 = Chain.getSCellIndex3(chainEntry);
-                                        }
-                                        if ((index == index1 || index == index2 || index == index3) && Chain.getSCandidate(chainEntry) == i) {
-                                            if (Chain.isSStrong(chainEntry)) {
-                                                // strong link
-                                                hintColor = Options.getInstance().getHintCandidateBackColor();
-                                                candColor = Options.getInstance().getHintCandidateColor();
-                                            } else {
-                                                hintColor = Options.getInstance().getHintCandidateFinBackColor();
-                                                candColor = Options.getInstance().getHintCandidateFinColor();
-                                            }
-                                        }
-                                    }
-                                }
-                                for (Candidate cand : step.getFins()) {
-                                    if (cand.getIndex() == index && cand.getValue() == i) {
-                                        hintColor = Options.getInstance().getHintCandidateFinBackColor();
-                                        candColor = Options.getInstance().getHintCandidateFinColor();
-                                    }
-                                }
-                                for (Candidate cand : step.getEndoFins()) {
-                                    if (cand.getIndex() == index && cand.getValue() == i) {
-                                        hintColor = Options.getInstance().getHintCandidateEndoFinBackColor();
-                                        candColor = Options.getInstance().getHintCandidateEndoFinColor();
-                                    }
-                                }
-                                if (step.getValues().contains(i) && step.getColorCandidates().containsKey(index)) {
-                                    hintColor = Options.getInstance().getColoringColors()[step.getColorCandidates().get(index)];
-                                    candColor = Options.getInstance().getCandidateColor();
-                                }
-                                for (Candidate cand : step.getCandidatesToDelete()) {
-                                    if (cand.getIndex() == index && cand.getValue() == i) {
-                                        hintColor = Options.getInstance().getHintCandidateDeleteBackColor();
-                                        candColor = Options.getInstance().getHintCandidateDeleteColor();
-                                    }
-                                }
-                                for (Candidate cand : step.getCannibalistic()) {
-                                    if (cand.getIndex() == index && cand.getValue() == i) {
-                                        hintColor = Options.getInstance().getHintCandidateCannibalisticBackColor();
-                                        candColor = Options.getInstance().getHintCandidateCannibalisticColor();
-                                    }
-                                }
-                            }
-                            if (isShowWrongValues() == true && !sudoku.isCandidateValid(cellIndex, i, userCandidates)) {
-                                offColor = Options.getInstance().getColorKuColor(10);
-                                offCand = 10;
-//                                setColor(g2, allBlack, Options.getInstance().getWrongValueColor());
-                                candColor = Options.getInstance().getWrongValueColor();
-                            }
-                            if (!sudoku.isCandidate(cellIndex, i, userCandidates) && isShowDeviations() && sudoku.isSolutionSet()
-                                    && i == sudoku.getSolution(cellIndex)) {
-                                offColor = Options.getInstance().getColorKuColor(11);
-                                offCand = 11;
-//                                setColor(g2, allBlack, Options.getInstance().getDeviationColor());
-                                candColor = Options.getInstance().getDeviationColor();
                             }
+                        }
+                    }
+                    for (Candidate cand : step.getFins()) {
+                        if (cand.getIndex() == index && cand.getValue() == i) {
+                            hintColor = Options.getInstance().getHintCandidateFinBackColor();
+                            candColor = Options.getInstance().getHintCandidateFinColor();
+                        }
+                    }
+                    for (Candidate cand : step.getEndoFins()) {
+                        if (cand.getIndex() == index && cand.getValue() == i) {
+                            hintColor = Options.getInstance().getHintCandidateEndoFinBackColor();
+                            candColor = Options.getInstance().getHintCandidateEndoFinColor();
+                        }
+                    }
+                    if (step.getValues().contains(i) && step.getColorCandidates().containsKey(index)) {
+                        hintColor = Options.getInstance().getColoringColors()[step.getColorCandidates().get(index)];
+                        candColor = Options.getInstance().getCandidateColor();
+                    }
+                    for (Candidate cand : step.getCandidatesToDelete()) {
+                        if (cand.getIndex() == index && cand.getValue() == i) {
+                            hintColor = Options.getInstance().getHintCandidateDeleteBackColor();
+                            candColor = Options.getInstance().getHintCandidateDeleteColor();
+                        }
+                    }
+                    for (Candidate cand : step.getCannibalistic()) {
+                        if (cand.getIndex() == index && cand.getValue() == i) {
+                            hintColor = Options.getInstance().getHintCandidateCannibalisticBackColor();
+                            candColor = Options.getInstance().getHintCandidateCannibalisticColor();
+                        }
+                    }
+                }
+                if (isShowWrongValues() == true && !sudoku.isCandidateValid(cellIndex, i, userCandidates)) {
+                    offColor = Options.getInstance().getColorKuColor(10);
+                    offCand = 10;
+                    candColor = Options.getInstance().getWrongValueColor();
+                }
+                if (!sudoku.isCandidate(cellIndex, i, userCandidates) && isShowDeviations() && sudoku.isSolutionSet()
+                        && i == sudoku.getSolution(cellIndex)) {
+                    offColor = Options.getInstance().getColorKuColor(11);
+                    offCand = 11;
+                    candColor = Options.getInstance().getDeviationColor();
+                }
 
-                            // filters on candidates instead of cells
-                            if (isShowInvalidOrPossibleCells() && !isInvalidCells()
-                                    && showHintCellValues[i] && Options.getInstance().isOnlySmallFilters()) {
-                                setColor(g2, allBlack, Options.getInstance().getPossibleCellColor());
-                                g2.fillRect((int) Math.round(startX + shiftX + third / 2.0 - ddy / 2.0),
-                                        (int) Math.round(startY + shiftY + third / 2.0 - ddy / 2.0),
-                                        (int) Math.round(ddy), (int) Math.round(ddy));
-                            }
+                // filters on candidates instead of cells
+                if (isShowInvalidOrPossibleCells() && !isInvalidCells()
+                        && showHintCellValues[i] && Options.getInstance().isOnlySmallFilters()) {
+                    state.filterColors[i] = getColor(allBlack, Options.getInstance().getPossibleCellColor());
+                }
 
-                            // Coloring
-                            Color coloringColor = null;
-                            if (coloringCandidateMap.containsKey(cellIndex * 10 + i)) {
-                                //if (coloringMap.containsKey(cellIndex)) {
-                                // coloring
-                                coloringColor = Options.getInstance().getColoringColors()[coloringCandidateMap.get(cellIndex * 10 + i)];
-                                //System.out.println("coloringColor for " + cellIndex + "/" + i + " is " + coloringColor.toString());
-                            }
-//                            Color oldColor = g2.getColor();
-
-                            if (coloringColor != null) {
-                                setColor(g2, allBlack, coloringColor);
-                                //g2.fillRect(startX + shiftX + dcx - 2 * (ddy - ddx) / 3, startY + shiftY + dcy - 4 * ddy / 5 - 1, ddy, ddy);
-                                g2.fillRect((int) Math.round(startX + shiftX + third / 2.0 - ddy / 2.0),
-                                        (int) Math.round(startY + shiftY + third / 2.0 - ddy / 2.0),
-                                        (int) Math.round(ddy), (int) Math.round(ddy));
-                            }
-                            if (hintColor != null) {
-                                setColor(g2, allBlack, hintColor);
-                                //g2.fillOval(startX + shiftX + dcx - 2 * (ddy - ddx) / 3, startY + shiftY + dcy - 4 * ddy / 5 - 1, ddy, ddy);
-                                g2.fillOval((int) Math.round(startX + shiftX + third / 2.0 - ddy / 2.0),
-                                        (int) Math.round(startY + shiftY + third / 2.0 - ddy / 2.0),
-                                        (int) Math.round(ddy), (int) Math.round(ddy));
-                            }
-                            setColor(g2, allBlack, candColor);
-//                            setColor(g2, allBlack, oldColor);
-                            if (!Options.getInstance().isShowColorKuAct()) {
-                                g2.drawString(Integer.toString(i), (int) Math.round(startX + dcx + shiftX), (int) Math.round(startY + dcy + shiftY));
-//                            } else {
-////                                int ccx = (int) Math.round(startX + shiftX + third / 2.0 - ddy / 2.0);
-////                                int ccy = (int) Math.round(startY + shiftY + third / 2.0 - ddy / 2.0);
-////                                int ccs = (int) Math.round(ddy);
-////                                drawColorBox(i, g2, ccx, ccy, ccs, false);
-//                                int ccx = (int) Math.round(startX + shiftX + third / 2.0 - candidateHeight / 2.0);
-//                                int ccy = (int) Math.round(startY + shiftY + third / 2.0 - candidateHeight / 2.0);
-//                                drawColorBox(i, g2, ccx, ccy, candidateHeight, false);
-////                                drawColorBox(i, g2, (int) (startX + shiftX + 1), (int) (startY + shiftY + 1), (int) ddy - 1);
-//                                if (offColor != null) {
-//                                    setColor(g2, allBlack, offColor);
-//                                    g2.drawString("X", (int) Math.round(startX + dcx + shiftX), (int) Math.round(startY + dcy + shiftY));
-//                                }
-                            } else {
-                                if (offColor != null) {
-//                                    setColor(g2, allBlack, offColor);
-//                                    g2.drawString("X", (int) Math.round(startX + dcx + shiftX), (int) Math.round(startY + dcy + shiftY));
-                                    int ccx = (int) Math.round(startX + shiftX + third / 2.0 - candidateHeight / 2.0);
-                                    int ccy = (int) Math.round(startY + shiftY + third / 2.0 - candidateHeight / 2.0);
-                                    drawColorBox(offCand, g2, ccx, ccy, candidateHeight, false);
-                                }
-                            }
+                // Coloring
+                if (coloringCandidateMap.containsKey(cellIndex * 10 + i)) {
+                    state.coloringColors[i] = getColor(allBlack,
+                            Options.getInstance().getColoringColors()[coloringCandidateMap.get(cellIndex * 10 + i)]);
+                }
+                if (hintColor != null) {
+                    state.hintColors[i] = getColor(allBlack, hintColor);
+                }
+                state.candColors[i] = getColor(allBlack, candColor);
+                if (offColor != null) {
+                    state.offCands[i] = offCand;
+                }
+            }
+        }
+    }
 
-                        }
-                    }
+    /**
+     * Draws one cell according to <code>state</code>.
+     *
+     * @param line
+     * @param col
+     * @param state
+     */
+    private void drawCell(int line, int col, CellState state) {
+        int startX = getX(line, col);
+        int startY = getY(line, col);
+        if (drawingLayer) {
+            // whole pixels: antialiasing doesnt change anything, but is slow
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        }
+        g2.setColor(state.background);
+        g2.fillRect(startX, startY, cellSize, cellSize);
+        if (state.frame != null) {
+            g2.setColor(state.frame);
+            int frameSize = (int) (cellSize * Options.getInstance().getCursorFrameSize());
+//                    g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+//                    g2.fillRect(getX(line, col), getY(line, col), cellSize, cellSize);
+//                    g2.setPaintMode();
+            g2.fillRect(startX, startY, cellSize, frameSize);
+            g2.fillRect(startX, startY, frameSize, cellSize);
+            g2.fillRect(startX + cellSize - frameSize, startY, frameSize, cellSize);
+            g2.fillRect(startX, startY + cellSize - frameSize, cellSize, frameSize);
+        }
+        if (drawingLayer) {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        }
+
+        // dx, dy: Offset in a cell for drawing values
+        // dcx, dcy: Offset in one nineth of a cell for drawing candidates
+        // ddx, ddy: Height and width of the background circle for a candidate
+        //      more specifically: ddy is the diameter of the background circle
+        if (state.value != 0) {
+            // value set in cell: draw it
+            g2.setColor(state.valueColor);
+            g2.setFont(valueFont);
+            double dx = (cellSize - g2.getFontMetrics().stringWidth("8")) / 2.0;
+            double dy = (cellSize + g2.getFontMetrics().getAscent() - g2.getFontMetrics().getDescent()) / 2.0;
+            if (state.colorKu) {
+                // draw the corresponding icon
+                drawColorBox(state.value, g2, startX + (cellSize - colorKuCellSize) / 2,
+                        startY + (cellSize - colorKuCellSize) / 2, colorKuCellSize, true);
+//                        drawColorBox(value, g2, startX + 3, startY + 2, cellSize - 4);
+                if (state.valueOffColor != null) {
+                    // invalid values or deviations are shown with an "X" in different colors
+                    g2.setColor(state.valueOffColor);
+                    g2.drawString("X", (int) (startX + dx), (int) (startY + dy));
                 }
+            } else {
+                // draw the value
+                g2.drawString(Integer.toString(state.value), (int) (startX + dx), (int) (startY + dy));
             }
+            return;
         }
+        if (state.candidates == 0) {
+            return;
+        }
+        // draw the candidates equally distributed within the cell
+        g2.setFont(candidateFont);
+        // calculate the width of the space for one candidate
+        double third = cellSize / 3.0;
+        double dcx = (third - g2.getFontMetrics().stringWidth("8")) / 2.0;
+        double dcy = (third + g2.getFontMetrics().getAscent() - g2.getFontMetrics().getDescent()) / 2.0;
+//                    ddx = g2.getFontMetrics().stringWidth("8") * Options.getInstance().getHintBackFactor();
+        double ddy = (g2.getFontMetrics().getAscent() - g2.getFontMetrics().getDescent()) * Options.getInstance().getHintBackFactor();
+        for (int i = 1; i <= 9; i++) {
+            if ((state.candidates & (1 << i)) == 0) {
+                continue;
+            }
+            double shiftX = ((i - 1) % 3) * third;
+            double shiftY = ((i - 1) / 3) * third;
+            if (state.colorKu) {
+                // Colorku has to be drawm here, or filters, coloring, hints wont be visible
+                int ccx = (int) Math.round(startX + shiftX + third / 2.0 - candidateHeight / 2.0);
+                int ccy = (int) Math.round(startY + shiftY + third / 2.0 - candidateHeight / 2.0);
+                drawColorBox(i, g2, ccx, ccy, candidateHeight, false);
+            }
+            // filters on candidates instead of cells
+            if (state.filterColors[i] != null) {
+                g2.setColor(state.filterColors[i]);
+                g2.fillRect((int) Math.round(startX + shiftX + third / 2.0 - ddy / 2.0),
+                        (int) Math.round(startY + shiftY + third / 2.0 - ddy / 2.0),
+                        (int) Math.round(ddy), (int) Math.round(ddy));
+            }
+            // Coloring
+            if (state.coloringColors[i] != null) {
+                g2.setColor(state.coloringColors[i]);
+                g2.fillRect((int) Math.round(startX + shiftX + third / 2.0 - ddy / 2.0),
+                        (int) Math.round(startY + shiftY + third / 2.0 - ddy / 2.0),
+                        (int) Math.round(ddy), (int) Math.round(ddy));
+            }
+            if (state.hintColors[i] != null) {
+                g2.setColor(state.hintColors[i]);
+                g2.fillOval((int) Math.round(startX + shiftX + third / 2.0 - ddy / 2.0),
+                        (int) Math.round(startY + shiftY + third / 2.0 - ddy / 2.0),
+                        (int) Math.round(ddy), (int) Math.round(ddy));
+            }
+            g2.setColor(state.candColors[i]);
+            if (!state.colorKu) {
+                drawCandidate(i, (int) Math.round(startX + dcx + shiftX), (int) Math.round(startY + dcy + shiftY));
+            } else {
+                if (state.offCands[i] != 0) {
+                    int ccx = (int) Math.round(startX + shiftX + third / 2.0 - candidateHeight / 2.0);
+                    int ccy = (int) Math.round(startY + shiftY + third / 2.0 - candidateHeight / 2.0);
+                    drawColorBox(state.offCands[i], g2, ccx, ccy, candidateHeight, false);
+                }
+            }
+        }
+    }
 
-        // Rahmen zeichnen: muss am Schluss sein, wegen der Hintergründe
+    /**
+     * Draws a candidate digit in the current color of {@link #g2} at the
+     * baseline <code>x</code>/<code>y</code>. If {@link #drawingLayer} is
+     * set and only single cells are redrawn, a pre-rasterized image of the
+     * digit is used instead of <code>drawString()</code> (for a complete
+     * redraw of the layer <code>drawString()</code> is faster).
+     *
+     * @param cand
+     * @param x
+     * @param y
+     */
+    private void drawCandidate(int cand, int x, int y) {
+        if (!drawingLayer || !layerValid) {
+            g2.drawString(Integer.toString(cand), x, y);
+            return;
+        }
+        if (glyphAtlasFont != candidateFont) {
+            glyphAtlas.clear();
+            glyphAtlasFont = candidateFont;
+        }
+        Color color = g2.getColor();
+        BufferedImage[] glyphs = glyphAtlas.get(color);
+        if (glyphs == null) {
+            glyphs = new BufferedImage[10];
+            glyphAtlas.put(color, glyphs);
+        }
+        FontMetrics fm = g2.getFontMetrics(candidateFont);
+        int pad = fm.getDescent() + 1;
+        if (glyphs[cand] == null) {
+            String digit = Integer.toString(cand);
+            BufferedImage glyph = new BufferedImage(fm.stringWidth(digit) + 2 * pad,
+                    fm.getAscent() + fm.getDescent() + 2 * pad, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D gg = glyph.createGraphics();
+            gg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            gg.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            gg.setFont(candidateFont);
+            gg.setColor(color);
+            gg.drawString(digit, pad, pad + fm.getAscent());
+            gg.dispose();
+            glyphs[cand] = glyph;
+        }
+        g2.drawImage(glyphs[cand], x - pad, y - pad - fm.getAscent(), null);
+    }
+
+    /**
+     * Draws the grid lines (last part of {@link #drawPage(int, int, boolean, boolean, boolean, double) }:
+     * has to be done after the cells, because of the backgrounds).
+     *
+     * @param allBlack
+     */
+    private void drawGrid(boolean allBlack) {
         switch (Options.getInstance().getDrawMode()) {
             case 0:
 //                g2.setStroke(new BasicStroke((float) (2 * scale)));
@@ -2497,69 +2843,89 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
                 }
                 break;
         }
+    }
 
-        // Chains zeichnen, wenn vorhanden
-        if (step != null && !step.getChains().isEmpty()) {
-            // es gibt mindestens eine Chain
-            // zuerst alle Punkte sammeln (auch zu löschende Kandidaten und ALS)
-            points.clear();
-            //for (Chain chain : step.getChains()) {
-            for (int ci = 0; ci < step.getChainAnz(); ci++) {
-                if (step.getType().isKrakenFish() && chainIndex == -1) {
-                    continue;
-                }
-                if (chainIndex != -1 && chainIndex != ci) {
-                    continue;
-                }
-                Chain chain = step.getChains().get(ci);
-                for (int i = chain.getStart(); i <= chain.getEnd(); i++) {
-                    int che = Math.abs(chain.getChain()[i]);
-                    points.add(getCandKoord(Chain.getSCellIndex(che), Chain.getSCandidate(che), cellSize));
-                    if (Chain.getSNodeType(che) == Chain.GROUP_NODE) {
-                        int indexC = Chain.getSCellIndex2(che);
-                        if (indexC != -1) {
-                            points.add(getCandKoord(indexC, Chain.getSCandidate(che), cellSize));
-                        }
-                        indexC = Chain.getSCellIndex3(che);
-                        if (indexC != -1) {
-                            points.add(getCandKoord(indexC, Chain.getSCandidate(che), cellSize));
-                        }
-                    }
-                }
+    /**
+     * Draws the chains of {@link #step}, if there are any.
+     *
+     * @param allBlack
+     */
+    private void drawChains(boolean allBlack) {
+        if (step == null || step.getChains().isEmpty()) {
+            return;
+        }
+        FontMetrics cm = g2.getFontMetrics(candidateFont);
+        double ddy = (cm.getAscent() - cm.getDescent()) * Options.getInstance().getHintBackFactor();
+        // es gibt mindestens eine Chain
+        // zuerst alle Punkte sammeln (auch zu löschende Kandidaten und ALS)
+        points.clear();
+        //for (Chain chain : step.getChains()) {
+        for (int ci = 0; ci < step.getChainAnz(); ci++) {
+            if (step.getType().isKrakenFish() && chainIndex == -1) {
+                continue;
             }
-            for (Candidate cand : step.getCandidatesToDelete()) {
-                points.add(getCandKoord(cand.getIndex(), cand.getValue(), cellSize));
+            if (chainIndex != -1 && chainIndex != ci) {
+                continue;
             }
-            //for (AlsInSolutionStep als : step.getAlses()) {
-            for (int ai = 0; ai < step.getAlses().size(); ai++) {
-                if (step.getType().isKrakenFish() && chainIndex == -1) {
-                    continue;
-                }
-                if (chainIndex != -1 && !alsToShow.contains(ai)) {
-                    continue;
-                }
-                AlsInSolutionStep als = step.getAlses().get(ai);
-                for (int i = 0; i < als.getIndices().size(); i++) {
-                    int index = als.getIndices().get(i);
-                    int[] cands = sudoku.getAllCandidates(index);
-                    for (int j = 0; j < cands.length; j++) {
-                        points.add(getCandKoord(index, cands[j], cellSize));
+            Chain chain = step.getChains().get(ci);
+            for (int i = chain.getStart(); i <= chain.getEnd(); i++) {
+                int che = Math.abs(chain.getChain()[i]);
+                points.add(getCandKoord(Chain.getSCellIndex(che), Chain.getSCandidate(che), cellSize));
+                if (Chain.getSNodeType(che) == Chain.GROUP_NODE) {
+                    int indexC = Chain.getSCellIndex2(che);
+                    if (indexC != -1) {
+                        points.add(getCandKoord(indexC, Chain.getSCandidate(che), cellSize));
+                    }
+                    indexC = Chain.getSCellIndex3(che);
+                    if (indexC != -1) {
+                        points.add(getCandKoord(indexC, Chain.getSCandidate(che), cellSize));
                     }
                 }
             }
-            // dann zeichnen
-            //for (Chain chain : step.getChains()) {
-            for (int ci = 0; ci < step.getChainAnz(); ci++) {
-                if (step.getType().isKrakenFish() && chainIndex == -1) {
-                    continue;
-                }
-                if (chainIndex != -1 && ci != chainIndex) {
-                    continue;
+        }
+        for (Candidate cand : step.getCandidatesToDelete()) {
+            points.add(getCandKoord(cand.getIndex(), cand.getValue(), cellSize));
+        }
+        //for (AlsInSolutionStep als : step.getAlses()) {
+        for (int ai = 0; ai < step.getAlses().size(); ai++) {
+            if (step.getType().isKrakenFish() && chainIndex == -1) {
+                continue;
+            }
+            if (chainIndex != -1 && !alsToShow.contains(ai)) {
+                continue;
+            }
+            AlsInSolutionStep als = step.getAlses().get(ai);
+            for (int i = 0; i < als.getIndices().size(); i++) {
+                int index = als.getIndices().get(i);
+                int[] cands = sudoku.getAllCandidates(index);
+                for (int j = 0; j < cands.length; j++) {
+                    points.add(getCandKoord(index, cands[j], cellSize));
                 }
-                Chain chain = step.getChains().get(ci);
-                drawChain(g2, chain, cellSize, ddy, allBlack);
             }
         }
+        // dann zeichnen
+        //for (Chain chain : step.getChains()) {
+        for (int ci = 0; ci < step.getChainAnz(); ci++) {
+            if (step.getType().isKrakenFish() && chainIndex == -1) {
+                continue;
+            }
+            if (chainIndex != -1 && ci != chainIndex) {
+                continue;
+            }
+            Chain chain = step.getChains().get(ci);
+            drawChain(g2, chain, cellSize, ddy, allBlack);
+        }
+    }
+
+    /**
+     * Convenience method to make printing in all black easier.
+     *
+     * @param allBlack
+     * @param color
+     * @return <code>color</code> or black
+     */
+    private Color getColor(boolean allBlack, Color color) {
+        return allBlack ? Color.BLACK : color;
     }
 
     /**
@@ -3162,6 +3528,8 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
                         tmpSudoku.setStatusGivens(sudoku.getStatusGivens());
                         tmpSudoku.setSolution(sudoku.getSolution());
                         getSolver().solve(true);
+                        // the steps are shown in the solution panel
+                        getSolver().retainSteps();
                     }
 //                sudoku.setLevel(tmpSudoku.getLevel());
 //                sudoku.setScore(tmpSudoku.getScore());
@@ -3389,31 +3757,16 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         if (i.hasNext()) //there's at least one ImageWriter, just use the first one
         {
             ImageWriter imageWriter = i.next();
-            //get the param
-            ImageWriteParam param = imageWriter.getDefaultWriteParam();
-            ImageTypeSpecifier its = new ImageTypeSpecifier(bi.getColorModel(), bi.getSampleModel());
-
             //get metadata
-            IIOMetadata iomd = imageWriter.getDefaultImageMetadata(its, param);
-
-            String formatName = "javax_imageio_png_1.0";//this is the DOCTYPE of the metadata we need
-
-            Node node = iomd.getAsTree(formatName);
-
-            // standardmäßig ist nur IHDR gesetzt, pHYs dazufügen
-            int dpiRes = (int) (dpi / 2.54 * 100);
-            IIOMetadataNode res = new IIOMetadataNode("pHYs");
-            res.setAttribute("pixelsPerUnitXAxis", String.valueOf(dpiRes));
-            res.setAttribute("pixelsPerUnitYAxis", String.valueOf(dpiRes));
-            res.setAttribute("unitSpecifier", "meter");
-            node.appendChild(res);
-
+            IIOMetadata iomd = null;
             try {
-                iomd.setFromTree(formatName, node);
+                iomd = getPNGMetadata(imageWriter, bi, dpi);
             } catch (IIOInvalidTreeException e) {
                 JOptionPane.showMessageDialog(this, e.getLocalizedMessage(),
                         java.util.ResourceBundle.getBundle("intl/SudokuPanel").getString("SudokuPanel.error"),
                         JOptionPane.ERROR_MESSAGE);
+                iomd = imageWriter.getDefaultImageMetadata(new ImageTypeSpecifier(bi.getColorModel(), bi.getSampleModel()),
+                        imageWriter.getDefaultWriteParam());
             }
             //attach the metadata to an image
             IIOImage iioimage = new IIOImage(bi, null, iomd);
@@ -3444,6 +3797,41 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         }
     }
 
+    /**
+     * Creates the metadata for writing <code>bi</code> as png file with
+     * <code>imageWriter</code>. The resolution <code>dpi</code> is stored
+     * in the metadata.
+     *
+     * @param imageWriter A png ImageWriter
+     * @param bi
+     * @param dpi
+     * @return
+     * @throws IIOInvalidTreeException
+     */
+    static IIOMetadata getPNGMetadata(ImageWriter imageWriter, BufferedImage bi, int dpi) throws IIOInvalidTreeException {
+        //get the param
+        ImageWriteParam param = imageWriter.getDefaultWriteParam();
+        ImageTypeSpecifier its = new ImageTypeSpecifier(bi.getColorModel(), bi.getSampleModel());
+
+        //get metadata
+        IIOMetadata iomd = imageWriter.getDefaultImageMetadata(its, param);
+
+        String formatName = "javax_imageio_png_1.0";//this is the DOCTYPE of the metadata we need
+
+        Node node = iomd.getAsTree(formatName);
+
+        // standardmäßig ist nur IHDR gesetzt, pHYs dazufügen
+        int dpiRes = (int) (dpi / 2.54 * 100);
+        IIOMetadataNode res = new IIOMetadataNode("pHYs");
+        res.setAttribute("pixelsPerUnitXAxis", String.valueOf(dpiRes));
+        res.setAttribute("pixelsPerUnitYAxis", String.valueOf(dpiRes));
+        res.setAttribute("unitSpecifier", "meter");
+        node.appendChild(res);
+
+        iomd.setFromTree(formatName, node);
+        return iomd;
+    }
+
     /**
      * @return the colorCells
      */
@@ -4009,6 +4397,7 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
             colorKuImagesLarge[i] = null;
             colorKuImagesSmall[i] = null;
         }
+        invalidateLayer();
     }
 
     private void drawColorBox(int n, Graphics gc, int cx, int cy, int boxSize, boolean large) {
@@ -4018,9 +4407,12 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         } else {
             images = colorKuImagesSmall;
         }
-        if (images[0] == null || images[0].getWidth() != boxSize) {
-            for (int i = 0; i < images.length; i++) {
-                images[i] = new ColorKuImage(boxSize, Options.getInstance().getColorKuColor(i + 1));
+        // the images are shared by all panels (could be used by more than one thread)
+        synchronized (images) {
+            if (images[0] == null || images[0].getWidth() != boxSize) {
+                for (int i = 0; i < images.length; i++) {
+                    images[i] = new ColorKuImage(boxSize, Options.getInstance().getColorKuColor(i + 1));
+                }
             }
         }
 //        double drawFactor = 0.9;
@@ -4058,4 +4450,100 @@ public class SudokuPanel extends javax.swing.JPanel implements Printable {
         }
         return remainingCandidates;
     }
+
+    /**
+     * Switches layered painting on or off (see {@link #paintComponent(java.awt.Graphics) }).
+     *
+     * @param layeredPainting
+     */
+    void setLayeredPainting(boolean layeredPainting) {
+        this.layeredPainting = layeredPainting;
+        invalidateLayer();
+    }
+
+    /**
+     * Moves the cursor without any further action (for {@link PaintBenchmark}).
+     *
+     * @param row
+     * @param col
+     */
+    void moveCursor(int row, int col) {
+        setAktRowCol(row, col);
+    }
+
+    /**
+     * Everything that is needed to draw one cell, all colors already resolved.
+     * If the state of a cell hasn't changed since the last repaint, the cell
+     * doesn't have to be redrawn.
+     */
+    private static class CellState {
+
+        /** Background of the cell */
+        Color background;
+        /** Color of the cursor frame or <code>null</code> */
+        Color frame;
+        /** The value of the cell or 0 */
+        int value;
+        /** The color of the value */
+        Color valueColor;
+        /** Color of the "X" drawn over an invalid value (colorKu only) */
+        Color valueOffColor;
+        /** Draw colorKu icons instead of digits */
+        boolean colorKu;
+        /** One bit for every candidate that is shown */
+        int candidates;
+        /** Colors of the candidates (index is the candidate) */
+        Color[] candColors = new Color[10];
+        /** Hint backgrounds (circles) of the candidates */
+        Color[] hintColors = new Color[10];
+        /** Coloring of the candidates */
+        Color[] coloringColors = new Color[10];
+        /** Small filters of the candidates */
+        Color[] filterColors = new Color[10];
+        /** colorKu icon (10 or 11) for invalid candidates or 0 */
+        int[] offCands = new int[10];
+
+        void clear() {
+            background = null;
+            frame = null;
+            value = 0;
+            valueColor = null;
+            valueOffColor = null;
+            colorKu = false;
+            candidates = 0;
+            Arrays.fill(candColors, null);
+            Arrays.fill(hintColors, null);
+            Arrays.fill(coloringColors, null);
+            Arrays.fill(filterColors, null);
+            Arrays.fill(offCands, 0);
+        }
+
+        void set(CellState src) {
+            background = src.background;
+            frame = src.frame;
+            value = src.value;
+            valueColor = src.valueColor;
+            valueOffColor = src.valueOffColor;
+            colorKu = src.colorKu;
+            candidates = src.candidates;
+            System.arraycopy(src.candColors, 0, candColors, 0, candColors.length);
+            System.arraycopy(src.hintColors, 0, hintColors, 0, hintColors.length);
+            System.arraycopy(src.coloringColors, 0, coloringColors, 0, coloringColors.length);
+            System.arraycopy(src.filterColors, 0, filterColors, 0, filterColors.length);
+            System.arraycopy(src.offCands, 0, offCands, 0, offCands.length);
+        }
+
+        boolean isEqual(CellState other) {
+            return value == other.value && candidates == other.candidates && colorKu == other.colorKu
+                    && isEqual(background, other.background) && isEqual(frame, other.frame)
+                    && isEqual(valueColor, other.valueColor) && isEqual(valueOffColor, other.valueOffColor)
+                    && Arrays.equals(candColors, other.candColors) && Arrays.equals(hintColors, other.hintColors)
+                    && Arrays.equals(coloringColors, other.coloringColors)
+                    && Arrays.equals(filterColors, other.filterColors) && Arrays.equals(offCands, other.offCands);
+        }
+
+        private static boolean isEqual(Color c1, Color c2) {
+            return c1 == null ? c2 == null : c1.equals(c2);
+        }
+    }
 }